@@ -9,6 +9,7 @@
 package com.muzima.api.config;
 
 import com.muzima.util.Constants;
+import org.apache.commons.codec.binary.Base64;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +21,10 @@ public class Configuration {
 
     private Map<String, String> registry;
 
+    private int revision;
+
+    private String authorizationHeader;
+
     public Configuration() {
         registry = new HashMap<String, String>();
     }
@@ -37,6 +42,46 @@ public class Configuration {
         setServer(server);
     }
 
+    /**
+     * Get the revision of the connection settings. The revision changes every time the username, password or server
+     * is changed to a different value, so objects derived from the connection settings can tell when to rebuild.
+     *
+     * @return the revision of the connection settings.
+     */
+    public synchronized int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Get the basic authentication header for the username and password. The header is encoded once per username
+     * and password instead of once per connection.
+     *
+     * @return the value of the authorization header.
+     */
+    public synchronized String getAuthorizationHeader() {
+        if (authorizationHeader == null) {
+            String userPassword = getUsername() + ":" + getPassword();
+            authorizationHeader = "Basic " + new String(new Base64().encode(userPassword.getBytes()));
+        }
+        return authorizationHeader;
+    }
+
+    /**
+     * Get the headers sent with every request to the openmrs server: the authorization header and the preferred
+     * locale of the user when it's set.
+     *
+     * @return the headers sent with every request to the openmrs server.
+     */
+    public Map<String, String> getRequestHeaders() {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Authorization", getAuthorizationHeader());
+        String preferredLocale = getPreferredLocale();
+        if (preferredLocale != null) {
+            headers.put("Accept-Language", preferredLocale);
+        }
+        return headers;
+    }
+
     /**
      * Get the base url of the openmrs server.
      *
@@ -52,7 +97,7 @@ public class Configuration {
      * @param server the base url of the openmrs server.
      */
     public void setServer(final String server) {
-        registry.put(Constants.CONNECTION_SERVER, server);
+        putConnectionSetting(Constants.CONNECTION_SERVER, server);
     }
 
     /**
@@ -70,7 +115,7 @@ public class Configuration {
      * @param username the username of the openmrs server.
      */
     public void setUsername(final String username) {
-        registry.put(Constants.CONNECTION_USERNAME, username);
+        putConnectionSetting(Constants.CONNECTION_USERNAME, username);
     }
 
     /**
@@ -88,7 +133,7 @@ public class Configuration {
      * @param password the password of the openmrs server.
      */
     public void setPassword(final String password) {
-        registry.put(Constants.CONNECTION_PASSWORD, password);
+        putConnectionSetting(Constants.CONNECTION_PASSWORD, password);
     }
 
     /**
@@ -108,4 +153,12 @@ public class Configuration {
     public void setPreferredLocale(final String preferredLocale) {
         registry.put(Constants.PREFERRED_LOCALE, preferredLocale);
     }
+
+    private synchronized void putConnectionSetting(final String key, final String value) {
+        String previous = registry.put(key, value);
+        if (previous == null ? value != null : !previous.equals(value)) {
+            revision++;
+            authorizationHeader = null;
+        }
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.config;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+import com.muzima.util.NetworkUtils;
+
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last known reachability of the configured servers, kept up to date by probing the servers in the background. Every
+ * server has its own state, so sessions configured with different servers don't reset each other's state. The probe
+ * interval of a server starts short after its reachability changes and doubles while it stays the same, up to a
+ * maximum. A state is fresh until the next probe of the server is due.
+ */
+@Singleton
+public class ConnectivityMonitor {
+
+    private static final long DEFAULT_MINIMUM_INTERVAL = 15 * 1000L;
+
+    private static final long DEFAULT_MAXIMUM_INTERVAL = 5 * 60 * 1000L;
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
+    @Inject(optional = true)
+    @Named("connection.proxy")
+    private Proxy proxy;
+
+    @Inject(optional = true)
+    @Named("connectivity.interval.minimum")
+    private long minimumInterval = DEFAULT_MINIMUM_INTERVAL;
+
+    @Inject(optional = true)
+    @Named("connectivity.interval.maximum")
+    private long maximumInterval = DEFAULT_MAXIMUM_INTERVAL;
+
+    private final Map<String, ServerState> states = new HashMap<String, ServerState>();
+
+    private ScheduledExecutorService executor;
+
+    protected ConnectivityMonitor() {
+    }
+
+    ConnectivityMonitor(final Provider<Configuration> configurationProvider, final long minimumInterval,
+                        final long maximumInterval) {
+        this.configurationProvider = configurationProvider;
+        this.minimumInterval = minimumInterval;
+        this.maximumInterval = maximumInterval;
+    }
+
+    /**
+     * Check whether the configured server is reachable. A fresh state, or a stale state saying the server was
+     * reachable, is answered without waiting; a stale state is then refreshed in the background. When the server was
+     * not probed yet, or was unreachable on a stale probe, the server is probed before answering.
+     *
+     * @return true when the server is reachable.
+     */
+    public boolean isServerReachable() {
+        String server = configurationProvider.get().getServer();
+        synchronized (this) {
+            ServerState state = states.get(server);
+            if (state != null) {
+                if (state.isFresh()) {
+                    return state.reachable;
+                }
+                if (state.reachable) {
+                    if (state.scheduledProbe == null || state.scheduledProbe.getDelay(TimeUnit.MILLISECONDS) > 0) {
+                        schedule(server, state, 0);
+                    }
+                    return true;
+                }
+            }
+        }
+        return probe(server, null);
+    }
+
+    /**
+     * Check whether the configured server was probed and its next probe is not due yet.
+     *
+     * @return true when the last known state can be used as is.
+     */
+    public synchronized boolean isFresh() {
+        ServerState state = states.get(configurationProvider.get().getServer());
+        return state != null && state.isFresh();
+    }
+
+    /**
+     * Get the time of the last probe of the configured server.
+     *
+     * @return the time of the last probe in milliseconds, or 0 when the server was not probed yet.
+     */
+    public synchronized long getLastProbeTime() {
+        ServerState state = states.get(configurationProvider.get().getServer());
+        return state == null ? 0 : state.probeTime;
+    }
+
+    /**
+     * Notify the monitor that the network of the device changed. The last known states become stale, the servers are
+     * probed again right away and their probe intervals start over.
+     */
+    public synchronized void networkChanged() {
+        for (Map.Entry<String, ServerState> entry : states.entrySet()) {
+            ServerState state = entry.getValue();
+            state.interval = minimumInterval;
+            state.invalidated = true;
+            schedule(entry.getKey(), state, 0);
+        }
+    }
+
+    /**
+     * Stop probing the servers in the background and end the probing thread. A background probe running while the
+     * monitor is stopped doesn't schedule another probe. The last known states become stale, so probing starts again
+     * on the next check.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            for (ServerState state : states.values()) {
+                state.scheduledProbe = null;
+                state.invalidated = true;
+            }
+        }
+    }
+
+    /**
+     * Probe the server now, record its state and schedule its next probe. A background probe only schedules the next
+     * probe while its executor is still the executor of the monitor.
+     *
+     * @param server        the server to probe.
+     * @param probeExecutor the executor running the background probe, or null for a probe of the calling thread.
+     */
+    private boolean probe(final String server, final ScheduledExecutorService probeExecutor) {
+        boolean serverReachable = isAddressReachable(server);
+        synchronized (this) {
+            ServerState state = states.get(server);
+            if (state == null) {
+                state = new ServerState();
+                states.put(server, state);
+            }
+            if (state.probeTime == 0 || serverReachable != state.reachable) {
+                state.interval = minimumInterval;
+            } else {
+                state.interval = Math.min(state.interval * 2, maximumInterval);
+            }
+            state.reachable = serverReachable;
+            state.invalidated = false;
+            state.probeTime = System.currentTimeMillis();
+            if (probeExecutor == null || probeExecutor == executor) {
+                schedule(server, state, state.interval);
+            }
+        }
+        return serverReachable;
+    }
+
+    /**
+     * Send the probe request to the server.
+     *
+     * @param server the server to probe.
+     * @return true when the server answered the probe.
+     */
+    protected boolean isAddressReachable(final String server) {
+        return !StringUtil.isEmpty(server)
+                && NetworkUtils.isAddressReachable(server, proxy, Constants.CONNECTION_TIMEOUT);
+    }
+
+    private void schedule(final String server, final ServerState state, final long delay) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(runnable, "muzima-connectivity-monitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        if (state.scheduledProbe != null) {
+            state.scheduledProbe.cancel(false);
+        }
+        final ScheduledExecutorService probeExecutor = executor;
+        state.scheduledProbe = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                probe(server, probeExecutor);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Last known state of one server, guarded by the monitor.
+     */
+    private static class ServerState {
+
+        private ScheduledFuture<?> scheduledProbe;
+
+        private boolean reachable;
+
+        private long probeTime;
+
+        private long interval;
+
+        private boolean invalidated;
+
+        private boolean isFresh() {
+            return !invalidated && System.currentTimeMillis() - probeTime <= interval;
+        }
+    }
+}
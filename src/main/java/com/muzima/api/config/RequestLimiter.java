@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.config;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit on the number of requests in flight to the server, adapted to the observed latency and failures. The limit
+ * grows by one every limit successful responses while the smoothed latency stays close to the lowest latency seen,
+ * and is halved at most once per round trip when the latency grows or the server fails or refuses requests. The read
+ * timeout of the requests follows the smoothed latency and its deviation. Waiting for a permit uses a lock condition
+ * instead of a monitor, so a waiting virtual thread doesn't pin its carrier thread.
+ * <p/>
+ * Every server has its own limit and latency, and the methods of the limiter work on the server in the configuration
+ * of the calling thread, so sessions connecting to different servers don't share a limit.
+ */
+@Singleton
+public class RequestLimiter {
+
+    private static final int DEFAULT_INITIAL_LIMIT = 4;
+
+    private static final int DEFAULT_MAXIMUM_LIMIT = 16;
+
+    private static final int DEFAULT_MINIMUM_TIMEOUT = 10 * 1000;
+
+    private static final int DEFAULT_MAXIMUM_TIMEOUT = 120 * 1000;
+
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private static final double BASELINE_DRIFT = 0.01;
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
+    @Inject(optional = true)
+    @Named("limiter.limit.initial")
+    private int initialLimit = DEFAULT_INITIAL_LIMIT;
+
+    @Inject(optional = true)
+    @Named("limiter.limit.maximum")
+    private int maximumLimit = DEFAULT_MAXIMUM_LIMIT;
+
+    @Inject(optional = true)
+    @Named("limiter.timeout.minimum")
+    private int minimumTimeout = DEFAULT_MINIMUM_TIMEOUT;
+
+    @Inject(optional = true)
+    @Named("limiter.timeout.maximum")
+    private int maximumTimeout = DEFAULT_MAXIMUM_TIMEOUT;
+
+    private final Map<String, ServerLimit> serverLimits = new HashMap<String, ServerLimit>();
+
+    protected RequestLimiter() {
+    }
+
+    RequestLimiter(final Provider<Configuration> configurationProvider, final int initialLimit,
+                   final int maximumLimit, final int minimumTimeout, final int maximumTimeout) {
+        this.configurationProvider = configurationProvider;
+        this.initialLimit = initialLimit;
+        this.maximumLimit = maximumLimit;
+        this.minimumTimeout = minimumTimeout;
+        this.maximumTimeout = maximumTimeout;
+    }
+
+    /**
+     * Wait until a request can be sent to the server without exceeding the limit of the server.
+     *
+     * @return the permit of the request, to be released when the response was read.
+     * @throws IOException when the wait was interrupted.
+     */
+    public Permit acquire() throws IOException {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.acquire();
+        return new Permit(serverLimit, currentTimeMillis());
+    }
+
+    /**
+     * Get the current limit on the number of requests in flight to the server.
+     *
+     * @return the limit.
+     */
+    public double getLimit() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return serverLimit.getLimit();
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of requests in flight to the server.
+     *
+     * @return the number of requests in flight.
+     */
+    public int getInFlight() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return serverLimit.inFlight;
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the smoothed latency of the responses of the server.
+     *
+     * @return the smoothed latency in milliseconds, or 0 when no response was received yet.
+     */
+    public long getSmoothedLatency() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return (long) serverLimit.smoothedLatency;
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the lowest latency seen from the server, drifting slowly towards the recent latency.
+     *
+     * @return the baseline latency in milliseconds, or 0 when no response was received yet.
+     */
+    public long getBaselineLatency() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return (long) serverLimit.baselineLatency;
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the read timeout for the next request to the server.
+     *
+     * @return the read timeout in milliseconds.
+     */
+    public int getReadTimeout() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            if (serverLimit.successCount == 0) {
+                return maximumTimeout;
+            }
+            long timeout = (long) (serverLimit.smoothedLatency + 4 * serverLimit.latencyDeviation);
+            return (int) Math.max(minimumTimeout, Math.min(maximumTimeout, timeout));
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of successful responses of the server.
+     *
+     * @return the number of successful responses.
+     */
+    public long getSuccessCount() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return serverLimit.successCount;
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of failed requests to the server, counting server errors and refused requests.
+     *
+     * @return the number of failed requests.
+     */
+    public long getFailureCount() {
+        ServerLimit serverLimit = getServerLimit();
+        serverLimit.lock.lock();
+        try {
+            return serverLimit.failureCount;
+        } finally {
+            serverLimit.lock.unlock();
+        }
+    }
+
+    /**
+     * Get the current time used to measure the latency of the requests.
+     *
+     * @return the current time in milliseconds.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private synchronized ServerLimit getServerLimit() {
+        String server = configurationProvider.get().getServer();
+        ServerLimit serverLimit = serverLimits.get(server);
+        if (serverLimit == null) {
+            serverLimit = new ServerLimit();
+            serverLimits.put(server, serverLimit);
+        }
+        return serverLimit;
+    }
+
+    /**
+     * Limit and latency of the requests to one server, guarded by its lock.
+     */
+    private class ServerLimit {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition permitReleased = lock.newCondition();
+
+        private double limit;
+
+        private int inFlight;
+
+        private double baselineLatency;
+
+        private double smoothedLatency;
+
+        private double latencyDeviation;
+
+        private long lastDecreaseTime;
+
+        private long successCount;
+
+        private long failureCount;
+
+        private void acquire() throws IOException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) getLimit()) {
+                    permitReleased.await();
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting to send a request.");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private double getLimit() {
+            if (limit == 0) {
+                limit = Math.max(1, Math.min(initialLimit, maximumLimit));
+            }
+            return limit;
+        }
+
+        private void onSuccess(final long latency) {
+            lock.lock();
+            try {
+                successCount++;
+                if (successCount == 1) {
+                    baselineLatency = latency;
+                    smoothedLatency = latency;
+                    latencyDeviation = latency / 2.0;
+                } else {
+                    baselineLatency = latency < baselineLatency
+                            ? latency : baselineLatency + (latency - baselineLatency) * BASELINE_DRIFT;
+                    latencyDeviation = 0.75 * latencyDeviation + 0.25 * Math.abs(smoothedLatency - latency);
+                    smoothedLatency = 0.875 * smoothedLatency + 0.125 * latency;
+                }
+                if (smoothedLatency > LATENCY_TOLERANCE * Math.max(baselineLatency, 1)) {
+                    decrease();
+                } else {
+                    limit = Math.min(maximumLimit, getLimit() + 1 / getLimit());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void onFailure() {
+            lock.lock();
+            try {
+                failureCount++;
+                decrease();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void decrease() {
+            long now = currentTimeMillis();
+            if (now - lastDecreaseTime > smoothedLatency) {
+                limit = Math.max(1, getLimit() / 2);
+                lastDecreaseTime = now;
+            }
+        }
+
+        private void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                permitReleased.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Permit of one request in flight to a server.
+     */
+    public class Permit {
+
+        private final ServerLimit serverLimit;
+
+        private final long startTime;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(final ServerLimit serverLimit, final long startTime) {
+            this.serverLimit = serverLimit;
+            this.startTime = startTime;
+        }
+
+        /**
+         * Record the outcome of the request when the response headers arrived or the request failed.
+         *
+         * @param success false when the request failed or the server answered with an error or refused the request.
+         */
+        public void complete(final boolean success) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            if (success) {
+                serverLimit.onSuccess(currentTimeMillis() - startTime);
+            } else {
+                serverLimit.onFailure();
+            }
+        }
+
+        /**
+         * Release the permit when the response was read. Releasing the permit again has no effect.
+         */
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                serverLimit.release();
+            }
+        }
+    }
+}
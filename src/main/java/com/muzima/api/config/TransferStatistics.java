@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.config;
+
+import com.google.inject.Singleton;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of bytes sent to and received from the server for each resource, as transferred on the wire (after
+ * compression).
+ */
+@Singleton
+public class TransferStatistics {
+
+    private final ConcurrentMap<String, AtomicLong> bytesSent = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final ConcurrentMap<String, AtomicLong> bytesReceived = new ConcurrentHashMap<String, AtomicLong>();
+
+    /**
+     * Record bytes sent to the server for the resource.
+     *
+     * @param resource the name of the resource.
+     * @param bytes    the number of bytes sent.
+     */
+    public void recordSent(final String resource, final long bytes) {
+        getCounter(bytesSent, resource).addAndGet(bytes);
+    }
+
+    /**
+     * Record bytes received from the server for the resource.
+     *
+     * @param resource the name of the resource.
+     * @param bytes    the number of bytes received.
+     */
+    public void recordReceived(final String resource, final long bytes) {
+        getCounter(bytesReceived, resource).addAndGet(bytes);
+    }
+
+    /**
+     * Get the total number of bytes sent to the server for the resource.
+     *
+     * @param resource the name of the resource.
+     * @return the number of bytes sent.
+     */
+    public long getBytesSent(final String resource) {
+        AtomicLong counter = bytesSent.get(resource);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Get the total number of bytes received from the server for the resource.
+     *
+     * @param resource the name of the resource.
+     * @return the number of bytes received.
+     */
+    public long getBytesReceived(final String resource) {
+        AtomicLong counter = bytesReceived.get(resource);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Get the names of all resources with recorded transfers.
+     *
+     * @return the names of the resources.
+     */
+    public Set<String> getResources() {
+        Set<String> resources = new TreeSet<String>(bytesSent.keySet());
+        resources.addAll(bytesReceived.keySet());
+        return resources;
+    }
+
+    /**
+     * Forget all recorded transfers.
+     */
+    public void reset() {
+        bytesSent.clear();
+        bytesReceived.clear();
+    }
+
+    private AtomicLong getCounter(final ConcurrentMap<String, AtomicLong> counters, final String resource) {
+        AtomicLong counter = counters.get(resource);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(resource, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import com.muzima.api.service.MuzimaInterface;
+import com.muzima.api.service.OperationToken;
+import com.muzima.api.service.ServiceCall;
+import com.muzima.api.service.ServiceCallback;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asynchronous facade of a service, running the calls of the service on the service executor. A call runs in the
+ * session of the thread which submitted it. Cancelling the returned future cancels the operation token of the call,
+ * which aborts the responses being read and stops indexing before the next batch. The thread running the call is never
+ * interrupted, whatever the value of <code>mayInterruptIfRunning</code>, because interrupting a thread writing to the
+ * local repository closes the repository files. The future of a cancelled call is done and the callback is notified
+ * only once the call stopped, so nothing is written to the repository by the call after that.
+ *
+ * @param <S> the service.
+ */
+public class AsyncService<S extends MuzimaInterface> {
+
+    private final S service;
+
+    private final ServiceExecutor serviceExecutor;
+
+    AsyncService(final S service, final ServiceExecutor serviceExecutor) {
+        this.service = service;
+        this.serviceExecutor = serviceExecutor;
+    }
+
+    /**
+     * Get the blocking service behind this facade.
+     *
+     * @return the service.
+     */
+    public S getService() {
+        return service;
+    }
+
+    /**
+     * Submit the call to the service executor.
+     *
+     * @param call the call.
+     * @param <T>  the result of the call.
+     * @return the future result of the call.
+     */
+    public <T> Future<T> submit(final ServiceCall<S, T> call) {
+        return submit(call, null);
+    }
+
+    /**
+     * Submit the call to the service executor and notify the callback when the call is done.
+     *
+     * @param call     the call.
+     * @param callback the callback, or null when the caller waits on the future.
+     * @param <T>      the result of the call.
+     * @return the future result of the call.
+     */
+    public <T> Future<T> submit(final ServiceCall<S, T> call, final ServiceCallback<T> callback) {
+        return submit(call, callback, new OperationToken());
+    }
+
+    /**
+     * Submit the call to the service executor with the operation token, to follow the progress of the call on the
+     * token.
+     *
+     * @param call     the call.
+     * @param callback the callback, or null when the caller waits on the future.
+     * @param token    the operation token of the call.
+     * @param <T>      the result of the call.
+     * @return the future result of the call.
+     */
+    public <T> Future<T> submit(final ServiceCall<S, T> call, final ServiceCallback<T> callback,
+                                final OperationToken token) {
+        final CallContext callContext = CallContext.capture(token);
+        ServiceTask<T> task = new ServiceTask<T>(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                CallContext previous = callContext.attach();
+                try {
+                    return call.call(service);
+                } finally {
+                    previous.attach();
+                }
+            }
+        }, token, callback);
+        serviceExecutor.getExecutor().execute(task);
+        return task;
+    }
+
+    /**
+     * Future of a call which is done only when the call stopped. Cancelling a call which already started cancels its
+     * token and leaves the future running until the call returns at its next token check, the future then reports the
+     * cancellation and the callback is notified. A call which didn't start yet is cancelled right away and never runs.
+     */
+    private static class ServiceTask<T> extends FutureTask<T> {
+
+        private final OperationToken token;
+
+        private final ServiceCallback<T> callback;
+
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private boolean cancelRequested;
+
+        private boolean completed;
+
+        ServiceTask(final Callable<T> callable, final OperationToken token, final ServiceCallback<T> callback) {
+            super(callable);
+            this.token = token;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                super.run();
+            }
+        }
+
+        /**
+         * Cancel the operation token of the call. The thread running the call is never interrupted, so
+         * <code>mayInterruptIfRunning</code> is ignored, and the future of a running call is done once the call
+         * returned.
+         */
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            token.cancel();
+            if (started.compareAndSet(false, true)) {
+                return super.cancel(false);
+            }
+            synchronized (this) {
+                if (completed || cancelRequested) {
+                    return false;
+                }
+                cancelRequested = true;
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return super.isCancelled() || (isDone() && isCancelRequested());
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            try {
+                return checkCancelled(super.get());
+            } catch (ExecutionException e) {
+                throw checkCancelled(e);
+            }
+        }
+
+        @Override
+        public T get(final long timeout, final TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            try {
+                return checkCancelled(super.get(timeout, unit));
+            } catch (ExecutionException e) {
+                throw checkCancelled(e);
+            }
+        }
+
+        @Override
+        protected void done() {
+            synchronized (this) {
+                completed = true;
+            }
+            if (callback == null) {
+                return;
+            }
+            T result;
+            try {
+                result = get();
+            } catch (CancellationException e) {
+                callback.onFailure(e);
+                return;
+            } catch (ExecutionException e) {
+                callback.onFailure(e.getCause());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onFailure(e);
+                return;
+            }
+            callback.onSuccess(result);
+        }
+
+        private synchronized boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        private <R> R checkCancelled(final R outcome) {
+            if (isCancelRequested()) {
+                throw new CancellationException("The call was cancelled.");
+            }
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.google.inject.Inject;
+import com.muzima.api.annotation.Authorization;
+import com.muzima.api.exception.AuthenticationException;
+import com.muzima.api.service.UserService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interceptor of the methods annotated with {@link Authorization}, allowing the call only when the user of the session
+ * attached to the current thread has one of the privileges listed in the annotation. The privileges of the annotation
+ * and the privileges of the user are resolved to bit sets once, so the check of a call is a bit set test. The
+ * interceptor is only bound when {@link InterceptionSupport#isSupported()}, as this class needs the aopalliance types.
+ */
+public class AuthorizationInterceptor implements MethodInterceptor {
+
+    private final ConcurrentMap<Method, BitSet> requiredPrivileges = new ConcurrentHashMap<Method, BitSet>();
+
+    @Inject
+    private PrivilegeDictionary privilegeDictionary;
+
+    @Inject
+    private UserService userService;
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        UserContext userContext = Context.getCurrentUserContext();
+        if (userContext == null || !userContext.isAuthenticated()) {
+            throw new AuthenticationException("Unable to call " + method.getName() + " without authenticated user.");
+        }
+        if (!userContext.hasAnyPrivilege(privilegeDictionary, getRequiredPrivileges(method), userService)) {
+            throw new AuthenticationException("User " + userContext.getAuthenticatedUser().getUsername()
+                    + " is not allowed to call " + method.getName() + ".");
+        }
+        return invocation.proceed();
+    }
+
+    private BitSet getRequiredPrivileges(final Method method) {
+        BitSet privileges = requiredPrivileges.get(method);
+        if (privileges == null) {
+            privileges = privilegeDictionary.resolve(method.getAnnotation(Authorization.class).privileges());
+            requiredPrivileges.put(method, privileges);
+        }
+        return privileges;
+    }
+}
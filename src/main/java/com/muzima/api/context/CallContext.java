@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import com.muzima.api.service.OperationToken;
+
+/**
+ * Session and operation token of a thread, captured to be attached to the worker threads running part of the same
+ * call, so the workers connect with the credentials of the session and stop when the operation is cancelled.
+ */
+public final class CallContext {
+
+    private final UserContext userContext;
+
+    private final OperationToken token;
+
+    private CallContext(final UserContext userContext, final OperationToken token) {
+        this.userContext = userContext;
+        this.token = token;
+    }
+
+    /**
+     * Capture the session and operation token of the current thread.
+     *
+     * @return the captured call context.
+     */
+    public static CallContext capture() {
+        return new CallContext(Context.getCurrentUserContext(), OperationToken.current());
+    }
+
+    /**
+     * Capture the session of the current thread with another operation token.
+     *
+     * @param token the operation token.
+     * @return the captured call context.
+     */
+    public static CallContext capture(final OperationToken token) {
+        return new CallContext(Context.getCurrentUserContext(), token);
+    }
+
+    /**
+     * Attach the session and operation token to the current thread.
+     *
+     * @return the call context of the current thread before, to be attached again when the work is done.
+     */
+    public CallContext attach() {
+        CallContext previous = capture();
+        Context.setCurrentUserContext(userContext);
+        OperationToken.attach(token);
+        return previous;
+    }
+
+    public OperationToken getToken() {
+        return token;
+    }
+}
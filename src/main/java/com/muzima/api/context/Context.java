@@ -9,8 +9,10 @@
 package com.muzima.api.context;
 
 import com.google.inject.Injector;
-import com.jayway.jsonpath.JsonPath;
 import com.muzima.api.config.Configuration;
+import com.muzima.api.config.ConnectivityMonitor;
+import com.muzima.api.config.RequestLimiter;
+import com.muzima.api.config.TransferStatistics;
 import com.muzima.api.model.User;
 import com.muzima.api.service.CohortService;
 import com.muzima.api.service.EncounterService;
@@ -20,35 +22,28 @@ import com.muzima.api.service.LocationService;
 import com.muzima.api.service.MuzimaInterface;
 import com.muzima.api.service.ObservationService;
 import com.muzima.api.service.PatientService;
+import com.muzima.api.service.PatientTimelineService;
 import com.muzima.api.service.SetupConfigurationService;
+import com.muzima.api.service.SyncService;
 import com.muzima.api.service.UserService;
-import com.muzima.search.api.context.ServiceContext;
-import com.muzima.search.api.exception.ServiceException;
-import com.muzima.search.api.model.object.Searchable;
-import com.muzima.search.api.model.resolver.Resolver;
-import com.muzima.search.api.model.serialization.Algorithm;
-import com.muzima.search.api.resource.ObjectResource;
-import com.muzima.search.api.resource.Resource;
-import com.muzima.search.api.resource.ResourceConstants;
 import com.muzima.search.api.util.StringUtil;
 import com.muzima.util.Constants;
 import org.apache.lucene.queryParser.ParseException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
 
 /**
  * TODO: Write brief description about the class here.
  */
 public class Context {
 
+    private static final String RESOURCE_CACHE_SUFFIX = ".resources";
+
     private static final ThreadLocal<UserContext> userContextHolder = new ThreadLocal<UserContext>();
     private Injector injector;
 
@@ -70,7 +65,7 @@ public class Context {
      */
     private void initService() throws Exception {
         InputStream inputStream = null;
-        ServiceContext serviceContext = injector.getInstance(ServiceContext.class);
+        ResourceRegistry resourceRegistry = injector.getInstance(ResourceRegistry.class);
         String configurationString = ContextFactory.getProperty(Constants.RESOURCE_CONFIGURATION_STRING);
         if (!StringUtil.isEmpty(configurationString)) {
             inputStream = new ByteArrayInputStream(configurationString.getBytes());
@@ -93,78 +88,36 @@ public class Context {
                             "Constants.RESOURCE_CONFIGURATION_PATH property in the ContextFactory."
             );
         }
-        registerResources(inputStream, serviceContext);
+        registerResources(inputStream, resourceRegistry);
     }
 
     /**
-     * Internal method to register resource configurations inside the input stream.
+     * Internal method to register resource configurations inside the input stream. The resources are created when
+     * they are first used.
      *
      * @param inputStream the configuration's input stream.
-     * @throws IOException when the parser fail to read the configuration file
-     */
-    private void registerResources(final InputStream inputStream, final ServiceContext serviceContext) throws Exception {
-        List<Object> configurations = JsonPath.read(inputStream, "$['configurations']");
-        for (Object configuration : configurations) {
-            Resource resource = createResource(String.valueOf(configuration));
-            serviceContext.registerResource(resource.getName(), resource);
-        }
-    }
-
-    /**
-     * Internal method to convert configuration string into the resource object.
-     *
-     * @param configuration the configuration.
-     * @return the resource object
-     * @throws IOException when the parser fail to read the configuration file
+     * @throws Exception when the parser fail to read the configuration file
      */
-    private Resource createResource(final String configuration) throws Exception {
-
-        String name = JsonPath.read(configuration, ResourceConstants.RESOURCE_NAME);
-        String root = JsonPath.read(configuration, ResourceConstants.ROOT_NODE);
-        if (StringUtil.isEmpty(root)) {
-            throw new ServiceException("Unable to create resource because of missing root node.");
-        }
-
-        String searchableName = JsonPath.read(configuration, ResourceConstants.SEARCHABLE_CLASS);
-        if (StringUtil.isEmpty(root)) {
-            throw new ServiceException("Unable to create resource because of missing searchable node.");
-        }
-        Class searchableClass = Class.forName(searchableName);
-        Searchable searchable = (Searchable) getInjector().getInstance(searchableClass);
-
-        String algorithmName = JsonPath.read(configuration, ResourceConstants.ALGORITHM_CLASS);
-        if (StringUtil.isEmpty(root)) {
-            throw new ServiceException("Unable to create resource because of missing algorithm node.");
-        }
-        Class algorithmClass = Class.forName(algorithmName);
-        Algorithm algorithm = (Algorithm) getInjector().getInstance(algorithmClass);
-
-        String resolverName = JsonPath.read(configuration, ResourceConstants.RESOLVER_CLASS);
-        if (StringUtil.isEmpty(root)) {
-            throw new ServiceException("Unable to create resource because of missing resolver node.");
-        }
-        Class resolverClass = Class.forName(resolverName);
-        Resolver resolver = (Resolver) getInjector().getInstance(resolverClass);
-
-        List<String> uniqueFields = new ArrayList<String>();
-        String uniqueField = JsonPath.read(configuration, ResourceConstants.UNIQUE_FIELD);
-        if (uniqueField != null) {
-            uniqueFields = Arrays.asList(StringUtil.split(uniqueField, ","));
-        }
-        Resource resource = new ObjectResource(name, root, searchable.getClass(), algorithm, resolver);
-        Object searchableFields = JsonPath.read(configuration, ResourceConstants.SEARCHABLE_FIELD);
-        if (searchableFields instanceof Map) {
-            Map map = (Map) searchableFields;
-            for (Object fieldName : map.keySet()) {
-                Boolean unique = Boolean.FALSE;
-                if (uniqueFields.contains(String.valueOf(fieldName))) {
-                    unique = Boolean.TRUE;
-                }
-                String expression = String.valueOf(map.get(fieldName));
-                resource.addFieldDefinition(String.valueOf(fieldName), expression, unique);
+    private void registerResources(final InputStream inputStream,
+                                   final ResourceRegistry resourceRegistry) throws Exception {
+        byte[] configuration;
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
             }
+            configuration = outputStream.toByteArray();
+        } finally {
+            inputStream.close();
         }
-        return resource;
+        File cacheFile = null;
+        String repositoryPath = ContextFactory.getProperty(Constants.LUCENE_DIRECTORY_PATH);
+        if (!StringUtil.isEmpty(repositoryPath)) {
+            cacheFile = new File(repositoryPath + RESOURCE_CACHE_SUFFIX);
+        }
+        resourceRegistry.registerDescriptors(ResourceRegistry.load(configuration, cacheFile));
     }
 
     /**
@@ -185,6 +138,28 @@ public class Context {
         return userContextHolder.get();
     }
 
+    /**
+     * Get the user context attached to the current thread, for the session scope.
+     *
+     * @return the user context or null when no session is attached to the current thread.
+     */
+    static UserContext getCurrentUserContext() {
+        return userContextHolder.get();
+    }
+
+    /**
+     * Attach the user context to the current thread, for the threads running asynchronous service calls.
+     *
+     * @param userContext the user context, or null to detach the user context of the current thread.
+     */
+    static void setCurrentUserContext(final UserContext userContext) {
+        if (userContext == null) {
+            userContextHolder.remove();
+        } else {
+            userContextHolder.set(userContext);
+        }
+    }
+
     private void setUserContext(final UserContext userContext) {
         userContextHolder.set(userContext);
     }
@@ -211,6 +186,39 @@ public class Context {
         removeUserContext();
     }
 
+    /**
+     * Stop the background threads of the context, the threads running the asynchronous service calls and the thread
+     * probing the server. Call this method when the context is no longer used. The shared context of the multi session
+     * mode is used by every session, so it is only closed when the application stops.
+     *
+     * @throws IOException when the injector is not ready.
+     */
+    public void close() throws IOException {
+        getInjector().getInstance(ServiceExecutor.class).shutdown();
+        getInjector().getInstance(ConnectivityMonitor.class).stop();
+    }
+
+    /**
+     * Get the session attached to the current thread. The session can be attached to another thread to serve the next
+     * request of the same user, together with its authenticated user and configuration.
+     *
+     * @return the session or null when no session is attached to the current thread.
+     */
+    public Session getSession() {
+        UserContext userContext = getUserContext();
+        return userContext == null ? null : new Session(userContext);
+    }
+
+    /**
+     * Attach the session to the current thread, replacing the session attached to the thread. Call
+     * <code>closeSession</code> when the thread is done with the session.
+     *
+     * @param session the session opened on this or another thread.
+     */
+    public void attachSession(final Session session) {
+        setUserContext(session.getUserContext());
+    }
+
     /**
      * Perform authentication of the username and password in to the server. When the user is offline, the
      * authentication process will be performed against the local lucene repository.
@@ -236,6 +244,7 @@ public class Context {
         Configuration configuration = getInjector().getInstance(Configuration.class);
         configuration.configure(username, password, server);
         getUserContext().setConfiguration(configuration);
+        getUserContext().setConnectivityMonitor(getInjector().getInstance(ConnectivityMonitor.class));
     }
 
     /**
@@ -292,6 +301,19 @@ public class Context {
         return getInjector().getInstance(serviceClass);
     }
 
+    /**
+     * Get the asynchronous facade of a service, running the calls of the service on the service executor in the
+     * session of the calling thread.
+     *
+     * @param serviceClass the service class.
+     * @param <T>          the generic type of the service class.
+     * @return the asynchronous facade of the service.
+     * @throws IOException when the injector unable to find registered class.
+     */
+    public <T extends MuzimaInterface> AsyncService<T> getAsyncService(final Class<T> serviceClass) throws IOException {
+        return new AsyncService<T>(getService(serviceClass), getInjector().getInstance(ServiceExecutor.class));
+    }
+
     /**
      * Get the cohort service to perform operation related to the cohort object.
      *
@@ -352,6 +374,16 @@ public class Context {
         return getService(LastSyncTimeService.class);
     }
 
+    /**
+     * Get the sync service to run the download stages of a sync.
+     *
+     * @return the sync service class.
+     * @throws IOException when the system unable to find the correct service object.
+     */
+    public SyncService getSyncService() throws IOException {
+        return getService(SyncService.class);
+    }
+
     /**
      * Get the user service to perform operation related to the user object.
      *
@@ -381,4 +413,46 @@ public class Context {
     public SetupConfigurationService getSetupConfigurationService() throws IOException {
         return getService(SetupConfigurationService.class);
     }
+
+    /**
+     * Get the patient timeline service to read the encounters, observations and form data of a patient as one timeline.
+     *
+     * @return the patient timeline service class.
+     * @throws IOException when the system unable to find the correct service object.
+     */
+    public PatientTimelineService getPatientTimelineService() throws IOException {
+        return getService(PatientTimelineService.class);
+    }
+
+    /**
+     * Get the number of bytes sent and received on the wire for each resource since the last reset.
+     *
+     * @return the transfer statistics.
+     * @throws IOException when the system unable to create the injector.
+     */
+    public TransferStatistics getTransferStatistics() throws IOException {
+        return getInjector().getInstance(TransferStatistics.class);
+    }
+
+    /**
+     * Get the connectivity monitor holding the last known reachability of the configured server. Call
+     * <code>networkChanged()</code> on the monitor when the network of the device changes.
+     *
+     * @return the connectivity monitor.
+     * @throws IOException when the system unable to create the injector.
+     */
+    public ConnectivityMonitor getConnectivityMonitor() throws IOException {
+        return getInjector().getInstance(ConnectivityMonitor.class);
+    }
+
+    /**
+     * Get the request limiter holding the current limit on the requests in flight to the server, the smoothed latency
+     * and the read timeout, for monitoring.
+     *
+     * @return the request limiter.
+     * @throws IOException when the system unable to create the injector.
+     */
+    public RequestLimiter getRequestLimiter() throws IOException {
+        return getInjector().getInstance(RequestLimiter.class);
+    }
 }
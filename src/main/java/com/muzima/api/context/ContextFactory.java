@@ -8,11 +8,14 @@
 
 package com.muzima.api.context;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.util.Modules;
 import com.muzima.api.module.MuzimaModule;
 import com.muzima.api.module.SslModule;
+import com.muzima.search.api.context.ServiceContext;
 import com.muzima.search.api.module.SearchModule;
 import com.muzima.search.api.util.StringUtil;
 import com.muzima.util.Constants;
@@ -31,6 +34,8 @@ public class ContextFactory {
 
     private static final List<Module> modules = new ArrayList<Module>();
 
+    private static Context sharedContext;
+
     static {
         // override this property to match the location of your resource configurations.
         String resourcePath = "/com/muzima/api/service/j2l/config.json";
@@ -96,18 +101,39 @@ public class ContextFactory {
      * * Constants.LUCENE_DIRECTORY_PATH
      * * Constants.LUCENE_DEFAULT_FIELD
      * * Constants.RESOURCE_CONFIGURATION_PATH
+     * When the Constants.CONTEXT_MULTI_SESSION property is true, every call returns the same context, whose
+     * injector and resources are shared by all sessions while every session gets its own configuration. A thread
+     * using a service in this mode must have a session attached, or the configuration can't be found.
      *
-     * @return a fresh context.
+     * @return a fresh context, or the shared context in multi session mode.
      * @throws IOException when creating context failed.
      */
     public static Context createContext() throws Exception {
+        if (Boolean.parseBoolean(getProperty(Constants.CONTEXT_MULTI_SESSION))) {
+            synchronized (ContextFactory.class) {
+                if (sharedContext == null) {
+                    sharedContext = new Context(createInjector(true));
+                }
+                return sharedContext;
+            }
+        }
+        return new Context(createInjector(false));
+    }
+
+    private static Injector createInjector(final boolean sessionScoped) {
         MuzimaModule muzimaModule = new MuzimaModule();
         muzimaModule.setRepositoryPath(getProperty(Constants.LUCENE_DIRECTORY_PATH));
         muzimaModule.setEncryptionKey(getProperty(Constants.LUCENE_ENCRYPTION_KEY));
         muzimaModule.setUseEncryption(false);
+        muzimaModule.setSessionScoped(sessionScoped);
         SslModule sslModule = new SslModule();
         SearchModule searchModule = new SearchModule();
-        Injector injector = Guice.createInjector(muzimaModule, sslModule, searchModule);
-        return new Context(injector);
+        Module resourceModule = new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(ServiceContext.class).to(ResourceRegistry.class);
+            }
+        };
+        return Guice.createInjector(muzimaModule, sslModule, Modules.override(searchModule).with(resourceModule));
     }
 }
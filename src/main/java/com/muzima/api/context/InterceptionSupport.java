@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.google.inject.Binder;
+
+import java.lang.reflect.Method;
+
+/**
+ * Check of the method interception support of the running Guice build. The class doesn't reference any aopalliance
+ * type, so it can be loaded on the no_aop build used on Android where the aopalliance classes are missing.
+ */
+public class InterceptionSupport {
+
+    private static final String METHOD_INTERCEPTOR_CLASS = "org.aopalliance.intercept.MethodInterceptor";
+
+    /**
+     * Check whether the Guice build supports method interception. The no_aop build used on Android doesn't have
+     * <code>bindInterceptor</code> or the aopalliance classes, and any build can have bytecode generation turned off.
+     *
+     * @return true when an interceptor can be bound.
+     */
+    public static boolean isSupported() {
+        if ("DISABLED".equalsIgnoreCase(System.getProperty("guice_bytecode_gen_option"))) {
+            return false;
+        }
+        try {
+            Class.forName(METHOD_INTERCEPTOR_CLASS, false, InterceptionSupport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        for (Method method : Binder.class.getMethods()) {
+            if ("bindInterceptor".equals(method.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
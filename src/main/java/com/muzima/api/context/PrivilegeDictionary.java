@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.google.inject.Singleton;
+import com.muzima.api.model.Privilege;
+import com.muzima.api.model.Role;
+import com.muzima.api.model.User;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dictionary giving every privilege name a bit index, so a set of privileges is a bit set and checking a privilege is
+ * a bit test. The generation of the dictionary changes when users or roles are updated, which makes the privileges
+ * resolved for the sessions stale.
+ */
+@Singleton
+public class PrivilegeDictionary {
+
+    /**
+     * Role granting every privilege, as on the server.
+     */
+    public static final String SUPERUSER_ROLE = "System Developer";
+
+    private final ConcurrentMap<String, Integer> indexes = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Get the bit index of the privilege, adding the privilege to the dictionary when it's not in the dictionary yet.
+     *
+     * @param name the name of the privilege.
+     * @return the bit index of the privilege.
+     */
+    public int intern(final String name) {
+        Integer index = indexes.get(name);
+        if (index == null) {
+            Integer newIndex = nextIndex.getAndIncrement();
+            index = indexes.putIfAbsent(name, newIndex);
+            if (index == null) {
+                index = newIndex;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the bit set of the privileges.
+     *
+     * @param names the names of the privileges.
+     * @return the bit set of the privileges.
+     */
+    public BitSet resolve(final String[] names) {
+        BitSet privileges = new BitSet();
+        for (String name : names) {
+            privileges.set(intern(name));
+        }
+        return privileges;
+    }
+
+    /**
+     * Get the bit set of the privileges granted to the user directly and through the roles of the user.
+     *
+     * @param user the user.
+     * @return the bit set of the privileges, or null when the user has the superuser role.
+     */
+    public BitSet resolve(final User user) {
+        BitSet privileges = new BitSet();
+        add(privileges, user.getPrivileges());
+        if (user.getRoles() != null) {
+            for (Role role : user.getRoles()) {
+                if (SUPERUSER_ROLE.equals(role.getName())) {
+                    return null;
+                }
+                add(privileges, role.getPrivileges());
+            }
+        }
+        return privileges;
+    }
+
+    /**
+     * Get the generation of the dictionary.
+     *
+     * @return the generation of the dictionary.
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Make the privileges resolved for the sessions stale, after users or roles were updated.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private void add(final BitSet privileges, final List<Privilege> grantedPrivileges) {
+        if (grantedPrivileges != null) {
+            for (Privilege privilege : grantedPrivileges) {
+                if (privilege.getName() != null) {
+                    privileges.set(intern(privilege.getName()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled configuration of a resource, holding the values of a resource configuration without the classes they
+ * name, so the configuration can be cached and the classes loaded when the resource is first used.
+ */
+class ResourceDescriptor {
+
+    private final String name;
+
+    private final String rootNode;
+
+    private final String searchableClass;
+
+    private final String algorithmClass;
+
+    private final String resolverClass;
+
+    private final List<String> uniqueFields;
+
+    private final Map<String, String> searchableFields = new LinkedHashMap<String, String>();
+
+    ResourceDescriptor(final String name, final String rootNode, final String searchableClass,
+                       final String algorithmClass, final String resolverClass, final List<String> uniqueFields) {
+        this.name = name;
+        this.rootNode = rootNode;
+        this.searchableClass = searchableClass;
+        this.algorithmClass = algorithmClass;
+        this.resolverClass = resolverClass;
+        this.uniqueFields = uniqueFields;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRootNode() {
+        return rootNode;
+    }
+
+    public String getSearchableClass() {
+        return searchableClass;
+    }
+
+    public String getAlgorithmClass() {
+        return algorithmClass;
+    }
+
+    public String getResolverClass() {
+        return resolverClass;
+    }
+
+    public List<String> getUniqueFields() {
+        return uniqueFields;
+    }
+
+    public Map<String, String> getSearchableFields() {
+        return searchableFields;
+    }
+
+    public void addSearchableField(final String fieldName, final String expression) {
+        searchableFields.put(fieldName, expression);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import com.jayway.jsonpath.JsonPath;
+import com.muzima.search.api.context.ServiceContext;
+import com.muzima.search.api.exception.ServiceException;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.model.resolver.Resolver;
+import com.muzima.search.api.model.serialization.Algorithm;
+import com.muzima.search.api.resource.ObjectResource;
+import com.muzima.search.api.resource.Resource;
+import com.muzima.search.api.resource.ResourceConstants;
+import com.muzima.search.api.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Service context creating the resources when they are first requested instead of when the context is created. The
+ * resource configuration is compiled once into descriptors, which are cached in a versioned binary file keyed by the
+ * checksum of the configuration, so later startups skip parsing the configuration.
+ */
+@Singleton
+public class ResourceRegistry extends ServiceContext {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceRegistry.class.getSimpleName());
+
+    private static final int MAGIC = 0x4D524431;
+
+    private static final int FORMAT_VERSION = 1;
+
+    @Inject
+    private Injector injector;
+
+    private final ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<String, Resource>();
+
+    private volatile Map<String, ResourceDescriptor> descriptors = Collections.emptyMap();
+
+    /**
+     * Register the descriptors of the resources to be created when they are first requested. The descriptors are
+     * copied into a new map, so the resources can be looked up without locking.
+     *
+     * @param resourceDescriptors the descriptors.
+     */
+    synchronized void registerDescriptors(final List<ResourceDescriptor> resourceDescriptors) {
+        Map<String, ResourceDescriptor> registered = new LinkedHashMap<String, ResourceDescriptor>(descriptors);
+        for (ResourceDescriptor descriptor : resourceDescriptors) {
+            registered.put(descriptor.getName(), descriptor);
+        }
+        descriptors = registered;
+    }
+
+    /**
+     * Get the names of the registered resources, including the resources which are not created yet.
+     *
+     * @return the names of the resources.
+     */
+    public List<String> getResourceNames() {
+        return new ArrayList<String>(descriptors.keySet());
+    }
+
+    @Override
+    public synchronized void registerResource(final String name, final Resource resource) {
+        super.registerResource(name, resource);
+        resources.put(name, resource);
+    }
+
+    /**
+     * Get the resource, creating it from its descriptor when it is requested for the first time. Created resources
+     * are read without locking, and a resource is created under the lock of its descriptor, so the first request of
+     * one resource doesn't wait for the creation of another.
+     *
+     * @param name the name of the resource.
+     * @return the resource or null when no resource with the name is registered.
+     */
+    @Override
+    public Resource getResource(final String name) {
+        Resource resource = resources.get(name);
+        if (resource == null) {
+            ResourceDescriptor descriptor = descriptors.get(name);
+            if (descriptor != null) {
+                synchronized (descriptor) {
+                    resource = resources.get(name);
+                    if (resource == null) {
+                        resource = createResource(descriptor);
+                        registerResource(name, resource);
+                    }
+                }
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Create every registered resource which is not created yet.
+     */
+    public void createResources() {
+        for (String name : descriptors.keySet()) {
+            getResource(name);
+        }
+    }
+
+    private Resource createResource(final ResourceDescriptor descriptor) {
+        try {
+            Searchable searchable = (Searchable) injector.getInstance(Class.forName(descriptor.getSearchableClass()));
+            Algorithm algorithm = (Algorithm) injector.getInstance(Class.forName(descriptor.getAlgorithmClass()));
+            Resolver resolver = (Resolver) injector.getInstance(Class.forName(descriptor.getResolverClass()));
+            Resource resource = new ObjectResource(descriptor.getName(), descriptor.getRootNode(),
+                    searchable.getClass(), algorithm, resolver);
+            for (Map.Entry<String, String> field : descriptor.getSearchableFields().entrySet()) {
+                Boolean unique = descriptor.getUniqueFields().contains(field.getKey()) ? Boolean.TRUE : Boolean.FALSE;
+                resource.addFieldDefinition(field.getKey(), field.getValue(), unique);
+            }
+            return resource;
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to create resource: " + descriptor.getName(), e);
+        }
+    }
+
+    /**
+     * Get the descriptors of the configuration, from the cache file when it was compiled from the same configuration
+     * with the same format, otherwise by compiling the configuration and rewriting the cache file.
+     *
+     * @param configuration the resource configuration document.
+     * @param cacheFile     the cache file, or null to compile the configuration without caching.
+     * @return the descriptors.
+     * @throws ServiceException when the configuration is not valid.
+     */
+    static List<ResourceDescriptor> load(final byte[] configuration, final File cacheFile) throws ServiceException {
+        long checksum = checksum(configuration);
+        if (cacheFile != null && cacheFile.exists()) {
+            try {
+                List<ResourceDescriptor> descriptors = read(cacheFile, checksum);
+                if (descriptors != null) {
+                    return descriptors;
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to read resource cache: " + cacheFile.getPath() + ". " + e.getMessage());
+            }
+        }
+        List<ResourceDescriptor> descriptors = compile(configuration);
+        if (cacheFile != null) {
+            try {
+                write(cacheFile, checksum, descriptors);
+            } catch (IOException e) {
+                logger.warn("Unable to write resource cache: " + cacheFile.getPath() + ". " + e.getMessage());
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Compile the resource configuration document into descriptors. The document is parsed once and the values are
+     * read from the parsed configurations.
+     *
+     * @param configuration the resource configuration document.
+     * @return the descriptors.
+     * @throws ServiceException when the configuration is not valid.
+     */
+    static List<ResourceDescriptor> compile(final byte[] configuration) throws ServiceException {
+        List<Object> configurations;
+        try {
+            configurations = JsonPath.read(new ByteArrayInputStream(configuration), "$['configurations']");
+        } catch (IOException e) {
+            throw new ServiceException("Unable to read resource configurations. " + e.getMessage());
+        }
+        List<ResourceDescriptor> descriptors = new ArrayList<ResourceDescriptor>();
+        for (Object object : configurations) {
+            String name = JsonPath.read(object, ResourceConstants.RESOURCE_NAME);
+            String root = getRequired(object, ResourceConstants.ROOT_NODE, "root", name);
+            String searchableName = getRequired(object, ResourceConstants.SEARCHABLE_CLASS, "searchable", name);
+            String algorithmName = getRequired(object, ResourceConstants.ALGORITHM_CLASS, "algorithm", name);
+            String resolverName = getRequired(object, ResourceConstants.RESOLVER_CLASS, "resolver", name);
+
+            List<String> uniqueFields = Collections.emptyList();
+            String uniqueField = JsonPath.read(object, ResourceConstants.UNIQUE_FIELD);
+            if (uniqueField != null) {
+                uniqueFields = Arrays.asList(StringUtil.split(uniqueField, ","));
+            }
+            ResourceDescriptor descriptor =
+                    new ResourceDescriptor(name, root, searchableName, algorithmName, resolverName, uniqueFields);
+            Object searchableFields = JsonPath.read(object, ResourceConstants.SEARCHABLE_FIELD);
+            if (searchableFields instanceof Map) {
+                Map map = (Map) searchableFields;
+                for (Object fieldName : map.keySet()) {
+                    descriptor.addSearchableField(String.valueOf(fieldName), String.valueOf(map.get(fieldName)));
+                }
+            }
+            descriptors.add(descriptor);
+        }
+        return descriptors;
+    }
+
+    private static String getRequired(final Object configuration, final String path, final String node,
+                                      final String name) throws ServiceException {
+        String value = JsonPath.read(configuration, path);
+        if (StringUtil.isEmpty(value)) {
+            throw new ServiceException("Unable to create resource: " + name + " because of missing " + node + " node.");
+        }
+        return value;
+    }
+
+    private static long checksum(final byte[] configuration) {
+        CRC32 crc = new CRC32();
+        crc.update(configuration);
+        return ((long) configuration.length << 32) ^ crc.getValue();
+    }
+
+    /**
+     * Read the descriptors from the cache file.
+     *
+     * @return the descriptors, or null when the cache file has another format or was compiled from another
+     * configuration.
+     */
+    private static List<ResourceDescriptor> read(final File cacheFile, final long checksum) throws IOException {
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            if (inputStream.readInt() != MAGIC || inputStream.readInt() != FORMAT_VERSION
+                    || inputStream.readLong() != checksum) {
+                return null;
+            }
+            int count = inputStream.readInt();
+            List<ResourceDescriptor> descriptors = new ArrayList<ResourceDescriptor>(count);
+            for (int i = 0; i < count; i++) {
+                String name = inputStream.readUTF();
+                String root = inputStream.readUTF();
+                String searchableName = inputStream.readUTF();
+                String algorithmName = inputStream.readUTF();
+                String resolverName = inputStream.readUTF();
+                int uniqueCount = inputStream.readInt();
+                List<String> uniqueFields = new ArrayList<String>(uniqueCount);
+                for (int j = 0; j < uniqueCount; j++) {
+                    uniqueFields.add(inputStream.readUTF());
+                }
+                ResourceDescriptor descriptor =
+                        new ResourceDescriptor(name, root, searchableName, algorithmName, resolverName, uniqueFields);
+                int fieldCount = inputStream.readInt();
+                for (int j = 0; j < fieldCount; j++) {
+                    descriptor.addSearchableField(inputStream.readUTF(), inputStream.readUTF());
+                }
+                descriptors.add(descriptor);
+            }
+            return descriptors;
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Write the descriptors to a temporary file and move it over the cache file, so a reader never sees a partially
+     * written cache file.
+     */
+    private static void write(final File cacheFile, final long checksum,
+                              final List<ResourceDescriptor> descriptors) throws IOException {
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory for the resource cache: " + directory.getPath());
+        }
+        File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+        DataOutputStream outputStream =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(FORMAT_VERSION);
+            outputStream.writeLong(checksum);
+            outputStream.writeInt(descriptors.size());
+            for (ResourceDescriptor descriptor : descriptors) {
+                outputStream.writeUTF(descriptor.getName());
+                outputStream.writeUTF(descriptor.getRootNode());
+                outputStream.writeUTF(descriptor.getSearchableClass());
+                outputStream.writeUTF(descriptor.getAlgorithmClass());
+                outputStream.writeUTF(descriptor.getResolverClass());
+                outputStream.writeInt(descriptor.getUniqueFields().size());
+                for (String uniqueField : descriptor.getUniqueFields()) {
+                    outputStream.writeUTF(uniqueField);
+                }
+                outputStream.writeInt(descriptor.getSearchableFields().size());
+                for (Map.Entry<String, String> field : descriptor.getSearchableFields().entrySet()) {
+                    outputStream.writeUTF(field.getKey());
+                    outputStream.writeUTF(field.getValue());
+                }
+            }
+        } finally {
+            outputStream.close();
+        }
+        if (!temporaryFile.renameTo(cacheFile) && !(cacheFile.delete() && temporaryFile.renameTo(cacheFile))) {
+            throw new IOException("Unable to replace resource cache: " + cacheFile.getPath());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor running the asynchronous service calls. The executor is an executor bound by the application, a virtual
+ * thread per call where the runtime has virtual threads, or a fixed pool of daemon threads.
+ */
+@Singleton
+public class ServiceExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceExecutor.class.getSimpleName());
+
+    private static final int DEFAULT_THREADS = 4;
+
+    @Inject(optional = true)
+    @Named("service.async.executor")
+    private ExecutorService boundExecutor;
+
+    @Inject(optional = true)
+    @Named("service.async.threads")
+    private int threads = DEFAULT_THREADS;
+
+    @Inject(optional = true)
+    @Named("service.async.virtual.threads")
+    private boolean virtualThreads = true;
+
+    private ExecutorService executor;
+
+    private boolean created;
+
+    /**
+     * Get the executor, creating it on first use.
+     *
+     * @return the executor.
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            if (boundExecutor != null) {
+                executor = boundExecutor;
+                created = false;
+            } else {
+                created = true;
+                if (virtualThreads) {
+                    executor = createVirtualThreadExecutor();
+                }
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(final Runnable runnable) {
+                            Thread thread = new Thread(runnable, "muzima-service-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stop the executor created here once the submitted calls are done. The running calls are not interrupted, like
+     * cancelled calls. An executor bound by the application is left running, the application stops it. A new executor
+     * is created on the next call.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            if (created) {
+                executor.shutdown();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Create an executor starting a virtual thread per call, when the runtime has virtual threads.
+     *
+     * @return the executor or null when the runtime has no virtual threads.
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            logger.warn("Unable to create virtual thread executor. " + e.getMessage());
+            return null;
+        }
+    }
+}
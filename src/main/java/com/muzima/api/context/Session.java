@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+/**
+ * Handle of a session opened on a context, used to carry the session of a user to the thread serving the next request
+ * of the user.
+ */
+public final class Session {
+
+    private final UserContext userContext;
+
+    Session(final UserContext userContext) {
+        this.userContext = userContext;
+    }
+
+    UserContext getUserContext() {
+        return userContext;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.context;
+
+import com.google.inject.Key;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+/**
+ * Scope keeping one instance per session, where the session is the user context attached to the current thread. The
+ * scope is used by the multi session mode, where any instance outside of a session would belong to another session,
+ * so requesting an object from a thread without a session fails. Singletons holding a session scoped object must
+ * inject its provider and get the object on every use.
+ */
+public class SessionScope implements Scope {
+
+    public static final SessionScope SESSION = new SessionScope();
+
+    private SessionScope() {
+    }
+
+    @Override
+    public <T> Provider<T> scope(final Key<T> key, final Provider<T> unscoped) {
+        return new Provider<T>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get() {
+                UserContext userContext = Context.getCurrentUserContext();
+                if (userContext == null) {
+                    throw new OutOfScopeException("Unable to get " + key + " outside of a session. Open or attach a "
+                            + "session on the thread, or attach the call context of the session to a worker thread.");
+                }
+                synchronized (userContext) {
+                    T object = (T) userContext.getScopedObject(key);
+                    if (object == null) {
+                        object = unscoped.get();
+                        userContext.putScopedObject(key, object);
+                    }
+                    return object;
+                }
+            }
+
+            @Override
+            public String toString() {
+                return unscoped + "[" + SessionScope.this + "]";
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "SessionScope.SESSION";
+    }
+}
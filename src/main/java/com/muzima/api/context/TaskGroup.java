@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Group of tasks running on the shared {@link ServiceExecutor}, at most a given number at a time. The thread taking
+ * the completed tasks runs the tasks no thread of the executor started yet, so a call already running on the executor
+ * can fan out on the same executor without waiting for a free thread of it.
+ * <p/>
+ * A task group is used by the thread which created it only. A task cancelled through its future is taken like a
+ * completed task, and cancelling it without interrupting lets it finish when it's already running.
+ *
+ * @param <T> the result type of the tasks.
+ */
+public class TaskGroup<T> {
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final int maxConcurrency;
+
+    private final LinkedList<FutureTask<T>> queued = new LinkedList<FutureTask<T>>();
+
+    private final List<FutureTask<T>> started = new ArrayList<FutureTask<T>>();
+
+    private final BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<Future<T>>();
+
+    public TaskGroup(final ServiceExecutor serviceExecutor, final int maxConcurrency) {
+        this.serviceExecutor = serviceExecutor;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+
+    /**
+     * Submit the task, it starts as soon as fewer tasks than the maximum concurrency of the group are running.
+     *
+     * @param callable the task.
+     * @return the future of the task.
+     */
+    public Future<T> submit(final Callable<T> callable) {
+        FutureTask<T> task = new FutureTask<T>(callable) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        queued.add(task);
+        startQueued();
+        return task;
+    }
+
+    /**
+     * Get the number of submitted tasks which were not taken yet.
+     *
+     * @return the number of tasks not taken.
+     */
+    public int getPending() {
+        return queued.size() + started.size();
+    }
+
+    /**
+     * Wait for the next completed task, running the started tasks no thread of the executor picked up yet in the
+     * current thread.
+     *
+     * @return the completed task.
+     * @throws InterruptedException when interrupted while waiting.
+     */
+    public Future<T> take() throws InterruptedException {
+        if (getPending() == 0) {
+            throw new IllegalStateException("Unable to take a task from a group without pending tasks.");
+        }
+        Future<T> future = completed.poll();
+        if (future == null) {
+            // a task already running in another thread returns right away from run().
+            for (FutureTask<T> task : new ArrayList<FutureTask<T>>(started)) {
+                task.run();
+                if (!completed.isEmpty()) {
+                    break;
+                }
+            }
+            future = completed.take();
+        }
+        // a task cancelled before it started is still queued.
+        if (!started.remove(future)) {
+            queued.remove(future);
+        }
+        startQueued();
+        return future;
+    }
+
+    /**
+     * Cancel the tasks which were not taken yet, interrupting the running ones.
+     */
+    public void cancel() {
+        for (FutureTask<T> task : queued) {
+            task.cancel(true);
+        }
+        for (FutureTask<T> task : started) {
+            task.cancel(true);
+        }
+        queued.clear();
+        started.clear();
+        completed.clear();
+    }
+
+    private void startQueued() {
+        while (!queued.isEmpty() && started.size() < maxConcurrency) {
+            FutureTask<T> task = queued.removeFirst();
+            started.add(task);
+            try {
+                serviceExecutor.getExecutor().execute(task);
+            } catch (RejectedExecutionException e) {
+                // the executor is shutting down, the task is run by the thread taking it.
+            }
+        }
+    }
+}
@@ -8,7 +8,9 @@
 
 package com.muzima.api.context;
 
+import com.google.inject.Key;
 import com.muzima.api.config.Configuration;
+import com.muzima.api.config.ConnectivityMonitor;
 import com.muzima.api.exception.AuthenticationException;
 import com.muzima.api.model.Credential;
 import com.muzima.api.model.User;
@@ -21,6 +23,9 @@ import org.apache.lucene.queryParser.ParseException;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -34,6 +39,18 @@ class UserContext {
 
     private Configuration configuration;
 
+    private ConnectivityMonitor connectivityMonitor;
+
+    private final Map<Key<?>, Object> scopedObjects = new HashMap<Key<?>, Object>();
+
+    private PrivilegeDictionary privilegeDictionary;
+
+    private int privilegeGeneration;
+
+    private User privilegedUser;
+
+    private BitSet privileges;
+
     UserContext() {
     }
 
@@ -46,6 +63,7 @@ class UserContext {
     public void authenticate(final String username, final String password,
                              final UserService userService, final boolean isUpdatePasswordRequired)
             throws IOException, ParseException {
+        clearPrivileges();
         if (isUpdatePasswordRequired) {
             //if the user has forgotten his password and has asked for a reset/change in password on the server
             //then we force online authentication to authenticate against latest password.
@@ -66,7 +84,7 @@ class UserContext {
     private void authenticateOnlineAndUpdateCredentialsWithNewPassword(String username, String password, UserService userService) throws IOException, ParseException {
 
         user = userService.getUserByUsername(username);
-        boolean isDeviceOnline = NetworkUtils.isAddressReachable(getConfiguration().getServer(), Constants.CONNECTION_TIMEOUT);
+        boolean isDeviceOnline = isServerReachable();
 
         if (user != null) { //check if user record exists on device
             if (isDeviceOnline) {
@@ -102,7 +120,7 @@ class UserContext {
         // * If we are unable to find this user and his credential on then proceed with online authentication
         // * Download the user from the server by the username first.
         // * If we get a user, we write the current user credential object. The context is now authenticated.
-        boolean isDeviceOnline = NetworkUtils.isAddressReachable(getConfiguration().getServer(), Constants.CONNECTION_TIMEOUT);
+        boolean isDeviceOnline = isServerReachable();
         if (user != null && StringUtil.equals(user.getUsername(),username)){
             authenticateOffline(username,password,userService);
         } else if(isDeviceOnline) {
@@ -176,6 +194,58 @@ class UserContext {
      */
     public void deauthenticate() {
         user = null;
+        clearPrivileges();
+    }
+
+    /**
+     * Check whether the authenticated user has one of the privileges. The privileges of the user are resolved once
+     * and resolved again only after the user changed or the dictionary was invalidated. When the dictionary was
+     * invalidated, the authenticated user is first reloaded from the local repository to pick up updated roles.
+     *
+     * @param dictionary         the dictionary of the bit indexes of the privileges.
+     * @param requiredPrivileges the privileges, or an empty set to only require an authenticated user.
+     * @param userService        the service to reload the authenticated user with.
+     * @return true when the user has one of the privileges.
+     * @throws IOException when the authenticated user can't be reloaded.
+     */
+    synchronized boolean hasAnyPrivilege(final PrivilegeDictionary dictionary, final BitSet requiredPrivileges,
+                                         final UserService userService) throws IOException {
+        if (user == null) {
+            return false;
+        }
+        int generation = dictionary.getGeneration();
+        if (privilegedUser != user || privilegeDictionary != dictionary || privilegeGeneration != generation) {
+            if (privilegedUser == user && privilegeGeneration != generation && user.getUuid() != null) {
+                User reloadedUser = userService.getUserByUuid(user.getUuid());
+                if (reloadedUser != null) {
+                    user = reloadedUser;
+                }
+            }
+            privileges = dictionary.resolve(user);
+            privilegeDictionary = dictionary;
+            privilegeGeneration = generation;
+            privilegedUser = user;
+        }
+        // no resolved privileges means the user has the superuser role.
+        return privileges == null || requiredPrivileges.isEmpty() || privileges.intersects(requiredPrivileges);
+    }
+
+    private synchronized void clearPrivileges() {
+        privilegedUser = null;
+        privileges = null;
+    }
+
+    /**
+     * Check whether the configured server is reachable, using the last known state of the connectivity monitor when
+     * one is set.
+     *
+     * @return true when the server is reachable.
+     */
+    private boolean isServerReachable() {
+        if (connectivityMonitor != null) {
+            return connectivityMonitor.isServerReachable();
+        }
+        return NetworkUtils.isAddressReachable(getConfiguration().getServer(), Constants.CONNECTION_TIMEOUT);
     }
 
     public Configuration getConfiguration() {
@@ -185,4 +255,26 @@ class UserContext {
     public void setConfiguration(final Configuration configuration) {
         this.configuration = configuration;
     }
+
+    public ConnectivityMonitor getConnectivityMonitor() {
+        return connectivityMonitor;
+    }
+
+    public void setConnectivityMonitor(final ConnectivityMonitor connectivityMonitor) {
+        this.connectivityMonitor = connectivityMonitor;
+    }
+
+    /**
+     * Get the object created for this session by the session scope.
+     *
+     * @param key the binding key of the object.
+     * @return the object or null when it was not created for this session yet.
+     */
+    Object getScopedObject(final Key<?> key) {
+        return scopedObjects.get(key);
+    }
+
+    void putScopedObject(final Key<?> key, final Object object) {
+        scopedObjects.put(key, object);
+    }
 }
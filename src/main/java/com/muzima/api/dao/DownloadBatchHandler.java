@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao;
+
+import com.muzima.search.api.model.object.Searchable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receiver of the objects of a pipelined download, one batch at a time, while the rest of the response is still
+ * being downloaded and converted.
+ */
+public interface DownloadBatchHandler<T extends Searchable> {
+
+    /**
+     * Handle the next batch of downloaded objects, usually by saving them to the local repository.
+     *
+     * @param batch the downloaded objects.
+     * @throws IOException when the batch can't be handled. The download is stopped.
+     */
+    void handle(final List<T> batch) throws IOException;
+}
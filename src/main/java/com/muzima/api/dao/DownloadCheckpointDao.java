@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao;
+
+import com.google.inject.ImplementedBy;
+import com.muzima.api.dao.impl.DownloadCheckpointDaoImpl;
+import com.muzima.api.model.DownloadCheckpoint;
+
+import java.io.IOException;
+
+@ImplementedBy(DownloadCheckpointDaoImpl.class)
+public interface DownloadCheckpointDao extends SearchableDao<DownloadCheckpoint> {
+
+    /**
+     * Get the checkpoint of the paged download of the resource with the parameter signature.
+     *
+     * @param resource       the name of the downloaded resource.
+     * @param paramSignature the signature of the download parameters.
+     * @return the checkpoint or null when no paged download of the resource was interrupted.
+     * @throws IOException when search api unable to process the resource.
+     */
+    DownloadCheckpoint get(final String resource, final String paramSignature) throws IOException;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao;
+
+import com.google.inject.ImplementedBy;
+import com.muzima.api.dao.impl.LatestObservationDaoImpl;
+import com.muzima.api.model.LatestObservation;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+@ImplementedBy(LatestObservationDaoImpl.class)
+public interface LatestObservationDao extends SearchableDao<LatestObservation> {
+
+    /**
+     * Get the latest observation entry for the patient and concept pair.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param conceptUuid the uuid of the concept.
+     * @return the latest observation entry or null when the patient has no observation for the concept.
+     * @throws IOException when search api unable to process the resource.
+     */
+    LatestObservation get(final String patientUuid, final String conceptUuid) throws IOException;
+
+    /**
+     * Get all latest observation entries for the patient.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @return all latest observation entries for the patient or empty list, also for an empty patient uuid.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<LatestObservation> getByPatient(final String patientUuid) throws IOException;
+
+    /**
+     * Get all latest observation entries for the patients using multi value queries.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @return all latest observation entries for the patients or empty list.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<LatestObservation> getByPatients(final Collection<String> patientUuids) throws IOException;
+}
@@ -14,6 +14,7 @@ import com.muzima.api.model.Concept;
 import com.muzima.api.model.Observation;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 @ImplementedBy(ObservationDaoImpl.class)
@@ -47,4 +48,13 @@ public interface ObservationDao extends OpenmrsDao<Observation> {
     List<Observation> get(final Concept concept) throws IOException;
 
     List<Observation> get(final String formDataUuid) throws IOException;
+
+    /**
+     * Get all observations of the encounters using multi value queries.
+     *
+     * @param encounterUuids the uuids of the encounters.
+     * @return all observations of the encounters or empty list.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<Observation> getByEncounters(final Collection<String> encounterUuids) throws IOException;
 }
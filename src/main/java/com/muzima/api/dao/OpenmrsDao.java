@@ -29,6 +29,50 @@ public interface OpenmrsDao<T extends OpenmrsSearchable> extends SearchableDao<T
      */
     List<T> download(final Map<String, String> resourceParams, final String resource) throws IOException;
 
+    /**
+     * Download the searchable object matching the parameters, sending the HTTP validators of the cached copy. When the
+     * server answers that the cached copy is still current, the cached copy is returned marked as not modified instead
+     * of downloading the object again. The downloaded object is not saved to the local lucene repository.
+     *
+     * @param cached         the local copy of the object, or null when there is no local copy.
+     * @param resourceParams the parameters to be passed to search object to filter the searchable object.
+     * @param resource       resource descriptor used to convert the resource to the correct object.
+     * @return the downloaded objects, the cached copy when it is still current, or an empty list when the server answers
+     * not modified without a cached copy carrying HTTP validators.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<T> download(final T cached, final Map<String, String> resourceParams, final String resource) throws IOException;
+
+    /**
+     * Download the searchable objects matching the parameters and hand them to the handler in batches. Reading the
+     * response, converting the objects and handling the batches overlap, and only a bounded number of objects is held
+     * in memory.
+     *
+     * @param resourceParams the parameters to be passed to search object to filter the searchable object.
+     * @param resource       resource descriptor used to convert the resource to the correct object.
+     * @param handler        the handler saving the downloaded objects.
+     * @return the number of downloaded objects.
+     * @throws IOException when search api unable to process the resource or the handler failed.
+     */
+    int downloadInBatches(final Map<String, String> resourceParams, final String resource,
+                          final DownloadBatchHandler<T> handler) throws IOException;
+
+    /**
+     * Download the searchable objects matching the parameters page by page, handing every page to the handler before
+     * the next page is requested. The start index of the next page is saved as a checkpoint after every handled page,
+     * so calling this method again with the same parameters and page size after an interruption resumes from the
+     * checkpoint. The checkpoint is removed when the last page was handled.
+     *
+     * @param resourceParams the parameters to be passed to search object to filter the searchable object.
+     * @param resource       resource descriptor used to convert the resource to the correct object.
+     * @param pageSize       the number of objects requested in every page.
+     * @param handler        the handler saving the downloaded pages.
+     * @return the number of objects downloaded in this call.
+     * @throws IOException when search api unable to process the resource or the handler failed.
+     */
+    int downloadInPages(final Map<String, String> resourceParams, final String resource, final int pageSize,
+                        final DownloadBatchHandler<T> handler) throws IOException;
+
     /**
      * Get the searchable object using the uuid.
      *
@@ -38,6 +82,16 @@ public interface OpenmrsDao<T extends OpenmrsSearchable> extends SearchableDao<T
      */
     T getByUuid(final String uuid) throws IOException;
 
+    /**
+     * Check whether the searchable object with the uuid exists in the local repository. Uuids that were never saved
+     * are answered from an in memory filter without querying the repository.
+     *
+     * @param uuid the uuid of the searchable object.
+     * @return true when the searchable object exists in the local repository.
+     * @throws java.io.IOException when search api unable to process the resource.
+     */
+    Boolean exists(final String uuid) throws IOException;
+
     /**
      * Count the number of cohort records in the local lucene repository.
      *
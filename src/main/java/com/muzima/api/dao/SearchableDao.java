@@ -7,10 +7,13 @@
  */
 package com.muzima.api.dao;
 
+import com.muzima.search.api.filter.Filter;
 import com.muzima.search.api.model.object.Searchable;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TODO: Write brief description about the class here.
@@ -62,6 +65,31 @@ public interface SearchableDao<T extends Searchable> {
      */
     Integer countAll() throws IOException;
 
+    /**
+     * Count searchable objects matching the filters, grouped by the value of an indexed field. The counts are
+     * computed in one pass over the matching objects instead of one count query per value.
+     *
+     * @param field   the indexed field to group by.
+     * @param filters the filters to restrict the counted objects, empty list to count all objects.
+     * @return the number of matching objects keyed by the value of the field.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countGroupedBy(final String field, final List<Filter> filters) throws IOException;
+
+    /**
+     * Count searchable objects for each of the values of an indexed field. The objects matching any of the values are
+     * read with multi value queries of at most 512 values each and counted in one pass, instead of one count query
+     * per value. Empty values are not queried and count zero.
+     *
+     * @param field    the indexed field to group by.
+     * @param values   the values of the field to count.
+     * @param criteria additional field and value pairs the counted objects must match, or null.
+     * @return the number of matching objects keyed by value, zero for values without objects.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countGroupedBy(final String field, final Collection<String> values,
+                                        final Map<String, String> criteria) throws IOException;
+
     /**
      * Get all searchable object for the particular type.
      *
@@ -79,6 +107,15 @@ public interface SearchableDao<T extends Searchable> {
      */
     List<T> getAll(final Integer page, final Integer pageSize) throws IOException;
 
+    /**
+     * Get all searchable objects with the uuids using multi value queries.
+     *
+     * @param uuids the uuids of the objects.
+     * @return list of all matching searchable objects or empty list.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<T> getByUuids(final Collection<String> uuids) throws IOException;
+
     /**
      * Delete the searchable object from the lucene repository.
      *
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao;
+
+import com.google.inject.ImplementedBy;
+import com.muzima.api.dao.impl.TimelineEventDaoImpl;
+import com.muzima.api.model.TimelineEvent;
+import com.muzima.search.api.model.object.Searchable;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+@ImplementedBy(TimelineEventDaoImpl.class)
+public interface TimelineEventDao extends SearchableDao<TimelineEvent> {
+
+    /**
+     * Get all timeline entries for the patient, in no particular order.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @return all timeline entries for the patient or empty list, also for an empty patient uuid.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<TimelineEvent> getByPatient(final String patientUuid) throws IOException;
+
+    /**
+     * Get the timeline entries for the patient with an event date in the period, in no particular order. The period
+     * is selected by the index, so only the entries of the period are read.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param from        the earliest event date, inclusive, or null for no lower bound.
+     * @param to          the latest event date, inclusive, or null for no upper bound.
+     * @return the timeline entries in the period or empty list, also for an empty patient uuid.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<TimelineEvent> getByPatient(final String patientUuid, final Date from, final Date to) throws IOException;
+
+    /**
+     * Count the timeline entries for the patient with an event date in the period.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param from        the earliest event date, inclusive, or null for no lower bound.
+     * @param to          the latest event date, inclusive, or null for no upper bound.
+     * @return the number of timeline entries in the period, zero for an empty patient uuid.
+     * @throws IOException when search api unable to process the resource.
+     */
+    int countByPatient(final String patientUuid, final Date from, final Date to) throws IOException;
+
+    /**
+     * Save the timeline entries of the encounters, observations or form data. The entries of voided objects, and of
+     * objects without a patient or date, are deleted.
+     *
+     * @param searchables the encounters, observations or form data.
+     * @throws IOException when search api unable to process the resource.
+     */
+    void saveEvents(final List<? extends Searchable> searchables) throws IOException;
+
+    /**
+     * Update the timeline entries of the encounters, observations or form data. The entries of voided objects, and of
+     * objects without a patient or date, are deleted.
+     *
+     * @param searchables the encounters, observations or form data.
+     * @throws IOException when search api unable to process the resource.
+     */
+    void updateEvents(final List<? extends Searchable> searchables) throws IOException;
+
+    /**
+     * Delete the timeline entries of the encounters, observations or form data.
+     *
+     * @param searchables the encounters, observations or form data.
+     * @throws IOException when search api unable to process the resource.
+     */
+    void deleteEvents(final List<? extends Searchable> searchables) throws IOException;
+}
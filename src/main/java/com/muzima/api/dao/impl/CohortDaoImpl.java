@@ -8,10 +8,8 @@
 
 package com.muzima.api.dao.impl;
 
-import com.google.inject.Inject;
 import com.muzima.api.dao.CohortDao;
 import com.muzima.api.model.Cohort;
-import com.muzima.search.api.context.ServiceContext;
 import com.muzima.search.api.model.object.Searchable;
 import com.muzima.search.api.util.StringUtil;
 import com.muzima.util.Constants;
@@ -25,9 +23,6 @@ public class CohortDaoImpl extends OpenmrsDaoImpl<Cohort> implements CohortDao {
 
     private static final String TAG = CohortDao.class.getSimpleName();
 
-    @Inject
-    private ServiceContext serviceContext;
-
     protected CohortDaoImpl() {
         super(Cohort.class);
     }
@@ -43,7 +38,7 @@ public class CohortDaoImpl extends OpenmrsDaoImpl<Cohort> implements CohortDao {
     @Override
     public List<Cohort> download(final Map<String, String> resourceParams, final String resource) throws IOException {
         List<Cohort> list = new ArrayList<Cohort>();
-        for (Searchable searchable : service.loadObjects(resourceParams, serviceContext.getResource(resource))) {
+        for (Searchable searchable : load(resourceParams, resource)) {
             Cohort cohort = (Cohort) searchable;
             if (StringUtil.equals(resource, Constants.SEARCH_DYNAMIC_COHORT_RESOURCE) ||
                     StringUtil.equals(resource, Constants.UUID_DYNAMIC_COHORT_RESOURCE)) {
@@ -8,12 +8,10 @@
 
 package com.muzima.api.dao.impl;
 
-import com.google.inject.Inject;
 import com.muzima.api.dao.CohortDataDao;
 import com.muzima.api.model.CohortData;
 import com.muzima.api.model.CohortMember;
 import com.muzima.api.model.Patient;
-import com.muzima.search.api.context.ServiceContext;
 import com.muzima.search.api.model.object.Searchable;
 
 import java.io.IOException;
@@ -24,8 +22,6 @@ import java.util.Map;
 public class CohortDataDaoImpl extends OpenmrsDaoImpl<CohortData> implements CohortDataDao {
 
     private static final String TAG = CohortDataDaoImpl.class.getSimpleName();
-    @Inject
-    private ServiceContext serviceContext;
 
     protected CohortDataDaoImpl() {
         super(CohortData.class);
@@ -41,7 +37,7 @@ public class CohortDataDaoImpl extends OpenmrsDaoImpl<CohortData> implements Coh
         CohortData consolidatedCohortData = new CohortData();
         List<Patient> patients = consolidatedCohortData.getPatients();
         List<CohortMember> members = consolidatedCohortData.getCohortMembers();
-        List<Searchable> searchableList = service.loadObjects(resourceParams, serviceContext.getResource(resource));
+        List<Searchable> searchableList = load(resourceParams, resource);
         for (Searchable searchable : searchableList) {
             CohortData cohortData = (CohortData) searchable;
             consolidatedCohortData.setCohort(cohortData.getCohort());
@@ -51,6 +47,20 @@ public class CohortDataDaoImpl extends OpenmrsDaoImpl<CohortData> implements Coh
         return Arrays.asList(consolidatedCohortData);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * A page of cohort data is consolidated into one cohort data object, so the members in the page are counted.
+     */
+    @Override
+    protected int countPageObjects(final List<CohortData> page) {
+        int count = 0;
+        for (CohortData cohortData : page) {
+            count += Math.max(cohortData.getCohortMembers().size(), cohortData.getPatients().size());
+        }
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      *
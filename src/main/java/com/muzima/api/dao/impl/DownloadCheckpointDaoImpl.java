@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.dao.DownloadCheckpointDao;
+import com.muzima.api.model.DownloadCheckpoint;
+
+import java.io.IOException;
+
+public class DownloadCheckpointDaoImpl extends SearchableDaoImpl<DownloadCheckpoint> implements DownloadCheckpointDao {
+
+    protected DownloadCheckpointDaoImpl() {
+        super(DownloadCheckpoint.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see DownloadCheckpointDao#get(String, String)
+     */
+    @Override
+    public DownloadCheckpoint get(final String resource, final String paramSignature) throws IOException {
+        return service.getObject(DownloadCheckpoint.createUuid(resource, paramSignature), daoClass);
+    }
+}
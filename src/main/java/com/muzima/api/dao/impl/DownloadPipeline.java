@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.muzima.api.context.CallContext;
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.service.OperationToken;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.resource.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Download the objects of a resource as two overlapping stages: reading the response and converting the serialized
+ * objects, and handing the objects to the handler in batches. The stages are connected by a bounded queue, so a slow
+ * handler holds back the reading and only a bounded number of objects is held in memory. The reading stage runs on the
+ * shared service executor in the session and operation of the calling thread, and no batch is handed to the handler
+ * after the operation was cancelled. When no thread of the executor picks up the reading stage, the calling thread
+ * reads the response itself, so a download started on the executor can't wait for a free thread of it. When a stage
+ * fails the response is closed, so the reading stage doesn't stay blocked on a stalled server.
+ */
+public class DownloadPipeline {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    private static final long POLL_INTERVAL = 100;
+
+    private static final Pattern FIELD_PATTERN = Pattern.compile("\\['([^']+)'\\]");
+
+    private static final Object END = new Object();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Inject
+    private RemoteResourceLoader resourceLoader;
+
+    @Inject
+    private ServiceExecutor serviceExecutor;
+
+    @Inject(optional = true)
+    @Named("download.pipeline.capacity")
+    private int capacity = DEFAULT_CAPACITY;
+
+    @Inject(optional = true)
+    @Named("download.pipeline.batch.size")
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    protected DownloadPipeline() {
+    }
+
+    DownloadPipeline(final RemoteResourceLoader resourceLoader, final ServiceExecutor serviceExecutor,
+                     final int capacity, final int batchSize) {
+        this.resourceLoader = resourceLoader;
+        this.serviceExecutor = serviceExecutor;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Download the objects of the resource matching the parameters and hand them to the handler in batches. Resources
+     * with a root node other than a path of field names are downloaded whole and then handed to the handler.
+     *
+     * @param resourceParams the parameters to be passed to the resolver of the resource.
+     * @param resource       resource descriptor used to convert the response to the correct objects.
+     * @param handler        the handler of the downloaded objects.
+     * @return the number of objects handed to the handler.
+     * @throws IOException when the download, the conversion or the handler failed, or the response has no root node
+     * of the resource.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Searchable> int run(final Map<String, String> resourceParams, final Resource resource,
+                                          final DownloadBatchHandler<T> handler) throws IOException {
+        final List<String> path = parsePath(resource.getRootNode());
+        final Batches<T> batches = new Batches<T>(handler, batchSize);
+        if (path == null) {
+            for (Searchable searchable : resourceLoader.load(resourceParams, resource)) {
+                batches.add((T) searchable);
+            }
+            batches.flush();
+            return batches.getCount();
+        }
+
+        final BlockingQueue<Object> objectQueue = new ArrayBlockingQueue<Object>(capacity);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicReference<InputStream> stream = new AtomicReference<InputStream>();
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final CallContext callContext = CallContext.capture();
+        boolean completed = false;
+        try {
+            try {
+                serviceExecutor.getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!claimed.compareAndSet(false, true)) {
+                            return;
+                        }
+                        CallContext previous = callContext.attach();
+                        try {
+                            read(resourceParams, resource, path, stream, failure, new ObjectSink() {
+                                @Override
+                                public void accept(final Searchable object) throws InterruptedException {
+                                    put(objectQueue, object, failure);
+                                }
+                            });
+                            put(objectQueue, END, failure);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            previous.attach();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the executor is shutting down, the response is read below by the calling thread.
+            }
+
+            Object object;
+            while ((object = take(objectQueue, failure)) != END) {
+                if (object != null) {
+                    batches.add((T) object);
+                } else if (claimed.compareAndSet(false, true)) {
+                    // no thread of the executor picked up the reading stage, so it runs in the calling thread.
+                    read(resourceParams, resource, path, stream, failure, new ObjectSink() {
+                        @Override
+                        public void accept(final Searchable object) throws IOException {
+                            batches.add((T) object);
+                        }
+                    });
+                    break;
+                }
+            }
+            batches.flush();
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null,
+                    new IOException("Interrupted while downloading resource: " + resource.getName()));
+        } catch (PipelineStoppedException e) {
+            // the failure of the stage is rethrown below.
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (!completed) {
+                // stops the reading stage at its next object when the handler failed.
+                failure.compareAndSet(null, new PipelineStoppedException());
+                closeQuietly(stream.get());
+            }
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        } else if (cause != null && !(cause instanceof PipelineStoppedException)) {
+            throw new IOException("Unable to download resource: " + resource.getName() + ". " + cause);
+        }
+        return batches.getCount();
+    }
+
+    /**
+     * Read the response and hand every object under the root node to the sink.
+     */
+    private void read(final Map<String, String> resourceParams, final Resource resource, final List<String> path,
+                      final AtomicReference<InputStream> stream, final AtomicReference<Throwable> failure,
+                      final ObjectSink sink) throws IOException, InterruptedException {
+        InputStream inputStream = resourceLoader.openStream(resourceParams, resource);
+        if (inputStream == null) {
+            throw new IOException("Unable to download resource: " + resource.getName() + ". No response body.");
+        }
+        stream.set(inputStream);
+        if (failure.get() != null) {
+            inputStream.close();
+            return;
+        }
+        OperationToken token = OperationToken.current();
+        JsonParser parser = jsonFactory.createParser(inputStream);
+        try {
+            JsonToken jsonToken = parser.nextToken();
+            for (String field : path) {
+                if (jsonToken != JsonToken.START_OBJECT) {
+                    throw createRootNodeException(resource);
+                }
+                jsonToken = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if (field.equals(name)) {
+                        jsonToken = value;
+                        break;
+                    }
+                    parser.skipChildren();
+                }
+            }
+            if (jsonToken == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    sink.accept(convert(resource, copyCurrentStructure(parser), token));
+                }
+            } else if (jsonToken == JsonToken.START_OBJECT) {
+                sink.accept(convert(resource, copyCurrentStructure(parser), token));
+            } else {
+                throw createRootNodeException(resource);
+            }
+        } finally {
+            parser.close();
+            inputStream.close();
+        }
+    }
+
+    private Searchable convert(final Resource resource, final String serialized,
+                               final OperationToken token) throws IOException {
+        Searchable searchable = resource.getAlgorithm().deserialize(serialized);
+        if (token != null) {
+            token.addObjectsParsed(1);
+        }
+        return searchable;
+    }
+
+    /**
+     * Create the failure of a response without the root node of the resource, like the failure of
+     * {@link RemoteResourceLoader#load(java.util.Map, com.muzima.search.api.resource.Resource)}.
+     */
+    private IOException createRootNodeException(final Resource resource) {
+        return new IOException("Unable to find root node: " + resource.getRootNode() + " in resource: "
+                + resource.getName() + ".");
+    }
+
+    private String copyCurrentStructure(final JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        generator.copyCurrentStructure(parser);
+        generator.close();
+        return writer.toString();
+    }
+
+    /**
+     * Split a root node like <code>$['results']</code> into its field names.
+     *
+     * @return the field names or null when the root node is not a path of field names.
+     */
+    private List<String> parsePath(final String rootNode) {
+        if (rootNode == null || !rootNode.startsWith("$")) {
+            return null;
+        }
+        List<String> path = new ArrayList<String>();
+        Matcher matcher = FIELD_PATTERN.matcher(rootNode);
+        int end = 1;
+        while (matcher.find() && matcher.start() == end) {
+            path.add(matcher.group(1));
+            end = matcher.end();
+        }
+        return end == rootNode.length() ? path : null;
+    }
+
+    /**
+     * Close the response of the reading stage, which stops a read blocked on the server.
+     */
+    private static void closeQuietly(final InputStream inputStream) {
+        if (inputStream != null) {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                // the failure of the stage is rethrown.
+            }
+        }
+    }
+
+    private static void put(final BlockingQueue<Object> queue, final Object element,
+                            final AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!queue.offer(element, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new PipelineStoppedException();
+            }
+        }
+    }
+
+    /**
+     * Take the next object of the queue, or null when no object arrived within the poll interval.
+     */
+    private static Object take(final BlockingQueue<Object> queue,
+                               final AtomicReference<Throwable> failure) throws InterruptedException {
+        Object element = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        if (element == null && failure.get() != null) {
+            throw new PipelineStoppedException();
+        }
+        return element;
+    }
+
+    /**
+     * Thrown in a stage when another stage failed, to stop the stage without hiding the original failure.
+     */
+    private static class PipelineStoppedException extends RuntimeException {
+    }
+
+    /**
+     * Receiver of the objects read from the response.
+     */
+    private interface ObjectSink {
+
+        void accept(final Searchable object) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Collector of the objects handed to the handler in batches.
+     */
+    private static class Batches<T extends Searchable> {
+
+        private final DownloadBatchHandler<T> handler;
+
+        private final int batchSize;
+
+        private List<T> batch = new ArrayList<T>();
+
+        private int count;
+
+        Batches(final DownloadBatchHandler<T> handler, final int batchSize) {
+            this.handler = handler;
+            this.batchSize = batchSize;
+        }
+
+        void add(final T object) throws IOException {
+            batch.add(object);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (!batch.isEmpty()) {
+                OperationToken.checkCurrent();
+                handler.handle(batch);
+                count += batch.size();
+                batch = new ArrayList<T>();
+            }
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Shares one download between concurrent identical requests. The first request for a key runs the download and the
+ * requests arriving while it is in flight wait for its result instead of downloading again. A successful result can
+ * be kept for a short time, so requests arriving right after the download get the result too. Failures are never
+ * kept. The shared result is the json documents of the download, which can't be changed, and every caller converts
+ * its own objects from them, so a caller changing its objects doesn't change the objects of any other caller.
+ */
+@Singleton
+public class DownloadSingleFlight {
+
+    private static final long DEFAULT_RESULT_TTL = 0;
+
+    @Inject(optional = true)
+    @Named("download.result.ttl")
+    private long resultTtl = DEFAULT_RESULT_TTL;
+
+    private final Map<String, Flight> flights = new HashMap<String, Flight>();
+
+    protected DownloadSingleFlight() {
+    }
+
+    DownloadSingleFlight(final long resultTtl) {
+        this.resultTtl = resultTtl;
+    }
+
+    /**
+     * Get the result of the download for the key, running the loader unless a download for the key is in flight or
+     * its result is still kept.
+     *
+     * @param key    the key identifying the download.
+     * @param loader the loader running the download.
+     * @return the downloaded documents.
+     * @throws IOException when the download failed or the wait was interrupted. An error of the loader is thrown as
+     * is to every caller.
+     */
+    public DownloadedElements load(final String key, final Callable<DownloadedElements> loader) throws IOException {
+        Flight flight;
+        boolean leader = false;
+        synchronized (flights) {
+            flight = flights.get(key);
+            if (flight != null && flight.isExpired(System.currentTimeMillis())) {
+                flights.remove(key);
+                flight = null;
+            }
+            if (flight == null) {
+                flight = new Flight();
+                flights.put(key, flight);
+                leader = true;
+            }
+        }
+        if (leader) {
+            DownloadedElements result = null;
+            Throwable failure = null;
+            try {
+                result = loader.call();
+            } catch (Throwable e) {
+                // an error must complete the flight too, or its waiters and the later requests for the key hang.
+                failure = e;
+            }
+            synchronized (flights) {
+                if (failure != null || resultTtl <= 0) {
+                    flights.remove(key);
+                } else {
+                    flight.expiryTime = System.currentTimeMillis() + resultTtl;
+                }
+            }
+            flight.complete(result, failure);
+        }
+        return flight.await();
+    }
+
+    private static class Flight {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile long expiryTime = Long.MAX_VALUE;
+
+        private DownloadedElements result;
+
+        private Throwable failure;
+
+        boolean isExpired(final long now) {
+            return latch.getCount() == 0 && now > expiryTime;
+        }
+
+        void complete(final DownloadedElements result, final Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+            latch.countDown();
+        }
+
+        DownloadedElements await() throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a shared download.");
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw new IOException("Unable to complete shared download. " + failure);
+            }
+            return result;
+        }
+    }
+}
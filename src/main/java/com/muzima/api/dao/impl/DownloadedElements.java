@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.Revalidatable;
+import com.muzima.api.service.OperationToken;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.model.serialization.Algorithm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The elements of a downloaded resource as json documents, before they are converted to objects. The documents can't
+ * be changed, so one download can be shared by several callers, each converting its own objects.
+ */
+public class DownloadedElements {
+
+    private final List<String> documents;
+
+    private final boolean single;
+
+    private final String entityTag;
+
+    private final String lastModified;
+
+    /**
+     * Create the elements of a resource returning a list of objects.
+     *
+     * @param documents the json documents of the objects.
+     */
+    DownloadedElements(final List<String> documents) {
+        this.documents = Collections.unmodifiableList(new ArrayList<String>(documents));
+        this.single = false;
+        this.entityTag = null;
+        this.lastModified = null;
+    }
+
+    /**
+     * Create the element of a resource returning a single object, with the HTTP validators of the response.
+     *
+     * @param document     the json document of the object.
+     * @param entityTag    the entity tag of the response.
+     * @param lastModified the last modified date of the response.
+     */
+    DownloadedElements(final String document, final String entityTag, final String lastModified) {
+        this.documents = Collections.singletonList(document);
+        this.single = true;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Get the json documents of the downloaded objects.
+     *
+     * @return the json documents.
+     */
+    public List<String> getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Convert the documents to new objects. The validators of the response are set on the object of a single object
+     * resource.
+     *
+     * @param algorithm the algorithm of the resource.
+     * @return the new objects, in the order of the documents.
+     * @throws IOException when a document can't be converted.
+     */
+    public List<Searchable> deserialize(final Algorithm algorithm) throws IOException {
+        List<Searchable> searchables = new ArrayList<Searchable>(documents.size());
+        for (String document : documents) {
+            Searchable searchable = algorithm.deserialize(document);
+            if (single && searchable instanceof Revalidatable) {
+                Revalidatable revalidatable = (Revalidatable) searchable;
+                revalidatable.setEntityTag(entityTag);
+                revalidatable.setLastModified(lastModified);
+            }
+            searchables.add(searchable);
+        }
+        OperationToken token = OperationToken.current();
+        if (token != null) {
+            token.addObjectsParsed(searchables.size());
+        }
+        return searchables;
+    }
+}
@@ -65,4 +65,19 @@ public class EncounterDaoImpl extends OpenmrsDaoImpl<Encounter> implements Encou
         }
         return service.countObjects(filters, daoClass);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDaoImpl#getFieldValue(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    protected String getFieldValue(final Encounter encounter, final String field) {
+        if ("patientUuid".equals(field)) {
+            return encounter.getPatient() == null ? null : encounter.getPatient().getUuid();
+        } else if ("formDataUuid".equals(field)) {
+            return encounter.getFormDataUuid();
+        }
+        return super.getFieldValue(encounter, field);
+    }
 }
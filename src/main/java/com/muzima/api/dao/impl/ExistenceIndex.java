@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.muzima.api.model.OpenmrsSearchable;
+import com.muzima.util.BloomFilter;
+import com.muzima.util.Constants;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In memory existence filter of the uuids in the local repository. The filter is built from the uuid terms of the
+ * repository index the first time a uuid is checked, without reading the objects, and kept up to date on every save
+ * and update. The uuid terms of all object types share the filter, which only costs more repository lookups.
+ * <p/>
+ * The filter is shared by all contexts opened on the same repository in this process, so the objects saved by any of
+ * them are never reported as missing. The uuids saved while the filter is being built are recorded and added to the
+ * filter when it's built. Deleted uuids stay in the filter, which only costs a repository lookup when they are checked
+ * again.
+ */
+@Singleton
+public class ExistenceIndex {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private static final int MINIMUM_CAPACITY = 1024;
+
+    private static final Map<String, RepositoryFilter> repositoryFilters = new HashMap<String, RepositoryFilter>();
+
+    @Inject
+    @Named(Constants.LUCENE_DIRECTORY_PATH)
+    private String repositoryPath;
+
+    @Inject
+    @Named(Constants.LUCENE_DEFAULT_FIELD)
+    private String keyField;
+
+    private RepositoryFilter repositoryFilter;
+
+    protected ExistenceIndex() {
+    }
+
+    ExistenceIndex(final String repositoryPath, final String keyField) {
+        this.repositoryPath = repositoryPath;
+        this.keyField = keyField;
+    }
+
+    /**
+     * Check whether an object with the uuid might be in the local repository, building the filter from the uuid terms
+     * of the repository index when needed.
+     *
+     * @param uuid the uuid.
+     * @return false when the object is definitely not in the repository or true when the object might be in the
+     * repository.
+     * @throws IOException when the uuid terms can't be read from the repository index.
+     */
+    public boolean mightContain(final String uuid) throws IOException {
+        RepositoryFilter filter = getRepositoryFilter();
+        if (!filter.isLoaded()) {
+            filter.startLoading();
+            boolean loaded = false;
+            try {
+                filter.load(readUuidTerms());
+                loaded = true;
+            } finally {
+                if (!loaded) {
+                    filter.cancelLoading();
+                }
+            }
+        }
+        return filter.mightContain(uuid);
+    }
+
+    /**
+     * Add the uuids of the saved objects to the filter, or record them when the filter is being built.
+     *
+     * @param objects the saved objects.
+     * @throws IOException when the repository path can't be resolved.
+     */
+    public void add(final Collection<? extends OpenmrsSearchable> objects) throws IOException {
+        List<String> uuids = new ArrayList<String>();
+        for (OpenmrsSearchable object : objects) {
+            if (object.getUuid() != null) {
+                uuids.add(object.getUuid());
+            }
+        }
+        getRepositoryFilter().add(uuids);
+    }
+
+    /**
+     * Read the terms of the uuid field from the repository index. The terms of deleted documents are read too until
+     * the index merges them away.
+     *
+     * @return the uuid terms, empty when the repository has no index yet.
+     * @throws IOException when the repository index can't be read.
+     */
+    protected Collection<String> readUuidTerms() throws IOException {
+        List<String> uuids = new ArrayList<String>();
+        Directory directory = FSDirectory.open(new File(repositoryPath));
+        try {
+            if (!IndexReader.indexExists(directory)) {
+                return uuids;
+            }
+            IndexReader reader = IndexReader.open(directory, true);
+            try {
+                TermEnum terms = reader.terms(new Term(keyField, ""));
+                try {
+                    do {
+                        Term term = terms.term();
+                        if (term == null || !keyField.equals(term.field())) {
+                            break;
+                        }
+                        uuids.add(term.text());
+                    } while (terms.next());
+                } finally {
+                    terms.close();
+                }
+            } finally {
+                reader.close();
+            }
+        } finally {
+            directory.close();
+        }
+        return uuids;
+    }
+
+    private synchronized RepositoryFilter getRepositoryFilter() throws IOException {
+        if (repositoryFilter == null) {
+            String path = new File(repositoryPath).getCanonicalPath();
+            synchronized (repositoryFilters) {
+                repositoryFilter = repositoryFilters.get(path);
+                if (repositoryFilter == null) {
+                    repositoryFilter = new RepositoryFilter();
+                    repositoryFilters.put(path, repositoryFilter);
+                }
+            }
+        }
+        return repositoryFilter;
+    }
+
+    /**
+     * Existence filter of a repository, with the uuids saved since the first build of the filter in progress started.
+     */
+    private static class RepositoryFilter {
+
+        private final Set<String> loadingUuids = new HashSet<String>();
+
+        private BloomFilter filter;
+
+        private int loaders;
+
+        synchronized boolean isLoaded() {
+            return filter != null;
+        }
+
+        /**
+         * Start building the filter. The uuids saved from now on are recorded until the filter is built or the build
+         * is cancelled.
+         */
+        synchronized void startLoading() {
+            loaders++;
+        }
+
+        /**
+         * Build the filter from the uuid terms and the uuids saved since the build was started. Nothing happens when
+         * another build of the filter finished first.
+         */
+        synchronized void load(final Collection<String> uuids) {
+            if (filter == null) {
+                int size = uuids.size() + loadingUuids.size();
+                filter = new BloomFilter(Math.max(size * 2, MINIMUM_CAPACITY), FALSE_POSITIVE_RATE);
+                for (String uuid : uuids) {
+                    filter.put(uuid);
+                }
+                for (String uuid : loadingUuids) {
+                    filter.put(uuid);
+                }
+            }
+            cancelLoading();
+        }
+
+        /**
+         * Stop recording the saved uuids for a build of the filter which finished or failed.
+         */
+        synchronized void cancelLoading() {
+            if (--loaders == 0) {
+                loadingUuids.clear();
+            }
+        }
+
+        /**
+         * Add the saved uuids to the filter, or record them when the filter is being built. A filter holding more
+         * uuids than it was sized for is dropped to be rebuilt on the next check.
+         */
+        synchronized void add(final Collection<String> uuids) {
+            if (loaders > 0) {
+                loadingUuids.addAll(uuids);
+            }
+            if (filter == null) {
+                return;
+            }
+            for (String uuid : uuids) {
+                filter.put(uuid);
+            }
+            if (filter.isSaturated()) {
+                filter = null;
+            }
+        }
+
+        synchronized boolean mightContain(final String uuid) {
+            return filter == null || filter.mightContain(uuid);
+        }
+    }
+}
@@ -12,18 +12,27 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.name.Named;
+import com.muzima.api.config.Configuration;
+import com.muzima.api.config.TransferStatistics;
 import com.muzima.api.dao.FormDataDao;
 import com.muzima.api.model.FormData;
 import com.muzima.api.model.resolver.SyncFormDataResolver;
+import com.muzima.api.service.OperationToken;
+import com.muzima.api.transport.HttpRequest;
+import com.muzima.api.transport.HttpResponse;
+import com.muzima.api.transport.HttpTransport;
+import com.muzima.api.transport.RequestBody;
 import com.muzima.search.api.filter.Filter;
 import com.muzima.search.api.filter.FilterFactory;
 import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.Proxy;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,10 +43,6 @@ public class FormDataDaoImpl extends SearchableDaoImpl<FormData> implements Form
 
     private static final String TAG = FormDataDaoImpl.class.getSimpleName();
 
-    @Inject(optional = true)
-    @Named("connection.proxy")
-    private Proxy proxy;
-
     @Inject
     @Named("connection.timeout")
     private int timeout;
@@ -45,6 +50,19 @@ public class FormDataDaoImpl extends SearchableDaoImpl<FormData> implements Form
     @Inject
     private SyncFormDataResolver resolver;
 
+    @Inject(optional = true)
+    @Named("connection.gzip.upload")
+    private boolean gzipUpload = false;
+
+    @Inject
+    private TransferStatistics transferStatistics;
+
+    @Inject
+    private HttpTransport transport;
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
     protected FormDataDaoImpl() {
         super(FormData.class);
     }
@@ -139,37 +157,59 @@ public class FormDataDaoImpl extends SearchableDaoImpl<FormData> implements Form
 
     @Override
     public boolean syncFormData(final FormData formData) throws IOException {
-        boolean synced = false;
-
-        String resourcePath = resolver.resolve(Collections.<String, String>emptyMap());
-        URL url = new URL(resourcePath);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        if (proxy != null) {
-            connection = (HttpURLConnection) url.openConnection(proxy);
-        }
-        connection.setDoOutput(true);
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setConnectTimeout(timeout);
-        connection = resolver.authenticate(connection);
-
-        JsonFactory jsonFactory = new JsonFactory();
-        JsonGenerator jsonGenerator = jsonFactory.createGenerator(connection.getOutputStream(), JsonEncoding.UTF8);
-        jsonGenerator.writeStartObject();
-        jsonGenerator.writeObjectField("dataSource", "Mobile Device");
-        jsonGenerator.writeObjectField("payload", getPayloadBasedOnDiscriminator(formData));
-        jsonGenerator.writeObjectField("discriminator", formData.getDiscriminator());
-        jsonGenerator.writeEndObject();
-        jsonGenerator.close();
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK
-                || responseCode == HttpURLConnection.HTTP_CREATED) {
-            synced = true;
+        HttpRequest request = new HttpRequest("POST", resolver.resolve(Collections.<String, String>emptyMap()));
+        request.setHeaders(configurationProvider.get().getRequestHeaders());
+        request.setConnectTimeout(timeout);
+        request.setAcceptCompressed(true);
+        request.setCompressBody(gzipUpload);
+        request.setBody("application/json", new RequestBody() {
+            @Override
+            public void writeTo(final OutputStream outputStream) throws IOException {
+                JsonFactory jsonFactory = new JsonFactory();
+                JsonGenerator jsonGenerator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+                jsonGenerator.writeStartObject();
+                jsonGenerator.writeObjectField("dataSource", "Mobile Device");
+                jsonGenerator.writeObjectField("payload", getPayloadBasedOnDiscriminator(formData));
+                jsonGenerator.writeObjectField("discriminator", formData.getDiscriminator());
+                jsonGenerator.writeEndObject();
+                jsonGenerator.close();
+            }
+        });
+
+        OperationToken.checkCurrent();
+        HttpResponse response = transport.execute(request);
+        transferStatistics.recordSent(Constants.SYNC_FORM_DATA_RESOURCE, response.getBytesSent());
+        int responseCode = response.getStatusCode();
+        boolean synced = responseCode == HttpURLConnection.HTTP_OK || responseCode == HttpURLConnection.HTTP_CREATED;
+        drainResponse(response);
+        transferStatistics.recordReceived(Constants.SYNC_FORM_DATA_RESOURCE, response.getBytesReceived());
+        OperationToken token = OperationToken.current();
+        if (token != null) {
+            token.addBytesRead(response.getBytesReceived());
         }
         return synced;
     }
 
+    /**
+     * Read and discard the response body, so the connection can be reused for the next upload. The response is closed
+     * even when the body can't be read.
+     */
+    private void drainResponse(final HttpResponse response) {
+        try {
+            try {
+                InputStream inputStream = response.getBody();
+                byte[] buffer = new byte[1024];
+                while (inputStream.read(buffer) != -1) {
+                    // discard the response body.
+                }
+            } finally {
+                response.close();
+            }
+        } catch (IOException e) {
+            // the status code already tells whether the form data was synced, the connection is just not reused.
+        }
+    }
+
     private String getPayloadBasedOnDiscriminator(FormData formData) {
         if ("xml-registration".equals(formData.getDiscriminator())
                 || "xml-encounter".equals(formData.getDiscriminator())) {
@@ -188,4 +228,23 @@ public class FormDataDaoImpl extends SearchableDaoImpl<FormData> implements Form
         Filter templateUUIDFilter = FilterFactory.createFilter("templateUuid", templateUUID);
         return service.getObjects(asList(templateUUIDFilter), daoClass);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDaoImpl#getFieldValue(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    protected String getFieldValue(final FormData formData, final String field) {
+        if ("patientUuid".equals(field)) {
+            return formData.getPatientUuid();
+        } else if ("userUuid".equals(field)) {
+            return formData.getUserUuid();
+        } else if ("status".equals(field)) {
+            return formData.getStatus();
+        } else if ("templateUuid".equals(field)) {
+            return formData.getTemplateUuid();
+        }
+        return super.getFieldValue(formData, field);
+    }
 }
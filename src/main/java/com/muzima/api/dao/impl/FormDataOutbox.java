@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.muzima.api.dao.FormDataDao;
+import com.muzima.api.model.FormData;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+import com.muzima.util.OutboxJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queue of the form data waiting to be uploaded, ordered by the save time of the form data. The queue is kept in a
+ * journal file in the local repository directory, so it survives restarts and the uploader doesn't need to search the
+ * repository for pending form data. Every outbox of the process on the same repository shares one open journal, which
+ * holds a file lock against other processes. When the journal is opened, pending form data missing from the queue,
+ * e.g. saved right before a crash, is queued again. A failed upload is retried after an exponential backoff.
+ */
+@Singleton
+public class FormDataOutbox {
+
+    private static final String JOURNAL_NAME = "formdata.outbox";
+
+    private static final String DEFAULT_PENDING_STATUS = "complete";
+
+    private static final long DEFAULT_BACKOFF = 30 * 1000L;
+
+    private static final long MAXIMUM_BACKOFF = 60 * 60 * 1000L;
+
+    private static final Map<String, OutboxJournal> openJournals = new HashMap<String, OutboxJournal>();
+
+    @Inject
+    @Named(Constants.LUCENE_DIRECTORY_PATH)
+    private String repositoryPath;
+
+    @Inject(optional = true)
+    @Named("upload.retry.backoff")
+    private long backoff = DEFAULT_BACKOFF;
+
+    @Inject(optional = true)
+    @Named("upload.pending.status")
+    private String pendingStatus = DEFAULT_PENDING_STATUS;
+
+    @Inject
+    private FormDataDao formDataDao;
+
+    private OutboxJournal journal;
+
+    protected FormDataOutbox() {
+    }
+
+    FormDataOutbox(final String repositoryPath, final FormDataDao formDataDao) {
+        this.repositoryPath = repositoryPath;
+        this.formDataDao = formDataDao;
+    }
+
+    /**
+     * Queue the saved form data when it's waiting to be uploaded, otherwise remove it from the queue. Form data is
+     * waiting to be uploaded when its status is the pending status, "complete" unless configured otherwise.
+     *
+     * @param formData the saved form data.
+     * @throws IOException when the queue can't be written.
+     */
+    public void update(final FormData formData) throws IOException {
+        if (StringUtil.equals(pendingStatus, formData.getStatus())) {
+            add(formData);
+        } else {
+            remove(formData.getUuid());
+        }
+    }
+
+    /**
+     * Queue the form data for upload. Nothing happens when the form data is already queued.
+     *
+     * @param formData the form data.
+     * @throws IOException when the queue can't be written.
+     */
+    public void add(final FormData formData) throws IOException {
+        getJournal().add(formData.getUuid(), getTime(formData));
+    }
+
+    /**
+     * Get the uuids of the oldest queued form data which are not waiting for a retry.
+     *
+     * @param maxCount the maximum number of uuids.
+     * @return the uuids in save time order.
+     * @throws IOException when the queue can't be read.
+     */
+    public List<String> peek(final int maxCount) throws IOException {
+        List<String> uuids = new ArrayList<String>();
+        for (OutboxJournal.Entry entry : getJournal().peek(System.currentTimeMillis(), maxCount)) {
+            uuids.add(entry.getId());
+        }
+        return uuids;
+    }
+
+    /**
+     * Record a failed upload of the form data and schedule the retry.
+     *
+     * @param uuid the uuid of the form data.
+     * @throws IOException when the queue can't be written.
+     */
+    public void failed(final String uuid) throws IOException {
+        OutboxJournal.Entry entry = getJournal().get(uuid);
+        if (entry != null) {
+            long delay = Math.min(backoff << Math.min(entry.getAttempts(), 16), MAXIMUM_BACKOFF);
+            getJournal().attempted(uuid, System.currentTimeMillis() + delay);
+        }
+    }
+
+    /**
+     * Remove the form data from the queue.
+     *
+     * @param uuid the uuid of the form data.
+     * @throws IOException when the queue can't be written.
+     */
+    public void remove(final String uuid) throws IOException {
+        getJournal().remove(uuid);
+    }
+
+    /**
+     * Get the number of queued form data.
+     *
+     * @return the number of queued form data.
+     * @throws IOException when the queue can't be read.
+     */
+    public int size() throws IOException {
+        return getJournal().size();
+    }
+
+    /**
+     * Open the journal on first use, replaying the queue left by the previous run, and queue the pending form data of
+     * the repository which is missing from the queue. Form data queued without being pending stays queued.
+     */
+    private synchronized OutboxJournal getJournal() throws IOException {
+        if (journal == null) {
+            File directory = new File(repositoryPath);
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Unable to create directory for the outbox journal: " + directory.getPath());
+            }
+            OutboxJournal openedJournal = openJournal(new File(directory, JOURNAL_NAME));
+            List<FormData> pendingFormData =
+                    formDataDao.getAllFormData(StringUtil.EMPTY, StringUtil.EMPTY, pendingStatus);
+            for (FormData formData : pendingFormData) {
+                openedJournal.add(formData.getUuid(), getTime(formData));
+            }
+            journal = openedJournal;
+        }
+        return journal;
+    }
+
+    private static OutboxJournal openJournal(final File file) throws IOException {
+        synchronized (openJournals) {
+            String path = file.getCanonicalPath();
+            OutboxJournal openedJournal = openJournals.get(path);
+            if (openedJournal == null) {
+                openedJournal = new OutboxJournal(file);
+                openJournals.put(path, openedJournal);
+            }
+            return openedJournal;
+        }
+    }
+
+    private long getTime(final FormData formData) {
+        return formData.getSaveTime() != null ? formData.getSaveTime().getTime() : System.currentTimeMillis();
+    }
+}
@@ -35,6 +35,9 @@ public class FormTemplateDaoImpl extends OpenmrsDaoImpl<FormTemplate> implements
      */
     @Override
     public Boolean exists(final String formUuid) throws IOException {
+        if (!mightExist(formUuid)) {
+            return false;
+        }
         List<Filter> filters = new ArrayList<Filter>();
         if (!StringUtil.isEmpty(formUuid)) {
             Filter filter = FilterFactory.createFilter("uuid", formUuid);
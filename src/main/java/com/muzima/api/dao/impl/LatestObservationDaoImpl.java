@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.dao.LatestObservationDao;
+import com.muzima.api.model.LatestObservation;
+import com.muzima.search.api.filter.Filter;
+import com.muzima.search.api.filter.FilterFactory;
+import com.muzima.search.api.util.StringUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LatestObservationDaoImpl extends SearchableDaoImpl<LatestObservation> implements LatestObservationDao {
+
+    protected LatestObservationDaoImpl() {
+        super(LatestObservation.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LatestObservationDao#get(String, String)
+     */
+    @Override
+    public LatestObservation get(final String patientUuid, final String conceptUuid) throws IOException {
+        return service.getObject(LatestObservation.createUuid(patientUuid, conceptUuid), daoClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LatestObservationDao#getByPatient(String)
+     */
+    @Override
+    public List<LatestObservation> getByPatient(final String patientUuid) throws IOException {
+        if (StringUtil.isEmpty(patientUuid)) {
+            return new ArrayList<LatestObservation>();
+        }
+        List<Filter> filters = new ArrayList<Filter>();
+        Filter patientFilter = FilterFactory.createFilter("patientUuid", patientUuid);
+        filters.add(patientFilter);
+        return service.getObjects(filters, daoClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LatestObservationDao#getByPatients(java.util.Collection)
+     */
+    @Override
+    public List<LatestObservation> getByPatients(final Collection<String> patientUuids) throws IOException {
+        return getByAnyOf("patientUuid", patientUuids);
+    }
+}
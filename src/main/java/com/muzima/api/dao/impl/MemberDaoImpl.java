@@ -82,4 +82,19 @@ public class MemberDaoImpl extends SearchableDaoImpl<CohortMember> implements Me
         }
         return service.getObjects(filters, daoClass, page, pageSize);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDaoImpl#getFieldValue(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    protected String getFieldValue(final CohortMember member, final String field) {
+        if ("cohortUuid".equals(field)) {
+            return member.getCohortUuid();
+        } else if ("patientUuid".equals(field)) {
+            return member.getPatientUuid();
+        }
+        return super.getFieldValue(member, field);
+    }
 }
@@ -17,6 +17,7 @@ import com.muzima.search.api.util.StringUtil;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ObservationDaoImpl extends OpenmrsDaoImpl<Observation> implements ObservationDao {
@@ -116,4 +117,31 @@ public class ObservationDaoImpl extends OpenmrsDaoImpl<Observation> implements O
         }
         return service.getObjects(filters, daoClass);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationDao#getByEncounters(java.util.Collection)
+     */
+    @Override
+    public List<Observation> getByEncounters(final Collection<String> encounterUuids) throws IOException {
+        return getByAnyOf("encounterUuid", encounterUuids);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDaoImpl#getFieldValue(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    protected String getFieldValue(final Observation observation, final String field) {
+        if ("patientUuid".equals(field)) {
+            return observation.getPerson() == null ? null : observation.getPerson().getUuid();
+        } else if ("conceptUuid".equals(field)) {
+            return observation.getConcept() == null ? null : observation.getConcept().getUuid();
+        } else if ("encounterUuid".equals(field)) {
+            return observation.getEncounter() == null ? null : observation.getEncounter().getUuid();
+        }
+        return super.getFieldValue(observation, field);
+    }
 }
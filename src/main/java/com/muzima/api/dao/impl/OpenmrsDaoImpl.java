@@ -9,24 +9,64 @@
 package com.muzima.api.dao.impl;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.muzima.api.config.Configuration;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.dao.DownloadCheckpointDao;
 import com.muzima.api.dao.OpenmrsDao;
+import com.muzima.api.model.DownloadCheckpoint;
 import com.muzima.api.model.OpenmrsSearchable;
+import com.muzima.api.model.Revalidatable;
+import com.muzima.api.service.OperationToken;
 import com.muzima.search.api.context.ServiceContext;
 import com.muzima.search.api.filter.Filter;
 import com.muzima.search.api.filter.FilterFactory;
 import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.resource.Resource;
 import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 public abstract class OpenmrsDaoImpl<T extends OpenmrsSearchable> extends SearchableDaoImpl<T> implements OpenmrsDao<T> {
 
+    private static final Logger logger = LoggerFactory.getLogger(OpenmrsDaoImpl.class.getSimpleName());
+
+    private static final String START_INDEX_PARAM = "startIndex";
+
+    private static final String LIMIT_PARAM = "limit";
+
     @Inject
     private ServiceContext serviceContext;
 
+    @Inject
+    private ExistenceIndex existenceIndex;
+
+    @Inject
+    protected RemoteResourceLoader resourceLoader;
+
+    @Inject
+    private DownloadPipeline downloadPipeline;
+
+    @Inject
+    private DownloadCheckpointDao downloadCheckpointDao;
+
+    @Inject
+    private DownloadSingleFlight singleFlight;
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
     protected OpenmrsDaoImpl(final Class<T> daoClass) {
         super(daoClass);
     }
@@ -43,12 +83,146 @@ public abstract class OpenmrsDaoImpl<T extends OpenmrsSearchable> extends Search
     @SuppressWarnings("unchecked")
     public List<T> download(final Map<String, String> resourceParams, final String resource) throws IOException {
         List<T> list = new ArrayList<T>();
-        for (Searchable searchable : service.loadObjects(resourceParams, serviceContext.getResource(resource))) {
+        for (Searchable searchable : load(resourceParams, resource)) {
             list.add((T) searchable);
         }
         return list;
     }
 
+    /**
+     * Download the searchable objects matching the parameters, sharing the download with concurrent identical
+     * requests of the same user on the same server. The objects are converted for every call, so they are never
+     * shared with another caller.
+     *
+     * @param resourceParams the parameters to be passed to search object to filter the searchable object.
+     * @param resource       resource descriptor used to convert the resource to the correct object.
+     * @return the downloaded objects.
+     * @throws IOException when search api unable to process the resource.
+     */
+    protected List<Searchable> load(final Map<String, String> resourceParams, final String resource) throws IOException {
+        Configuration configuration = configurationProvider.get();
+        String key = configuration.getUsername() + "@" + configuration.getServer() + "/" + resource
+                + "?" + createParamSignature(resourceParams);
+        final Resource searchResource = serviceContext.getResource(resource);
+        DownloadedElements elements = singleFlight.load(key, new Callable<DownloadedElements>() {
+            @Override
+            public DownloadedElements call() throws IOException {
+                return resourceLoader.fetch(resourceParams, searchResource);
+            }
+        });
+        return elements.deserialize(searchResource.getAlgorithm());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> download(final T cached, final Map<String, String> resourceParams,
+                            final String resource) throws IOException {
+        Revalidatable revalidatable = null;
+        if (cached instanceof Revalidatable) {
+            revalidatable = (Revalidatable) cached;
+        }
+        List<T> list = new ArrayList<T>();
+        List<Searchable> searchables =
+                resourceLoader.loadIfModified(resourceParams, serviceContext.getResource(resource), revalidatable);
+        if (searchables == null) {
+            if (revalidatable == null) {
+                logger.warn("Not modified answer without a cached copy of resource: " + resource);
+                return list;
+            }
+            revalidatable.setModified(false);
+            list.add(cached);
+            return list;
+        }
+        for (Searchable searchable : searchables) {
+            list.add((T) searchable);
+        }
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int downloadInBatches(final Map<String, String> resourceParams, final String resource,
+                                 final DownloadBatchHandler<T> handler) throws IOException {
+        return downloadPipeline.run(resourceParams, serviceContext.getResource(resource), handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The download ends on an empty page. A page shorter than the page size doesn't end the download, because the
+     * server may cap the number of objects in a page, and a page longer than the page size ends the download, because
+     * the server ignored the paging parameters and returned every object. A checkpoint saved with another page size
+     * is not resumed, and the download starts again from the first object.
+     */
+    @Override
+    public int downloadInPages(final Map<String, String> resourceParams, final String resource, final int pageSize,
+                               final DownloadBatchHandler<T> handler) throws IOException {
+        String paramSignature = createParamSignature(resourceParams);
+        DownloadCheckpoint checkpoint = downloadCheckpointDao.get(resource, paramSignature);
+        boolean saved = checkpoint != null;
+        if (checkpoint == null) {
+            checkpoint = new DownloadCheckpoint(resource, paramSignature);
+        } else if (checkpoint.getPageSize() == null || checkpoint.getPageSize() != pageSize) {
+            logger.info("Restarting paged download of resource: " + resource + " because the page size changed.");
+            checkpoint.setStartIndex(0);
+        }
+        checkpoint.setPageSize(pageSize);
+
+        int count = 0;
+        int pageCount;
+        do {
+            OperationToken.checkCurrent();
+            Map<String, String> pageParams = new HashMap<String, String>(resourceParams);
+            pageParams.put(START_INDEX_PARAM, String.valueOf(checkpoint.getStartIndex()));
+            pageParams.put(LIMIT_PARAM, String.valueOf(pageSize));
+            List<T> page = download(pageParams, resource);
+            pageCount = countPageObjects(page);
+            if (pageCount > 0) {
+                handler.handle(page);
+                count += pageCount;
+                checkpoint.setStartIndex(checkpoint.getStartIndex() + pageCount);
+                checkpoint.setCheckpointDate(new Date());
+                downloadCheckpointDao.save(checkpoint, Constants.LOCAL_DOWNLOAD_CHECKPOINT_RESOURCE);
+                saved = true;
+            }
+        } while (pageCount > 0 && pageCount <= pageSize);
+
+        if (saved) {
+            downloadCheckpointDao.delete(checkpoint, Constants.LOCAL_DOWNLOAD_CHECKPOINT_RESOURCE);
+        }
+        return count;
+    }
+
+    /**
+     * Count the objects in a downloaded page. Resources consolidating a page into a single object count the objects
+     * inside the consolidated object instead.
+     *
+     * @param page the downloaded page.
+     * @return the number of objects in the page.
+     */
+    protected int countPageObjects(final List<T> page) {
+        return page.size();
+    }
+
+    /**
+     * Create the signature of the download parameters, independent of the order of the parameters.
+     */
+    private String createParamSignature(final Map<String, String> resourceParams) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(resourceParams).entrySet()) {
+            if (builder.length() > 0) {
+                builder.append("&");
+            }
+            builder.append(entry.getKey()).append("=").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -58,6 +232,77 @@ public abstract class OpenmrsDaoImpl<T extends OpenmrsSearchable> extends Search
         return service.getObject(uuid, daoClass);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.muzima.api.dao.OpenmrsDao#exists(String)
+     */
+    @Override
+    public Boolean exists(final String uuid) throws IOException {
+        if (!mightExist(uuid)) {
+            return false;
+        }
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(FilterFactory.createFilter("uuid", uuid));
+        return service.countObjects(filters, daoClass) > 0;
+    }
+
+    /**
+     * Check the existence filter of the local repository for the uuid. The filter is built from the uuid terms of the
+     * repository index the first time, without reading the objects.
+     *
+     * @param uuid the uuid of the searchable object.
+     * @return false when the searchable object is definitely not in the local repository.
+     * @throws IOException when search api unable to process the resource.
+     */
+    protected boolean mightExist(final String uuid) throws IOException {
+        return !StringUtil.isEmpty(uuid) && existenceIndex.mightContain(uuid);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.muzima.api.dao.SearchableDao#save(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    public void save(final T object, final String resource) throws IOException {
+        super.save(object, resource);
+        existenceIndex.add(Collections.singletonList(object));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.muzima.api.dao.SearchableDao#save(java.util.List, String)
+     */
+    @Override
+    public void save(final List<T> objects, final String resource) throws IOException {
+        super.save(objects, resource);
+        existenceIndex.add(objects);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.muzima.api.dao.SearchableDao#update(com.muzima.search.api.model.object.Searchable, String)
+     */
+    @Override
+    public void update(final T object, final String resource) throws IOException {
+        super.update(object, resource);
+        existenceIndex.add(Collections.singletonList(object));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see com.muzima.api.dao.SearchableDao#update(java.util.List, String)
+     */
+    @Override
+    public void update(final List<T> objects, final String resource) throws IOException {
+        super.update(objects, resource);
+        existenceIndex.add(objects);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+import com.jayway.jsonpath.JsonPath;
+import com.muzima.api.config.Configuration;
+import com.muzima.api.config.RequestLimiter;
+import com.muzima.api.config.TransferStatistics;
+import com.muzima.api.exception.HttpResponseException;
+import com.muzima.api.model.Revalidatable;
+import com.muzima.api.service.OperationToken;
+import com.muzima.api.transport.HttpRequest;
+import com.muzima.api.transport.HttpResponse;
+import com.muzima.api.transport.HttpTransport;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.model.resolver.Resolver;
+import com.muzima.search.api.resource.Resource;
+import com.muzima.search.api.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Download and deserialize the objects of a REST resource through the HTTP transport. The response is requested gzip
+ * compressed and decompressed while it is read, and the bytes received are recorded in the transfer statistics of the
+ * resource. Objects carrying HTTP validators can be downloaded conditionally. Requests wait for a permit of the request
+ * limiter and use its read timeout. The objects are not saved to the local repository.
+ */
+public class RemoteResourceLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(RemoteResourceLoader.class.getSimpleName());
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    @Inject
+    @Named("connection.timeout")
+    private int timeout;
+
+    @Inject
+    private TransferStatistics transferStatistics;
+
+    @Inject
+    private RequestLimiter requestLimiter;
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
+    @Inject
+    private HttpTransport transport;
+
+    protected RemoteResourceLoader() {
+    }
+
+    RemoteResourceLoader(final HttpTransport transport, final RequestLimiter requestLimiter,
+                         final TransferStatistics transferStatistics,
+                         final Provider<Configuration> configurationProvider) {
+        this.transport = transport;
+        this.requestLimiter = requestLimiter;
+        this.transferStatistics = transferStatistics;
+        this.configurationProvider = configurationProvider;
+    }
+
+    /**
+     * Download the objects of the resource matching the parameters.
+     *
+     * @param resourceParams the parameters to be passed to the resolver of the resource.
+     * @param resource       resource descriptor used to convert the response to the correct objects.
+     * @return the downloaded objects or empty list when the server returned no objects.
+     * @throws IOException when the download or the conversion failed, or the response has no root node of the
+     * resource, or an HttpResponseException when the server didn't answer with the resource.
+     */
+    public List<Searchable> load(final Map<String, String> resourceParams, final Resource resource) throws IOException {
+        return fetch(resourceParams, resource).deserialize(resource.getAlgorithm());
+    }
+
+    /**
+     * Download the objects of the resource matching the parameters, unless the cached copy is still current. The
+     * validators of the cached copy are sent with the request, and the validators of the response are set on the
+     * downloaded object when the resource returns a single object.
+     *
+     * @param resourceParams the parameters to be passed to the resolver of the resource.
+     * @param resource       resource descriptor used to convert the response to the correct objects.
+     * @param cached         the local copy of the object, or null to download unconditionally.
+     * @return the downloaded objects, or null when the server answered that the cached copy is still current.
+     * @throws IOException when the download or the conversion failed, or the response has no root node of the
+     * resource, or an HttpResponseException when the server didn't answer with the resource.
+     */
+    public List<Searchable> loadIfModified(final Map<String, String> resourceParams, final Resource resource,
+                                           final Revalidatable cached) throws IOException {
+        DownloadedElements elements = fetchIfModified(resourceParams, resource, cached);
+        if (elements == null) {
+            return null;
+        }
+        return elements.deserialize(resource.getAlgorithm());
+    }
+
+    /**
+     * Download the json documents of the objects of the resource matching the parameters, without converting them.
+     *
+     * @param resourceParams the parameters to be passed to the resolver of the resource.
+     * @param resource       resource descriptor used to resolve the url and find the objects in the response.
+     * @return the downloaded documents, empty when the server returned no objects.
+     * @throws IOException when the download failed or the response has no root node of the resource, or an
+     * HttpResponseException when the server didn't answer with the resource.
+     */
+    public DownloadedElements fetch(final Map<String, String> resourceParams, final Resource resource)
+            throws IOException {
+        return fetchIfModified(resourceParams, resource, null);
+    }
+
+    private DownloadedElements fetchIfModified(final Map<String, String> resourceParams, final Resource resource,
+                                               final Revalidatable cached) throws IOException {
+        DownloadedElements empty = new DownloadedElements(Collections.<String>emptyList());
+        String json;
+        HttpResponse response;
+        RequestLimiter.Permit permit = requestLimiter.acquire();
+        try {
+            response = execute(resourceParams, resource, cached, permit);
+            int responseCode = response.getStatusCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                response.close();
+                return null;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                response.close();
+                throw createResponseException(resource, responseCode);
+            }
+
+            InputStream inputStream = openBody(response, resource, permit);
+            try {
+                json = readAsString(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } finally {
+            permit.release();
+        }
+
+        Object root;
+        try {
+            root = JsonPath.read(json, resource.getRootNode());
+        } catch (Exception e) {
+            logger.warn("Unable to find root node: " + resource.getRootNode() + " in resource: " + resource.getName()
+                    + ". " + e.getMessage());
+            throw new IOException("Unable to find root node: " + resource.getRootNode() + " in resource: "
+                    + resource.getName() + ". " + e);
+        }
+        if (root instanceof List) {
+            List<String> documents = new ArrayList<String>();
+            for (Object element : (List) root) {
+                documents.add(String.valueOf(element));
+            }
+            return new DownloadedElements(documents);
+        } else if (root instanceof Map) {
+            return new DownloadedElements(String.valueOf(root), response.getHeader("ETag"),
+                    response.getHeader("Last-Modified"));
+        }
+        return empty;
+    }
+
+    /**
+     * Open the response body of the resource matching the parameters, to be read while it is downloaded. The bytes
+     * received are recorded when the stream is closed.
+     *
+     * @param resourceParams the parameters to be passed to the resolver of the resource.
+     * @param resource       resource descriptor used to resolve the url of the resource.
+     * @return the decompressed response body.
+     * @throws IOException when the connection failed, or an HttpResponseException when the server didn't answer with
+     * the resource.
+     */
+    public InputStream openStream(final Map<String, String> resourceParams, final Resource resource)
+            throws IOException {
+        RequestLimiter.Permit permit = requestLimiter.acquire();
+        try {
+            HttpResponse response = execute(resourceParams, resource, null, permit);
+            int responseCode = response.getStatusCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                response.close();
+                throw createResponseException(resource, responseCode);
+            }
+            return openBody(response, resource, permit);
+        } catch (IOException e) {
+            permit.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Create the failure of a response which didn't carry the resource. Only a not modified answer to a conditional
+     * request means that there are no new objects, so every other status code fails the download.
+     */
+    private HttpResponseException createResponseException(final Resource resource, final int responseCode) {
+        logger.warn("Unable to download resource: " + resource.getName() + ". Response code: " + responseCode);
+        return new HttpResponseException(
+                "Unable to download resource: " + resource.getName() + ". Response code: " + responseCode, responseCode);
+    }
+
+    /**
+     * Send the request and record the outcome of the request in the request limiter. Server errors and refused
+     * requests are recorded as failures, because they are the signs of an overloaded server.
+     */
+    private HttpResponse execute(final Map<String, String> resourceParams, final Resource resource,
+                                 final Revalidatable cached, final RequestLimiter.Permit permit) throws IOException {
+        Resolver resolver = resource.getResolver();
+        HttpRequest request = new HttpRequest("GET", resolver.resolve(resourceParams));
+        request.setHeaders(configurationProvider.get().getRequestHeaders());
+        request.setConnectTimeout(timeout);
+        request.setReadTimeout(requestLimiter.getReadTimeout());
+        request.setAcceptCompressed(true);
+        if (cached != null) {
+            if (!StringUtil.isEmpty(cached.getEntityTag())) {
+                request.setHeader("If-None-Match", cached.getEntityTag());
+            }
+            if (!StringUtil.isEmpty(cached.getLastModified())) {
+                request.setHeader("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        OperationToken.checkCurrent();
+        HttpResponse response;
+        try {
+            response = transport.execute(request);
+        } catch (IOException e) {
+            permit.complete(false);
+            throw e;
+        }
+        int responseCode = response.getStatusCode();
+        permit.complete(responseCode < HttpURLConnection.HTTP_INTERNAL_ERROR && responseCode != HTTP_TOO_MANY_REQUESTS);
+        return response;
+    }
+
+    /**
+     * Open the decompressed response body. The bytes received on the wire are recorded in the transfer statistics of
+     * the resource, and the permit is released, when the stream is closed. The response is registered with the
+     * operation token of the current thread, so cancelling the operation aborts the response and stops the read.
+     * Closing the stream before the end of the body aborts the response too, so closing it from another thread stops
+     * a read blocked on a stalled server.
+     */
+    private InputStream openBody(final HttpResponse response, final Resource resource,
+                                 final RequestLimiter.Permit permit) throws IOException {
+        final OperationToken token = OperationToken.current();
+        final Closeable abort = new Closeable() {
+            @Override
+            public void close() {
+                response.abort();
+            }
+        };
+        InputStream body = new FilterInputStream(response.getBody()) {
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            private volatile boolean ended;
+
+            private long reported;
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    int read = super.read();
+                    if (read == -1) {
+                        ended = true;
+                    }
+                    reportProgress();
+                    return read;
+                } catch (IOException e) {
+                    throw cancelledOr(e);
+                }
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                try {
+                    int read = super.read(buffer, offset, length);
+                    if (read == -1) {
+                        ended = true;
+                    }
+                    reportProgress();
+                    return read;
+                } catch (IOException e) {
+                    throw cancelledOr(e);
+                }
+            }
+
+            private void reportProgress() {
+                if (token != null) {
+                    long received = response.getBytesReceived();
+                    token.addBytesRead(received - reported);
+                    reported = received;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (ended) {
+                        response.close();
+                    } else {
+                        response.abort();
+                    }
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        transferStatistics.recordReceived(resource.getName(), response.getBytesReceived());
+                        permit.release();
+                        if (token != null) {
+                            token.unregister(abort);
+                        }
+                    }
+                }
+            }
+
+            private IOException cancelledOr(final IOException e) {
+                if (token != null && token.isCancelled()) {
+                    return new InterruptedIOException(
+                            "Download of resource: " + resource.getName() + " was cancelled.");
+                }
+                return e;
+            }
+        };
+        if (token != null) {
+            try {
+                token.register(abort);
+            } catch (IOException e) {
+                body.close();
+                throw e;
+            }
+        }
+        return body;
+    }
+
+    private String readAsString(final InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toString("UTF-8");
+    }
+}
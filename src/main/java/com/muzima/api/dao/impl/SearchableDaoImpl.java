@@ -10,23 +10,39 @@ package com.muzima.api.dao.impl;
 
 import com.google.inject.Inject;
 import com.muzima.api.dao.SearchableDao;
+import com.muzima.api.service.OperationToken;
 import com.muzima.search.api.context.ServiceContext;
 import com.muzima.search.api.filter.Filter;
 import com.muzima.search.api.model.object.Searchable;
 import com.muzima.search.api.service.RestAssuredService;
+import com.muzima.search.api.util.StringUtil;
+import org.apache.lucene.queryParser.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * TODO: Write brief description about the class here.
  */
 public abstract class SearchableDaoImpl<T extends Searchable> implements SearchableDao<T> {
 
+    /**
+     * Maximum number of values in a single multi value query. Lucene refuses boolean queries with more than 1024
+     * clauses, so larger value sets are split into several queries.
+     */
+    protected static final int MAX_QUERY_VALUES = 512;
+
     protected Logger logger;
 
     protected Class<T> daoClass;
@@ -50,6 +66,7 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
     @Override
     public void save(final T object, final String resource) throws IOException {
         service.createObjects(Arrays.<Searchable>asList(object), context.getResource(resource));
+        recordIndexed(1);
     }
 
     /**
@@ -59,9 +76,11 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
      */
     @Override
     public void save(final List<T> objects, final String resource) throws IOException {
+        OperationToken.checkCurrent();
         service.createObjects(
                 Arrays.asList(objects.toArray(new Searchable[objects.size()])),
                 context.getResource(resource));
+        recordIndexed(objects.size());
     }
 
     /**
@@ -72,6 +91,7 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
     @Override
     public void update(final T object, final String resource) throws IOException {
         service.updateObjects(Arrays.<Searchable>asList(object), context.getResource(resource));
+        recordIndexed(1);
     }
 
     /**
@@ -81,9 +101,21 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
      */
     @Override
     public void update(final List<T> objects, final String resource) throws IOException {
+        OperationToken.checkCurrent();
         service.updateObjects(
                 Arrays.asList(objects.toArray(new Searchable[objects.size()])),
                 context.getResource(resource));
+        recordIndexed(objects.size());
+    }
+
+    /**
+     * Record the indexed objects in the operation token of the current thread.
+     */
+    private void recordIndexed(final int count) {
+        OperationToken token = OperationToken.current();
+        if (token != null) {
+            token.addObjectsIndexed(count);
+        }
     }
 
     /**
@@ -96,6 +128,73 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
         return service.countObjects(new ArrayList<Filter>(), daoClass);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDao#countGroupedBy(String, java.util.List)
+     */
+    @Override
+    public Map<String, Integer> countGroupedBy(final String field, final List<Filter> filters) throws IOException {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        countValues(field, service.getObjects(filters, daoClass), counts);
+        return counts;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDao#countGroupedBy(String, java.util.Collection, java.util.Map)
+     */
+    @Override
+    public Map<String, Integer> countGroupedBy(final String field, final Collection<String> values,
+                                               final Map<String, String> criteria) throws IOException {
+        Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+        Set<String> queriedValues = new LinkedHashSet<String>();
+        for (String value : values) {
+            counts.put(value, 0);
+            // an empty value matches no indexed object and can't be part of the query.
+            if (!StringUtil.isEmpty(value)) {
+                queriedValues.add(value);
+            }
+        }
+        if (!queriedValues.isEmpty()) {
+            countRequestedValues(field, getByAnyOf(field, queriedValues, criteria), counts);
+        }
+        return counts;
+    }
+
+    /**
+     * Get the value of an indexed field from the object. Data access objects supporting grouped counts override
+     * this method for the fields they can be grouped by.
+     *
+     * @param object the object.
+     * @param field  the indexed field.
+     * @return the value of the field in the object.
+     */
+    protected String getFieldValue(final T object, final String field) {
+        throw new UnsupportedOperationException("Grouping " + daoClass.getSimpleName() + " by field: " + field
+                + " is not supported.");
+    }
+
+    private void countValues(final String field, final List<T> objects, final Map<String, Integer> counts) {
+        for (T object : objects) {
+            String value = getFieldValue(object, field);
+            Integer count = counts.get(value);
+            counts.put(value, count == null ? 1 : count + 1);
+        }
+    }
+
+    private void countRequestedValues(final String field, final List<T> objects, final Map<String, Integer> counts) {
+        for (T object : objects) {
+            String value = getFieldValue(object, field);
+            Integer count = counts.get(value);
+            // the query on the index may match values which differ in case or analysis from the requested ones.
+            if (count != null) {
+                counts.put(value, count + 1);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -116,6 +215,16 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
         return service.getObjects(new ArrayList<Filter>(), daoClass, page, pageSize);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see SearchableDao#getByUuids(java.util.Collection)
+     */
+    @Override
+    public List<T> getByUuids(final Collection<String> uuids) throws IOException {
+        return getByAnyOf("uuid", uuids);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -137,4 +246,62 @@ public abstract class SearchableDaoImpl<T extends Searchable> implements Searcha
                 Arrays.asList(objects.toArray(new Searchable[objects.size()])),
                 context.getResource(resource));
     }
+
+    /**
+     * Get all searchable objects where the field matches any of the values. The values are sent to the repository
+     * in chunks of at most {@link #MAX_QUERY_VALUES} values, so a large value set costs a handful of queries instead
+     * of one query per value.
+     *
+     * @param field  the searchable field.
+     * @param values the values of the field.
+     * @return list of all matching searchable objects or empty list.
+     * @throws IOException when search api unable to process the resource.
+     */
+    protected List<T> getByAnyOf(final String field, final Collection<String> values) throws IOException {
+        return getByAnyOf(field, values, null);
+    }
+
+    /**
+     * Get all searchable objects where the field matches any of the values and every field of the criteria matches
+     * its value.
+     *
+     * @param field    the searchable field.
+     * @param values   the values of the field.
+     * @param criteria additional field and value pairs the objects must match, or null.
+     * @return list of all matching searchable objects or empty list.
+     * @throws IOException when search api unable to process the resource.
+     * @see #getByAnyOf(String, java.util.Collection)
+     */
+    protected List<T> getByAnyOf(final String field, final Collection<String> values,
+                                 final Map<String, String> criteria) throws IOException {
+        StringBuilder criteriaQuery = new StringBuilder();
+        if (criteria != null) {
+            for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+                criteriaQuery.append(" AND ").append(criterion.getKey())
+                        .append(":\"").append(criterion.getValue()).append("\"");
+            }
+        }
+        List<T> objects = new ArrayList<T>();
+        Iterator<String> iterator = values.iterator();
+        while (iterator.hasNext()) {
+            StringBuilder query = new StringBuilder();
+            int count = 0;
+            while (iterator.hasNext() && count < MAX_QUERY_VALUES) {
+                if (count > 0) {
+                    query.append(" OR ");
+                }
+                query.append(field).append(":\"").append(iterator.next()).append("\"");
+                count++;
+            }
+            if (criteriaQuery.length() > 0) {
+                query.insert(0, "(").append(")").append(criteriaQuery);
+            }
+            try {
+                objects.addAll(service.getObjects(query.toString(), daoClass));
+            } catch (ParseException e) {
+                throw new IOException("Unable to parse query for field: " + field + ". " + e.getMessage());
+            }
+        }
+        return objects;
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.muzima.api.model.APIName;
+import com.muzima.util.Constants;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Store of the uuids synced by the last sync of an api name, e.g. the patients whose encounters were synced. The uuids
+ * are kept in one file per api name and type in the local repository directory, one uuid per line, so the last sync
+ * time of the api name doesn't need to carry them. A file is replaced as a whole, through a temporary file.
+ */
+@Singleton
+public class SyncedUuidStore {
+
+    private static final String DIRECTORY_NAME = "sync";
+
+    private static final String CHARSET = "UTF-8";
+
+    @Inject
+    @Named(Constants.LUCENE_DIRECTORY_PATH)
+    private String repositoryPath;
+
+    protected SyncedUuidStore() {
+    }
+
+    SyncedUuidStore(final String repositoryPath) {
+        this.repositoryPath = repositoryPath;
+    }
+
+    /**
+     * Get the uuids recorded by the last sync of the api name.
+     *
+     * @param apiName the api name.
+     * @param type    the type of the uuids, e.g. "patient".
+     * @return the uuids, empty when nothing was recorded.
+     * @throws IOException when the uuids can't be read.
+     */
+    public synchronized Set<String> get(final APIName apiName, final String type) throws IOException {
+        Set<String> uuids = new HashSet<String>();
+        File file = getFile(apiName, type);
+        if (!file.exists()) {
+            return uuids;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() > 0) {
+                    uuids.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return uuids;
+    }
+
+    /**
+     * Record the uuids synced by the sync of the api name, replacing the uuids recorded before.
+     *
+     * @param apiName the api name.
+     * @param type    the type of the uuids, e.g. "patient".
+     * @param uuids   the synced uuids.
+     * @throws IOException when the uuids can't be written.
+     */
+    public synchronized void put(final APIName apiName, final String type,
+                                 final Collection<String> uuids) throws IOException {
+        File file = getFile(apiName, type);
+        File directory = file.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory for the synced uuids: " + directory.getPath());
+        }
+        File temporaryFile = new File(directory, file.getName() + ".tmp");
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), CHARSET));
+        try {
+            for (String uuid : uuids) {
+                writer.write(uuid);
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+        if ((file.exists() && !file.delete()) || !temporaryFile.renameTo(file)) {
+            throw new IOException("Unable to replace the synced uuids: " + file.getPath());
+        }
+    }
+
+    private File getFile(final APIName apiName, final String type) {
+        return new File(new File(repositoryPath, DIRECTORY_NAME), apiName + "." + type);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.dao.TimelineEventDao;
+import com.muzima.api.model.FormData;
+import com.muzima.api.model.OpenmrsSearchable;
+import com.muzima.api.model.TimelineEvent;
+import com.muzima.api.model.algorithm.TimelineEventAlgorithm;
+import com.muzima.search.api.filter.Filter;
+import com.muzima.search.api.filter.FilterFactory;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+import org.apache.lucene.queryParser.ParseException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class TimelineEventDaoImpl extends SearchableDaoImpl<TimelineEvent> implements TimelineEventDao {
+
+    protected TimelineEventDaoImpl() {
+        super(TimelineEvent.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#getByPatient(String)
+     */
+    @Override
+    public List<TimelineEvent> getByPatient(final String patientUuid) throws IOException {
+        if (StringUtil.isEmpty(patientUuid)) {
+            return new ArrayList<TimelineEvent>();
+        }
+        List<Filter> filters = new ArrayList<Filter>();
+        Filter patientFilter = FilterFactory.createFilter("patientUuid", patientUuid);
+        filters.add(patientFilter);
+        return service.getObjects(filters, daoClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#getByPatient(String, java.util.Date, java.util.Date)
+     */
+    @Override
+    public List<TimelineEvent> getByPatient(final String patientUuid, final Date from, final Date to)
+            throws IOException {
+        if (StringUtil.isEmpty(patientUuid)) {
+            return new ArrayList<TimelineEvent>();
+        }
+        try {
+            return service.getObjects(createPeriodQuery(patientUuid, from, to), daoClass);
+        } catch (ParseException e) {
+            throw new IOException("Unable to parse timeline query for patient: " + patientUuid + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#countByPatient(String, java.util.Date, java.util.Date)
+     */
+    @Override
+    public int countByPatient(final String patientUuid, final Date from, final Date to) throws IOException {
+        if (StringUtil.isEmpty(patientUuid)) {
+            return 0;
+        }
+        try {
+            return service.countObjects(createPeriodQuery(patientUuid, from, to), daoClass);
+        } catch (ParseException e) {
+            throw new IOException("Unable to parse timeline query for patient: " + patientUuid + ". " + e.getMessage());
+        }
+    }
+
+    private String createPeriodQuery(final String patientUuid, final Date from, final Date to) {
+        long fromTime = from != null ? from.getTime() : 0;
+        long toTime = to != null ? to.getTime() : TimelineEventAlgorithm.MAXIMUM_EVENT_TIME;
+        return "patientUuid:\"" + patientUuid + "\" AND eventTime:["
+                + TimelineEventAlgorithm.formatEventTime(fromTime) + " TO "
+                + TimelineEventAlgorithm.formatEventTime(toTime) + "]";
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#saveEvents(java.util.List)
+     */
+    @Override
+    public void saveEvents(final List<? extends Searchable> searchables) throws IOException {
+        List<TimelineEvent> timelineEvents = new ArrayList<TimelineEvent>();
+        List<TimelineEvent> staleEvents = new ArrayList<TimelineEvent>();
+        createEvents(searchables, timelineEvents, staleEvents);
+        if (!timelineEvents.isEmpty()) {
+            save(timelineEvents, Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        }
+        if (!staleEvents.isEmpty()) {
+            delete(staleEvents, Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#updateEvents(java.util.List)
+     */
+    @Override
+    public void updateEvents(final List<? extends Searchable> searchables) throws IOException {
+        List<TimelineEvent> timelineEvents = new ArrayList<TimelineEvent>();
+        List<TimelineEvent> staleEvents = new ArrayList<TimelineEvent>();
+        createEvents(searchables, timelineEvents, staleEvents);
+        if (!timelineEvents.isEmpty()) {
+            update(timelineEvents, Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        }
+        if (!staleEvents.isEmpty()) {
+            delete(staleEvents, Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see TimelineEventDao#deleteEvents(java.util.List)
+     */
+    @Override
+    public void deleteEvents(final List<? extends Searchable> searchables) throws IOException {
+        List<TimelineEvent> timelineEvents = new ArrayList<TimelineEvent>();
+        createEvents(searchables, timelineEvents, timelineEvents);
+        if (!timelineEvents.isEmpty()) {
+            delete(timelineEvents, Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        }
+    }
+
+    /**
+     * Create the timeline entries of the objects. An object without a timeline entry, because it was voided or lost
+     * its patient or date, gets an entry holding only its uuid in the stale entries, to delete the entry it had.
+     */
+    private void createEvents(final List<? extends Searchable> searchables, final List<TimelineEvent> timelineEvents,
+                              final List<TimelineEvent> staleEvents) {
+        for (Searchable searchable : searchables) {
+            TimelineEvent timelineEvent = TimelineEvent.create(searchable);
+            if (timelineEvent != null) {
+                timelineEvents.add(timelineEvent);
+            } else {
+                String uuid = getUuid(searchable);
+                if (!StringUtil.isEmpty(uuid)) {
+                    staleEvents.add(new TimelineEvent(uuid, null, null, null));
+                }
+            }
+        }
+    }
+
+    private String getUuid(final Searchable searchable) {
+        if (searchable instanceof OpenmrsSearchable) {
+            return ((OpenmrsSearchable) searchable).getUuid();
+        } else if (searchable instanceof FormData) {
+            return ((FormData) searchable).getUuid();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers a request with a status code other than the expected one, so callers can tell a
+ * server error or an expired session apart from a response without objects.
+ */
+public class HttpResponseException extends IOException {
+
+    private final int statusCode;
+
+    /**
+     * Constructs a new exception with the specified detail message and the status code of the response.
+     *
+     * @param message    the detail message.
+     * @param statusCode the status code of the response.
+     */
+    public HttpResponseException(final String message, final int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Get the status code of the response.
+     *
+     * @return the status code of the response.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
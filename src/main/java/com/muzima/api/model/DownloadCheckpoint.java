@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Progress of a paged download. There is at most one checkpoint for each resource and parameter signature pair, and
+ * the checkpoint carries the start index of the next page to be requested, so an interrupted download can resume
+ * after the last page which was saved to the local repository.
+ */
+public class DownloadCheckpoint extends OpenmrsSearchable {
+
+    private String resource;
+
+    private String paramSignature;
+
+    private Integer startIndex;
+
+    private Integer pageSize;
+
+    private Date checkpointDate;
+
+    public DownloadCheckpoint() {
+    }
+
+    public DownloadCheckpoint(final String resource, final String paramSignature) {
+        this.resource = resource;
+        this.paramSignature = paramSignature;
+        this.startIndex = 0;
+        setUuid(createUuid(resource, paramSignature));
+    }
+
+    /**
+     * Create the uuid of the checkpoint for the resource and parameter signature pair. The uuid is derived from both
+     * values, so the checkpoint can be looked up by key without searching.
+     *
+     * @param resource       the name of the downloaded resource.
+     * @param paramSignature the signature of the download parameters.
+     * @return the uuid of the checkpoint.
+     */
+    public static String createUuid(final String resource, final String paramSignature) {
+        String key = resource + ":" + paramSignature;
+        return UUID.nameUUIDFromBytes(key.getBytes()).toString();
+    }
+
+    /**
+     * Get the name of the downloaded resource.
+     *
+     * @return the name of the downloaded resource.
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    /**
+     * Set the name of the downloaded resource.
+     *
+     * @param resource the name of the downloaded resource.
+     */
+    public void setResource(final String resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * Get the signature of the download parameters, without the paging parameters.
+     *
+     * @return the signature of the download parameters.
+     */
+    public String getParamSignature() {
+        return paramSignature;
+    }
+
+    /**
+     * Set the signature of the download parameters, without the paging parameters.
+     *
+     * @param paramSignature the signature of the download parameters.
+     */
+    public void setParamSignature(final String paramSignature) {
+        this.paramSignature = paramSignature;
+    }
+
+    /**
+     * Get the start index of the next page to be requested.
+     *
+     * @return the start index of the next page.
+     */
+    public Integer getStartIndex() {
+        return startIndex;
+    }
+
+    /**
+     * Set the start index of the next page to be requested.
+     *
+     * @param startIndex the start index of the next page.
+     */
+    public void setStartIndex(final Integer startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    /**
+     * Get the size of the pages requested so far.
+     *
+     * @return the size of the pages.
+     */
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Set the size of the pages requested so far.
+     *
+     * @param pageSize the size of the pages.
+     */
+    public void setPageSize(final Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Get the time when the last page was saved.
+     *
+     * @return the time when the last page was saved.
+     */
+    public Date getCheckpointDate() {
+        return checkpointDate;
+    }
+
+    /**
+     * Set the time when the last page was saved.
+     *
+     * @param checkpointDate the time when the last page was saved.
+     */
+    public void setCheckpointDate(final Date checkpointDate) {
+        this.checkpointDate = checkpointDate;
+    }
+}
@@ -12,7 +12,7 @@ package com.muzima.api.model;
  * FormTemplate is a single reference to the physical raw data that can be rendered for form filling process. The result
  * of a form filling process is the FormData object. FormTemplate hold a reference to the Form object.
  */
-public class FormTemplate extends OpenmrsSearchable {
+public class FormTemplate extends OpenmrsSearchable implements Revalidatable {
 
     private String html;
 
@@ -22,6 +22,12 @@ public class FormTemplate extends OpenmrsSearchable {
 
     private String modelJson;
 
+    private String entityTag;
+
+    private String lastModified;
+
+    private transient boolean modified = true;
+
     /**
      * Get the form html.
      *
@@ -97,4 +103,52 @@ public class FormTemplate extends OpenmrsSearchable {
     public boolean isHTMLForm() {
         return getModelXml() == null || getModelJson() == null;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEntityTag(final String entityTag) {
+        this.entityTag = entityTag;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLastModified(final String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setModified(final boolean modified) {
+        this.modified = modified;
+    }
 }
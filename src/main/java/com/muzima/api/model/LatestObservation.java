@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Entry in the latest observation index. There is at most one entry for each patient and concept pair, and the entry
+ * carries the most recent non voided observation for that pair, so the "most recent value" of a concept can be read
+ * without loading the observation history.
+ */
+public class LatestObservation extends OpenmrsSearchable {
+
+    private String patientUuid;
+
+    private String conceptUuid;
+
+    private Observation observation;
+
+    public LatestObservation() {
+    }
+
+    public LatestObservation(final Observation observation) {
+        this.patientUuid = observation.getPerson().getUuid();
+        this.conceptUuid = observation.getConcept().getUuid();
+        this.observation = observation;
+        setUuid(createUuid(patientUuid, conceptUuid));
+    }
+
+    /**
+     * Create the uuid of the index entry for the patient and concept pair. The uuid is derived from both uuids, so the
+     * entry can be looked up by key without searching.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param conceptUuid the uuid of the concept.
+     * @return the uuid of the index entry.
+     */
+    public static String createUuid(final String patientUuid, final String conceptUuid) {
+        String key = patientUuid + ":" + conceptUuid;
+        return UUID.nameUUIDFromBytes(key.getBytes()).toString();
+    }
+
+    /**
+     * Get the uuid of the patient of this entry.
+     *
+     * @return the uuid of the patient.
+     */
+    public String getPatientUuid() {
+        return patientUuid;
+    }
+
+    /**
+     * Set the uuid of the patient of this entry.
+     *
+     * @param patientUuid the uuid of the patient.
+     */
+    public void setPatientUuid(final String patientUuid) {
+        this.patientUuid = patientUuid;
+    }
+
+    /**
+     * Get the uuid of the concept of this entry.
+     *
+     * @return the uuid of the concept.
+     */
+    public String getConceptUuid() {
+        return conceptUuid;
+    }
+
+    /**
+     * Set the uuid of the concept of this entry.
+     *
+     * @param conceptUuid the uuid of the concept.
+     */
+    public void setConceptUuid(final String conceptUuid) {
+        this.conceptUuid = conceptUuid;
+    }
+
+    /**
+     * Get the most recent observation of the patient for the concept.
+     *
+     * @return the most recent observation.
+     */
+    public Observation getObservation() {
+        return observation;
+    }
+
+    /**
+     * Set the most recent observation of the patient for the concept.
+     *
+     * @param observation the most recent observation.
+     */
+    public void setObservation(final Observation observation) {
+        this.observation = observation;
+    }
+
+    /**
+     * Get the uuid of the most recent observation.
+     *
+     * @return the uuid of the most recent observation or null when no observation is attached.
+     */
+    public String getObservationUuid() {
+        if (observation == null) {
+            return null;
+        }
+        return observation.getUuid();
+    }
+
+    /**
+     * Get the date and time of the most recent observation.
+     *
+     * @return the date and time of the most recent observation or null when no observation is attached.
+     */
+    public Date getObservationDatetime() {
+        if (observation == null) {
+            return null;
+        }
+        return observation.getObservationDatetime();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import com.muzima.search.api.model.object.Searchable;
+
+/**
+ * Searchable object carrying the HTTP validators of the response it was downloaded from. The validators are sent back
+ * when the object is downloaded again, so the server can answer that the local copy is still current instead of
+ * sending the whole object.
+ */
+public interface Revalidatable extends Searchable {
+
+    /**
+     * Get the entity tag of the response the object was downloaded from.
+     *
+     * @return the entity tag or null when the server did not send one.
+     */
+    String getEntityTag();
+
+    /**
+     * Set the entity tag of the response the object was downloaded from.
+     *
+     * @param entityTag the entity tag.
+     */
+    void setEntityTag(final String entityTag);
+
+    /**
+     * Get the last modified date of the response the object was downloaded from, as sent by the server.
+     *
+     * @return the last modified date or null when the server did not send one.
+     */
+    String getLastModified();
+
+    /**
+     * Set the last modified date of the response the object was downloaded from, as sent by the server.
+     *
+     * @param lastModified the last modified date.
+     */
+    void setLastModified(final String lastModified);
+
+    /**
+     * Check whether the object was changed on the server since the local copy was downloaded. Objects returned for a
+     * not modified response are the local copy, and don't need to be saved again.
+     *
+     * @return false when the server answered that the local copy is still current.
+     */
+    boolean isModified();
+
+    /**
+     * Set whether the object was changed on the server since the local copy was downloaded.
+     *
+     * @param modified false when the server answered that the local copy is still current.
+     */
+    void setModified(final boolean modified);
+}
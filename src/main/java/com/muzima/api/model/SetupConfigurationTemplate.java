@@ -1,8 +1,14 @@
 package com.muzima.api.model;
 
-public class SetupConfigurationTemplate extends OpenmrsSearchable {
+public class SetupConfigurationTemplate extends OpenmrsSearchable implements Revalidatable {
     private String configJson;
 
+    private String entityTag;
+
+    private String lastModified;
+
+    private transient boolean modified = true;
+
     /**
      * Get the configuration Json.
      *
@@ -20,4 +26,52 @@ public class SetupConfigurationTemplate extends OpenmrsSearchable {
     public void setConfigJson(String configJson){
         this.configJson = configJson;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setEntityTag(final String entityTag) {
+        this.entityTag = entityTag;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLastModified(final String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setModified(final boolean modified) {
+        this.modified = modified;
+    }
 }
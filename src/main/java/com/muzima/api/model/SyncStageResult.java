@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.model;
+
+import java.util.Date;
+
+/**
+ * Outcome of one stage of a sync run, with the number of synced objects and the time the stage took.
+ */
+public class SyncStageResult {
+
+    public enum Status {
+        COMPLETED, FAILED, SKIPPED
+    }
+
+    private final APIName apiName;
+
+    private final Status status;
+
+    private final Date startTime;
+
+    private final long duration;
+
+    private final int count;
+
+    private final Exception exception;
+
+    public SyncStageResult(final APIName apiName, final Status status, final Date startTime, final long duration,
+                           final int count, final Exception exception) {
+        this.apiName = apiName;
+        this.status = status;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.count = count;
+        this.exception = exception;
+    }
+
+    /**
+     * Get the api name of the stage.
+     *
+     * @return the api name of the stage.
+     */
+    public APIName getApiName() {
+        return apiName;
+    }
+
+    /**
+     * Get the status of the stage.
+     *
+     * @return the status of the stage.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the time the stage started.
+     *
+     * @return the time the stage started or null when the stage was skipped.
+     */
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the time the stage took.
+     *
+     * @return the time the stage took in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the number of objects synced by the stage.
+     *
+     * @return the number of synced objects.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the failure of the stage.
+     *
+     * @return the failure of the stage or null when the stage didn't fail.
+     */
+    public Exception getException() {
+        return exception;
+    }
+}
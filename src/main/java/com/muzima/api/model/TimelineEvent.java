@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.util.StringUtil;
+
+import java.util.Date;
+
+/**
+ * Entry in the patient timeline index. The entry only carries the keys needed to order the timeline, so a patient's
+ * timeline can be sorted and paged without loading the encounters, observations and form data behind it.
+ */
+public class TimelineEvent extends OpenmrsSearchable {
+
+    public enum Type {
+        ENCOUNTER, OBSERVATION, FORM_DATA
+    }
+
+    private String patientUuid;
+
+    private Type type;
+
+    private Date eventDatetime;
+
+    private transient Searchable source;
+
+    public TimelineEvent() {
+    }
+
+    public TimelineEvent(final String uuid, final String patientUuid, final Type type, final Date eventDatetime) {
+        setUuid(uuid);
+        this.patientUuid = patientUuid;
+        this.type = type;
+        this.eventDatetime = eventDatetime;
+    }
+
+    /**
+     * Create the timeline entry for an encounter, observation or form data.
+     *
+     * @param searchable the encounter, observation or form data.
+     * @return the timeline entry or null when the object is voided or has no patient or date to place it on the
+     * timeline.
+     */
+    public static TimelineEvent create(final Searchable searchable) {
+        TimelineEvent timelineEvent = null;
+        if (searchable instanceof Encounter) {
+            Encounter encounter = (Encounter) searchable;
+            if (!encounter.isVoided() && encounter.getPatient() != null) {
+                timelineEvent = new TimelineEvent(encounter.getUuid(), encounter.getPatient().getUuid(),
+                        Type.ENCOUNTER, encounter.getEncounterDatetime());
+            }
+        } else if (searchable instanceof Observation) {
+            Observation observation = (Observation) searchable;
+            if (!observation.isVoided() && observation.getPerson() != null) {
+                timelineEvent = new TimelineEvent(observation.getUuid(), observation.getPerson().getUuid(),
+                        Type.OBSERVATION, observation.getObservationDatetime());
+            }
+        } else if (searchable instanceof FormData) {
+            FormData formData = (FormData) searchable;
+            Date eventDatetime = formData.getEncounterDate();
+            if (eventDatetime == null) {
+                eventDatetime = formData.getSaveTime();
+            }
+            timelineEvent = new TimelineEvent(formData.getUuid(), formData.getPatientUuid(),
+                    Type.FORM_DATA, eventDatetime);
+        }
+        if (timelineEvent == null || StringUtil.isEmpty(timelineEvent.getUuid())
+                || StringUtil.isEmpty(timelineEvent.getPatientUuid()) || timelineEvent.getEventDatetime() == null) {
+            return null;
+        }
+        return timelineEvent;
+    }
+
+    /**
+     * Get the uuid of the patient of this entry.
+     *
+     * @return the uuid of the patient.
+     */
+    public String getPatientUuid() {
+        return patientUuid;
+    }
+
+    /**
+     * Set the uuid of the patient of this entry.
+     *
+     * @param patientUuid the uuid of the patient.
+     */
+    public void setPatientUuid(final String patientUuid) {
+        this.patientUuid = patientUuid;
+    }
+
+    /**
+     * Get the type of the object behind this entry.
+     *
+     * @return the type of the object.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Set the type of the object behind this entry.
+     *
+     * @param type the type of the object.
+     */
+    public void setType(final Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Get the date and time used to place this entry on the timeline.
+     *
+     * @return the date and time of the entry.
+     */
+    public Date getEventDatetime() {
+        return eventDatetime;
+    }
+
+    /**
+     * Set the date and time used to place this entry on the timeline.
+     *
+     * @param eventDatetime the date and time of the entry.
+     */
+    public void setEventDatetime(final Date eventDatetime) {
+        this.eventDatetime = eventDatetime;
+    }
+
+    /**
+     * Get the encounter, observation or form data behind this entry. The object is only loaded for entries of the
+     * returned timeline page and is never persisted.
+     *
+     * @return the object behind this entry.
+     */
+    public Searchable getSource() {
+        return source;
+    }
+
+    /**
+     * Set the encounter, observation or form data behind this entry.
+     *
+     * @param source the object behind this entry.
+     */
+    public void setSource(final Searchable source) {
+        this.source = source;
+    }
+}
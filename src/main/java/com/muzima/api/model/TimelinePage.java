@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a patient timeline, newest entry first.
+ */
+public class TimelinePage {
+
+    private List<TimelineEvent> events;
+
+    private String nextCursor;
+
+    public TimelinePage() {
+        this.events = new ArrayList<TimelineEvent>();
+    }
+
+    /**
+     * Get the entries of this page with their encounter, observation or form data loaded.
+     *
+     * @return the entries of this page.
+     */
+    public List<TimelineEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Get the cursor to request the next page.
+     *
+     * @return the cursor of the next page or null when this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Set the cursor to request the next page.
+     *
+     * @param nextCursor the cursor of the next page or null when this is the last page.
+     */
+    public void setNextCursor(final String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Check whether there is a page after this page.
+     *
+     * @return true when there is a page after this page.
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.model.algorithm;
+
+import com.jayway.jsonpath.JsonPath;
+import com.muzima.api.model.CohortData;
+import com.muzima.api.model.Patient;
+import com.muzima.search.api.model.object.Searchable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Algorithm for the membership listing of a static cohort. The listing only carries the uuid of every member, so the
+ * membership can be compared with the local members without downloading the patients.
+ */
+public class CohortMembershipAlgorithm extends BaseOpenmrsAlgorithm {
+
+    public static final String STATIC_COHORT_MEMBERSHIP_REPRESENTATION = "(patient:(uuid))";
+
+    /**
+     * Implementation of this method will define how the object will be serialized from the String representation.
+     *
+     * @param serialized the string representation
+     * @return the cohort data holding a patient with only the uuid for every member
+     */
+    @Override
+    public Searchable deserialize(final String serialized) throws IOException {
+        CohortData cohortData = new CohortData();
+        List<Object> patientUuids = JsonPath.read(serialized, "$['results'][*]['patient']['uuid']");
+        for (Object patientUuid : patientUuids) {
+            Patient patient = new Patient();
+            patient.setUuid(String.valueOf(patientUuid));
+            cohortData.addPatient(patient);
+        }
+        return cohortData;
+    }
+
+    /**
+     * Implementation of this method will define how the object will be de-serialized into the String representation.
+     *
+     * @param object the object
+     * @return the string representation
+     */
+    @Override
+    public String serialize(final Searchable object) throws IOException {
+        throw new IOException("Serializing the cohort membership object is not supported right now!");
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model.algorithm;
+
+import com.muzima.api.model.DownloadCheckpoint;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.util.JsonUtils;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+
+public class DownloadCheckpointAlgorithm extends BaseOpenmrsAlgorithm {
+
+    /**
+     * Implementation of this method will define how the download checkpoint will be serialized from the JSON
+     * representation.
+     *
+     * @param serialized the json representation
+     * @return the concrete download checkpoint object
+     */
+    @Override
+    public Searchable deserialize(final String serialized) throws IOException {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint();
+        checkpoint.setUuid(JsonUtils.readAsString(serialized, "$['uuid']"));
+        checkpoint.setResource(JsonUtils.readAsString(serialized, "$['resource']"));
+        checkpoint.setParamSignature(JsonUtils.readAsString(serialized, "$['paramSignature']"));
+        checkpoint.setStartIndex(JsonUtils.readAsInteger(serialized, "$['startIndex']"));
+        checkpoint.setPageSize(JsonUtils.readAsInteger(serialized, "$['pageSize']"));
+        checkpoint.setCheckpointDate(JsonUtils.readAsDateTime(serialized, "$['checkpointDate']"));
+        return checkpoint;
+    }
+
+    /**
+     * Implementation of this method will define how the object will be de-serialized into the String representation.
+     *
+     * @param object the object
+     * @return the string representation
+     */
+    @Override
+    public String serialize(final Searchable object) throws IOException {
+        DownloadCheckpoint checkpoint = (DownloadCheckpoint) object;
+        JSONObject jsonObject = new JSONObject();
+        JsonUtils.writeAsString(jsonObject, "uuid", checkpoint.getUuid());
+        JsonUtils.writeAsString(jsonObject, "resource", checkpoint.getResource());
+        JsonUtils.writeAsString(jsonObject, "paramSignature", checkpoint.getParamSignature());
+        JsonUtils.writeAsInteger(jsonObject, "startIndex", checkpoint.getStartIndex());
+        JsonUtils.writeAsInteger(jsonObject, "pageSize", checkpoint.getPageSize());
+        JsonUtils.writeAsDateTime(jsonObject, "checkpointDate", checkpoint.getCheckpointDate());
+        return jsonObject.toJSONString();
+    }
+}
@@ -44,6 +44,12 @@ public class FormTemplateAlgorithm extends BaseOpenmrsAlgorithm {
         String uuid = JsonPath.read(jsonObject, "$['uuid']");
         formTemplate.setUuid(uuid);
 
+        String entityTag = JsonPath.read(jsonObject, "$['entityTag']");
+        formTemplate.setEntityTag(entityTag);
+
+        String lastModified = JsonPath.read(jsonObject, "$['lastModified']");
+        formTemplate.setLastModified(lastModified);
+
         return formTemplate;
     }
 
@@ -62,6 +68,8 @@ public class FormTemplateAlgorithm extends BaseOpenmrsAlgorithm {
         jsonObject.put("modelXml", formTemplate.getModelXml());
         jsonObject.put("modelJson", formTemplate.getModelJson());
         jsonObject.put("uuid", formTemplate.getUuid());
+        jsonObject.put("entityTag", formTemplate.getEntityTag());
+        jsonObject.put("lastModified", formTemplate.getLastModified());
         return jsonObject.toJSONString();
     }
 }
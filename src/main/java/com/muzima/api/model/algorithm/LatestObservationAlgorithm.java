@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model.algorithm;
+
+import com.jayway.jsonpath.JsonPath;
+import com.muzima.api.model.LatestObservation;
+import com.muzima.api.model.Observation;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.util.JsonUtils;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+
+public class LatestObservationAlgorithm extends BaseOpenmrsAlgorithm {
+
+    private ObservationAlgorithm observationAlgorithm;
+
+    public LatestObservationAlgorithm() {
+        this.observationAlgorithm = new ObservationAlgorithm();
+    }
+
+    /**
+     * Implementation of this method will define how the latest observation will be serialized from the JSON
+     * representation.
+     *
+     * @param serialized the json representation
+     * @return the concrete latest observation object
+     */
+    @Override
+    public Searchable deserialize(final String serialized) throws IOException {
+        LatestObservation latestObservation = new LatestObservation();
+        latestObservation.setUuid(JsonUtils.readAsString(serialized, "$['uuid']"));
+        latestObservation.setPatientUuid(JsonUtils.readAsString(serialized, "$['patientUuid']"));
+        latestObservation.setConceptUuid(JsonUtils.readAsString(serialized, "$['conceptUuid']"));
+        Object observationObject = JsonUtils.readAsObject(serialized, "$['observation']");
+        latestObservation.setObservation(
+                (Observation) observationAlgorithm.deserialize(String.valueOf(observationObject)));
+        return latestObservation;
+    }
+
+    /**
+     * Implementation of this method will define how the object will be de-serialized into the String representation.
+     *
+     * @param object the object
+     * @return the string representation
+     */
+    @Override
+    public String serialize(final Searchable object) throws IOException {
+        LatestObservation latestObservation = (LatestObservation) object;
+        JSONObject jsonObject = new JSONObject();
+        JsonUtils.writeAsString(jsonObject, "uuid", latestObservation.getUuid());
+        JsonUtils.writeAsString(jsonObject, "patientUuid", latestObservation.getPatientUuid());
+        JsonUtils.writeAsString(jsonObject, "conceptUuid", latestObservation.getConceptUuid());
+        String observation = observationAlgorithm.serialize(latestObservation.getObservation());
+        jsonObject.put("observation", JsonPath.read(observation, "$"));
+        return jsonObject.toJSONString();
+    }
+}
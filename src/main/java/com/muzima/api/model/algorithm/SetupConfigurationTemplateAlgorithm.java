@@ -16,6 +16,8 @@ public class SetupConfigurationTemplateAlgorithm  extends BaseOpenmrsAlgorithm {
         SetupConfigurationTemplate setupConfigurationTemplate = new SetupConfigurationTemplate();
         setupConfigurationTemplate.setUuid(JsonUtils.readAsString(serialized, "$['uuid']"));
         setupConfigurationTemplate.setConfigJson(JsonUtils.readAsString(serialized, "$['configJson']"));
+        setupConfigurationTemplate.setEntityTag(JsonUtils.readAsString(serialized, "$['entityTag']"));
+        setupConfigurationTemplate.setLastModified(JsonUtils.readAsString(serialized, "$['lastModified']"));
         return setupConfigurationTemplate;
     }
 
@@ -25,6 +27,8 @@ public class SetupConfigurationTemplateAlgorithm  extends BaseOpenmrsAlgorithm {
         JSONObject jsonObject = new JSONObject();
         JsonUtils.writeAsString(jsonObject, "uuid", setupConfigurationTemplate.getUuid());
         JsonUtils.writeAsString(jsonObject, "configJson", setupConfigurationTemplate.getConfigJson());
+        JsonUtils.writeAsString(jsonObject, "entityTag", setupConfigurationTemplate.getEntityTag());
+        JsonUtils.writeAsString(jsonObject, "lastModified", setupConfigurationTemplate.getLastModified());
         return jsonObject.toJSONString();
     }
 }
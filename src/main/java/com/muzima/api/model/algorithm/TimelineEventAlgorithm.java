@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model.algorithm;
+
+import com.muzima.api.model.TimelineEvent;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.JsonUtils;
+import net.minidev.json.JSONObject;
+
+import java.io.IOException;
+
+public class TimelineEventAlgorithm extends BaseOpenmrsAlgorithm {
+
+    public static final long MAXIMUM_EVENT_TIME = 9999999999999L;
+
+    /**
+     * Implementation of this method will define how the timeline event will be serialized from the JSON
+     * representation.
+     *
+     * @param serialized the json representation
+     * @return the concrete timeline event object
+     */
+    @Override
+    public Searchable deserialize(final String serialized) throws IOException {
+        TimelineEvent timelineEvent = new TimelineEvent();
+        timelineEvent.setUuid(JsonUtils.readAsString(serialized, "$['uuid']"));
+        timelineEvent.setPatientUuid(JsonUtils.readAsString(serialized, "$['patientUuid']"));
+        String type = JsonUtils.readAsString(serialized, "$['type']");
+        if (!StringUtil.isEmpty(type)) {
+            timelineEvent.setType(TimelineEvent.Type.valueOf(type));
+        }
+        timelineEvent.setEventDatetime(JsonUtils.readAsDateTime(serialized, "$['eventDatetime']"));
+        return timelineEvent;
+    }
+
+    /**
+     * Implementation of this method will define how the object will be de-serialized into the String representation.
+     *
+     * @param object the object
+     * @return the string representation
+     */
+    @Override
+    public String serialize(final Searchable object) throws IOException {
+        TimelineEvent timelineEvent = (TimelineEvent) object;
+        JSONObject jsonObject = new JSONObject();
+        JsonUtils.writeAsString(jsonObject, "uuid", timelineEvent.getUuid());
+        JsonUtils.writeAsString(jsonObject, "patientUuid", timelineEvent.getPatientUuid());
+        if (timelineEvent.getType() != null) {
+            JsonUtils.writeAsString(jsonObject, "type", timelineEvent.getType().name());
+        }
+        JsonUtils.writeAsDateTime(jsonObject, "eventDatetime", timelineEvent.getEventDatetime());
+        if (timelineEvent.getEventDatetime() != null) {
+            JsonUtils.writeAsString(jsonObject, "eventTime", formatEventTime(timelineEvent.getEventDatetime().getTime()));
+        }
+        return jsonObject.toJSONString();
+    }
+
+    /**
+     * Format the event time as the indexed <code>eventTime</code> field: the milliseconds since the epoch, zero padded
+     * to a fixed width so the order of the terms is the order of the times and a range query can select a period.
+     *
+     * @param time the milliseconds since the epoch, clamped to the range of the field.
+     * @return the formatted event time.
+     */
+    public static String formatEventTime(final long time) {
+        return String.format("%013d", Math.max(0, Math.min(time, MAXIMUM_EVENT_TIME)));
+    }
+}
@@ -9,32 +9,29 @@
 package com.muzima.api.model.resolver;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.muzima.api.config.Configuration;
-import com.muzima.search.api.internal.http.CustomKeyStore;
 import com.muzima.search.api.model.resolver.Resolver;
-import org.apache.commons.codec.binary.Base64;
 
-import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
 import java.net.HttpURLConnection;
 
 public abstract class BaseOpenmrsResolver implements Resolver {
 
     @Inject
-    private Configuration configuration;
+    private Provider<Configuration> configurationProvider;
 
     @Inject
-    private CustomKeyStore customKeyStore;
+    private SecureConnectionCache secureConnectionCache;
 
     /**
-     * Get the default openmrs configuration for this resolver.
+     * Get the openmrs configuration of the current session for this resolver.
      *
-     * @return the default openmrs configuration for this resolver.
+     * @return the openmrs configuration of the current session for this resolver.
      */
     protected Configuration getConfiguration() {
-        return configuration;
+        return configurationProvider.get();
     }
 
     /**
@@ -47,35 +44,19 @@ public abstract class BaseOpenmrsResolver implements Resolver {
     public HttpURLConnection authenticate(final HttpURLConnection connection) {
         if (connection instanceof HttpsURLConnection) {
             HttpsURLConnection httpsURLConnection = (HttpsURLConnection) connection;
-            if (customKeyStore != null) {
-                SSLContext sslContext = customKeyStore.createContext();
-                if (sslContext != null) {
-                    httpsURLConnection.setSSLSocketFactory(sslContext.getSocketFactory());
-                    HostnameVerifier hostnameVerifier = new HostnameVerifier() {
-                        @Override
-                        public boolean verify(String hostname, SSLSession session) {
-                            return (hostname.endsWith("ampath.or.ke"));
-                        }
-                    };
-                    httpsURLConnection.setHostnameVerifier(hostnameVerifier);
-                }
+            SSLSocketFactory socketFactory = secureConnectionCache.getSocketFactory();
+            if (socketFactory != null) {
+                httpsURLConnection.setSSLSocketFactory(socketFactory);
+                httpsURLConnection.setHostnameVerifier(secureConnectionCache.getHostnameVerifier());
             }
-
-            String userPassword = getConfiguration().getUsername() + ":" + getConfiguration().getPassword();
-            String basicAuth = "Basic " + new String(new Base64().encode(userPassword.getBytes()));
-            httpsURLConnection.setRequestProperty("Authorization", basicAuth);
-            return httpsURLConnection;
-        } else {
-            String userPassword = getConfiguration().getUsername() + ":" + getConfiguration().getPassword();
-            String basicAuth = "Basic " + new String(new Base64().encode(userPassword.getBytes()));
-            connection.setRequestProperty("Authorization", basicAuth);
-            return connection;
         }
+        connection.setRequestProperty("Authorization", getConfiguration().getAuthorizationHeader());
+        return connection;
     }
 
     @Override
     public HttpURLConnection setCustomRequestProperties(final HttpURLConnection connection){
-        connection.setRequestProperty("Accept-Language", configuration.getPreferredLocale());
+        connection.setRequestProperty("Accept-Language", getConfiguration().getPreferredLocale());
         return connection;
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.model.resolver;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.muzima.api.config.Configuration;
+import com.muzima.search.api.internal.http.CustomKeyStore;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the SSL socket factories created from the custom key store. Creating the SSL context loads the key store, and
+ * every SSL context keeps its own TLS session cache, so a factory is created once per server and shared by all
+ * connections to that server. Sessions connecting to the same server share the factory, and sessions connecting to
+ * different servers keep their own.
+ */
+@Singleton
+public class SecureConnectionCache {
+
+    private static final HostnameVerifier HOSTNAME_VERIFIER = new HostnameVerifier() {
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+            return (hostname.endsWith("ampath.or.ke"));
+        }
+    };
+
+    @Inject
+    private Provider<Configuration> configurationProvider;
+
+    @Inject
+    private CustomKeyStore customKeyStore;
+
+    private final Map<String, SSLSocketFactory> socketFactories = new HashMap<String, SSLSocketFactory>();
+
+    protected SecureConnectionCache() {
+    }
+
+    /**
+     * Get the SSL socket factory for the custom key store, for the server in the configuration.
+     *
+     * @return the SSL socket factory or null when no custom key store is available.
+     */
+    public synchronized SSLSocketFactory getSocketFactory() {
+        String server = configurationProvider.get().getServer();
+        if (socketFactories.containsKey(server)) {
+            return socketFactories.get(server);
+        }
+        SSLSocketFactory socketFactory = null;
+        if (customKeyStore != null) {
+            SSLContext sslContext = customKeyStore.createContext();
+            if (sslContext != null) {
+                socketFactory = sslContext.getSocketFactory();
+            }
+        }
+        socketFactories.put(server, socketFactory);
+        return socketFactory;
+    }
+
+    /**
+     * Get the hostname verifier used with the SSL socket factory of the custom key store.
+     *
+     * @return the hostname verifier.
+     */
+    public HostnameVerifier getHostnameVerifier() {
+        return HOSTNAME_VERIFIER;
+    }
+}
@@ -9,12 +9,23 @@
 package com.muzima.api.module;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.matcher.Matchers;
 import com.google.inject.name.Names;
+import com.muzima.api.annotation.Authorization;
 import com.muzima.api.config.Configuration;
+import com.muzima.api.context.AuthorizationInterceptor;
+import com.muzima.api.context.InterceptionSupport;
+import com.muzima.api.context.SessionScope;
+import com.muzima.api.transport.HttpTransport;
+import com.muzima.api.transport.HttpUrlConnectionTransport;
 import com.muzima.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class MuzimaModule extends AbstractModule {
 
+    private static final Logger logger = LoggerFactory.getLogger(MuzimaModule.class.getSimpleName());
+
     private String documentKey;
 
     private String repositoryPath;
@@ -27,6 +38,10 @@ public class MuzimaModule extends AbstractModule {
 
     private Configuration configuration;
 
+    private Class<? extends HttpTransport> httpTransport;
+
+    private boolean sessionScoped;
+
     public MuzimaModule() {
         // default field of the document to queried on when the query doesn't specify any.
         this.documentKey = "uuid";
@@ -41,6 +56,8 @@ public class MuzimaModule extends AbstractModule {
         this.useCompression = false;
         // server configuration
         this.configuration = new Configuration();
+        // transport of the requests to the server
+        this.httpTransport = HttpUrlConnectionTransport.class;
     }
 
     public String getDocumentKey() {
@@ -83,6 +100,34 @@ public class MuzimaModule extends AbstractModule {
         this.encryptionKey = encryptionKey;
     }
 
+    public Class<? extends HttpTransport> getHttpTransport() {
+        return httpTransport;
+    }
+
+    /**
+     * Set the transport sending the requests to the server, e.g. a transport with connection pooling or asynchronous
+     * I/O where the runtime supports it. The default transport uses <code>HttpURLConnection</code>.
+     *
+     * @param httpTransport the class of the transport.
+     */
+    public void setHttpTransport(final Class<? extends HttpTransport> httpTransport) {
+        this.httpTransport = httpTransport;
+    }
+
+    public boolean isSessionScoped() {
+        return sessionScoped;
+    }
+
+    /**
+     * Set whether every session gets its own configuration, so concurrent sessions on different threads can connect
+     * with different credentials. Otherwise all sessions share the configuration of this module.
+     *
+     * @param sessionScoped true to create a configuration per session.
+     */
+    public void setSessionScoped(final boolean sessionScoped) {
+        this.sessionScoped = sessionScoped;
+    }
+
     @Override
     protected void configure() {
         bind(String.class)
@@ -92,7 +137,21 @@ public class MuzimaModule extends AbstractModule {
                 .annotatedWith(Names.named(Constants.LUCENE_DEFAULT_FIELD))
                 .toInstance(documentKey);
 
-        bind(Configuration.class).toInstance(configuration);
+        if (sessionScoped) {
+            bind(Configuration.class).in(SessionScope.SESSION);
+        } else {
+            bind(Configuration.class).toInstance(configuration);
+        }
+        bind(HttpTransport.class).to(httpTransport);
+
+        // the support check must come first: the interceptor class can't be loaded without the aopalliance types.
+        if (InterceptionSupport.isSupported()) {
+            AuthorizationInterceptor authorizationInterceptor = new AuthorizationInterceptor();
+            requestInjection(authorizationInterceptor);
+            bindInterceptor(Matchers.any(), Matchers.annotatedWith(Authorization.class), authorizationInterceptor);
+        } else {
+            logger.warn("This Guice build doesn't support method interception, @Authorization is not enforced.");
+        }
 
         bind(String.class)
                 .annotatedWith(Names.named("configuration.lucene.encryption"))
@@ -17,6 +17,7 @@ import com.muzima.api.service.impl.CohortServiceImpl;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service handling all operation to the @{Cohort} actor/model
@@ -208,6 +209,19 @@ public interface CohortService extends MuzimaInterface {
      */
     CohortData downloadCohortData(final String uuid, final boolean dynamic) throws IOException;
 
+    /**
+     * Download data for the cohort identified by the uuid of the cohort, reporting the progress of the download on the
+     * operation token and stopping when the token is cancelled.
+     *
+     * @param uuid    the uuid of the cohort or the cohort definition.
+     * @param dynamic flag whether to use reporting module or static cohort resource.
+     * @param token   the operation token.
+     * @return the cohort data based on the uuid.
+     * @throws IOException when search api unable to process the resource or the token was cancelled.
+     */
+    CohortData downloadCohortData(final String uuid, final boolean dynamic,
+                                  final OperationToken token) throws IOException;
+
     CohortData downloadCohortDataAndSyncDate(String uuid, boolean dynamic, Date syncDate) throws IOException;
 
     /**
@@ -228,6 +242,35 @@ public interface CohortService extends MuzimaInterface {
 
     CohortData downloadCohortDataAndSyncDate(Cohort cohort, Date syncDate) throws IOException;
 
+    /**
+     * Download data for the cohort page by page and save the patients and the cohort members of every page before the
+     * next page is requested. The progress is saved after every page, so calling this method again with the same
+     * arguments after an interruption resumes after the last saved page instead of starting over.
+     *
+     * @param uuid     the uuid of the cohort or the cohort definition.
+     * @param dynamic  flag whether to use reporting module or static cohort resource.
+     * @param syncDate the date of the last sync of the cohort data or null to download all data.
+     * @param pageSize the number of cohort members requested in every page.
+     * @return the number of cohort members downloaded in this call.
+     * @throws IOException when search api unable to process the resource.
+     */
+    int downloadAndSaveCohortData(final String uuid, final boolean dynamic, final Date syncDate,
+                                  final int pageSize) throws IOException;
+
+    /**
+     * Bring the local members of the cohort up to date with the server, saving only the members added and deleting
+     * only the members removed since the last sync of the cohort. For a static cohort only the patients changed since
+     * the last sync are downloaded, and the removed members are found from a listing of the member uuids. A dynamic
+     * cohort is evaluated in full on the server, and only the patients which differ from the local copy are updated,
+     * and members are only saved or deleted for the differences. A listing without members for a cohort with local
+     * members removes nothing and keeps the last sync time, so the next sync checks the members again.
+     *
+     * @param cohort the cohort to be synced.
+     * @return the number of members added or removed.
+     * @throws IOException when search api unable to process the resource.
+     */
+    int syncCohortMembers(final Cohort cohort) throws IOException;
+
     /**
      * Save the cohort member object to the local lucene directory.
      *
@@ -275,6 +318,15 @@ public interface CohortService extends MuzimaInterface {
 
     Integer countCohortMembers(final Cohort cohort) throws IOException;
 
+    /**
+     * Count the members of each cohort using multi value queries.
+     *
+     * @param cohortUuids the uuids of the cohorts.
+     * @return the number of members keyed by cohort uuid, zero for cohorts without members.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countCohortMembers(final List<String> cohortUuids) throws IOException;
+
     /**
      * Get all members under the current cohort identified by the cohort's uuid which already saved in the local
      * repository.
@@ -17,6 +17,7 @@ import org.apache.lucene.queryParser.ParseException;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * TODO: Write brief description about the class here.
@@ -127,6 +128,15 @@ public interface EncounterService extends MuzimaInterface {
 
     Integer countEncountersByPatientUuid(final String patientUuid) throws IOException;
 
+    /**
+     * Count the encounters of each patient using multi value queries.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @return the number of encounters keyed by patient uuid, zero for patients without encounters.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countEncountersByPatientUuids(final List<String> patientUuids) throws IOException;
+
     /**
      * Get list of encounters from local data repository with matching patient.
      *
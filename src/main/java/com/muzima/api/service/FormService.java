@@ -17,6 +17,7 @@ import com.muzima.api.service.impl.FormServiceImpl;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service handling all operation to the @{Form} actor/model
@@ -170,7 +171,9 @@ public interface FormService extends MuzimaInterface {
     Boolean isFormTemplateDownloaded(final String formUuid) throws IOException;
 
     /**
-     * Download form template by the uuid of the form associated with the form template.
+     * Download form template by the uuid of the form associated with the form template. When the form template is
+     * already downloaded and the server answers that it didn't change, the local copy is returned and
+     * <code>isModified()</code> of the returned form template is false, so it doesn't need to be saved again.
      *
      * @param uuid the uuid of the form.
      * @return the form template with matching uuid downloaded from the server.
@@ -265,7 +268,8 @@ public interface FormService extends MuzimaInterface {
     void deleteFormTemplates(final List<FormTemplate> formTemplates) throws IOException;
 
     /**
-     * Save a new form data object to the database.
+     * Save a new form data object to the database. Form data with the pending status is queued for upload, other
+     * form data is removed from the upload queue.
      *
      * @param formData the form data to be saved.
      * @throws IOException when search api unable to process the resource.
@@ -274,7 +278,8 @@ public interface FormService extends MuzimaInterface {
     void saveFormData(final FormData formData) throws IOException;
 
     /**
-     * Update existing form data object in local data repository.
+     * Update existing form data object in local data repository. Form data with the pending status is queued for
+     * upload, other form data is removed from the upload queue.
      *
      * @param formData the form data to be updated.
      * @throws IOException when search api unable to process the resource.
@@ -354,6 +359,16 @@ public interface FormService extends MuzimaInterface {
      */
     int countFormDataByPatient(final String patientUuid, final String status) throws IOException;
 
+    /**
+     * Count the form data of each patient with filtering on the status of the form data, using multi value queries.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param status       the status of the form data (optional).
+     * @return the number of form data keyed by patient uuid, zero for patients without form data.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countFormDataByPatients(final List<String> patientUuids, final String status) throws IOException;
+
     /**
      * Delete an instance of form data.
      *
@@ -391,6 +406,62 @@ public interface FormService extends MuzimaInterface {
      */
     boolean syncFormData(final FormData formData) throws IOException;
 
+    /**
+     * Send a list of form data information to the server, with several requests in flight at once. The status of the
+     * form data accepted by the server is set to the synced status and saved in batches while the upload runs, so
+     * calling this method again after an interruption only sends the form data which were not confirmed.
+     *
+     * @param formData     the form data.
+     * @param syncedStatus the status to be saved for the form data accepted by the server.
+     * @return true or false for each attempted form data uuid, in the order of the form data.
+     * @throws IOException when the upload was interrupted or the status could not be saved.
+     * @should sync the list of form data to the server.
+     */
+    Map<String, Boolean> syncFormData(final List<FormData> formData, final String syncedStatus) throws IOException;
+
+    /**
+     * Send a list of form data information to the server, reporting the progress of the upload on the operation token
+     * and stopping when the token is cancelled. The status of the form data confirmed before the cancellation is saved.
+     *
+     * @param formData     the form data.
+     * @param syncedStatus the status to be saved for the form data accepted by the server.
+     * @param token        the operation token.
+     * @return true or false for each attempted form data uuid, in the order of the form data.
+     * @throws IOException when the upload was interrupted, the status could not be saved or the token was cancelled.
+     */
+    Map<String, Boolean> syncFormData(final List<FormData> formData, final String syncedStatus,
+                                      final OperationToken token) throws IOException;
+
+    /**
+     * Queue the saved form data for upload. The queue is ordered by the save time of the form data and survives
+     * restarts. Nothing happens when the form data is already queued.
+     *
+     * @param formData the form data.
+     * @throws IOException when the queue can't be written.
+     * @should queue the form data for upload.
+     */
+    void queueFormData(final FormData formData) throws IOException;
+
+    /**
+     * Count the queued form data, including the form data waiting for a retry.
+     *
+     * @return the number of queued form data.
+     * @throws IOException when the queue can't be read.
+     */
+    int countQueuedFormData() throws IOException;
+
+    /**
+     * Send the oldest queued form data which are not waiting for a retry to the server. Form data accepted by the
+     * server are removed from the queue, rejected form data are retried after a backoff.
+     *
+     * @param maxCount     the maximum number of form data to send.
+     * @param syncedStatus the status to be saved for the form data accepted by the server.
+     * @return true or false for each attempted form data uuid, in the order of the queue.
+     * @throws IOException when the upload was interrupted or the queue can't be written.
+     * @should sync the queued form data to the server.
+     */
+    Map<String, Boolean> syncQueuedFormData(final int maxCount, final String syncedStatus) throws IOException;
+
     /**
      * Fetches FormData from DB which matches templateUUID.
      *
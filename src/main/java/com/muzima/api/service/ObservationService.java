@@ -17,6 +17,7 @@ import com.muzima.api.service.impl.ObservationServiceImpl;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service handling all operation to the @Observation actor/model
@@ -55,6 +56,35 @@ public interface ObservationService extends MuzimaInterface {
     List<Observation> downloadObservations(List<String> patientUuids, List<String> conceptUuids,
                                            Date syncDate) throws IOException;
 
+    /**
+     * Download the observations of the patients for the concepts, reporting the progress of the download on the
+     * operation token and stopping when the token is cancelled.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param conceptUuids the uuids of the concepts.
+     * @param syncDate     the date of the last download or null to download all observations.
+     * @param token        the operation token.
+     * @return the downloaded observations.
+     * @throws IOException when search api unable to process the resource or the token was cancelled.
+     */
+    List<Observation> downloadObservations(List<String> patientUuids, List<String> conceptUuids, Date syncDate,
+                                           OperationToken token) throws IOException;
+
+    /**
+     * Download the observations of the patients for the concepts and save them to the local repository while they are
+     * downloaded. Only a bounded number of observations is held in memory, and observations already in the local
+     * repository are updated.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param conceptUuids the uuids of the concepts.
+     * @param syncDate     the date of the last download or null to download all observations.
+     * @return the number of downloaded observations.
+     * @throws IOException when search api unable to process the resource.
+     * @should download and save the observations of the patients for the concepts.
+     */
+    int downloadAndSaveObservations(final List<String> patientUuids, final List<String> conceptUuids,
+                                    final Date syncDate) throws IOException;
+
     void deleteObservationsByFormData(String formDataUuid) throws IOException;
 
     /**
@@ -136,6 +166,30 @@ public interface ObservationService extends MuzimaInterface {
                                                          final Concept concept) throws IOException;
     List<Observation> getObservationsByEncounter(final String encounterUuid) throws IOException;
 
+    /**
+     * Get the observations of several encounters at once. The observations are fetched with multi value queries
+     * instead of one query per encounter, and observations sharing a concept share the same concept object.
+     *
+     * @param encounterUuids the uuids of the encounters.
+     * @return the observations keyed by encounter uuid, in the order of the uuids. Encounters without observations
+     * map to an empty list.
+     * @throws IOException when search api unable to process the resource.
+     * @should return observations grouped by encounter.
+     */
+    Map<String, List<Observation>> getObservationsByEncounters(final List<String> encounterUuids) throws IOException;
+
+    /**
+     * Get the observations of the patient grouped by encounter. Observations sharing a concept share the same
+     * concept object.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @return the observations keyed by encounter uuid, or an empty map when the patient uuid is empty. Observations
+     * without encounter are not returned.
+     * @throws IOException when search api unable to process the resource.
+     * @should return an empty map for an empty patient uuid.
+     */
+    Map<String, List<Observation>> getObservationsGroupedByEncounter(final String patientUuid) throws IOException;
+
     /**
      * @param concept
      * @return List of Observations for the given Concept
@@ -143,6 +197,64 @@ public interface ObservationService extends MuzimaInterface {
      */
     List<Observation> getObservations(Concept concept) throws IOException;
 
+    /**
+     * Get the most recent observation of the patient for the concept from the latest observation index.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param conceptUuid the uuid of the concept.
+     * @return the most recent non voided observation or null when the patient has no observation for the concept.
+     * @throws IOException when search api unable to process the resource.
+     * @should return the observation with the most recent observation date time.
+     * @should return null when no observation found for the patient and concept.
+     */
+    Observation getLatestObservation(final String patientUuid, final String conceptUuid) throws IOException;
+
+    /**
+     * Get the most recent observation of every concept observed for the patient.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @return one observation per concept or empty list when no observation found for the patient or the patient uuid
+     * is empty.
+     * @throws IOException when search api unable to process the resource.
+     * @should return one observation per concept for the patient.
+     * @should return an empty list for an empty patient uuid.
+     */
+    List<Observation> getLatestObservationsByPatient(final String patientUuid) throws IOException;
+
+    /**
+     * Get the most recent observations for the patients, restricted to the concepts. Passing empty concept list will
+     * return the most recent observation of every concept.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param conceptUuids the uuids of the concepts or empty list.
+     * @return one observation per patient and concept pair or empty list.
+     * @throws IOException when search api unable to process the resource.
+     * @should return one observation per patient and concept pair.
+     */
+    List<Observation> getLatestObservations(final List<String> patientUuids,
+                                            final List<String> conceptUuids) throws IOException;
+
+    /**
+     * Get the most recent observations for all members of the cohort, restricted to the concepts. Passing empty
+     * concept list will return the most recent observation of every concept.
+     *
+     * @param cohortUuid   the uuid of the cohort.
+     * @param conceptUuids the uuids of the concepts or empty list.
+     * @return one observation per cohort member and concept pair or empty list.
+     * @throws IOException when search api unable to process the resource.
+     */
+    List<Observation> getLatestObservationsByCohort(final String cohortUuid,
+                                                    final List<String> conceptUuids) throws IOException;
+
+    /**
+     * Rebuild the latest observation index from all observations in the local repository. The index is maintained
+     * when observations are saved, updated or deleted, so this is only needed for repositories created before the
+     * index existed.
+     *
+     * @throws IOException when search api unable to process the resource.
+     */
+    void rebuildLatestObservations() throws IOException;
+
     /**
      * Search for all observations for the particular patient with matching search term.
      *
@@ -160,6 +272,15 @@ public interface ObservationService extends MuzimaInterface {
                                          final String term) throws IOException;
     int countObservationsByPatient(final String patientUuid) throws IOException;
 
+    /**
+     * Count the observations of each patient using multi value queries.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @return the number of observations keyed by patient uuid, zero for patients without observations.
+     * @throws IOException when search api unable to process the resource.
+     */
+    Map<String, Integer> countObservationsByPatients(final List<String> patientUuids) throws IOException;
+
     /**
      * Delete a single observation from the local repository.
      *
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token of a running operation, reporting the progress of the operation and used to cancel the operation from another
+ * thread. The token is attached to the
+ * threads running the operation. Downloads register their open responses with the token, so cancelling aborts them
+ * and stops the network reads, and check the token between pages and batches, so no new batch is indexed after the
+ * operation was cancelled. A cancelled operation leaves the batches indexed before the cancellation in the local
+ * repository, and paged downloads resume after the last indexed page.
+ */
+public class OperationToken {
+
+    private static final ThreadLocal<OperationToken> currentToken = new ThreadLocal<OperationToken>();
+
+    private final Set<Closeable> inFlight = new HashSet<Closeable>();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong objectsParsed = new AtomicLong();
+
+    private final AtomicLong objectsIndexed = new AtomicLong();
+
+    private final ProgressListener listener;
+
+    private volatile boolean cancelled;
+
+    public OperationToken() {
+        this(null);
+    }
+
+    /**
+     * Create a token notifying the listener about the progress of the operation.
+     *
+     * @param listener the listener, or null when the progress is polled.
+     */
+    public OperationToken(final ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Cancel the operation, aborting the responses being read.
+     */
+    public void cancel() {
+        Set<Closeable> closeables;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            closeables = new HashSet<Closeable>(inFlight);
+            inFlight.clear();
+        }
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // the reading thread fails on the closed stream.
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the number of bytes of the responses read from the server.
+     *
+     * @return the number of bytes read.
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Get the number of objects parsed from the responses.
+     *
+     * @return the number of objects parsed.
+     */
+    public long getObjectsParsed() {
+        return objectsParsed.get();
+    }
+
+    /**
+     * Get the number of objects saved to the local repository.
+     *
+     * @return the number of objects indexed.
+     */
+    public long getObjectsIndexed() {
+        return objectsIndexed.get();
+    }
+
+    public void addBytesRead(final long count) {
+        if (count > 0) {
+            bytesRead.addAndGet(count);
+            notifyListener();
+        }
+    }
+
+    public void addObjectsParsed(final long count) {
+        if (count > 0) {
+            objectsParsed.addAndGet(count);
+            notifyListener();
+        }
+    }
+
+    public void addObjectsIndexed(final long count) {
+        if (count > 0) {
+            objectsIndexed.addAndGet(count);
+            notifyListener();
+        }
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            listener.progressed(this);
+        }
+    }
+
+    /**
+     * Check whether the operation was cancelled.
+     *
+     * @throws InterruptedIOException when the operation was cancelled.
+     */
+    public void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            throw new InterruptedIOException("Operation was cancelled.");
+        }
+    }
+
+    /**
+     * Register a response to be closed when the operation is cancelled.
+     *
+     * @param closeable the closeable aborting the response.
+     * @throws InterruptedIOException when the operation was already cancelled.
+     */
+    public synchronized void register(final Closeable closeable) throws InterruptedIOException {
+        checkCancelled();
+        inFlight.add(closeable);
+    }
+
+    /**
+     * Unregister a response which was read.
+     *
+     * @param closeable the closeable registered for the response.
+     */
+    public synchronized void unregister(final Closeable closeable) {
+        inFlight.remove(closeable);
+    }
+
+    /**
+     * Get the token attached to the current thread.
+     *
+     * @return the token or null when the current thread is not running a cancellable operation.
+     */
+    public static OperationToken current() {
+        return currentToken.get();
+    }
+
+    /**
+     * Attach the token to the current thread.
+     *
+     * @param token the token, or null to detach the token of the current thread.
+     * @return the token attached to the current thread before, to be attached again when the operation is done.
+     */
+    public static OperationToken attach(final OperationToken token) {
+        OperationToken previous = currentToken.get();
+        if (token == null) {
+            currentToken.remove();
+        } else {
+            currentToken.set(token);
+        }
+        return previous;
+    }
+
+    /**
+     * Check whether the operation of the current thread was cancelled.
+     *
+     * @throws InterruptedIOException when the operation was cancelled.
+     */
+    public static void checkCurrent() throws InterruptedIOException {
+        OperationToken token = currentToken.get();
+        if (token != null) {
+            token.checkCancelled();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service;
+
+import com.google.inject.ImplementedBy;
+import com.muzima.api.model.TimelinePage;
+import com.muzima.api.service.impl.PatientTimelineServiceImpl;
+
+import java.io.IOException;
+
+/**
+ * Service to read the encounters, observations and form data of a patient as one timeline, newest entry first.
+ */
+@ImplementedBy(PatientTimelineServiceImpl.class)
+public interface PatientTimelineService extends MuzimaInterface {
+
+    /**
+     * Get a page of the patient timeline. Only the timeline entries near the cursor are read from the index, and only
+     * the encounters, observations and form data of the returned page are loaded from the local repository.
+     *
+     * @param patientUuid the uuid of the patient.
+     * @param cursor      the cursor returned with the previous page or null for the first page.
+     * @param pageSize    the maximum number of entries in the page.
+     * @return the page of the patient timeline.
+     * @throws IOException when search api unable to process the resource or the cursor is invalid.
+     * @should return the newest entries first.
+     * @should continue after the cursor of the previous page.
+     * @should return an empty page for an empty patient uuid.
+     */
+    TimelinePage getTimeline(final String patientUuid, final String cursor, final int pageSize) throws IOException;
+
+    /**
+     * Rebuild the timeline index from the encounters, observations and form data in the local repository. Use this
+     * method after encounters, observations or form data were written without going through the services.
+     *
+     * @throws IOException when search api unable to process the resource.
+     */
+    void rebuildTimeline() throws IOException;
+}
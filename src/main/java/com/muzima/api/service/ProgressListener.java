@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.service;
+
+/**
+ * Listener notified about the progress of an operation. Parts of an operation run in parallel, so the listener is
+ * called from several threads.
+ */
+public interface ProgressListener {
+
+    /**
+     * Called when the operation read bytes from the server, parsed objects or indexed objects.
+     *
+     * @param token the token of the operation, holding the progress so far.
+     */
+    void progressed(final OperationToken token);
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.service;
+
+/**
+ * Call of a service method, to be run asynchronously by the asynchronous service.
+ *
+ * @param <S> the service.
+ * @param <T> the result of the call.
+ */
+public interface ServiceCall<S extends MuzimaInterface, T> {
+
+    /**
+     * Call the service method.
+     *
+     * @param service the service.
+     * @return the result of the call.
+     * @throws Exception when the service method failed.
+     */
+    T call(final S service) throws Exception;
+}
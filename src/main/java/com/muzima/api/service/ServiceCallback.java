@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.service;
+
+/**
+ * Callback notified when an asynchronous service call is done. The callback is called on the thread which ran the
+ * call.
+ *
+ * @param <T> the result of the call.
+ */
+public interface ServiceCallback<T> {
+
+    /**
+     * Called when the call completed.
+     *
+     * @param result the result of the call.
+     */
+    void onSuccess(final T result);
+
+    /**
+     * Called when the call failed or was cancelled.
+     *
+     * @param cause the exception thrown by the call, or a cancellation exception when the call was cancelled.
+     */
+    void onFailure(final Throwable cause);
+}
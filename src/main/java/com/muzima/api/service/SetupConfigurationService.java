@@ -60,6 +60,8 @@ public interface SetupConfigurationService extends MuzimaInterface {
 
     /**
      * Download setup configuration template by the uuid of the setup configuration associated with the setup configuration template.
+     * When the template is already downloaded and the server answers that it didn't change, the local copy is returned
+     * and <code>isModified()</code> of the returned template is false, so it doesn't need to be saved again.
      *
      * @param uuid the uuid of the setup configuration.
      * @return the setup configuration template with matching uuid downloaded from the server.
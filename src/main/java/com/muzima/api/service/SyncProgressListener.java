@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service;
+
+import com.muzima.api.model.APIName;
+import com.muzima.api.model.SyncStageResult;
+
+/**
+ * Listener notified about the progress of a sync run. Stages run in parallel, so the listener is called from several
+ * threads.
+ */
+public interface SyncProgressListener {
+
+    /**
+     * Called when the stage starts running.
+     *
+     * @param apiName the api name of the stage.
+     */
+    void stageStarted(final APIName apiName);
+
+    /**
+     * Called when the stage completed, failed, or was skipped because a stage it depends on didn't complete.
+     *
+     * @param result the result of the stage.
+     */
+    void stageFinished(final SyncStageResult result);
+}
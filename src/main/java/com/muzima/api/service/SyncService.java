@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service;
+
+import com.google.inject.ImplementedBy;
+import com.muzima.api.model.SyncStageResult;
+import com.muzima.api.service.impl.SyncServiceImpl;
+
+import java.io.IOException;
+import java.util.List;
+
+@ImplementedBy(SyncServiceImpl.class)
+public interface SyncService extends MuzimaInterface {
+
+    /**
+     * Get the default stages of a sync run: forms, setup configurations and cohorts, then the members of the cohorts
+     * with local members, then the encounters and the observations of the local patients. Patients added since the
+     * last sync get all their encounters and observations, the other patients only the changed ones.
+     *
+     * @return the default stages.
+     */
+    List<SyncStage> getDefaultStages();
+
+    /**
+     * Run the default stages.
+     *
+     * @param listener the listener notified about the progress of the run, or null.
+     * @return the results of the stages in the order they finished.
+     * @throws IOException when the run was interrupted.
+     * @see #sync(java.util.List, SyncProgressListener)
+     */
+    List<SyncStageResult> sync(final SyncProgressListener listener) throws IOException;
+
+    /**
+     * Run the stages, starting every stage as soon as the stages it depends on completed, so independent stages run
+     * in parallel. Every stage is passed its last sync time, and the last sync time of a stage is only recorded
+     * after the stage saved its objects. A failed stage doesn't stop the run, but the stages depending on it are
+     * skipped.
+     *
+     * @param stages   the stages to be run.
+     * @param listener the listener notified about the progress of the run, or null.
+     * @return the results of the stages in the order they finished.
+     * @throws IOException when two stages have the same api name, the dependencies are cyclic, or the run was
+     *                     interrupted.
+     */
+    List<SyncStageResult> sync(final List<SyncStage> stages, final SyncProgressListener listener) throws IOException;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service;
+
+import com.muzima.api.model.APIName;
+import com.muzima.api.model.LastSyncTime;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * One stage of a sync run, downloading the objects of one api name and saving them to the local repository.
+ */
+public interface SyncStage {
+
+    /**
+     * Get the api name synced by this stage. The last sync time of the stage is recorded under this api name.
+     *
+     * @return the api name.
+     */
+    APIName getApiName();
+
+    /**
+     * Get the api names which must be synced before this stage can run. Api names without a stage in the sync run
+     * are ignored.
+     *
+     * @return the api names this stage depends on.
+     */
+    Set<APIName> getDependencies();
+
+    /**
+     * Download the objects changed since the last sync and save them to the local repository. The last sync time of
+     * the stage is only recorded after this method returns, so the objects must be saved when it returns.
+     * <p/>
+     * One last sync time is recorded per api name. A stage syncing a set of objects, e.g. the encounters of the local
+     * patients, records the set it synced elsewhere, so it can download the objects which were not synced yet in full.
+     *
+     * @param lastSyncTime the last sync time of this stage or null when the stage was never synced.
+     * @return the number of synced objects.
+     * @throws IOException when the objects can't be downloaded or saved.
+     */
+    int sync(final LastSyncTime lastSyncTime) throws IOException;
+}
@@ -12,24 +12,38 @@ import com.google.inject.Inject;
 import com.muzima.api.annotation.Authorization;
 import com.muzima.api.dao.CohortDao;
 import com.muzima.api.dao.CohortDataDao;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.dao.LastSyncTimeDao;
 import com.muzima.api.dao.MemberDao;
+import com.muzima.api.dao.PatientDao;
+import com.muzima.api.model.APIName;
 import com.muzima.api.model.Cohort;
 import com.muzima.api.model.CohortData;
 import com.muzima.api.model.CohortMember;
+import com.muzima.api.model.LastSyncTime;
+import com.muzima.api.model.Patient;
+import com.muzima.api.model.algorithm.PatientAlgorithm;
 import com.muzima.api.service.CohortService;
+import com.muzima.api.service.OperationToken;
 import com.muzima.search.api.util.CollectionUtil;
 import com.muzima.util.Constants;
 import com.muzima.util.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class CohortServiceImpl implements CohortService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CohortServiceImpl.class.getSimpleName());
+
     @Inject
     private CohortDao cohortDao;
 
@@ -39,9 +53,25 @@ public class CohortServiceImpl implements CohortService {
     @Inject
     private CohortDataDao cohortDataDao;
 
+    @Inject
+    private PatientDao patientDao;
+
+    @Inject
+    private LastSyncTimeDao lastSyncTimeDao;
+
+    private final PatientAlgorithm patientAlgorithm = new PatientAlgorithm();
+
     protected CohortServiceImpl() {
     }
 
+    CohortServiceImpl(final MemberDao memberDao, final CohortDataDao cohortDataDao, final PatientDao patientDao,
+                      final LastSyncTimeDao lastSyncTimeDao) {
+        this.memberDao = memberDao;
+        this.cohortDataDao = cohortDataDao;
+        this.patientDao = patientDao;
+        this.lastSyncTimeDao = lastSyncTimeDao;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -306,6 +336,22 @@ public class CohortServiceImpl implements CohortService {
         return downloadCohortDataAndSyncDate(uuid, dynamic, null);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see CohortService#downloadCohortData(String, boolean, OperationToken)
+     */
+    @Override
+    public CohortData downloadCohortData(final String uuid, final boolean dynamic,
+                                         final OperationToken token) throws IOException {
+        OperationToken previous = OperationToken.attach(token);
+        try {
+            return downloadCohortDataAndSyncDate(uuid, dynamic, null);
+        } finally {
+            OperationToken.attach(previous);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -314,17 +360,8 @@ public class CohortServiceImpl implements CohortService {
     @Override
     public CohortData downloadCohortDataAndSyncDate(final String uuid, final boolean dynamic, final Date syncDate) throws IOException {
         CohortData cohortData = null;
-        String resourceName = Constants.STATIC_COHORT_DATA_RESOURCE;
-        if (dynamic) {
-            resourceName = Constants.DYNAMIC_COHORT_DATA_RESOURCE;
-        }
-        Map<String, String> parameter = new HashMap<String, String>() {{
-            put("uuid", uuid);
-        }};
-        if (syncDate != null) {
-            parameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
-        }
-        List<CohortData> cohortDataList = cohortDataDao.download(parameter, resourceName);
+        List<CohortData> cohortDataList =
+                cohortDataDao.download(createCohortDataParameter(uuid, syncDate), getCohortDataResource(dynamic));
         if (!CollectionUtil.isEmpty(cohortDataList)) {
             if (cohortDataList.size() > 1) {
                 throw new IOException("Unable to uniquely identify a cohort data record.");
@@ -351,7 +388,214 @@ public class CohortServiceImpl implements CohortService {
      */
     @Override
     public CohortData downloadCohortDataAndSyncDate(final Cohort cohort, final Date syncDate) throws IOException {
-        return downloadCohortData(cohort.getUuid(), cohort.isDynamic());
+        return downloadCohortDataAndSyncDate(cohort.getUuid(), cohort.isDynamic(), syncDate);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see CohortService#downloadAndSaveCohortData(String, boolean, java.util.Date, int)
+     */
+    @Override
+    public int downloadAndSaveCohortData(final String uuid, final boolean dynamic, final Date syncDate,
+                                         final int pageSize) throws IOException {
+        final Set<String> memberPatientUuids = new HashSet<String>();
+        for (CohortMember cohortMember : memberDao.getByCohortUuid(uuid)) {
+            memberPatientUuids.add(cohortMember.getPatientUuid());
+        }
+        return cohortDataDao.downloadInPages(createCohortDataParameter(uuid, syncDate), getCohortDataResource(dynamic),
+                pageSize, new DownloadBatchHandler<CohortData>() {
+                    @Override
+                    public void handle(final List<CohortData> cohortDataList) throws IOException {
+                        for (CohortData cohortData : cohortDataList) {
+                            savePatients(cohortData.getPatients());
+                            // a page is saved again when the download was interrupted before its checkpoint.
+                            List<CohortMember> cohortMembers = new ArrayList<CohortMember>();
+                            for (CohortMember cohortMember : cohortData.getCohortMembers()) {
+                                if (memberPatientUuids.add(cohortMember.getPatientUuid())) {
+                                    cohortMembers.add(cohortMember);
+                                }
+                            }
+                            if (!cohortMembers.isEmpty()) {
+                                memberDao.save(cohortMembers, Constants.LOCAL_COHORT_MEMBER_RESOURCE);
+                            }
+                        }
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see CohortService#syncCohortMembers(com.muzima.api.model.Cohort)
+     */
+    @Override
+    public int syncCohortMembers(final Cohort cohort) throws IOException {
+        Date syncStartDate = new Date();
+        String uuid = cohort.getUuid();
+        LastSyncTime lastSyncTime = lastSyncTimeDao.getLastSyncTime(APIName.DOWNLOAD_COHORTS_DATA.toString(), uuid);
+        Date syncDate = null;
+        if (lastSyncTime != null && !cohort.isDynamic()) {
+            syncDate = lastSyncTime.getLastSyncDate();
+        }
+
+        CohortData cohortData = downloadCohortDataAndSyncDate(uuid, cohort.isDynamic(), syncDate);
+        if (cohortData == null) {
+            cohortData = new CohortData();
+        }
+        Map<String, Patient> changedPatients = new HashMap<String, Patient>();
+        for (Patient patient : cohortData.getPatients()) {
+            changedPatients.put(patient.getUuid(), patient);
+        }
+        Set<String> remoteUuids = changedPatients.keySet();
+        if (syncDate != null) {
+            remoteUuids = new HashSet<String>();
+            for (CohortData membership : cohortDataDao.download(createCohortDataParameter(uuid, null),
+                    Constants.STATIC_COHORT_MEMBERSHIP_RESOURCE)) {
+                for (Patient patient : membership.getPatients()) {
+                    remoteUuids.add(patient.getUuid());
+                }
+            }
+        }
+
+        Map<String, CohortMember> localMembers = new HashMap<String, CohortMember>();
+        for (CohortMember cohortMember : memberDao.getByCohortUuid(uuid)) {
+            localMembers.put(cohortMember.getPatientUuid(), cohortMember);
+        }
+        // an empty listing for a cohort with local members is more likely a broken answer of the server than a
+        // cohort emptied since the last sync, so nothing is removed and the next sync checks the members again.
+        boolean emptyListing = remoteUuids.isEmpty() && !localMembers.isEmpty();
+        if (emptyListing) {
+            logger.warn("Server listed no members for cohort: " + uuid + ", keeping the local members.");
+        }
+        List<CohortMember> removedMembers = new ArrayList<CohortMember>();
+        for (Map.Entry<String, CohortMember> entry : localMembers.entrySet()) {
+            if (!emptyListing && !remoteUuids.contains(entry.getKey())) {
+                removedMembers.add(entry.getValue());
+            }
+        }
+        List<CohortMember> addedMembers = new ArrayList<CohortMember>();
+        List<Patient> savedPatients = new ArrayList<Patient>();
+        Set<String> missingUuids = new HashSet<String>();
+        for (String patientUuid : remoteUuids) {
+            Patient patient = changedPatients.get(patientUuid);
+            if (patient != null) {
+                savedPatients.add(patient);
+                if (!localMembers.containsKey(patientUuid)) {
+                    addedMembers.add(new CohortMember(cohort, patient));
+                }
+            } else if (!localMembers.containsKey(patientUuid)) {
+                // added before the last sync date but not seen by the previous sync.
+                missingUuids.add(patientUuid);
+            }
+        }
+        for (Patient patient : downloadMissingPatients(uuid, missingUuids)) {
+            addedMembers.add(new CohortMember(cohort, patient));
+            savedPatients.add(patient);
+        }
+
+        savePatients(savedPatients);
+        if (!addedMembers.isEmpty()) {
+            memberDao.save(addedMembers, Constants.LOCAL_COHORT_MEMBER_RESOURCE);
+        }
+        if (!removedMembers.isEmpty()) {
+            memberDao.delete(removedMembers, Constants.LOCAL_COHORT_MEMBER_RESOURCE);
+        }
+        if (!emptyListing) {
+            if (lastSyncTime == null) {
+                lastSyncTime = new LastSyncTime(APIName.DOWNLOAD_COHORTS_DATA, syncStartDate, uuid);
+            } else {
+                lastSyncTime.setLastSyncDate(syncStartDate);
+            }
+            lastSyncTimeDao.save(lastSyncTime, Constants.UUID_LAST_SYNC_TIME);
+        }
+        return addedMembers.size() + removedMembers.size();
+    }
+
+    /**
+     * Download the patients which are members of the static cohort on the server but were not seen by the previous
+     * sync. One missing patient is downloaded by uuid, more missing patients are taken from one download of all the
+     * members of the cohort instead of one request per patient.
+     */
+    private List<Patient> downloadMissingPatients(final String cohortUuid, final Set<String> patientUuids)
+            throws IOException {
+        List<Patient> patients = new ArrayList<Patient>();
+        if (patientUuids.size() == 1) {
+            Patient patient = downloadPatient(patientUuids.iterator().next());
+            if (patient != null) {
+                patients.add(patient);
+            }
+        } else if (patientUuids.size() > 1) {
+            CohortData cohortData = downloadCohortDataAndSyncDate(cohortUuid, false, null);
+            if (cohortData != null) {
+                for (Patient patient : cohortData.getPatients()) {
+                    if (patientUuids.contains(patient.getUuid())) {
+                        patients.add(patient);
+                    }
+                }
+            }
+        }
+        return patients;
+    }
+
+    private Patient downloadPatient(final String patientUuid) throws IOException {
+        Map<String, String> parameter = new HashMap<String, String>();
+        parameter.put("uuid", patientUuid);
+        List<Patient> patients = patientDao.download(parameter, Constants.UUID_PATIENT_RESOURCE);
+        if (CollectionUtil.isEmpty(patients)) {
+            return null;
+        }
+        return patients.get(0);
+    }
+
+    /**
+     * Save the new patients and update only the patients whose content differs from the indexed copy, so a re-sync
+     * of an unchanged cohort doesn't rewrite every patient document.
+     */
+    private void savePatients(final List<Patient> patients) throws IOException {
+        if (patients.isEmpty()) {
+            return;
+        }
+        Map<String, Patient> indexedPatients = new HashMap<String, Patient>();
+        List<String> patientUuids = new ArrayList<String>();
+        for (Patient patient : patients) {
+            patientUuids.add(patient.getUuid());
+        }
+        for (Patient indexedPatient : patientDao.getByUuids(patientUuids)) {
+            indexedPatients.put(indexedPatient.getUuid(), indexedPatient);
+        }
+        List<Patient> newPatients = new ArrayList<Patient>();
+        List<Patient> existingPatients = new ArrayList<Patient>();
+        for (Patient patient : patients) {
+            Patient indexedPatient = indexedPatients.get(patient.getUuid());
+            if (indexedPatient == null) {
+                newPatients.add(patient);
+            } else if (!patientAlgorithm.serialize(indexedPatient).equals(patientAlgorithm.serialize(patient))) {
+                existingPatients.add(patient);
+            }
+        }
+        if (!newPatients.isEmpty()) {
+            patientDao.save(newPatients, Constants.UUID_PATIENT_RESOURCE);
+        }
+        if (!existingPatients.isEmpty()) {
+            patientDao.update(existingPatients, Constants.UUID_PATIENT_RESOURCE);
+        }
+    }
+
+    private String getCohortDataResource(final boolean dynamic) {
+        if (dynamic) {
+            return Constants.DYNAMIC_COHORT_DATA_RESOURCE;
+        }
+        return Constants.STATIC_COHORT_DATA_RESOURCE;
+    }
+
+    private Map<String, String> createCohortDataParameter(final String uuid, final Date syncDate) {
+        Map<String, String> parameter = new HashMap<String, String>();
+        parameter.put("uuid", uuid);
+        if (syncDate != null) {
+            parameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
+        }
+        return parameter;
     }
 
     /**
@@ -407,6 +651,16 @@ public class CohortServiceImpl implements CohortService {
         return memberDao.countMembers(cohort.getUuid());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see CohortService#countCohortMembers(java.util.List)
+     */
+    @Override
+    public Map<String, Integer> countCohortMembers(final List<String> cohortUuids) throws IOException {
+        return memberDao.countGroupedBy("cohortUuid", cohortUuids, null);
+    }
+
     /**
      * {@inheritDoc}
      *
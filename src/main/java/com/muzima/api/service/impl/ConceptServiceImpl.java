@@ -9,27 +9,49 @@
 package com.muzima.api.service.impl;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.muzima.api.context.CallContext;
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.context.TaskGroup;
 import com.muzima.api.dao.ConceptDao;
+import com.muzima.api.exception.HttpResponseException;
 import com.muzima.api.model.Concept;
 import com.muzima.api.service.ConceptService;
 import com.muzima.search.api.util.CollectionUtil;
 import com.muzima.search.api.util.StringUtil;
 import com.muzima.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * TODO: Write brief description about the class here.
  */
 public class ConceptServiceImpl implements ConceptService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ConceptServiceImpl.class.getSimpleName());
+
+    private static final int DEFAULT_NUMERIC_CONCURRENCY = 4;
+
     @Inject
     private ConceptDao conceptDao;
 
+    @Inject
+    private ServiceExecutor serviceExecutor;
+
+    @Inject(optional = true)
+    @Named("concept.numeric.concurrency")
+    private int numericConcurrency = DEFAULT_NUMERIC_CONCURRENCY;
+
     /**
      * Internal implementation of downloading concept by the uuid of the concept. This will be used
      * primarily to download numeric concept because only numeric concepts will have the units field
@@ -81,16 +103,103 @@ public class ConceptServiceImpl implements ConceptService {
     }
 
     /**
-     * Internal implementation of downloading concept by the uuid of the concept. This will be used
-     * primarily to download numeric concept because only numeric concepts will have the units field
-     * in the REST resource.
+     * Replace the numeric concepts in the list with the concepts carrying the numeric fields, e.g. the units. The
+     * search is sent again to the numeric search resource, whose representation carries the numeric fields, so the
+     * numeric concepts of the search come with one more request. Only the numeric concepts missing from that answer
+     * are downloaded from the numeric resource, one request per concept, a bounded number at a time.
      *
-     * @param concept the concept for which the numeric elements will be downloaded.
-     * @return the concept with the numeric field's information.
+     * @param name     the name the concepts were searched with.
+     * @param concepts the concepts downloaded from the standard resource.
+     * @return the concepts with the numeric field's information, in the same order.
      * @throws IOException when the search api unable to process the resource.
      */
-    private Concept downloadConcept(final Concept concept) throws IOException {
-        return downloadConceptByUuid(concept.getUuid(), concept.isNumeric());
+    private List<Concept> mergeNumericConcepts(final String name, final List<Concept> concepts) throws IOException {
+        Set<String> numericUuids = new LinkedHashSet<String>();
+        for (Concept concept : concepts) {
+            if (concept.isNumeric()) {
+                numericUuids.add(concept.getUuid());
+            }
+        }
+        if (numericUuids.isEmpty()) {
+            return concepts;
+        }
+        Map<String, Concept> numericConcepts = searchNumericConcepts(name, numericUuids);
+        List<String> missingUuids = new ArrayList<String>();
+        for (String numericUuid : numericUuids) {
+            if (!numericConcepts.containsKey(numericUuid)) {
+                missingUuids.add(numericUuid);
+            }
+        }
+        numericConcepts.putAll(downloadNumericConcepts(missingUuids));
+        List<Concept> consolidatedConcepts = new ArrayList<Concept>(concepts.size());
+        for (Concept concept : concepts) {
+            Concept numericConcept = numericConcepts.get(concept.getUuid());
+            consolidatedConcepts.add(numericConcept != null ? numericConcept : concept);
+        }
+        return consolidatedConcepts;
+    }
+
+    /**
+     * Search the concepts with the numeric search resource and keep the numeric concepts. A server answering the
+     * search with an error, e.g. because it can't represent a non numeric concept with the numeric fields, leaves the
+     * numeric concepts to be downloaded one by one.
+     */
+    private Map<String, Concept> searchNumericConcepts(final String name, final Set<String> numericUuids)
+            throws IOException {
+        Map<String, Concept> numericConcepts = new HashMap<String, Concept>();
+        Map<String, String> parameter = new HashMap<String, String>();
+        parameter.put("q", name);
+        try {
+            for (Concept concept : conceptDao.download(parameter, Constants.SEARCH_CONCEPT_NUMERIC_RESOURCE)) {
+                if (numericUuids.contains(concept.getUuid())) {
+                    numericConcepts.put(concept.getUuid(), concept);
+                }
+            }
+        } catch (HttpResponseException e) {
+            logger.warn("Unable to search numeric concepts with name: " + name + ". " + e.getMessage());
+        }
+        return numericConcepts;
+    }
+
+    private Map<String, Concept> downloadNumericConcepts(final List<String> uuids) throws IOException {
+        Map<String, Concept> numericConcepts = new HashMap<String, Concept>();
+        if (uuids.isEmpty()) {
+            return numericConcepts;
+        }
+        TaskGroup<Concept> taskGroup = new TaskGroup<Concept>(serviceExecutor, numericConcurrency);
+        final CallContext callContext = CallContext.capture();
+        try {
+            for (final String uuid : uuids) {
+                taskGroup.submit(new Callable<Concept>() {
+                    @Override
+                    public Concept call() throws IOException {
+                        CallContext previous = callContext.attach();
+                        try {
+                            return downloadConceptByUuid(uuid, true);
+                        } finally {
+                            previous.attach();
+                        }
+                    }
+                });
+            }
+            while (taskGroup.getPending() > 0) {
+                Concept concept = taskGroup.take().get();
+                if (concept != null) {
+                    numericConcepts.put(concept.getUuid(), concept);
+                }
+            }
+            return numericConcepts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading numeric concepts.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to download numeric concepts. " + e.getCause());
+        } finally {
+            taskGroup.cancel();
+        }
     }
 
     /**
@@ -106,13 +215,7 @@ public class ConceptServiceImpl implements ConceptService {
                 put("q", name);
             }};
             List<Concept> concepts = conceptDao.download(parameter, Constants.SEARCH_CONCEPT_RESOURCE);
-            for (Concept concept : concepts) {
-                if (concept.isNumeric()) {
-                    consolidatedConcepts.add(downloadConcept(concept));
-                } else {
-                    consolidatedConcepts.add(concept);
-                }
-            }
+            consolidatedConcepts.addAll(mergeNumericConcepts(name, concepts));
         }
         return consolidatedConcepts;
     }
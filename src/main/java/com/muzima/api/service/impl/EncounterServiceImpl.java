@@ -11,6 +11,7 @@ package com.muzima.api.service.impl;
 import com.google.inject.Inject;
 import com.muzima.api.dao.EncounterDao;
 import com.muzima.api.dao.PatientDao;
+import com.muzima.api.dao.TimelineEventDao;
 import com.muzima.api.model.Encounter;
 import com.muzima.api.model.Patient;
 import com.muzima.api.service.EncounterService;
@@ -21,6 +22,7 @@ import org.apache.lucene.queryParser.ParseException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -37,6 +39,9 @@ public class EncounterServiceImpl implements EncounterService {
     @Inject
     private EncounterDao encounterDao;
 
+    @Inject
+    private TimelineEventDao timelineEventDao;
+
     protected EncounterServiceImpl() {
     }
 
@@ -232,6 +237,16 @@ public class EncounterServiceImpl implements EncounterService {
         return encounterDao.countEncountersByPatientUuid(patientUuid);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see EncounterService#countEncountersByPatientUuids(java.util.List)
+     */
+    @Override
+    public Map<String, Integer> countEncountersByPatientUuids(final List<String> patientUuids) throws IOException {
+        return encounterDao.countGroupedBy("patientUuid", patientUuids, null);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -270,6 +285,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void saveEncounter(final Encounter encounter) throws IOException {
         encounterDao.save(encounter, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.saveEvents(Collections.singletonList(encounter));
     }
 
     /**
@@ -280,6 +296,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void saveEncounters(final List<Encounter> encounters) throws IOException {
         encounterDao.save(encounters, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.saveEvents(encounters);
     }
 
     /**
@@ -290,6 +307,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void updateEncounter(final Encounter encounter) throws IOException {
         encounterDao.update(encounter, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.updateEvents(Collections.singletonList(encounter));
     }
 
     /**
@@ -300,6 +318,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void updateEncounters(final List<Encounter> encounters) throws IOException {
         encounterDao.update(encounters, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.updateEvents(encounters);
     }
 
     /**
@@ -310,6 +329,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void deleteEncounter(final Encounter encounter) throws IOException {
         encounterDao.delete(encounter, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.deleteEvents(Collections.singletonList(encounter));
     }
 
     @Override
@@ -333,6 +353,7 @@ public class EncounterServiceImpl implements EncounterService {
     @Override
     public void deleteEncounters(final List<Encounter> encounters) throws IOException {
         encounterDao.delete(encounters, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.deleteEvents(encounters);
     }
 
     /**
@@ -342,6 +363,8 @@ public class EncounterServiceImpl implements EncounterService {
      */
     @Override
     public void deleteAll() throws IOException {
-        encounterDao.delete(encounterDao.getAll(), Constants.UUID_ENCOUNTER_RESOURCE);
+        List<Encounter> encounters = encounterDao.getAll();
+        encounterDao.delete(encounters, Constants.UUID_ENCOUNTER_RESOURCE);
+        timelineEventDao.deleteEvents(encounters);
     }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.muzima.api.context.CallContext;
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.context.TaskGroup;
+import com.muzima.api.dao.FormDataDao;
+import com.muzima.api.dao.TimelineEventDao;
+import com.muzima.api.dao.impl.FormDataOutbox;
+import com.muzima.api.model.FormData;
+import com.muzima.api.service.OperationToken;
+import com.muzima.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Upload a list of form data with a bounded number of requests in flight, sent from the shared service executor. The
+ * status of the uploaded form data is saved in batches while the upload runs, so an interrupted upload can be resumed
+ * without sending the confirmed form data again. The status is saved the way the form service saves form data, updating
+ * the timeline and the upload queue too. When the operation is cancelled, no new form data is sent and the status of
+ * the confirmed form data is saved before the cancellation is thrown.
+ */
+public class FormDataUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(FormDataUploader.class.getSimpleName());
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    private static final int DEFAULT_CHECKPOINT_SIZE = 20;
+
+    @Inject
+    private FormDataDao formDataDao;
+
+    @Inject
+    private TimelineEventDao timelineEventDao;
+
+    @Inject
+    private FormDataOutbox formDataOutbox;
+
+    @Inject
+    private ServiceExecutor serviceExecutor;
+
+    @Inject(optional = true)
+    @Named("upload.max.concurrency")
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    @Inject(optional = true)
+    @Named("upload.checkpoint.size")
+    private int checkpointSize = DEFAULT_CHECKPOINT_SIZE;
+
+    protected FormDataUploader() {
+    }
+
+    FormDataUploader(final FormDataDao formDataDao, final TimelineEventDao timelineEventDao,
+                     final FormDataOutbox formDataOutbox, final ServiceExecutor serviceExecutor,
+                     final int maxConcurrency, final int checkpointSize) {
+        this.formDataDao = formDataDao;
+        this.timelineEventDao = timelineEventDao;
+        this.formDataOutbox = formDataOutbox;
+        this.serviceExecutor = serviceExecutor;
+        this.maxConcurrency = maxConcurrency;
+        this.checkpointSize = checkpointSize;
+    }
+
+    /**
+     * Upload the form data. Form data already in the synced status are skipped. Uploading stops at the first form
+     * data which can't be sent, and the form data not attempted are left out of the outcome.
+     *
+     * @param formDataList the form data to be uploaded.
+     * @param syncedStatus the status to be saved for the form data accepted by the server.
+     * @return the outcome for each attempted form data uuid, in the order of the form data.
+     * @throws IOException when the upload was interrupted or the status could not be saved.
+     */
+    public Map<String, Boolean> upload(final List<FormData> formDataList, final String syncedStatus)
+            throws IOException {
+        Map<String, Boolean> outcomes = new LinkedHashMap<String, Boolean>();
+        List<FormData> pending = new ArrayList<FormData>();
+        for (FormData formData : formDataList) {
+            if (syncedStatus.equals(formData.getStatus())) {
+                outcomes.put(formData.getUuid(), true);
+            } else {
+                outcomes.put(formData.getUuid(), null);
+                pending.add(formData);
+            }
+        }
+        if (pending.isEmpty()) {
+            return outcomes;
+        }
+
+        TaskGroup<Boolean> taskGroup = new TaskGroup<Boolean>(serviceExecutor, maxConcurrency);
+        Map<Future<Boolean>, FormData> submitted = new LinkedHashMap<Future<Boolean>, FormData>();
+        List<FormData> confirmed = new ArrayList<FormData>();
+        final CallContext callContext = CallContext.capture();
+        boolean completed = false;
+        try {
+            for (final FormData formData : pending) {
+                Future<Boolean> future = taskGroup.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        CallContext previous = callContext.attach();
+                        try {
+                            return formDataDao.syncFormData(formData);
+                        } finally {
+                            previous.attach();
+                        }
+                    }
+                });
+                submitted.put(future, formData);
+            }
+            for (int i = 0; i < submitted.size(); i++) {
+                Future<Boolean> future = taskGroup.take();
+                FormData formData = submitted.get(future);
+                if (future.isCancelled()) {
+                    continue;
+                }
+                try {
+                    boolean synced = future.get();
+                    outcomes.put(formData.getUuid(), synced);
+                    if (synced) {
+                        formData.setStatus(syncedStatus);
+                        confirmed.add(formData);
+                        if (confirmed.size() >= checkpointSize) {
+                            checkpoint(confirmed);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof InterruptedIOException)) {
+                        outcomes.put(formData.getUuid(), false);
+                        logger.warn("Unable to upload form data: " + formData.getUuid() + ". " + e.getCause());
+                    }
+                    for (Future<Boolean> remaining : submitted.keySet()) {
+                        remaining.cancel(false);
+                    }
+                }
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading form data.");
+        } finally {
+            taskGroup.cancel();
+            if (completed) {
+                checkpoint(confirmed);
+            } else {
+                checkpointQuietly(confirmed);
+            }
+        }
+        OperationToken.checkCurrent();
+
+        Map<String, Boolean> attempted = new LinkedHashMap<String, Boolean>();
+        for (Map.Entry<String, Boolean> entry : outcomes.entrySet()) {
+            if (entry.getValue() != null) {
+                attempted.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return attempted;
+    }
+
+    /**
+     * Save the status of the confirmed form data, with their timeline events and their place in the upload queue.
+     */
+    private void checkpoint(final List<FormData> confirmed) throws IOException {
+        if (!confirmed.isEmpty()) {
+            List<FormData> formDataList = new ArrayList<FormData>(confirmed);
+            formDataDao.update(formDataList, Constants.LOCAL_FORM_DATA_RESOURCE);
+            timelineEventDao.updateEvents(formDataList);
+            for (FormData formData : formDataList) {
+                formDataOutbox.update(formData);
+            }
+            confirmed.clear();
+        }
+    }
+
+    /**
+     * Save the status of the confirmed form data while the upload is failing, logging a failed save instead of
+     * throwing it, so the exception of the upload is not replaced.
+     */
+    private void checkpointQuietly(final List<FormData> confirmed) {
+        try {
+            checkpoint(confirmed);
+        } catch (IOException e) {
+            logger.warn("Unable to save the status of the uploaded form data. " + e.getMessage());
+        }
+    }
+}
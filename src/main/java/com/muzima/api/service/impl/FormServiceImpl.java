@@ -12,10 +12,13 @@ import com.google.inject.Inject;
 import com.muzima.api.dao.FormDao;
 import com.muzima.api.dao.FormDataDao;
 import com.muzima.api.dao.FormTemplateDao;
+import com.muzima.api.dao.TimelineEventDao;
+import com.muzima.api.dao.impl.FormDataOutbox;
 import com.muzima.api.model.Form;
 import com.muzima.api.model.FormData;
 import com.muzima.api.model.FormTemplate;
 import com.muzima.api.service.FormService;
+import com.muzima.api.service.OperationToken;
 import com.muzima.search.api.filter.Filter;
 import com.muzima.search.api.util.CollectionUtil;
 import com.muzima.search.api.util.StringUtil;
@@ -42,6 +45,15 @@ public class FormServiceImpl implements FormService {
     @Inject
     private FormTemplateDao formTemplateDao;
 
+    @Inject
+    private TimelineEventDao timelineEventDao;
+
+    @Inject
+    private FormDataUploader formDataUploader;
+
+    @Inject
+    private FormDataOutbox formDataOutbox;
+
     protected FormServiceImpl() {
     }
 
@@ -223,7 +235,9 @@ public class FormServiceImpl implements FormService {
         Map<String, String> parameter = new HashMap<String, String>() {{
             put("uuid", uuid);
         }};
-        List<FormTemplate> formTemplates = formTemplateDao.download(parameter, Constants.UUID_FORM_TEMPLATE_RESOURCE);
+        FormTemplate cached = formTemplateDao.getByUuid(uuid);
+        List<FormTemplate> formTemplates =
+                formTemplateDao.download(cached, parameter, Constants.UUID_FORM_TEMPLATE_RESOURCE);
         if (!CollectionUtil.isEmpty(formTemplates)) {
             if (formTemplates.size() > 1) {
                 throw new IOException("Unable to uniquely identify a form template record.");
@@ -340,9 +354,12 @@ public class FormServiceImpl implements FormService {
             String uuid = UUID.randomUUID().toString();
             formData.setUuid(uuid);
             formDataDao.save(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+            timelineEventDao.saveEvents(Collections.singletonList(formData));
         } else {
             formDataDao.update(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+            timelineEventDao.updateEvents(Collections.singletonList(formData));
         }
+        formDataOutbox.update(formData);
     }
 
     /**
@@ -356,9 +373,12 @@ public class FormServiceImpl implements FormService {
             String uuid = UUID.randomUUID().toString();
             formData.setUuid(uuid);
             formDataDao.save(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+            timelineEventDao.saveEvents(Collections.singletonList(formData));
         } else {
             formDataDao.update(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+            timelineEventDao.updateEvents(Collections.singletonList(formData));
         }
+        formDataOutbox.update(formData);
     }
 
     /**
@@ -432,6 +452,20 @@ public class FormServiceImpl implements FormService {
         return formDataDao.countAllFormData(patientUuid, StringUtil.EMPTY, status);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#countFormDataByPatients(java.util.List, String)
+     */
+    @Override
+    public Map<String, Integer> countFormDataByPatients(final List<String> patientUuids, final String status) throws IOException {
+        Map<String, String> criteria = new HashMap<String, String>();
+        if (!StringUtil.isEmpty(status)) {
+            criteria.put("status", status);
+        }
+        return formDataDao.countGroupedBy("patientUuid", patientUuids, criteria);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -440,6 +474,8 @@ public class FormServiceImpl implements FormService {
     @Override
     public void deleteFormData(final FormData formData) throws IOException {
         formDataDao.delete(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+        timelineEventDao.deleteEvents(Collections.singletonList(formData));
+        formDataOutbox.remove(formData.getUuid());
     }
 
     /**
@@ -450,6 +486,10 @@ public class FormServiceImpl implements FormService {
     @Override
     public void deleteFormData(final List<FormData> formData) throws IOException {
         formDataDao.delete(formData, Constants.LOCAL_FORM_DATA_RESOURCE);
+        timelineEventDao.deleteEvents(formData);
+        for (FormData deleted : formData) {
+            formDataOutbox.remove(deleted.getUuid());
+        }
     }
 
     /**
@@ -471,6 +511,80 @@ public class FormServiceImpl implements FormService {
         return formDataDao.syncFormData(formData );
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#syncFormData(java.util.List, String)
+     */
+    @Override
+    public Map<String, Boolean> syncFormData(final List<FormData> formData,
+                                             final String syncedStatus) throws IOException {
+        return formDataUploader.upload(formData, syncedStatus);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#syncFormData(java.util.List, String, OperationToken)
+     */
+    @Override
+    public Map<String, Boolean> syncFormData(final List<FormData> formData, final String syncedStatus,
+                                             final OperationToken token) throws IOException {
+        OperationToken previous = OperationToken.attach(token);
+        try {
+            return formDataUploader.upload(formData, syncedStatus);
+        } finally {
+            OperationToken.attach(previous);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#queueFormData(com.muzima.api.model.FormData)
+     */
+    @Override
+    public void queueFormData(final FormData formData) throws IOException {
+        formDataOutbox.add(formData);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#countQueuedFormData()
+     */
+    @Override
+    public int countQueuedFormData() throws IOException {
+        return formDataOutbox.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see FormService#syncQueuedFormData(int, String)
+     */
+    @Override
+    public Map<String, Boolean> syncQueuedFormData(final int maxCount, final String syncedStatus) throws IOException {
+        List<FormData> formDataList = new ArrayList<FormData>();
+        for (String uuid : formDataOutbox.peek(maxCount)) {
+            FormData formData = formDataDao.getFormDataByUuid(uuid);
+            if (formData == null) {
+                formDataOutbox.remove(uuid);
+            } else {
+                formDataList.add(formData);
+            }
+        }
+        Map<String, Boolean> outcomes = formDataUploader.upload(formDataList, syncedStatus);
+        for (Map.Entry<String, Boolean> outcome : outcomes.entrySet()) {
+            if (outcome.getValue()) {
+                formDataOutbox.remove(outcome.getKey());
+            } else {
+                formDataOutbox.failed(outcome.getKey());
+            }
+        }
+        return outcomes;
+    }
+
     @Override
     public List<FormData> getFormDataByTemplateUUID(String templateUUID) throws IOException {
         return formDataDao.getFormDataByTemplateUUID(templateUUID);
@@ -110,7 +110,7 @@ public class LocationServiceImpl implements LocationService {
     }
 
     private boolean locationExists(Location location) throws IOException {
-        return locationDao.getByUuid(location.getUuid()) != null;
+        return locationDao.exists(location.getUuid());
     }
 
     private List<Location> sortNameAscending(List<Location> all) {
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.muzima.api.context.CallContext;
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.context.TaskGroup;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.dao.ObservationDao;
+import com.muzima.api.model.Observation;
+import com.muzima.util.DateUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Split an observation download for many patients and concepts into requests with bounded parameter length, and run
+ * the requests on the shared service executor, a bounded number at a time. The handler variant hands the observations
+ * of every request to the handler as they are read, so they are saved to the local repository while the other
+ * requests are running. The list variant only returns the observations, in request order, for callers which save
+ * them afterwards.
+ */
+public class ObservationDownloadPlanner {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    private static final int DEFAULT_MAX_PARAMETER_LENGTH = 2048;
+
+    @Inject
+    private ObservationDao observationDao;
+
+    @Inject
+    private ServiceExecutor serviceExecutor;
+
+    @Inject(optional = true)
+    @Named("download.max.concurrency")
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    @Inject(optional = true)
+    @Named("download.max.parameter.length")
+    private int maxParameterLength = DEFAULT_MAX_PARAMETER_LENGTH;
+
+    protected ObservationDownloadPlanner() {
+    }
+
+    ObservationDownloadPlanner(final ObservationDao observationDao, final ServiceExecutor serviceExecutor,
+                               final int maxConcurrency, final int maxParameterLength) {
+        this.observationDao = observationDao;
+        this.serviceExecutor = serviceExecutor;
+        this.maxConcurrency = maxConcurrency;
+        this.maxParameterLength = maxParameterLength;
+    }
+
+    /**
+     * Download the observations of the patients for the concepts.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param conceptUuids the uuids of the concepts, all coded or all non coded.
+     * @param resource     the resource descriptor used to download the observations.
+     * @param syncDate     the date of the last download or null to download all observations.
+     * @return the downloaded observations.
+     * @throws IOException when one of the requests failed.
+     */
+    public List<Observation> download(final List<String> patientUuids, final List<String> conceptUuids,
+                                      final String resource, final Date syncDate) throws IOException {
+        List<List<Observation>> results = execute(plan(patientUuids, conceptUuids, syncDate),
+                new Request<List<Observation>>() {
+                    @Override
+                    public List<Observation> download(final Map<String, String> parameter) throws IOException {
+                        return observationDao.download(parameter, resource);
+                    }
+                });
+        List<Observation> observations = new ArrayList<Observation>();
+        for (List<Observation> result : results) {
+            observations.addAll(result);
+        }
+        return observations;
+    }
+
+    /**
+     * Download the observations of the patients for the concepts and hand them to the handler in batches while the
+     * requests are running. The handler is called by one request at a time.
+     *
+     * @param patientUuids the uuids of the patients.
+     * @param conceptUuids the uuids of the concepts, all coded or all non coded.
+     * @param resource     the resource descriptor used to download the observations.
+     * @param syncDate     the date of the last download or null to download all observations.
+     * @param handler      the handler saving the downloaded observations.
+     * @return the number of downloaded observations.
+     * @throws IOException when one of the requests or the handler failed.
+     */
+    public int download(final List<String> patientUuids, final List<String> conceptUuids, final String resource,
+                        final Date syncDate, final DownloadBatchHandler<Observation> handler) throws IOException {
+        final DownloadBatchHandler<Observation> serialHandler = new DownloadBatchHandler<Observation>() {
+            @Override
+            public synchronized void handle(final List<Observation> batch) throws IOException {
+                handler.handle(batch);
+            }
+        };
+        List<Integer> results = execute(plan(patientUuids, conceptUuids, syncDate), new Request<Integer>() {
+            @Override
+            public Integer download(final Map<String, String> parameter) throws IOException {
+                return observationDao.downloadInBatches(parameter, resource, serialHandler);
+            }
+        });
+        int count = 0;
+        for (Integer result : results) {
+            count += result;
+        }
+        return count;
+    }
+
+    /**
+     * Run the request for every parameter on the service executor, in the session and operation of the calling
+     * thread, and return the results in the order of the parameters. A single parameter runs on the calling thread.
+     */
+    private <T> List<T> execute(final List<Map<String, String>> parameters, final Request<T> request)
+            throws IOException {
+        List<T> results = new ArrayList<T>();
+        if (parameters.size() == 1 || maxConcurrency <= 1) {
+            for (Map<String, String> parameter : parameters) {
+                results.add(request.download(parameter));
+            }
+            return results;
+        }
+
+        TaskGroup<T> taskGroup = new TaskGroup<T>(serviceExecutor, maxConcurrency);
+        final CallContext callContext = CallContext.capture();
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (final Map<String, String> parameter : parameters) {
+                futures.add(taskGroup.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        CallContext previous = callContext.attach();
+                        try {
+                            return request.download(parameter);
+                        } finally {
+                            previous.attach();
+                        }
+                    }
+                }));
+            }
+            while (taskGroup.getPending() > 0) {
+                taskGroup.take().get();
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading observations.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to download observations. " + e.getCause());
+        } finally {
+            taskGroup.cancel();
+        }
+        return results;
+    }
+
+    /**
+     * Create the request parameters covering every patient and concept pair exactly once.
+     */
+    private List<Map<String, String>> plan(final List<String> patientUuids, final List<String> conceptUuids,
+                                           final Date syncDate) {
+        List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+        for (String patientChunk : chunk(patientUuids)) {
+            for (String conceptChunk : chunk(conceptUuids)) {
+                Map<String, String> parameter = new HashMap<String, String>();
+                parameter.put("person", patientChunk);
+                parameter.put("concept", conceptChunk);
+                if (syncDate != null) {
+                    parameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
+                }
+                parameters.add(parameter);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Join the uuids into comma separated values no longer than the maximum parameter length. An empty list gives
+     * one empty value, the same parameter the single request download sent.
+     */
+    private List<String> chunk(final List<String> uuids) {
+        List<String> chunks = new ArrayList<String>();
+        StringBuilder builder = new StringBuilder();
+        for (String uuid : uuids) {
+            if (builder.length() > 0 && builder.length() + uuid.length() + 1 > maxParameterLength) {
+                chunks.add(builder.toString());
+                builder = new StringBuilder();
+            }
+            if (builder.length() > 0) {
+                builder.append(",");
+            }
+            builder.append(uuid);
+        }
+        if (builder.length() > 0 || chunks.isEmpty()) {
+            chunks.add(builder.toString());
+        }
+        return chunks;
+    }
+
+    /**
+     * One download request of the plan.
+     */
+    private interface Request<T> {
+
+        T download(Map<String, String> parameter) throws IOException;
+    }
+}
@@ -10,11 +10,18 @@ package com.muzima.api.service.impl;
 
 import com.google.inject.Inject;
 import com.muzima.api.dao.ConceptDao;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.dao.LatestObservationDao;
+import com.muzima.api.dao.MemberDao;
 import com.muzima.api.dao.ObservationDao;
+import com.muzima.api.dao.TimelineEventDao;
+import com.muzima.api.model.CohortMember;
 import com.muzima.api.model.Concept;
+import com.muzima.api.model.LatestObservation;
 import com.muzima.api.model.Observation;
 import com.muzima.api.model.Patient;
 import com.muzima.api.service.ObservationService;
+import com.muzima.api.service.OperationToken;
 import com.muzima.search.api.util.StringUtil;
 import com.muzima.util.Constants;
 import com.muzima.util.DateUtils;
@@ -22,9 +29,13 @@ import com.muzima.util.DateUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ObservationServiceImpl implements ObservationService {
 
@@ -34,6 +45,18 @@ public class ObservationServiceImpl implements ObservationService {
     @Inject
     private ObservationDao observationDao;
 
+    @Inject
+    private LatestObservationDao latestObservationDao;
+
+    @Inject
+    private MemberDao memberDao;
+
+    @Inject
+    private TimelineEventDao timelineEventDao;
+
+    @Inject
+    private ObservationDownloadPlanner downloadPlanner;
+
     protected ObservationServiceImpl() {
     }
 
@@ -120,57 +143,20 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public List<Observation> downloadObsByObjects(final List<Patient> patients, final List<Concept> concepts,
                                                   final Date syncDate) throws IOException {
-        final StringBuilder personBuilder = new StringBuilder();
+        List<String> patientUuids = new ArrayList<String>();
         for (Patient patient : patients) {
-            if (personBuilder.length() > 0) {
-                personBuilder.append(",");
-            }
-            personBuilder.append(patient.getUuid());
+            patientUuids.add(patient.getUuid());
         }
-        final StringBuilder codedBuilder = new StringBuilder();
-        final StringBuilder nonCodedBuilder = new StringBuilder();
+        List<String> codedConceptUuids = new ArrayList<String>();
+        List<String> nonCodedConceptUuids = new ArrayList<String>();
         for (Concept concept : concepts) {
             if (concept.isCoded()) {
-                if (codedBuilder.length() > 0) {
-                    codedBuilder.append(",");
-                }
-                codedBuilder.append(concept.getUuid());
+                codedConceptUuids.add(concept.getUuid());
             } else {
-                if (nonCodedBuilder.length() > 0) {
-                    nonCodedBuilder.append(",");
-                }
-                nonCodedBuilder.append(concept.getUuid());
+                nonCodedConceptUuids.add(concept.getUuid());
             }
         }
-
-        List<Observation> observations = new ArrayList<Observation>();
-        if (codedBuilder.length() > 0) {
-            Map<String, String> codedParameter = new HashMap<String, String>() {{
-                put("person", personBuilder.toString());
-                put("concept", codedBuilder.toString());
-            }};
-            if (syncDate != null) {
-                codedParameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
-            }
-            List<Observation> codedObservations = observationDao.download(codedParameter,
-                    Constants.SEARCH_OBSERVATION_CODED_RESOURCE);
-            observations.addAll(codedObservations);
-        }
-
-        if (nonCodedBuilder.length() > 0) {
-            Map<String, String> nonCodedParameter = new HashMap<String, String>() {{
-                put("person", personBuilder.toString());
-                put("concept", nonCodedBuilder.toString());
-            }};
-            if (syncDate != null) {
-                nonCodedParameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
-            }
-            List<Observation> nonCodedObservations = observationDao.download(nonCodedParameter,
-                    Constants.SEARCH_OBSERVATION_NON_CODED_RESOURCE);
-            observations.addAll(nonCodedObservations);
-        }
-
-        return observations;
+        return downloadObservations(patientUuids, codedConceptUuids, nonCodedConceptUuids, syncDate);
     }
 
     /**
@@ -191,55 +177,95 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public List<Observation> downloadObservations(final List<String> patientUuids, final List<String> conceptUuids,
                                                   final Date syncDate) throws IOException {
-        final StringBuilder personBuilder = new StringBuilder();
-        for (String patientUuid : patientUuids) {
-            if (personBuilder.length() > 0) {
-                personBuilder.append(",");
+        List<String> codedConceptUuids = new ArrayList<String>();
+        List<String> nonCodedConceptUuids = new ArrayList<String>();
+        splitByCoding(conceptUuids, codedConceptUuids, nonCodedConceptUuids);
+        return downloadObservations(patientUuids, codedConceptUuids, nonCodedConceptUuids, syncDate);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#downloadObservations(java.util.List, java.util.List, java.util.Date, OperationToken)
+     */
+    @Override
+    public List<Observation> downloadObservations(final List<String> patientUuids, final List<String> conceptUuids,
+                                                  final Date syncDate, final OperationToken token) throws IOException {
+        OperationToken previous = OperationToken.attach(token);
+        try {
+            return downloadObservations(patientUuids, conceptUuids, syncDate);
+        } finally {
+            OperationToken.attach(previous);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#downloadAndSaveObservations(java.util.List, java.util.List, java.util.Date)
+     */
+    @Override
+    public int downloadAndSaveObservations(final List<String> patientUuids, final List<String> conceptUuids,
+                                           final Date syncDate) throws IOException {
+        List<String> codedConceptUuids = new ArrayList<String>();
+        List<String> nonCodedConceptUuids = new ArrayList<String>();
+        splitByCoding(conceptUuids, codedConceptUuids, nonCodedConceptUuids);
+        DownloadBatchHandler<Observation> handler = new DownloadBatchHandler<Observation>() {
+            @Override
+            public void handle(final List<Observation> batch) throws IOException {
+                List<Observation> created = new ArrayList<Observation>();
+                List<Observation> updated = new ArrayList<Observation>();
+                for (Observation observation : batch) {
+                    if (observationDao.exists(observation.getUuid())) {
+                        updated.add(observation);
+                    } else {
+                        created.add(observation);
+                    }
+                }
+                if (!created.isEmpty()) {
+                    saveObservations(created);
+                }
+                if (!updated.isEmpty()) {
+                    updateObservations(updated);
+                }
             }
-            personBuilder.append(patientUuid);
+        };
+        int count = 0;
+        if (!codedConceptUuids.isEmpty()) {
+            count += downloadPlanner.download(patientUuids, codedConceptUuids,
+                    Constants.SEARCH_OBSERVATION_CODED_RESOURCE, syncDate, handler);
+        }
+        if (!nonCodedConceptUuids.isEmpty()) {
+            count += downloadPlanner.download(patientUuids, nonCodedConceptUuids,
+                    Constants.SEARCH_OBSERVATION_NON_CODED_RESOURCE, syncDate, handler);
         }
-        final StringBuilder codedBuilder = new StringBuilder();
-        final StringBuilder nonCodedBuilder = new StringBuilder();
+        return count;
+    }
+
+    private void splitByCoding(final List<String> conceptUuids, final List<String> codedConceptUuids,
+                               final List<String> nonCodedConceptUuids) throws IOException {
         for (String conceptUuid : conceptUuids) {
             Concept concept = conceptDao.getByUuid(conceptUuid);
             if (concept.isCoded()) {
-                if (codedBuilder.length() > 0) {
-                    codedBuilder.append(",");
-                }
-                codedBuilder.append(concept.getUuid());
+                codedConceptUuids.add(concept.getUuid());
             } else {
-                if (nonCodedBuilder.length() > 0) {
-                    nonCodedBuilder.append(",");
-                }
-                nonCodedBuilder.append(concept.getUuid());
+                nonCodedConceptUuids.add(concept.getUuid());
             }
         }
+    }
 
+    private List<Observation> downloadObservations(final List<String> patientUuids,
+                                                   final List<String> codedConceptUuids,
+                                                   final List<String> nonCodedConceptUuids,
+                                                   final Date syncDate) throws IOException {
         List<Observation> observations = new ArrayList<Observation>();
-        if (codedBuilder.length() > 0) {
-            Map<String, String> codedParameter = new HashMap<String, String>() {{
-                put("person", personBuilder.toString());
-                put("concept", codedBuilder.toString());
-            }};
-            if (syncDate != null) {
-                codedParameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
-            }
-            List<Observation> codedObservations = observationDao.download(codedParameter,
-                    Constants.SEARCH_OBSERVATION_CODED_RESOURCE);
-            observations.addAll(codedObservations);
-        }
-
-        if (nonCodedBuilder.length() > 0) {
-            Map<String, String> nonCodedParameter = new HashMap<String, String>() {{
-                put("person", personBuilder.toString());
-                put("concept", nonCodedBuilder.toString());
-            }};
-            if (syncDate != null) {
-                nonCodedParameter.put("syncDate", DateUtils.getUtcTimeInIso8601(syncDate));
-            }
-            List<Observation> nonCodedObservations = observationDao.download(nonCodedParameter,
-                    Constants.SEARCH_OBSERVATION_NON_CODED_RESOURCE);
-            observations.addAll(nonCodedObservations);
+        if (!codedConceptUuids.isEmpty()) {
+            observations.addAll(downloadPlanner.download(patientUuids, codedConceptUuids,
+                    Constants.SEARCH_OBSERVATION_CODED_RESOURCE, syncDate));
+        }
+        if (!nonCodedConceptUuids.isEmpty()) {
+            observations.addAll(downloadPlanner.download(patientUuids, nonCodedConceptUuids,
+                    Constants.SEARCH_OBSERVATION_NON_CODED_RESOURCE, syncDate));
         }
         return observations;
     }
@@ -257,6 +283,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void saveObservation(final Observation observation) throws IOException {
         observationDao.save(observation, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.saveEvents(Collections.singletonList(observation));
+        refreshLatestObservations(Collections.singletonList(observation), Collections.<Observation>emptyList());
     }
 
     /**
@@ -267,6 +295,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void saveObservations(final List<Observation> observations) throws IOException {
         observationDao.save(observations, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.saveEvents(observations);
+        refreshLatestObservations(observations, Collections.<Observation>emptyList());
     }
 
     /**
@@ -277,6 +307,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void updateObservation(final Observation observation) throws IOException {
         observationDao.update(observation, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.updateEvents(Collections.singletonList(observation));
+        refreshLatestObservations(Collections.singletonList(observation), Collections.<Observation>emptyList());
     }
 
     /**
@@ -287,6 +319,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void updateObservations(final List<Observation> observations) throws IOException {
         observationDao.update(observations, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.updateEvents(observations);
+        refreshLatestObservations(observations, Collections.<Observation>emptyList());
     }
 
     /**
@@ -349,6 +383,35 @@ public class ObservationServiceImpl implements ObservationService {
         return obs;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getObservationsByEncounters(java.util.List)
+     */
+    @Override
+    public Map<String, List<Observation>> getObservationsByEncounters(final List<String> encounterUuids) throws IOException {
+        Map<String, List<Observation>> observationsByEncounter = new LinkedHashMap<String, List<Observation>>();
+        for (String encounterUuid : encounterUuids) {
+            observationsByEncounter.put(encounterUuid, new ArrayList<Observation>());
+        }
+        groupByEncounter(observationDao.getByEncounters(observationsByEncounter.keySet()), observationsByEncounter);
+        return observationsByEncounter;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getObservationsGroupedByEncounter(String)
+     */
+    @Override
+    public Map<String, List<Observation>> getObservationsGroupedByEncounter(final String patientUuid) throws IOException {
+        Map<String, List<Observation>> observationsByEncounter = new LinkedHashMap<String, List<Observation>>();
+        if (!StringUtil.isEmpty(patientUuid)) {
+            groupByEncounter(observationDao.get(patientUuid, null), observationsByEncounter);
+        }
+        return observationsByEncounter;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -400,6 +463,16 @@ public class ObservationServiceImpl implements ObservationService {
         return observationDao.count(patientUuid, StringUtil.EMPTY);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#countObservationsByPatients(java.util.List)
+     */
+    @Override
+    public Map<String, Integer> countObservationsByPatients(final List<String> patientUuids) throws IOException {
+        return observationDao.countGroupedBy("patientUuid", patientUuids, null);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -408,6 +481,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void deleteObservation(final Observation observation) throws IOException {
         observationDao.delete(observation, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.deleteEvents(Collections.singletonList(observation));
+        refreshLatestObservations(Collections.<Observation>emptyList(), Collections.singletonList(observation));
     }
 
     /**
@@ -418,6 +493,8 @@ public class ObservationServiceImpl implements ObservationService {
     @Override
     public void deleteObservations(final List<Observation> observations) throws IOException {
         observationDao.delete(observations, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.deleteEvents(observations);
+        refreshLatestObservations(Collections.<Observation>emptyList(), observations);
     }
 
     /**
@@ -427,6 +504,237 @@ public class ObservationServiceImpl implements ObservationService {
      */
     @Override
     public void deleteAll() throws IOException {
-        observationDao.delete(observationDao.getAll(), Constants.UUID_OBSERVATION_RESOURCE);
+        List<Observation> observations = observationDao.getAll();
+        observationDao.delete(observations, Constants.UUID_OBSERVATION_RESOURCE);
+        timelineEventDao.deleteEvents(observations);
+        latestObservationDao.delete(latestObservationDao.getAll(), Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getLatestObservation(String, String)
+     */
+    @Override
+    public Observation getLatestObservation(final String patientUuid, final String conceptUuid) throws IOException {
+        LatestObservation latestObservation = latestObservationDao.get(patientUuid, conceptUuid);
+        if (latestObservation == null) {
+            return null;
+        }
+        return latestObservation.getObservation();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getLatestObservationsByPatient(String)
+     */
+    @Override
+    public List<Observation> getLatestObservationsByPatient(final String patientUuid) throws IOException {
+        List<Observation> observations = new ArrayList<Observation>();
+        if (StringUtil.isEmpty(patientUuid)) {
+            return observations;
+        }
+        for (LatestObservation latestObservation : latestObservationDao.getByPatient(patientUuid)) {
+            observations.add(latestObservation.getObservation());
+        }
+        return observations;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getLatestObservations(java.util.List, java.util.List)
+     */
+    @Override
+    public List<Observation> getLatestObservations(final List<String> patientUuids,
+                                                   final List<String> conceptUuids) throws IOException {
+        Set<String> conceptUuidSet = new HashSet<String>(conceptUuids);
+        List<Observation> observations = new ArrayList<Observation>();
+        for (LatestObservation latestObservation : latestObservationDao.getByPatients(new HashSet<String>(patientUuids))) {
+            if (conceptUuidSet.isEmpty() || conceptUuidSet.contains(latestObservation.getConceptUuid())) {
+                observations.add(latestObservation.getObservation());
+            }
+        }
+        return observations;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#getLatestObservationsByCohort(String, java.util.List)
+     */
+    @Override
+    public List<Observation> getLatestObservationsByCohort(final String cohortUuid,
+                                                           final List<String> conceptUuids) throws IOException {
+        List<String> patientUuids = new ArrayList<String>();
+        for (CohortMember cohortMember : memberDao.getByCohortUuid(cohortUuid)) {
+            patientUuids.add(cohortMember.getPatientUuid());
+        }
+        return getLatestObservations(patientUuids, conceptUuids);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ObservationService#rebuildLatestObservations()
+     */
+    @Override
+    public void rebuildLatestObservations() throws IOException {
+        latestObservationDao.delete(latestObservationDao.getAll(), Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+        Map<String, Observation> latestObservations = new HashMap<String, Observation>();
+        for (Observation observation : observationDao.getAll()) {
+            if (isIndexable(observation)) {
+                String key = createLatestObservationUuid(observation);
+                if (isMoreRecent(observation, latestObservations.get(key))) {
+                    latestObservations.put(key, observation);
+                }
+            }
+        }
+        List<LatestObservation> entries = new ArrayList<LatestObservation>();
+        for (Observation observation : latestObservations.values()) {
+            entries.add(new LatestObservation(observation));
+        }
+        latestObservationDao.save(entries, Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+    }
+
+    /**
+     * Apply saved, updated and deleted observations to the latest observation index. Entries for the affected
+     * patients are loaded with one multi value query. Saved observations replace the entry when they are at least as
+     * recent as the indexed one. When the indexed observation is deleted, voided or moved back in time, the entry is
+     * recomputed from the remaining observations of the patient and concept pair.
+     *
+     * @param changedObservations the saved or updated observations.
+     * @param deletedObservations the deleted observations.
+     * @throws IOException when search api unable to process the resource.
+     */
+    private void refreshLatestObservations(final List<Observation> changedObservations,
+                                           final List<Observation> deletedObservations) throws IOException {
+        Set<String> patientUuids = new HashSet<String>();
+        Set<String> removedUuids = new HashSet<String>();
+        Map<String, Observation> candidates = new HashMap<String, Observation>();
+        for (Observation observation : changedObservations) {
+            if (isIndexable(observation)) {
+                String key = createLatestObservationUuid(observation);
+                if (isMoreRecent(observation, candidates.get(key))) {
+                    candidates.put(key, observation);
+                }
+                patientUuids.add(observation.getPerson().getUuid());
+            } else if (observation.getPerson() != null) {
+                removedUuids.add(observation.getUuid());
+                patientUuids.add(observation.getPerson().getUuid());
+            }
+        }
+        for (Observation observation : deletedObservations) {
+            if (observation.getPerson() != null) {
+                removedUuids.add(observation.getUuid());
+                patientUuids.add(observation.getPerson().getUuid());
+            }
+        }
+        if (patientUuids.isEmpty()) {
+            return;
+        }
+
+        Map<String, LatestObservation> entries = new HashMap<String, LatestObservation>();
+        for (LatestObservation latestObservation : latestObservationDao.getByPatients(patientUuids)) {
+            entries.put(latestObservation.getUuid(), latestObservation);
+        }
+
+        List<LatestObservation> createdEntries = new ArrayList<LatestObservation>();
+        List<LatestObservation> updatedEntries = new ArrayList<LatestObservation>();
+        List<LatestObservation> deletedEntries = new ArrayList<LatestObservation>();
+        for (Map.Entry<String, Observation> candidate : candidates.entrySet()) {
+            Observation observation = candidate.getValue();
+            LatestObservation entry = entries.remove(candidate.getKey());
+            if (entry == null) {
+                createdEntries.add(new LatestObservation(observation));
+            } else if (isMoreRecent(observation, entry.getObservation())) {
+                updatedEntries.add(new LatestObservation(observation));
+            } else if (StringUtil.equals(observation.getUuid(), entry.getObservationUuid())) {
+                // the indexed observation moved back in time, another observation might be more recent now.
+                removedUuids.add(observation.getUuid());
+                entries.put(entry.getUuid(), entry);
+            }
+        }
+        for (LatestObservation entry : entries.values()) {
+            if (removedUuids.contains(entry.getObservationUuid())) {
+                Observation observation = findLatestObservation(entry.getPatientUuid(), entry.getConceptUuid());
+                if (observation == null) {
+                    deletedEntries.add(entry);
+                } else {
+                    updatedEntries.add(new LatestObservation(observation));
+                }
+            }
+        }
+        if (!createdEntries.isEmpty()) {
+            latestObservationDao.save(createdEntries, Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+        }
+        if (!updatedEntries.isEmpty()) {
+            latestObservationDao.update(updatedEntries, Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+        }
+        if (!deletedEntries.isEmpty()) {
+            latestObservationDao.delete(deletedEntries, Constants.LOCAL_LATEST_OBSERVATION_RESOURCE);
+        }
+    }
+
+    private Observation findLatestObservation(final String patientUuid, final String conceptUuid) throws IOException {
+        Observation latestObservation = null;
+        for (Observation observation : observationDao.get(patientUuid, conceptUuid)) {
+            if (isIndexable(observation) && isMoreRecent(observation, latestObservation)) {
+                latestObservation = observation;
+            }
+        }
+        return latestObservation;
+    }
+
+    private static String createLatestObservationUuid(final Observation observation) {
+        return LatestObservation.createUuid(observation.getPerson().getUuid(), observation.getConcept().getUuid());
+    }
+
+    private static boolean isIndexable(final Observation observation) {
+        return !observation.isVoided()
+                && observation.getPerson() != null && !StringUtil.isEmpty(observation.getPerson().getUuid())
+                && observation.getConcept() != null && !StringUtil.isEmpty(observation.getConcept().getUuid())
+                && observation.getObservationDatetime() != null;
+    }
+
+    private static boolean isMoreRecent(final Observation observation, final Observation reference) {
+        return reference == null || reference.getObservationDatetime() == null
+                || !observation.getObservationDatetime().before(reference.getObservationDatetime());
+    }
+
+    /**
+     * Group the observations by encounter uuid. Every deserialized observation carries its own copy of its concepts,
+     * so the copies are replaced with one shared concept object per uuid.
+     */
+    private void groupByEncounter(final List<Observation> observations,
+                                  final Map<String, List<Observation>> observationsByEncounter) {
+        Map<String, Concept> concepts = new HashMap<String, Concept>();
+        for (Observation observation : observations) {
+            if (observation.getEncounter() == null || StringUtil.isEmpty(observation.getEncounter().getUuid())) {
+                continue;
+            }
+            observation.setConcept(sharedConcept(observation.getConcept(), concepts));
+            observation.setValueCoded(sharedConcept(observation.getValueCoded(), concepts));
+            String encounterUuid = observation.getEncounter().getUuid();
+            List<Observation> encounterObservations = observationsByEncounter.get(encounterUuid);
+            if (encounterObservations == null) {
+                encounterObservations = new ArrayList<Observation>();
+                observationsByEncounter.put(encounterUuid, encounterObservations);
+            }
+            encounterObservations.add(observation);
+        }
+    }
+
+    private Concept sharedConcept(final Concept concept, final Map<String, Concept> concepts) {
+        if (concept == null || StringUtil.isEmpty(concept.getUuid())) {
+            return concept;
+        }
+        Concept sharedConcept = concepts.get(concept.getUuid());
+        if (sharedConcept == null) {
+            sharedConcept = concept;
+            concepts.put(concept.getUuid(), concept);
+        }
+        return sharedConcept;
     }
 }
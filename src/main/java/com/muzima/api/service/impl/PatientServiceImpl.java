@@ -316,7 +316,7 @@ public class PatientServiceImpl implements PatientService {
     }
 
     private boolean patientExists(Patient patient) throws IOException {
-        return patientDao.getByUuid(patient.getUuid()) != null;
+        return patientDao.exists(patient.getUuid());
     }
 
     private List<Patient> sortDisplayNameAscending(List<Patient> patientList) {
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.google.inject.Inject;
+import com.muzima.api.dao.EncounterDao;
+import com.muzima.api.dao.FormDataDao;
+import com.muzima.api.dao.ObservationDao;
+import com.muzima.api.dao.SearchableDao;
+import com.muzima.api.dao.TimelineEventDao;
+import com.muzima.api.model.TimelineEvent;
+import com.muzima.api.model.TimelinePage;
+import com.muzima.api.service.PatientTimelineService;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PatientTimelineServiceImpl implements PatientTimelineService {
+
+    private static final String CURSOR_SEPARATOR = ":";
+
+    private static final long INITIAL_PERIOD = 30L * 24 * 60 * 60 * 1000;
+
+    private static final int PERIOD_GROWTH = 4;
+
+    /**
+     * Timeline order: newest entry first, ties broken by uuid so the order is stable between pages.
+     */
+    private static final Comparator<TimelineEvent> TIMELINE_ORDER = new Comparator<TimelineEvent>() {
+        @Override
+        public int compare(final TimelineEvent first, final TimelineEvent second) {
+            int result = second.getEventDatetime().compareTo(first.getEventDatetime());
+            if (result == 0) {
+                result = first.getUuid().compareTo(second.getUuid());
+            }
+            return result;
+        }
+    };
+
+    @Inject
+    private TimelineEventDao timelineEventDao;
+
+    @Inject
+    private EncounterDao encounterDao;
+
+    @Inject
+    private ObservationDao observationDao;
+
+    @Inject
+    private FormDataDao formDataDao;
+
+    protected PatientTimelineServiceImpl() {
+    }
+
+    PatientTimelineServiceImpl(final TimelineEventDao timelineEventDao, final EncounterDao encounterDao,
+                               final ObservationDao observationDao, final FormDataDao formDataDao) {
+        this.timelineEventDao = timelineEventDao;
+        this.encounterDao = encounterDao;
+        this.observationDao = observationDao;
+        this.formDataDao = formDataDao;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see PatientTimelineService#getTimeline(String, String, int)
+     */
+    @Override
+    public TimelinePage getTimeline(final String patientUuid, final String cursor, final int pageSize) throws IOException {
+        TimelinePage timelinePage = new TimelinePage();
+        if (StringUtil.isEmpty(patientUuid)) {
+            return timelinePage;
+        }
+        TimelineEvent cursorEvent = decodeCursor(cursor);
+        // read the entries in periods going back from the cursor, each period longer than the one before, until the
+        // page and one more entry are found or no older entry is left, so only the entries near the cursor are read.
+        List<TimelineEvent> events = new ArrayList<TimelineEvent>();
+        Date to = cursorEvent != null ? cursorEvent.getEventDatetime() : null;
+        long end = to != null ? to.getTime() : System.currentTimeMillis();
+        long period = INITIAL_PERIOD;
+        boolean olderEvents = true;
+        while (olderEvents && events.size() <= pageSize) {
+            Date from = new Date(end - period);
+            for (TimelineEvent timelineEvent : timelineEventDao.getByPatient(patientUuid, from, to)) {
+                if (timelineEvent.getType() != null && timelineEvent.getEventDatetime() != null
+                        && (cursorEvent == null || TIMELINE_ORDER.compare(timelineEvent, cursorEvent) > 0)) {
+                    events.add(timelineEvent);
+                }
+            }
+            end = from.getTime();
+            to = new Date(end - 1);
+            period *= PERIOD_GROWTH;
+            olderEvents = end > 0 && timelineEventDao.countByPatient(patientUuid, null, to) > 0;
+        }
+
+        Collections.sort(events, TIMELINE_ORDER);
+        List<TimelineEvent> pageEvents = timelinePage.getEvents();
+        pageEvents.addAll(events.subList(0, Math.min(pageSize, events.size())));
+        if (events.size() > pageSize && !pageEvents.isEmpty()) {
+            timelinePage.setNextCursor(encodeCursor(pageEvents.get(pageEvents.size() - 1)));
+        }
+        loadSources(pageEvents);
+        return timelinePage;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see PatientTimelineService#rebuildTimeline()
+     */
+    @Override
+    public void rebuildTimeline() throws IOException {
+        timelineEventDao.delete(timelineEventDao.getAll(), Constants.LOCAL_TIMELINE_EVENT_RESOURCE);
+        timelineEventDao.saveEvents(encounterDao.getAll());
+        timelineEventDao.saveEvents(observationDao.getAll());
+        timelineEventDao.saveEvents(formDataDao.getAll());
+    }
+
+    private void loadSources(final List<TimelineEvent> timelineEvents) throws IOException {
+        Map<TimelineEvent.Type, List<String>> uuidsByType =
+                new EnumMap<TimelineEvent.Type, List<String>>(TimelineEvent.Type.class);
+        for (TimelineEvent timelineEvent : timelineEvents) {
+            List<String> uuids = uuidsByType.get(timelineEvent.getType());
+            if (uuids == null) {
+                uuids = new ArrayList<String>();
+                uuidsByType.put(timelineEvent.getType(), uuids);
+            }
+            uuids.add(timelineEvent.getUuid());
+        }
+        Map<String, Searchable> sources = new HashMap<String, Searchable>();
+        for (Map.Entry<TimelineEvent.Type, List<String>> entry : uuidsByType.entrySet()) {
+            for (Searchable searchable : getDao(entry.getKey()).getByUuids(entry.getValue())) {
+                TimelineEvent timelineEvent = TimelineEvent.create(searchable);
+                if (timelineEvent != null) {
+                    sources.put(timelineEvent.getUuid(), searchable);
+                }
+            }
+        }
+        for (TimelineEvent timelineEvent : timelineEvents) {
+            timelineEvent.setSource(sources.get(timelineEvent.getUuid()));
+        }
+    }
+
+    private SearchableDao<? extends Searchable> getDao(final TimelineEvent.Type type) {
+        switch (type) {
+            case ENCOUNTER:
+                return encounterDao;
+            case OBSERVATION:
+                return observationDao;
+            default:
+                return formDataDao;
+        }
+    }
+
+    private String encodeCursor(final TimelineEvent timelineEvent) {
+        return timelineEvent.getEventDatetime().getTime() + CURSOR_SEPARATOR + timelineEvent.getUuid();
+    }
+
+    private TimelineEvent decodeCursor(final String cursor) throws IOException {
+        if (StringUtil.isEmpty(cursor)) {
+            return null;
+        }
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new IOException("Invalid timeline cursor: " + cursor);
+        }
+        try {
+            Date eventDatetime = new Date(Long.parseLong(cursor.substring(0, separator)));
+            return new TimelineEvent(cursor.substring(separator + 1), null, null, eventDatetime);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid timeline cursor: " + cursor);
+        }
+    }
+}
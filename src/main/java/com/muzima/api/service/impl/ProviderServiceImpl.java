@@ -125,6 +125,6 @@ public class ProviderServiceImpl implements ProviderService {
         return all;
     }
     private boolean locationExists(Provider provider) throws IOException {
-        return providerDao.getByUuid(provider.getUuid()) != null;
+        return providerDao.exists(provider.getUuid());
     }
 }
@@ -86,8 +86,9 @@ public class SetupConfigurationServiceImpl implements SetupConfigurationService
         Map<String, String> parameter = new HashMap<String, String>() {{
             put("uuid", uuid);
         }};
+        SetupConfigurationTemplate cached = setupConfigurationTemplateDao.getByUuid(uuid);
         List<SetupConfigurationTemplate> templates = setupConfigurationTemplateDao
-                .download(parameter,Constants.UUID_SETUP_CONFIGURATION_TEMPLATE_RESOURCE);
+                .download(cached, parameter,Constants.UUID_SETUP_CONFIGURATION_TEMPLATE_RESOURCE);
         if (!CollectionUtil.isEmpty(templates)){
             if(templates.size() > 1){
                 throw new IOException("Unable to uniquely identify a setup config template record.");
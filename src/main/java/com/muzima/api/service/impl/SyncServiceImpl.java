@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.muzima.api.context.CallContext;
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.context.TaskGroup;
+import com.muzima.api.dao.CohortDao;
+import com.muzima.api.dao.ConceptDao;
+import com.muzima.api.dao.EncounterDao;
+import com.muzima.api.dao.FormDao;
+import com.muzima.api.dao.LastSyncTimeDao;
+import com.muzima.api.dao.MemberDao;
+import com.muzima.api.dao.PatientDao;
+import com.muzima.api.dao.SetupConfigurationDao;
+import com.muzima.api.dao.impl.SyncedUuidStore;
+import com.muzima.api.model.APIName;
+import com.muzima.api.model.Cohort;
+import com.muzima.api.model.Concept;
+import com.muzima.api.model.Encounter;
+import com.muzima.api.model.Form;
+import com.muzima.api.model.LastSyncTime;
+import com.muzima.api.model.Patient;
+import com.muzima.api.model.SetupConfiguration;
+import com.muzima.api.model.SyncStageResult;
+import com.muzima.api.service.CohortService;
+import com.muzima.api.service.EncounterService;
+import com.muzima.api.service.FormService;
+import com.muzima.api.service.ObservationService;
+import com.muzima.api.service.SetupConfigurationService;
+import com.muzima.api.service.SyncProgressListener;
+import com.muzima.api.service.SyncService;
+import com.muzima.api.service.SyncStage;
+import com.muzima.search.api.util.StringUtil;
+import com.muzima.util.Constants;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+public class SyncServiceImpl implements SyncService {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 3;
+
+    private static final String PATIENT_UUIDS = "patient";
+
+    private static final String CONCEPT_UUIDS = "concept";
+
+    private static final SyncProgressListener SILENT_LISTENER = new SyncProgressListener() {
+        @Override
+        public void stageStarted(final APIName apiName) {
+        }
+
+        @Override
+        public void stageFinished(final SyncStageResult result) {
+        }
+    };
+
+    @Inject
+    private LastSyncTimeDao lastSyncTimeDao;
+
+    @Inject
+    private FormService formService;
+
+    @Inject
+    private FormDao formDao;
+
+    @Inject
+    private SetupConfigurationService setupConfigurationService;
+
+    @Inject
+    private SetupConfigurationDao setupConfigurationDao;
+
+    @Inject
+    private CohortService cohortService;
+
+    @Inject
+    private CohortDao cohortDao;
+
+    @Inject
+    private MemberDao memberDao;
+
+    @Inject
+    private PatientDao patientDao;
+
+    @Inject
+    private EncounterService encounterService;
+
+    @Inject
+    private EncounterDao encounterDao;
+
+    @Inject
+    private ObservationService observationService;
+
+    @Inject
+    private ConceptDao conceptDao;
+
+    @Inject
+    private SyncedUuidStore syncedUuidStore;
+
+    @Inject
+    private ServiceExecutor serviceExecutor;
+
+    @Inject(optional = true)
+    @Named("sync.max.concurrency")
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    protected SyncServiceImpl() {
+    }
+
+    SyncServiceImpl(final LastSyncTimeDao lastSyncTimeDao, final ServiceExecutor serviceExecutor,
+                    final int maxConcurrency) {
+        this.lastSyncTimeDao = lastSyncTimeDao;
+        this.serviceExecutor = serviceExecutor;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SyncService#getDefaultStages()
+     */
+    @Override
+    public List<SyncStage> getDefaultStages() {
+        return Arrays.<SyncStage>asList(new FormStage(), new SetupConfigurationStage(), new CohortStage(),
+                new CohortDataStage(), new EncounterStage(), new ObservationStage());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SyncService#sync(SyncProgressListener)
+     */
+    @Override
+    public List<SyncStageResult> sync(final SyncProgressListener listener) throws IOException {
+        return sync(getDefaultStages(), listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see SyncService#sync(java.util.List, SyncProgressListener)
+     */
+    @Override
+    public List<SyncStageResult> sync(final List<SyncStage> stages,
+                                      final SyncProgressListener listener) throws IOException {
+        SyncProgressListener progressListener = listener != null ? listener : SILENT_LISTENER;
+        Map<APIName, SyncStage> stagesByName = new LinkedHashMap<APIName, SyncStage>();
+        for (SyncStage stage : stages) {
+            if (stagesByName.put(stage.getApiName(), stage) != null) {
+                throw new IOException("Unable to run two sync stages for: " + stage.getApiName());
+            }
+        }
+        Map<APIName, Set<APIName>> waiting = new HashMap<APIName, Set<APIName>>();
+        Map<APIName, List<APIName>> dependents = new HashMap<APIName, List<APIName>>();
+        for (SyncStage stage : stages) {
+            Set<APIName> dependencies = EnumSet.noneOf(APIName.class);
+            for (APIName dependency : stage.getDependencies()) {
+                if (stagesByName.containsKey(dependency)) {
+                    dependencies.add(dependency);
+                    if (!dependents.containsKey(dependency)) {
+                        dependents.put(dependency, new ArrayList<APIName>());
+                    }
+                    dependents.get(dependency).add(stage.getApiName());
+                }
+            }
+            waiting.put(stage.getApiName(), dependencies);
+        }
+        checkAcyclic(waiting, dependents);
+
+        Map<APIName, SyncStageResult> results = new LinkedHashMap<APIName, SyncStageResult>();
+        TaskGroup<SyncStageResult> taskGroup = new TaskGroup<SyncStageResult>(serviceExecutor, maxConcurrency);
+        try {
+            for (SyncStage stage : stages) {
+                if (waiting.get(stage.getApiName()).isEmpty()) {
+                    taskGroup.submit(createTask(stage, progressListener));
+                }
+            }
+            while (taskGroup.getPending() > 0) {
+                SyncStageResult result = taskGroup.take().get();
+                results.put(result.getApiName(), result);
+                if (!dependents.containsKey(result.getApiName())) {
+                    continue;
+                }
+                for (APIName dependent : dependents.get(result.getApiName())) {
+                    if (results.containsKey(dependent)) {
+                        continue;
+                    }
+                    if (result.getStatus() != SyncStageResult.Status.COMPLETED) {
+                        skip(dependent, dependents, results, progressListener);
+                        continue;
+                    }
+                    Set<APIName> dependencies = waiting.get(dependent);
+                    dependencies.remove(result.getApiName());
+                    if (dependencies.isEmpty()) {
+                        taskGroup.submit(createTask(stagesByName.get(dependent), progressListener));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the sync stages.");
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to run the sync stages. " + e.getCause());
+        } finally {
+            taskGroup.cancel();
+        }
+        return new ArrayList<SyncStageResult>(results.values());
+    }
+
+    /**
+     * Create the task running the stage in the session and operation of the thread running the sync.
+     */
+    private Callable<SyncStageResult> createTask(final SyncStage stage, final SyncProgressListener listener) {
+        final CallContext callContext = CallContext.capture();
+        return new Callable<SyncStageResult>() {
+            @Override
+            public SyncStageResult call() {
+                CallContext previous = callContext.attach();
+                try {
+                    return runStage(stage, listener);
+                } finally {
+                    previous.attach();
+                }
+            }
+        };
+    }
+
+    /**
+     * Run the stage with the last sync time of its api name, and record the start time of the stage in that one last
+     * sync time when the stage completed.
+     */
+    private SyncStageResult runStage(final SyncStage stage, final SyncProgressListener listener) {
+        APIName apiName = stage.getApiName();
+        listener.stageStarted(apiName);
+        Date startTime = new Date();
+        SyncStageResult result;
+        try {
+            LastSyncTime lastSyncTime = lastSyncTimeDao.getLastSyncTime(apiName.toString());
+            int count = stage.sync(lastSyncTime);
+            if (lastSyncTime != null) {
+                lastSyncTime.setLastSyncDate(startTime);
+                lastSyncTimeDao.update(lastSyncTime, Constants.UUID_LAST_SYNC_TIME);
+            } else {
+                lastSyncTimeDao.save(new LastSyncTime(apiName, startTime), Constants.UUID_LAST_SYNC_TIME);
+            }
+            result = new SyncStageResult(apiName, SyncStageResult.Status.COMPLETED, startTime,
+                    System.currentTimeMillis() - startTime.getTime(), count, null);
+        } catch (Exception e) {
+            result = new SyncStageResult(apiName, SyncStageResult.Status.FAILED, startTime,
+                    System.currentTimeMillis() - startTime.getTime(), 0, e);
+        }
+        listener.stageFinished(result);
+        return result;
+    }
+
+    /**
+     * Skip the stage and every stage depending on it.
+     */
+    private void skip(final APIName apiName, final Map<APIName, List<APIName>> dependents,
+                      final Map<APIName, SyncStageResult> results, final SyncProgressListener listener) {
+        if (results.containsKey(apiName)) {
+            return;
+        }
+        SyncStageResult result = new SyncStageResult(apiName, SyncStageResult.Status.SKIPPED, null, 0, 0, null);
+        results.put(apiName, result);
+        listener.stageFinished(result);
+        if (dependents.containsKey(apiName)) {
+            for (APIName dependent : dependents.get(apiName)) {
+                skip(dependent, dependents, results, listener);
+            }
+        }
+    }
+
+    private void checkAcyclic(final Map<APIName, Set<APIName>> waiting,
+                              final Map<APIName, List<APIName>> dependents) throws IOException {
+        Map<APIName, Integer> remaining = new HashMap<APIName, Integer>();
+        List<APIName> ready = new ArrayList<APIName>();
+        for (Map.Entry<APIName, Set<APIName>> entry : waiting.entrySet()) {
+            remaining.put(entry.getKey(), entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                ready.add(entry.getKey());
+            }
+        }
+        int ordered = 0;
+        while (!ready.isEmpty()) {
+            APIName apiName = ready.remove(ready.size() - 1);
+            ordered++;
+            if (dependents.containsKey(apiName)) {
+                for (APIName dependent : dependents.get(apiName)) {
+                    int count = remaining.get(dependent) - 1;
+                    remaining.put(dependent, count);
+                    if (count == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        }
+        if (ordered < waiting.size()) {
+            throw new IOException("Unable to run sync stages with cyclic dependencies.");
+        }
+    }
+
+    private List<String> getPatientUuids() throws IOException {
+        List<String> patientUuids = new ArrayList<String>();
+        for (Patient patient : patientDao.getAll()) {
+            patientUuids.add(patient.getUuid());
+        }
+        Collections.sort(patientUuids);
+        return patientUuids;
+    }
+
+    private static Date getSyncDate(final LastSyncTime lastSyncTime) {
+        return lastSyncTime != null ? lastSyncTime.getLastSyncDate() : null;
+    }
+
+    /**
+     * Get the uuids synced by the last sync of the api name, empty when the api name was never synced.
+     */
+    private Set<String> getSyncedUuids(final LastSyncTime lastSyncTime, final APIName apiName,
+                                       final String type) throws IOException {
+        if (lastSyncTime == null) {
+            return new HashSet<String>();
+        }
+        return syncedUuidStore.get(apiName, type);
+    }
+
+    /**
+     * Split the uuids into the uuids which were synced already and the uuids which were not.
+     */
+    private static void splitBySynced(final List<String> uuids, final Set<String> syncedUuids,
+                                      final List<String> synced, final List<String> notSynced) {
+        for (String uuid : uuids) {
+            if (syncedUuids.contains(uuid)) {
+                synced.add(uuid);
+            } else {
+                notSynced.add(uuid);
+            }
+        }
+    }
+
+    private abstract static class DefaultStage implements SyncStage {
+
+        private final APIName apiName;
+
+        private final Set<APIName> dependencies;
+
+        protected DefaultStage(final APIName apiName, final APIName... dependencies) {
+            this.apiName = apiName;
+            this.dependencies = Collections.unmodifiableSet(
+                    dependencies.length == 0 ? EnumSet.noneOf(APIName.class) : EnumSet.copyOf(Arrays.asList(dependencies)));
+        }
+
+        @Override
+        public APIName getApiName() {
+            return apiName;
+        }
+
+        @Override
+        public Set<APIName> getDependencies() {
+            return dependencies;
+        }
+    }
+
+    private class FormStage extends DefaultStage {
+
+        FormStage() {
+            super(APIName.DOWNLOAD_FORMS);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            List<Form> forms = formService.downloadFormsByName(StringUtil.EMPTY, getSyncDate(lastSyncTime));
+            List<Form> newForms = new ArrayList<Form>();
+            List<Form> existingForms = new ArrayList<Form>();
+            for (Form form : forms) {
+                if (formDao.exists(form.getUuid())) {
+                    existingForms.add(form);
+                } else {
+                    newForms.add(form);
+                }
+            }
+            formService.saveForms(newForms);
+            formService.updateForms(existingForms);
+            return forms.size();
+        }
+    }
+
+    private class SetupConfigurationStage extends DefaultStage {
+
+        SetupConfigurationStage() {
+            super(APIName.DOWNLOAD_SETUP_CONFIGURATIONS);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            List<SetupConfiguration> setupConfigurations = setupConfigurationService
+                    .downloadSetupConfigurationsByName(StringUtil.EMPTY, getSyncDate(lastSyncTime));
+            List<SetupConfiguration> newSetupConfigurations = new ArrayList<SetupConfiguration>();
+            List<SetupConfiguration> existingSetupConfigurations = new ArrayList<SetupConfiguration>();
+            for (SetupConfiguration setupConfiguration : setupConfigurations) {
+                if (setupConfigurationDao.exists(setupConfiguration.getUuid())) {
+                    existingSetupConfigurations.add(setupConfiguration);
+                } else {
+                    newSetupConfigurations.add(setupConfiguration);
+                }
+            }
+            setupConfigurationService.saveSetupConfigurations(newSetupConfigurations);
+            setupConfigurationDao.update(existingSetupConfigurations, Constants.UUID_SETUP_CONFIGURATION_RESOURCE);
+            return setupConfigurations.size();
+        }
+    }
+
+    private class CohortStage extends DefaultStage {
+
+        CohortStage() {
+            super(APIName.DOWNLOAD_COHORTS);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            List<Cohort> cohorts =
+                    cohortService.downloadCohortsByNameAndSyncDate(StringUtil.EMPTY, getSyncDate(lastSyncTime));
+            List<Cohort> newCohorts = new ArrayList<Cohort>();
+            List<Cohort> existingCohorts = new ArrayList<Cohort>();
+            for (Cohort cohort : cohorts) {
+                if (cohortDao.exists(cohort.getUuid())) {
+                    existingCohorts.add(cohort);
+                } else {
+                    newCohorts.add(cohort);
+                }
+            }
+            cohortService.saveCohorts(newCohorts);
+            cohortService.updateCohorts(existingCohorts);
+            return cohorts.size();
+        }
+    }
+
+    /**
+     * Syncs the members of the cohorts with local members. Every cohort keeps its own last sync time, so the last sync
+     * time of the stage is not used.
+     */
+    private class CohortDataStage extends DefaultStage {
+
+        CohortDataStage() {
+            super(APIName.DOWNLOAD_COHORTS_DATA, APIName.DOWNLOAD_COHORTS);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            int count = 0;
+            for (Cohort cohort : cohortDao.getAll()) {
+                if (memberDao.countMembers(cohort.getUuid()) > 0) {
+                    count += cohortService.syncCohortMembers(cohort);
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Syncs the encounters of the local patients. The synced patients are recorded in the synced uuid store, so the
+     * patients added since the last sync, e.g. by the cohort data stage of the same run, get all their encounters while
+     * the other patients only get the encounters changed since the last sync.
+     */
+    private class EncounterStage extends DefaultStage {
+
+        EncounterStage() {
+            super(APIName.DOWNLOAD_ENCOUNTERS, APIName.DOWNLOAD_COHORTS_DATA);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            List<String> patientUuids = getPatientUuids();
+            List<String> syncedPatientUuids = new ArrayList<String>();
+            List<String> newPatientUuids = new ArrayList<String>();
+            splitBySynced(patientUuids, getSyncedUuids(lastSyncTime, getApiName(), PATIENT_UUIDS),
+                    syncedPatientUuids, newPatientUuids);
+            int count = syncEncounters(syncedPatientUuids, getSyncDate(lastSyncTime))
+                    + syncEncounters(newPatientUuids, null);
+            syncedUuidStore.put(getApiName(), PATIENT_UUIDS, patientUuids);
+            return count;
+        }
+
+        private int syncEncounters(final List<String> patientUuids, final Date syncDate) throws IOException {
+            if (patientUuids.isEmpty()) {
+                return 0;
+            }
+            List<Encounter> encounters =
+                    encounterService.downloadEncountersByPatientUuidsAndSyncDate(patientUuids, syncDate);
+            List<Encounter> newEncounters = new ArrayList<Encounter>();
+            List<Encounter> existingEncounters = new ArrayList<Encounter>();
+            for (Encounter encounter : encounters) {
+                if (encounterDao.exists(encounter.getUuid())) {
+                    existingEncounters.add(encounter);
+                } else {
+                    newEncounters.add(encounter);
+                }
+            }
+            encounterService.saveEncounters(newEncounters);
+            encounterService.updateEncounters(existingEncounters);
+            return encounters.size();
+        }
+    }
+
+    /**
+     * Syncs the observations of the local patients for the local concepts. The synced patients and concepts are
+     * recorded in the synced uuid store. Observations of new patients or new concepts are downloaded in full, the other
+     * observations only when they changed since the last sync.
+     */
+    private class ObservationStage extends DefaultStage {
+
+        ObservationStage() {
+            super(APIName.DOWNLOAD_OBSERVATIONS, APIName.DOWNLOAD_COHORTS_DATA);
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            List<String> patientUuids = getPatientUuids();
+            List<String> conceptUuids = new ArrayList<String>();
+            for (Concept concept : conceptDao.getAll()) {
+                conceptUuids.add(concept.getUuid());
+            }
+            if (patientUuids.isEmpty() || conceptUuids.isEmpty()) {
+                return 0;
+            }
+            List<String> syncedPatientUuids = new ArrayList<String>();
+            List<String> newPatientUuids = new ArrayList<String>();
+            splitBySynced(patientUuids, getSyncedUuids(lastSyncTime, getApiName(), PATIENT_UUIDS),
+                    syncedPatientUuids, newPatientUuids);
+            List<String> syncedConceptUuids = new ArrayList<String>();
+            List<String> newConceptUuids = new ArrayList<String>();
+            splitBySynced(conceptUuids, getSyncedUuids(lastSyncTime, getApiName(), CONCEPT_UUIDS),
+                    syncedConceptUuids, newConceptUuids);
+
+            int count = 0;
+            if (!syncedPatientUuids.isEmpty()) {
+                if (!syncedConceptUuids.isEmpty()) {
+                    count += observationService.downloadAndSaveObservations(
+                            syncedPatientUuids, syncedConceptUuids, getSyncDate(lastSyncTime));
+                }
+                if (!newConceptUuids.isEmpty()) {
+                    count += observationService.downloadAndSaveObservations(
+                            syncedPatientUuids, newConceptUuids, null);
+                }
+            }
+            if (!newPatientUuids.isEmpty()) {
+                count += observationService.downloadAndSaveObservations(newPatientUuids, conceptUuids, null);
+            }
+            syncedUuidStore.put(getApiName(), PATIENT_UUIDS, patientUuids);
+            syncedUuidStore.put(getApiName(), CONCEPT_UUIDS, conceptUuids);
+            return count;
+        }
+    }
+}
@@ -9,6 +9,7 @@
 package com.muzima.api.service.impl;
 
 import com.google.inject.Inject;
+import com.muzima.api.context.PrivilegeDictionary;
 import com.muzima.api.dao.CredentialDao;
 import com.muzima.api.dao.PrivilegeDao;
 import com.muzima.api.dao.RoleDao;
@@ -41,6 +42,9 @@ public class UserServiceImpl implements UserService {
     @Inject
     private RoleDao roleDao;
 
+    @Inject
+    private PrivilegeDictionary privilegeDictionary;
+
     protected UserServiceImpl() {
     }
 
@@ -107,6 +111,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void saveUser(final User user) throws IOException {
         userDao.save(user, Constants.UUID_USER_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 
     /**
@@ -117,6 +122,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void updateUser(final User user) throws IOException {
         userDao.update(user, Constants.UUID_USER_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 
     /**
@@ -167,6 +173,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteUser(final User user) throws IOException {
         userDao.delete(user, Constants.UUID_USER_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 
     /**
@@ -355,6 +362,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void saveRole(final Role role) throws IOException {
         roleDao.save(role, Constants.UUID_ROLE_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 
     /**
@@ -365,6 +373,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public void updateRole(final Role role) throws IOException {
         roleDao.update(role, Constants.UUID_ROLE_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 
     /**
@@ -395,5 +404,6 @@ public class UserServiceImpl implements UserService {
     @Override
     public void deleteRole(final Role role) throws IOException {
         roleDao.delete(role, Constants.UUID_ROLE_RESOURCE);
+        privilegeDictionary.invalidate();
     }
 }
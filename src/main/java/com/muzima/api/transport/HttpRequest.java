@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request to be sent by the transport.
+ */
+public class HttpRequest {
+
+    private final String method;
+
+    private final String url;
+
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+    private RequestBody body;
+
+    private String contentType;
+
+    private boolean compressBody;
+
+    private boolean acceptCompressed;
+
+    private int connectTimeout;
+
+    private int readTimeout;
+
+    public HttpRequest(final String method, final String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the headers of the request, without the compression headers added by the transport.
+     *
+     * @return the headers of the request.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void setHeader(final String name, final String value) {
+        headers.put(name, value);
+    }
+
+    public void setHeaders(final Map<String, String> headers) {
+        this.headers.putAll(headers);
+    }
+
+    public RequestBody getBody() {
+        return body;
+    }
+
+    public void setBody(final String contentType, final RequestBody body) {
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean isCompressBody() {
+        return compressBody;
+    }
+
+    /**
+     * Set whether the body is sent gzip compressed.
+     *
+     * @param compressBody true to compress the body.
+     */
+    public void setCompressBody(final boolean compressBody) {
+        this.compressBody = compressBody;
+    }
+
+    public boolean isAcceptCompressed() {
+        return acceptCompressed;
+    }
+
+    /**
+     * Set whether the server may send the response body gzip compressed. The transport decompresses the body.
+     *
+     * @param acceptCompressed true to accept a compressed response body.
+     */
+    public void setAcceptCompressed(final boolean acceptCompressed) {
+        this.acceptCompressed = acceptCompressed;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(final int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Response of a request sent by the transport. The body is streamed from the server while it is read.
+ */
+public interface HttpResponse extends Closeable {
+
+    /**
+     * Get the status code of the response.
+     *
+     * @return the status code.
+     */
+    int getStatusCode();
+
+    /**
+     * Get the value of a response header.
+     *
+     * @param name the name of the header.
+     * @return the value of the header or null when the response has no such header.
+     */
+    String getHeader(final String name);
+
+    /**
+     * Get the body of the response, decompressed when the server sent it compressed. The body of an error response
+     * is returned too.
+     *
+     * @return the body or an empty stream when the response has no body.
+     * @throws IOException when the body can't be opened.
+     */
+    InputStream getBody() throws IOException;
+
+    /**
+     * Get the number of bytes of the request body sent on the wire.
+     *
+     * @return the number of bytes sent.
+     */
+    long getBytesSent();
+
+    /**
+     * Get the number of bytes of the response body received on the wire so far.
+     *
+     * @return the number of bytes received.
+     */
+    long getBytesReceived();
+
+    /**
+     * Abort the response from another thread, failing the read of the body in progress with an exception. The
+     * connection is not reused.
+     */
+    void abort();
+
+    /**
+     * Close the response, releasing the connection. A response whose body was read to the end leaves the connection
+     * to be reused.
+     *
+     * @throws IOException when the response can't be closed.
+     */
+    @Override
+    void close() throws IOException;
+}
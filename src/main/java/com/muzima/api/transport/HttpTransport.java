@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import com.google.inject.ImplementedBy;
+
+import java.io.IOException;
+
+/**
+ * Transport sending the HTTP requests of the API to the server. The transport authenticates the request with the
+ * resolver of the request, compresses the request body and decompresses the response body when asked to, and counts
+ * the bytes sent and received on the wire. The transport is bound in the module, so an implementation with connection
+ * pooling, HTTP/2 or asynchronous I/O can replace the default one where the runtime supports it.
+ */
+@ImplementedBy(HttpUrlConnectionTransport.class)
+public interface HttpTransport {
+
+    /**
+     * Send the request and wait for the response headers. The response body is streamed from the response, which
+     * must be closed when it was read.
+     *
+     * @param request the request.
+     * @return the response.
+     * @throws IOException when the request can't be sent or no response was received.
+     */
+    HttpResponse execute(final HttpRequest request) throws IOException;
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.muzima.api.model.resolver.SecureConnectionCache;
+import com.muzima.util.CountingInputStream;
+import com.muzima.util.CountingOutputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Default transport, sending the requests with <code>{@link HttpURLConnection}</code>. Connections to the same server
+ * are kept alive and reused by the runtime when the response body was read to the end.
+ */
+@Singleton
+public class HttpUrlConnectionTransport implements HttpTransport {
+
+    @Inject(optional = true)
+    @Named("connection.proxy")
+    private Proxy proxy;
+
+    @Inject
+    private SecureConnectionCache secureConnectionCache;
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see HttpTransport#execute(HttpRequest)
+     */
+    @Override
+    public HttpResponse execute(final HttpRequest request) throws IOException {
+        URL url = new URL(request.getUrl());
+        HttpURLConnection connection;
+        if (proxy != null) {
+            connection = (HttpURLConnection) url.openConnection(proxy);
+        } else {
+            connection = (HttpURLConnection) url.openConnection();
+        }
+        connection.setRequestMethod(request.getMethod());
+        connection.setConnectTimeout(request.getConnectTimeout());
+        connection.setReadTimeout(request.getReadTimeout());
+        if (connection instanceof HttpsURLConnection) {
+            SSLSocketFactory socketFactory = secureConnectionCache.getSocketFactory();
+            if (socketFactory != null) {
+                HttpsURLConnection httpsURLConnection = (HttpsURLConnection) connection;
+                httpsURLConnection.setSSLSocketFactory(socketFactory);
+                httpsURLConnection.setHostnameVerifier(secureConnectionCache.getHostnameVerifier());
+            }
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        if (request.isAcceptCompressed()) {
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+
+        long bytesSent = 0;
+        if (request.getBody() != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", request.getContentType());
+            if (request.isCompressBody()) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            CountingOutputStream countingStream = new CountingOutputStream(connection.getOutputStream());
+            OutputStream outputStream = countingStream;
+            if (request.isCompressBody()) {
+                outputStream = new GZIPOutputStream(countingStream);
+            }
+            try {
+                request.getBody().writeTo(outputStream);
+            } finally {
+                outputStream.close();
+            }
+            bytesSent = countingStream.getCount();
+        }
+        connection.getResponseCode();
+        return new UrlConnectionResponse(connection, bytesSent);
+    }
+
+    private static class UrlConnectionResponse implements HttpResponse {
+
+        private final HttpURLConnection connection;
+
+        private final long bytesSent;
+
+        private CountingInputStream countingStream;
+
+        private InputStream body;
+
+        UrlConnectionResponse(final HttpURLConnection connection, final long bytesSent) {
+            this.connection = connection;
+            this.bytesSent = bytesSent;
+        }
+
+        @Override
+        public int getStatusCode() {
+            try {
+                return connection.getResponseCode();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public String getHeader(final String name) {
+            return connection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream inputStream = connection.getErrorStream();
+                if (inputStream == null) {
+                    try {
+                        inputStream = connection.getInputStream();
+                    } catch (IOException e) {
+                        // an error response without a body has no error stream, other failures are rethrown.
+                        if (connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+                            throw e;
+                        }
+                        inputStream = new ByteArrayInputStream(new byte[0]);
+                    }
+                }
+                countingStream = new CountingInputStream(inputStream);
+                body = countingStream;
+                if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                    try {
+                        body = new GZIPInputStream(countingStream);
+                    } catch (IOException e) {
+                        countingStream.close();
+                        throw e;
+                    }
+                }
+            }
+            return body;
+        }
+
+        @Override
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return countingStream == null ? 0 : countingStream.getCount();
+        }
+
+        @Override
+        public void abort() {
+            connection.disconnect();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (body != null) {
+                body.close();
+            } else {
+                connection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Body of a request, written to the transport while the request is sent.
+ */
+public interface RequestBody {
+
+    /**
+     * Write the body.
+     *
+     * @param outputStream the stream of the request body, compressed by the transport when the request asks for it.
+     * @throws IOException when the body can't be written.
+     */
+    void writeTo(final OutputStream outputStream) throws IOException;
+}
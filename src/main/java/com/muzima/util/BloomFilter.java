@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.util;
+
+import java.util.BitSet;
+
+/**
+ * Probabilistic set of strings. A negative answer from {@link #mightContain(String)} is definite, a positive answer
+ * is wrong with roughly the false positive rate the filter was sized for, as long as no more than the expected
+ * number of values were added.
+ */
+public class BloomFilter {
+
+    private final BitSet bits;
+
+    private final int size;
+
+    private final int hashCount;
+
+    private final int capacity;
+
+    private int count;
+
+    /**
+     * Create a filter sized for the expected number of values and false positive rate.
+     *
+     * @param capacity          the expected number of values.
+     * @param falsePositiveRate the false positive rate when the filter holds the expected number of values.
+     */
+    public BloomFilter(final int capacity, final double falsePositiveRate) {
+        this.capacity = Math.max(capacity, 1);
+        double ln2 = Math.log(2);
+        this.size = Math.max((int) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (ln2 * ln2)), 64);
+        this.hashCount = Math.max((int) Math.round((double) size / this.capacity * ln2), 1);
+        this.bits = new BitSet(size);
+    }
+
+    /**
+     * Add the value to the filter.
+     *
+     * @param value the value.
+     */
+    public void put(final String value) {
+        int first = value.hashCode();
+        int second = secondHash(value);
+        for (int i = 0; i < hashCount; i++) {
+            bits.set(index(first, second, i));
+        }
+        count++;
+    }
+
+    /**
+     * Check whether the value might have been added to the filter.
+     *
+     * @param value the value.
+     * @return false when the value was never added, true when the value was probably added.
+     */
+    public boolean mightContain(final String value) {
+        int first = value.hashCode();
+        int second = secondHash(value);
+        for (int i = 0; i < hashCount; i++) {
+            if (!bits.get(index(first, second, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether more values were added than the filter was sized for.
+     *
+     * @return true when the false positive rate is above the rate the filter was sized for.
+     */
+    public boolean isSaturated() {
+        return count > capacity;
+    }
+
+    private int index(final int first, final int second, final int i) {
+        int combined = first + i * second;
+        return (combined & Integer.MAX_VALUE) % size;
+    }
+
+    /**
+     * FNV-1a hash of the value, independent of {@link String#hashCode()}.
+     */
+    private static int secondHash(final String value) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash | 1;
+    }
+}
@@ -38,6 +38,8 @@ public class Constants {
     public static final String RESOURCE_CONFIGURATION_PATH = "configuration.resource.path";
 
     public static final String RESOURCE_CONFIGURATION_STRING = "configuration.resource.string";
+
+    public static final String CONTEXT_MULTI_SESSION = "configuration.context.multi.session";
     /*
      * OpenMRS server configuration.
      */
@@ -57,6 +59,8 @@ public class Constants {
 
     public static final String LOCAL_FORM_DATA_RESOURCE = "Local Form Data Resource";
 
+    public static final String SYNC_FORM_DATA_RESOURCE = "Sync Form Data Resource";
+
     public static final String SEARCH_STATIC_COHORT_RESOURCE = "Search Static Cohort Resource";
 
     public static final String SEARCH_DYNAMIC_COHORT_RESOURCE = "Search Dynamic Cohort Resource";
@@ -101,6 +105,8 @@ public class Constants {
 
     public static final String DYNAMIC_COHORT_DATA_RESOURCE = "Dynamic Cohort Data Resource";
 
+    public static final String STATIC_COHORT_MEMBERSHIP_RESOURCE = "Static Cohort Membership Resource";
+
     public static final String SEARCH_CONCEPT_RESOURCE = "Search Concept Resource";
 
     public static final String UUID_CONCEPT_RESOURCE = "Uuid Concept Resource";
@@ -119,6 +125,12 @@ public class Constants {
 
     public static final String UUID_OBSERVATION_RESOURCE = "Uuid Observation Resource";
 
+    public static final String LOCAL_LATEST_OBSERVATION_RESOURCE = "Local Latest Observation Resource";
+
+    public static final String LOCAL_TIMELINE_EVENT_RESOURCE = "Local Timeline Event Resource";
+
+    public static final String LOCAL_DOWNLOAD_CHECKPOINT_RESOURCE = "Local Download Checkpoint Resource";
+
     public static final String UUID_REGISTRATION_RESOURCE = "Uuid Registration Resource";
 
     public static final String CONCEPT_CREATED_ON_PHONE = "ConceptCreatedOnPhone";
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream counting the bytes written to the underlying stream.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private long count;
+
+    public CountingOutputStream(final OutputStream outputStream) {
+        super(outputStream);
+    }
+
+    /**
+     * Get the number of bytes written so far.
+     *
+     * @return the number of bytes written.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(final int value) throws IOException {
+        out.write(value);
+        count++;
+    }
+
+    @Override
+    public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+        out.write(buffer, offset, length);
+        count += length;
+    }
+}
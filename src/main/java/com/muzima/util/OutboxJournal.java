@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Persistent queue of ids ordered by the time they were queued, with the number of attempts and the time of the next
+ * attempt of every id. Changes are appended to a memory mapped journal file, and the queue is rebuilt by replaying the
+ * journal when the file is opened again. The journal is compacted when it fills up with removed ids.
+ * <p/>
+ * An open journal holds a lock on a lock file next to the journal file, so only one journal object appends to the
+ * file at a time. Opening a journal whose file is locked by another process, or by another journal object of this
+ * process, fails.
+ */
+public class OutboxJournal {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4D4F4A31;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int MAX_ID_LENGTH = 64;
+
+    private static final int RECORD_SIZE = 1 + 1 + MAX_ID_LENGTH + 8 + 4 + 8;
+
+    private static final int INITIAL_RECORD_CAPACITY = 1024;
+
+    private static final byte ADD = 1;
+
+    private static final byte ATTEMPT = 2;
+
+    private static final byte REMOVE = 3;
+
+    private final File file;
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private final TreeSet<Entry> queue = new TreeSet<Entry>();
+
+    private RandomAccessFile lockFile;
+
+    private RandomAccessFile randomAccessFile;
+
+    private MappedByteBuffer buffer;
+
+    private int position;
+
+    private int recordCount;
+
+    /**
+     * Open the journal file, creating it when it doesn't exist, and replay the journal.
+     *
+     * @param file the journal file.
+     * @throws IOException when the file can't be opened or locked, or is not a journal file.
+     */
+    public OutboxJournal(final File file) throws IOException {
+        this.file = file;
+        lock();
+        try {
+            open(Math.max(file.length(), HEADER_SIZE + (long) RECORD_SIZE * INITIAL_RECORD_CAPACITY));
+            replay();
+        } catch (IOException e) {
+            lockFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add the id to the queue. Nothing happens when the id is already queued.
+     *
+     * @param id   the id.
+     * @param time the time used to order the queue.
+     * @throws IOException when the journal can't be written.
+     */
+    public synchronized void add(final String id, final long time) throws IOException {
+        if (entries.containsKey(id)) {
+            return;
+        }
+        Entry entry = new Entry(id, time, 0, 0);
+        append(ADD, entry);
+        entries.put(id, entry);
+        queue.add(entry);
+    }
+
+    /**
+     * Record a failed attempt for the id.
+     *
+     * @param id              the id.
+     * @param nextAttemptTime the earliest time of the next attempt.
+     * @throws IOException when the journal can't be written.
+     */
+    public synchronized void attempted(final String id, final long nextAttemptTime) throws IOException {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return;
+        }
+        Entry attempted = new Entry(id, entry.getTime(), entry.getAttempts() + 1, nextAttemptTime);
+        append(ATTEMPT, attempted);
+        entries.put(id, attempted);
+        queue.remove(entry);
+        queue.add(attempted);
+    }
+
+    /**
+     * Remove the id from the queue.
+     *
+     * @param id the id.
+     * @throws IOException when the journal can't be written.
+     */
+    public synchronized void remove(final String id) throws IOException {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        queue.remove(entry);
+        append(REMOVE, entry);
+    }
+
+    /**
+     * Get the entry of the id.
+     *
+     * @param id the id.
+     * @return the entry or null when the id is not queued.
+     */
+    public synchronized Entry get(final String id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Get the oldest queued entries due for an attempt at the time.
+     *
+     * @param now      the time.
+     * @param maxCount the maximum number of entries.
+     * @return the entries in queue order.
+     */
+    public synchronized List<Entry> peek(final long now, final int maxCount) {
+        List<Entry> due = new ArrayList<Entry>();
+        for (Entry entry : queue) {
+            if (due.size() >= maxCount) {
+                break;
+            }
+            if (entry.getNextAttemptTime() <= now) {
+                due.add(entry);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Get the number of queued ids.
+     *
+     * @return the number of queued ids.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the journal to the storage device and close the file.
+     *
+     * @throws IOException when the file can't be closed.
+     */
+    public synchronized void close() throws IOException {
+        try {
+            buffer.force();
+            randomAccessFile.close();
+        } finally {
+            // closing the channel releases the lock.
+            lockFile.close();
+        }
+    }
+
+    /**
+     * Lock the lock file of the journal. The lock is held on a separate file because the journal file is replaced
+     * when the journal is compacted.
+     */
+    private void lock() throws IOException {
+        lockFile = new RandomAccessFile(new File(file.getPath() + ".lock"), "rw");
+        FileLock lock;
+        try {
+            lock = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException e) {
+            lockFile.close();
+            throw e;
+        }
+        if (lock == null) {
+            lockFile.close();
+            throw new IOException("Unable to open outbox journal, it is used by another process: " + file.getPath());
+        }
+    }
+
+    private void open(final long length) throws IOException {
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+    }
+
+    private void replay() throws IOException {
+        int magic = buffer.getInt(0);
+        if (magic == 0) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, RECORD_SIZE);
+        } else if (magic != MAGIC || buffer.getInt(4) != RECORD_SIZE) {
+            throw new IOException("Unable to read outbox journal: " + file.getPath());
+        }
+        position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= buffer.capacity() && buffer.get(position) != 0) {
+            byte type = buffer.get(position);
+            Entry entry = read(position);
+            Entry previous = entries.remove(entry.getId());
+            if (previous != null) {
+                queue.remove(previous);
+            }
+            if (type != REMOVE) {
+                entries.put(entry.getId(), entry);
+                queue.add(entry);
+            }
+            position += RECORD_SIZE;
+            recordCount++;
+        }
+    }
+
+    private Entry read(final int offset) {
+        int length = buffer.get(offset + 1);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        int fields = offset + 2 + MAX_ID_LENGTH;
+        return new Entry(new String(bytes, CHARSET), buffer.getLong(fields), buffer.getInt(fields + 8),
+                buffer.getLong(fields + 12));
+    }
+
+    /**
+     * Append the record and write it to the storage device.
+     */
+    private void append(final byte type, final Entry entry) throws IOException {
+        if (entry.getId().getBytes(CHARSET).length > MAX_ID_LENGTH) {
+            throw new IOException("Unable to queue id longer than " + MAX_ID_LENGTH + " bytes: " + entry.getId());
+        }
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            makeRoom();
+        }
+        write(buffer, position, type, entry);
+        buffer.force();
+        position += RECORD_SIZE;
+        recordCount++;
+    }
+
+    /**
+     * Rewrite the journal with one record per queued id when at least half of the records are obsolete, otherwise
+     * double the size of the journal file.
+     */
+    private void makeRoom() throws IOException {
+        int capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        if (entries.size() * 2 > recordCount) {
+            capacity = capacity * 2;
+        }
+        File compacted = new File(file.getPath() + ".compact");
+        if (compacted.exists() && !compacted.delete()) {
+            throw new IOException("Unable to delete stale outbox journal: " + compacted.getPath());
+        }
+        RandomAccessFile compactedFile = new RandomAccessFile(compacted, "rw");
+        try {
+            MappedByteBuffer compactedBuffer = compactedFile.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) RECORD_SIZE * capacity);
+            compactedBuffer.putInt(0, MAGIC);
+            compactedBuffer.putInt(4, RECORD_SIZE);
+            int compactedPosition = HEADER_SIZE;
+            for (Entry entry : queue) {
+                write(compactedBuffer, compactedPosition, entry.getAttempts() == 0 ? ADD : ATTEMPT, entry);
+                compactedPosition += RECORD_SIZE;
+            }
+            compactedBuffer.force();
+        } finally {
+            compactedFile.close();
+        }
+
+        randomAccessFile.close();
+        if (!compacted.renameTo(file) && !(file.delete() && compacted.renameTo(file))) {
+            throw new IOException("Unable to replace outbox journal: " + file.getPath());
+        }
+        open(file.length());
+        position = HEADER_SIZE + RECORD_SIZE * entries.size();
+        recordCount = entries.size();
+    }
+
+    /**
+     * Write the record at the offset. The type byte is written last, so a record torn by a crash is ignored on replay.
+     */
+    private static void write(final MappedByteBuffer buffer, final int offset, final byte type, final Entry entry) {
+        byte[] bytes = entry.getId().getBytes(CHARSET);
+        buffer.put(offset + 1, (byte) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + 2 + i, bytes[i]);
+        }
+        int fields = offset + 2 + MAX_ID_LENGTH;
+        buffer.putLong(fields, entry.getTime());
+        buffer.putInt(fields + 8, entry.getAttempts());
+        buffer.putLong(fields + 12, entry.getNextAttemptTime());
+        buffer.put(offset, type);
+    }
+
+    /**
+     * Queued id with the number of failed attempts and the earliest time of the next attempt.
+     */
+    public static class Entry implements Comparable<Entry> {
+
+        private final String id;
+
+        private final long time;
+
+        private final int attempts;
+
+        private final long nextAttemptTime;
+
+        Entry(final String id, final long time, final int attempts, final long nextAttemptTime) {
+            this.id = id;
+            this.time = time;
+            this.attempts = attempts;
+            this.nextAttemptTime = nextAttemptTime;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public long getNextAttemptTime() {
+            return nextAttemptTime;
+        }
+
+        @Override
+        public int compareTo(final Entry other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return id.compareTo(other.id);
+        }
+    }
+}
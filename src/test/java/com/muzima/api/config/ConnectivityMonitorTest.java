@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.config;
+
+import com.google.inject.Provider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ConnectivityMonitorTest {
+
+    private static final String PROBE_THREAD = "muzima-connectivity-monitor";
+
+    private CountDownLatch probing;
+
+    private CountDownLatch release;
+
+    private Configuration configuration;
+
+    private ConnectivityMonitor connectivityMonitor;
+
+    @Before
+    public void prepare() throws Exception {
+        probing = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        configuration = new Configuration();
+        connectivityMonitor = new ConnectivityMonitor(new Provider<Configuration>() {
+            @Override
+            public Configuration get() {
+                return configuration;
+            }
+        }, 1, 1) {
+            @Override
+            protected boolean isAddressReachable(final String server) {
+                if (PROBE_THREAD.equals(Thread.currentThread().getName())) {
+                    probing.countDown();
+                    awaitRelease();
+                }
+                return false;
+            }
+        };
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        release.countDown();
+        connectivityMonitor.stop();
+    }
+
+    @Test
+    public void stop_shouldEndTheProbeThreadWhenABackgroundProbeIsRunning() throws Exception {
+        assertThat(connectivityMonitor.isServerReachable(), is(false));
+        assertThat(probing.await(5, TimeUnit.SECONDS), is(true));
+
+        connectivityMonitor.stop();
+        release.countDown();
+
+        assertThat(waitForProbeThread(false), is(true));
+        Thread.sleep(50);
+        assertThat(isProbeThreadAlive(), is(false));
+    }
+
+    @Test
+    public void isServerReachable_shouldStartProbingAgainAfterStop() throws Exception {
+        release.countDown();
+        connectivityMonitor.isServerReachable();
+        connectivityMonitor.stop();
+        assertThat(waitForProbeThread(false), is(true));
+
+        connectivityMonitor.isServerReachable();
+
+        assertThat(waitForProbeThread(true), is(true));
+    }
+
+    @Test
+    public void isServerReachable_shouldKeepTheStateOfEveryServer() throws Exception {
+        release.countDown();
+        configuration.configure("admin", "secret", "http://localhost/openmrs");
+        connectivityMonitor.isServerReachable();
+
+        configuration.configure("admin", "secret", "http://localhost/other");
+        assertThat(connectivityMonitor.getLastProbeTime(), is(0L));
+        connectivityMonitor.isServerReachable();
+
+        configuration.configure("admin", "secret", "http://localhost/openmrs");
+        assertThat(connectivityMonitor.getLastProbeTime() > 0, is(true));
+    }
+
+    private void awaitRelease() {
+        while (release.getCount() > 0) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // like a connection attempt, the probe doesn't stop on the interrupt of the shutdown.
+            }
+        }
+    }
+
+    private boolean waitForProbeThread(final boolean alive) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (isProbeThreadAlive() != alive) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private boolean isProbeThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (PROBE_THREAD.equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
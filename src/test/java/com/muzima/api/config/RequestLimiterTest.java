@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.config;
+
+import com.google.inject.Provider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RequestLimiterTest {
+
+    private long now;
+
+    private Configuration configuration;
+
+    private RequestLimiter limiter;
+
+    @Before
+    public void prepare() throws Exception {
+        now = 1000000;
+        configuration = new Configuration();
+        configuration.configure("admin", "secret", "http://localhost/openmrs");
+        limiter = createLimiter(4);
+    }
+
+    @Test
+    public void complete_shouldGrowTheLimitByOneEveryLimitSuccesses() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            respond(100, true);
+        }
+
+        assertThat(limiter.getLimit() > 4.9 && limiter.getLimit() < 5, is(true));
+        assertThat(limiter.getSuccessCount(), is(4L));
+    }
+
+    @Test
+    public void complete_shouldHalveTheLimitOncePerRoundTripOnFailures() throws Exception {
+        respond(100, true);
+        double limit = limiter.getLimit();
+
+        respond(100, false);
+        assertThat(limiter.getLimit(), is(limit / 2));
+
+        respond(50, false);
+        assertThat(limiter.getLimit(), is(limit / 2));
+
+        now += 200;
+        respond(100, false);
+        assertThat(limiter.getLimit(), is(limit / 4));
+        assertThat(limiter.getFailureCount(), is(3L));
+    }
+
+    @Test
+    public void complete_shouldHalveTheLimitWhenTheLatencyGrows() throws Exception {
+        respond(100, true);
+        double limit = limiter.getLimit();
+        int responses = 0;
+        while (limiter.getLimit() >= limit && responses < 20) {
+            respond(1000, true);
+            responses++;
+        }
+
+        assertThat(limiter.getLimit() < limit, is(true));
+        assertThat(limiter.getSmoothedLatency() > 2 * limiter.getBaselineLatency(), is(true));
+        assertThat(limiter.getFailureCount(), is(0L));
+    }
+
+    @Test
+    public void getReadTimeout_shouldFollowTheSmoothedLatencyAndItsDeviation() throws Exception {
+        assertThat(limiter.getReadTimeout(), is(100000));
+
+        respond(100, true);
+        assertThat(limiter.getReadTimeout(), is(300));
+
+        respond(300, true);
+        assertThat(limiter.getSmoothedLatency(), is(125L));
+        assertThat(limiter.getReadTimeout(), is(475));
+    }
+
+    @Test
+    public void acquire_shouldWaitForAReleasedPermitWhenTheLimitIsReached() throws Exception {
+        limiter = createLimiter(1);
+        RequestLimiter.Permit permit = limiter.acquire();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    limiter.acquire().release();
+                    acquired.countDown();
+                } catch (Exception e) {
+                    // the latch stays closed.
+                }
+            }
+        });
+        waiting.start();
+
+        assertThat(acquired.await(100, TimeUnit.MILLISECONDS), is(false));
+        permit.release();
+        assertThat(acquired.await(5, TimeUnit.SECONDS), is(true));
+        waiting.join(5000);
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    public void acquire_shouldLimitEveryServerOnItsOwn() throws Exception {
+        limiter = createLimiter(1);
+        respond(100, false);
+        RequestLimiter.Permit permit = limiter.acquire();
+
+        configuration.configure("admin", "secret", "http://localhost/other");
+        assertThat(limiter.getInFlight(), is(0));
+        assertThat(limiter.getFailureCount(), is(0L));
+        limiter.acquire().release();
+
+        configuration.configure("admin", "secret", "http://localhost/openmrs");
+        assertThat(limiter.getInFlight(), is(1));
+        permit.release();
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    private RequestLimiter createLimiter(final int initialLimit) {
+        return new RequestLimiter(new Provider<Configuration>() {
+            @Override
+            public Configuration get() {
+                return configuration;
+            }
+        }, initialLimit, 16, 0, 100000) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+
+    private void respond(final long latency, final boolean success) throws Exception {
+        RequestLimiter.Permit permit = limiter.acquire();
+        now += latency;
+        permit.complete(success);
+        permit.release();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.muzima.api.service.MuzimaInterface;
+import com.muzima.api.service.OperationToken;
+import com.muzima.api.service.ServiceCall;
+import com.muzima.api.service.ServiceCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncServiceTest {
+
+    private ServiceExecutor serviceExecutor;
+
+    private AsyncService<MuzimaInterface> asyncService;
+
+    @Before
+    public void prepare() throws Exception {
+        serviceExecutor = new ServiceExecutor();
+        asyncService = new AsyncService<MuzimaInterface>(new MuzimaInterface() {
+        }, serviceExecutor);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void cancel_shouldCompleteTheFutureOnlyWhenTheRunningCallStopped() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch notified = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+        final OperationToken token = new OperationToken();
+        Future<String> future = asyncService.submit(new ServiceCall<MuzimaInterface, String>() {
+            @Override
+            public String call(final MuzimaInterface service) throws Exception {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                token.checkCancelled();
+                return "done";
+            }
+        }, new ServiceCallback<String>() {
+            @Override
+            public void onSuccess(final String result) {
+                notified.countDown();
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                failure[0] = cause;
+                notified.countDown();
+            }
+        }, token);
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(future.cancel(true), is(true));
+        assertThat(token.isCancelled(), is(true));
+        assertThat(future.isDone(), is(false));
+        assertThat(notified.getCount(), is(1L));
+
+        release.countDown();
+        assertThat(notified.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(failure[0] instanceof CancellationException, is(true));
+        assertThat(future.isDone(), is(true));
+        assertThat(future.isCancelled(), is(true));
+        try {
+            future.get();
+            fail("A cancelled call should not have a result.");
+        } catch (CancellationException e) {
+            // expected.
+        }
+    }
+}
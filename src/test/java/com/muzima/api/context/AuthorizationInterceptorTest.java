@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.matcher.Matchers;
+import com.muzima.api.annotation.Authorization;
+import com.muzima.api.exception.AuthenticationException;
+import com.muzima.api.model.Privilege;
+import com.muzima.api.model.Role;
+import com.muzima.api.model.User;
+import com.muzima.api.service.UserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AuthorizationInterceptorTest {
+
+    private CohortReader cohortReader;
+
+    @Before
+    public void prepare() throws Exception {
+        final UserService userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return null;
+                    }
+                });
+        cohortReader = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(UserService.class).toInstance(userService);
+                AuthorizationInterceptor authorizationInterceptor = new AuthorizationInterceptor();
+                requestInjection(authorizationInterceptor);
+                bindInterceptor(Matchers.any(), Matchers.annotatedWith(Authorization.class), authorizationInterceptor);
+            }
+        }).getInstance(CohortReader.class);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        Context.setCurrentUserContext(null);
+    }
+
+    @Test
+    public void invoke_shouldProceedWhenTheUserHasThePrivilege() throws Exception {
+        Context.setCurrentUserContext(createUserContext("View Cohort Privilege"));
+
+        assertThat(cohortReader.getCohorts(), is("cohorts"));
+    }
+
+    @Test
+    public void invoke_shouldThrowWhenTheUserLacksThePrivilege() throws Exception {
+        Context.setCurrentUserContext(createUserContext("Other Privilege"));
+        try {
+            cohortReader.getCohorts();
+            fail("Expected the call without the privilege to be refused.");
+        } catch (AuthenticationException e) {
+            assertThat(cohortReader.calls, is(0));
+        }
+    }
+
+    @Test
+    public void invoke_shouldThrowWithoutAuthenticatedUser() throws Exception {
+        try {
+            cohortReader.getCohorts();
+            fail("Expected the call without authenticated user to be refused.");
+        } catch (AuthenticationException e) {
+            assertThat(cohortReader.calls, is(0));
+        }
+    }
+
+    private UserContext createUserContext(final String privilegeName) throws Exception {
+        Privilege privilege = new Privilege();
+        privilege.setName(privilegeName);
+        Role role = new Role();
+        role.setName("Clerk");
+        role.add(privilege);
+        List<Role> roles = new ArrayList<Role>();
+        roles.add(role);
+        User user = new User();
+        user.setUsername("user");
+        user.setRoles(roles);
+        user.setPrivileges(new ArrayList<Privilege>());
+        UserContext userContext = new UserContext();
+        Field field = UserContext.class.getDeclaredField("user");
+        field.setAccessible(true);
+        field.set(userContext, user);
+        return userContext;
+    }
+
+    public static class CohortReader {
+
+        int calls;
+
+        @Authorization(privileges = {"View Cohort Privilege"})
+        public String getCohorts() {
+            calls++;
+            return "cohorts";
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.muzima.util.Constants;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Benchmark of the startup of the api: creating a context with <code>ContextFactory.createContext()</code> and the
+ * first use of a resource through a service, once without cached resource descriptors and once with the descriptors
+ * cached by the first run. It asserts nothing and is not part of the unit tests, it reports the median times of the
+ * runs. Run it with the test classpath and the number of runs as the optional argument:
+ * <pre>
+ *     java -cp target/test-classes:target/classes:... com.muzima.api.context.ContextStartupBenchmark 10
+ * </pre>
+ */
+public class ContextStartupBenchmark {
+
+    private static final int DEFAULT_RUNS = 5;
+
+    public static void main(final String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        File directory = File.createTempFile("muzima", ".benchmark");
+        if (!directory.delete() || !directory.mkdirs()) {
+            throw new IllegalStateException("Unable to create benchmark directory: " + directory.getPath());
+        }
+        try {
+            // the first run loads the classes of the api, so it isn't reported.
+            File warmUp = new File(directory, "warm-up");
+            measure(warmUp, new long[2][1], 0);
+            measure(warmUp, new long[2][1], 0);
+
+            long[][] cold = new long[2][runs];
+            long[][] cached = new long[2][runs];
+            for (int run = 0; run < runs; run++) {
+                File repository = new File(directory, "run-" + run);
+                measure(repository, cold, run);
+                measure(repository, cached, run);
+            }
+            report("cold", cold);
+            report("cached descriptors", cached);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Create a context on the repository and count the cohorts, the first use of the cohort resource. A repository
+     * used for the first time has no cached resource descriptors yet.
+     */
+    private static void measure(final File repository, final long[][] times, final int run) throws Exception {
+        ContextFactory.setProperty(Constants.LUCENE_DIRECTORY_PATH, repository.getPath());
+        long start = System.nanoTime();
+        Context context = ContextFactory.createContext();
+        long created = System.nanoTime();
+        try {
+            context.getCohortService().countAllCohorts();
+            times[1][run] = System.nanoTime() - created;
+        } finally {
+            context.close();
+        }
+        times[0][run] = created - start;
+    }
+
+    private static void report(final String name, final long[][] times) {
+        System.out.println(String.format("%-20s createContext: %8.2f ms, first resource use: %8.2f ms (median of %d)",
+                name, median(times[0]), median(times[1]), times[0].length));
+    }
+
+    private static double median(final long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        long median = sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+        return median / 1000000.0;
+    }
+
+    private static void delete(final File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
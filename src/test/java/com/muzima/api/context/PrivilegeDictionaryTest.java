@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.muzima.api.model.Privilege;
+import com.muzima.api.model.Role;
+import com.muzima.api.model.User;
+import com.muzima.api.service.UserService;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PrivilegeDictionaryTest {
+    @Test
+    public void shouldGiveEveryPrivilegeOneIndex() throws Exception {
+        PrivilegeDictionary dictionary = new PrivilegeDictionary();
+        int index = dictionary.intern("View Cohort Privilege");
+        assertThat(dictionary.intern("Other Privilege") == index, is(false));
+        assertThat(dictionary.intern("View Cohort Privilege"), is(index));
+    }
+
+    @Test
+    public void shouldResolvePrivilegesOfRoles() throws Exception {
+        PrivilegeDictionary dictionary = new PrivilegeDictionary();
+        User user = createUser("Clerk", "View Cohort Privilege");
+        BitSet privileges = dictionary.resolve(user);
+        assertThat(privileges.intersects(dictionary.resolve(new String[]{"View Cohort Privilege"})), is(true));
+        assertThat(privileges.intersects(dictionary.resolve(new String[]{"Other Privilege"})), is(false));
+    }
+
+    @Test
+    public void shouldResolveSuperuserToAllPrivileges() throws Exception {
+        PrivilegeDictionary dictionary = new PrivilegeDictionary();
+        assertThat(dictionary.resolve(createUser(PrivilegeDictionary.SUPERUSER_ROLE, "Other")) == null, is(true));
+    }
+
+    @Test
+    public void shouldDenyPrivilegesWithoutAuthenticatedUser() throws Exception {
+        PrivilegeDictionary dictionary = new PrivilegeDictionary();
+        UserContext userContext = new UserContext();
+        assertThat(userContext.hasAnyPrivilege(dictionary, new BitSet(), null), is(false));
+    }
+
+    @Test
+    public void hasAnyPrivilege_shouldReloadUserWhenDictionaryIsInvalidated() throws Exception {
+        PrivilegeDictionary dictionary = new PrivilegeDictionary();
+        BitSet viewCohorts = dictionary.resolve(new String[]{"View Cohort Privilege"});
+        User user = createUser("Clerk", "Other Privilege");
+        final User updatedUser = createUser("Clerk", "View Cohort Privilege");
+        user.setUuid("user-uuid");
+        updatedUser.setUuid("user-uuid");
+        UserService userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        return "getUserByUuid".equals(method.getName()) && "user-uuid".equals(args[0])
+                                ? updatedUser : null;
+                    }
+                });
+        UserContext userContext = new UserContext();
+        Field field = UserContext.class.getDeclaredField("user");
+        field.setAccessible(true);
+        field.set(userContext, user);
+
+        assertThat(userContext.hasAnyPrivilege(dictionary, viewCohorts, userService), is(false));
+        dictionary.invalidate();
+        assertThat(userContext.hasAnyPrivilege(dictionary, viewCohorts, userService), is(true));
+        assertThat(userContext.getAuthenticatedUser() == updatedUser, is(true));
+    }
+
+    private User createUser(final String roleName, final String privilegeName) {
+        Privilege privilege = new Privilege();
+        privilege.setName(privilegeName);
+        Role role = new Role();
+        role.setName(roleName);
+        role.add(privilege);
+        List<Role> roles = new ArrayList<Role>();
+        roles.add(role);
+        User user = new User();
+        user.setUsername("user");
+        user.setRoles(roles);
+        user.setPrivileges(new ArrayList<Privilege>());
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ResourceRegistryTest {
+
+    private byte[] configuration;
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        InputStream inputStream = getClass().getResourceAsStream("/com/muzima/api/service/j2l/config.json");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        configuration = outputStream.toByteArray();
+        cacheFile = File.createTempFile("muzima", ".resources");
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cacheFile.delete();
+    }
+
+    @Test
+    public void shouldReadCachedDescriptorsCompiledFromTheSameConfiguration() throws Exception {
+        List<ResourceDescriptor> compiled = ResourceRegistry.load(configuration, cacheFile);
+        assertThat(cacheFile.exists(), is(true));
+
+        List<ResourceDescriptor> cached = ResourceRegistry.load(configuration, cacheFile);
+        assertThat(cached.size(), is(compiled.size()));
+        for (int i = 0; i < compiled.size(); i++) {
+            assertThat(cached.get(i).getName(), is(compiled.get(i).getName()));
+            assertThat(cached.get(i).getRootNode(), is(compiled.get(i).getRootNode()));
+            assertThat(cached.get(i).getResolverClass(), is(compiled.get(i).getResolverClass()));
+            assertThat(cached.get(i).getUniqueFields(), is(compiled.get(i).getUniqueFields()));
+            assertThat(cached.get(i).getSearchableFields(), is(compiled.get(i).getSearchableFields()));
+        }
+    }
+
+    @Test
+    public void shouldRecompileWhenTheConfigurationChanges() throws Exception {
+        ResourceRegistry.load(configuration, cacheFile);
+        String changed = "{\"configurations\": [{"
+                + "\"resource.name\": \"Changed Resource\", \"node.root\": \"$\","
+                + "\"resource.object\": \"com.muzima.api.model.Patient\","
+                + "\"algorithm.class\": \"com.muzima.api.model.algorithm.PatientAlgorithm\","
+                + "\"resolver.class\": \"com.muzima.api.model.resolver.LocalResolver\","
+                + "\"field.unique\": \"uuid\", \"field.searchable\": {\"uuid\": \"$['uuid']\"}}]}";
+        List<ResourceDescriptor> descriptors = ResourceRegistry.load(changed.getBytes("UTF-8"), cacheFile);
+        assertThat(descriptors.size(), is(1));
+        assertThat(descriptors.get(0).getName(), is("Changed Resource"));
+    }
+}
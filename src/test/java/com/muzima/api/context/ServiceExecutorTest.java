@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ServiceExecutorTest {
+
+    @Test
+    public void shutdown_shouldLeaveTheExecutorBoundByTheApplicationRunning() throws Exception {
+        ExecutorService boundExecutor = Executors.newSingleThreadExecutor();
+        try {
+            ServiceExecutor serviceExecutor = new ServiceExecutor();
+            Field field = ServiceExecutor.class.getDeclaredField("boundExecutor");
+            field.setAccessible(true);
+            field.set(serviceExecutor, boundExecutor);
+
+            assertThat(serviceExecutor.getExecutor() == boundExecutor, is(true));
+            serviceExecutor.shutdown();
+
+            assertThat(boundExecutor.isShutdown(), is(false));
+            assertThat(serviceExecutor.getExecutor() == boundExecutor, is(true));
+        } finally {
+            boundExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shutdown_shouldStopTheCreatedExecutorAfterTheRunningCalls() throws Exception {
+        ServiceExecutor serviceExecutor = new ServiceExecutor();
+        ExecutorService executor = serviceExecutor.getExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final boolean[] interrupted = new boolean[1];
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                }
+                done.countDown();
+            }
+        });
+
+        serviceExecutor.shutdown();
+        assertThat(executor.isShutdown(), is(true));
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(interrupted[0], is(false));
+        assertThat(serviceExecutor.getExecutor() == executor, is(false));
+        serviceExecutor.shutdown();
+    }
+}
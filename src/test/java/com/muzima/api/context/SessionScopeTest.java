@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.OutOfScopeException;
+import com.muzima.api.config.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SessionScopeTest {
+
+    private Injector injector;
+
+    private ExecutorService executor;
+
+    @Before
+    public void prepare() throws Exception {
+        injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(Configuration.class).in(SessionScope.SESSION);
+            }
+        });
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        executor.shutdownNow();
+        Context.setCurrentUserContext(null);
+    }
+
+    @Test
+    public void get_shouldReturnOneConfigurationPerSession() throws Exception {
+        Future<Configuration[]> first = executor.submit(new SessionCall());
+        Future<Configuration[]> second = executor.submit(new SessionCall());
+
+        Configuration[] firstConfigurations = first.get();
+        Configuration[] secondConfigurations = second.get();
+        assertThat(firstConfigurations[0] == firstConfigurations[1], is(true));
+        assertThat(secondConfigurations[0] == secondConfigurations[1], is(true));
+        assertThat(firstConfigurations[0] == secondConfigurations[0], is(false));
+    }
+
+    @Test
+    public void get_shouldReturnConfigurationOfSessionToWorkerThreads() throws Exception {
+        Context.setCurrentUserContext(new UserContext());
+        Configuration configuration = injector.getInstance(Configuration.class);
+        final CallContext callContext = CallContext.capture();
+
+        Configuration workerConfiguration = executor.submit(new Callable<Configuration>() {
+            @Override
+            public Configuration call() throws Exception {
+                CallContext previous = callContext.attach();
+                try {
+                    return injector.getInstance(Configuration.class);
+                } finally {
+                    previous.attach();
+                }
+            }
+        }).get();
+
+        assertThat(workerConfiguration == configuration, is(true));
+    }
+
+    @Test
+    public void get_shouldFailOnAThreadWithoutSession() throws Exception {
+        try {
+            injector.getInstance(Configuration.class);
+            fail("Expected the configuration to be out of scope.");
+        } catch (RuntimeException e) {
+            // depending on the Guice version, the exception of the scope is wrapped in a provision exception.
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertThat(cause instanceof OutOfScopeException, is(true));
+        }
+    }
+
+    /**
+     * Open a session on the worker thread and get the configuration twice.
+     */
+    private class SessionCall implements Callable<Configuration[]> {
+        @Override
+        public Configuration[] call() throws Exception {
+            Context.setCurrentUserContext(new UserContext());
+            try {
+                return new Configuration[]{
+                        injector.getInstance(Configuration.class), injector.getInstance(Configuration.class)};
+            } finally {
+                Context.setCurrentUserContext(null);
+            }
+        }
+    }
+}
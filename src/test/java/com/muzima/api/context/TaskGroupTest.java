@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TaskGroupTest {
+
+    private ExecutorService boundExecutor;
+
+    private ServiceExecutor serviceExecutor;
+
+    @Before
+    public void prepare() throws Exception {
+        boundExecutor = Executors.newSingleThreadExecutor();
+        serviceExecutor = new ServiceExecutor();
+        Field field = ServiceExecutor.class.getDeclaredField("boundExecutor");
+        field.setAccessible(true);
+        field.set(serviceExecutor, boundExecutor);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        boundExecutor.shutdownNow();
+    }
+
+    @Test
+    public void take_shouldRunTasksNestedInATaskOfTheSameExecutor() throws Exception {
+        Future<Integer> outer = boundExecutor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                TaskGroup<Integer> taskGroup = new TaskGroup<Integer>(serviceExecutor, 2);
+                for (int i = 1; i <= 3; i++) {
+                    final int value = i;
+                    taskGroup.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return value;
+                        }
+                    });
+                }
+                int sum = 0;
+                while (taskGroup.getPending() > 0) {
+                    sum += taskGroup.take().get();
+                }
+                return sum;
+            }
+        });
+
+        assertThat(outer.get(5, TimeUnit.SECONDS), is(6));
+    }
+
+    @Test
+    public void submit_shouldRunAtMostTheMaximumConcurrency() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        Field field = ServiceExecutor.class.getDeclaredField("boundExecutor");
+        field.setAccessible(true);
+        ServiceExecutor poolExecutor = new ServiceExecutor();
+        field.set(poolExecutor, pool);
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maximum = new AtomicInteger();
+            TaskGroup<Integer> taskGroup = new TaskGroup<Integer>(poolExecutor, 2);
+            for (int i = 0; i < 8; i++) {
+                taskGroup.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int count = running.incrementAndGet();
+                        synchronized (maximum) {
+                            maximum.set(Math.max(maximum.get(), count));
+                        }
+                        Thread.sleep(10);
+                        running.decrementAndGet();
+                        return count;
+                    }
+                });
+            }
+            while (taskGroup.getPending() > 0) {
+                taskGroup.take().get();
+            }
+
+            assertThat(maximum.get() <= 2, is(true));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.model.Cohort;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.model.serialization.Algorithm;
+import com.muzima.search.api.resource.ObjectResource;
+import com.muzima.search.api.resource.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DownloadPipelineTest {
+
+    private static final int CAPACITY = 2;
+
+    private static final Pattern UUID_PATTERN = Pattern.compile("\"uuid\":\"([^\"]+)\"");
+
+    private static final Map<String, String> PARAMETERS = new HashMap<String, String>();
+
+    private AtomicInteger converted;
+
+    private String failingUuid;
+
+    private InputStream response;
+
+    private List<String> handled;
+
+    private Resource resource;
+
+    private ServiceExecutor serviceExecutor;
+
+    private DownloadPipeline pipeline;
+
+    @Before
+    public void prepare() throws Exception {
+        converted = new AtomicInteger();
+        handled = Collections.synchronizedList(new ArrayList<String>());
+        Algorithm algorithm = new Algorithm() {
+            @Override
+            public Searchable deserialize(final String serialized) throws IOException {
+                Matcher matcher = UUID_PATTERN.matcher(serialized);
+                String uuid = matcher.find() ? matcher.group(1) : null;
+                if (uuid.equals(failingUuid)) {
+                    throw new IOException("Unable to convert " + uuid);
+                }
+                converted.incrementAndGet();
+                Cohort cohort = new Cohort();
+                cohort.setUuid(uuid);
+                return cohort;
+            }
+
+            @Override
+            public String serialize(final Searchable object) throws IOException {
+                return "{\"uuid\":\"" + ((Cohort) object).getUuid() + "\"}";
+            }
+        };
+        resource = new ObjectResource("Cohort Resource", "$['results']", Cohort.class, algorithm, null);
+        RemoteResourceLoader resourceLoader = new RemoteResourceLoader() {
+            @Override
+            public InputStream openStream(final Map<String, String> resourceParams, final Resource resource) {
+                return response;
+            }
+        };
+        serviceExecutor = new ServiceExecutor();
+        pipeline = new DownloadPipeline(resourceLoader, serviceExecutor, CAPACITY, 1);
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void run_shouldHoldBackTheConversionWhileTheHandlerIsBusy() throws Exception {
+        response = createResponse(100);
+        final CountDownLatch handling = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int[] count = new int[1];
+        Thread running = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    count[0] = pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                        @Override
+                        public void handle(final List<Cohort> batch) throws IOException {
+                            handling.countDown();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                throw new IOException("Interrupted while handling the batch.");
+                            }
+                            add(batch);
+                        }
+                    });
+                } catch (IOException e) {
+                    count[0] = -1;
+                }
+            }
+        });
+        running.start();
+
+        assertThat(handling.await(5, TimeUnit.SECONDS), is(true));
+        Thread.sleep(200);
+        assertThat(converted.get() <= CAPACITY + 2, is(true));
+        release.countDown();
+        running.join(5000);
+        assertThat(count[0], is(100));
+        assertThat(handled.size(), is(100));
+        assertThat(handled.get(99), is("cohort-99"));
+    }
+
+    @Test
+    public void run_shouldCloseAStalledResponseWhenTheHandlerFails() throws Exception {
+        StalledInputStream stalled = new StalledInputStream("{\"results\":[{\"uuid\":\"cohort-0\"},");
+        response = stalled;
+
+        try {
+            pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                @Override
+                public void handle(final List<Cohort> batch) throws IOException {
+                    throw new IOException("Unable to save " + batch.get(0).getUuid());
+                }
+            });
+            fail("Expected the failure of the handler to be thrown.");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Unable to save cohort-0"));
+        }
+        assertThat(stalled.unblocked.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void run_shouldThrowTheFailureOfTheConversion() throws Exception {
+        response = createResponse(10);
+        failingUuid = "cohort-5";
+
+        try {
+            pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                @Override
+                public void handle(final List<Cohort> batch) throws IOException {
+                    add(batch);
+                }
+            });
+            fail("Expected the failure of the conversion to be thrown.");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("Unable to convert cohort-5"));
+        }
+        assertThat(handled.size() <= 5, is(true));
+    }
+
+    @Test
+    public void run_shouldThrowWhenTheResponseHasNoRootNode() throws Exception {
+        response = new ByteArrayInputStream("{\"error\":{\"message\":\"Session expired\"}}".getBytes("UTF-8"));
+
+        try {
+            pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                @Override
+                public void handle(final List<Cohort> batch) throws IOException {
+                    add(batch);
+                }
+            });
+            fail("Expected the missing root node to be thrown.");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("Unable to find root node"), is(true));
+        }
+    }
+
+    @Test
+    public void run_shouldThrowWhenTheResponseIsEmpty() throws Exception {
+        response = new ByteArrayInputStream(new byte[0]);
+
+        try {
+            pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                @Override
+                public void handle(final List<Cohort> batch) throws IOException {
+                    add(batch);
+                }
+            });
+            fail("Expected the empty response to be thrown.");
+        } catch (IOException e) {
+            assertThat(e.getMessage().startsWith("Unable to find root node"), is(true));
+        }
+    }
+
+    @Test
+    public void run_shouldReadInTheCallingThreadWhenTheExecutorIsBusy() throws Exception {
+        ExecutorService busyExecutor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        busyExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Field field = ServiceExecutor.class.getDeclaredField("boundExecutor");
+        field.setAccessible(true);
+        field.set(serviceExecutor, busyExecutor);
+        response = createResponse(10);
+        try {
+            int count = pipeline.run(PARAMETERS, resource, new DownloadBatchHandler<Cohort>() {
+                @Override
+                public void handle(final List<Cohort> batch) throws IOException {
+                    add(batch);
+                }
+            });
+
+            assertThat(count, is(10));
+            assertThat(handled.get(9), is("cohort-9"));
+        } finally {
+            release.countDown();
+            busyExecutor.shutdown();
+        }
+    }
+
+    private void add(final List<Cohort> batch) {
+        for (Cohort cohort : batch) {
+            handled.add(cohort.getUuid());
+        }
+    }
+
+    private InputStream createResponse(final int size) throws IOException {
+        StringBuilder builder = new StringBuilder("{\"results\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                builder.append(",");
+            }
+            builder.append("{\"uuid\":\"cohort-").append(i).append("\"}");
+        }
+        builder.append("]}");
+        return new ByteArrayInputStream(builder.toString().getBytes("UTF-8"));
+    }
+
+    /**
+     * A response whose server stops sending after the first bytes, until the response is closed.
+     */
+    private static class StalledInputStream extends InputStream {
+
+        private final byte[] sent;
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+
+        private int position;
+
+        StalledInputStream(final String sent) throws IOException {
+            this.sent = sent.getBytes("UTF-8");
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (position < sent.length) {
+                int read = Math.min(length, sent.length - position);
+                System.arraycopy(sent, position, buffer, offset, read);
+                position += read;
+                return read;
+            }
+            while (closed.getCount() > 0) {
+                try {
+                    closed.await();
+                } catch (InterruptedException e) {
+                    // like a blocked socket read, only closing the stream stops the read.
+                }
+            }
+            unblocked.countDown();
+            throw new IOException("Socket closed");
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.Cohort;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.model.serialization.Algorithm;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DownloadSingleFlightTest {
+
+    private static final Algorithm ALGORITHM = new Algorithm() {
+        @Override
+        public Searchable deserialize(final String serialized) throws IOException {
+            Cohort cohort = new Cohort();
+            cohort.setUuid(serialized);
+            cohort.setName(serialized);
+            return cohort;
+        }
+
+        @Override
+        public String serialize(final Searchable object) throws IOException {
+            return ((Cohort) object).getUuid();
+        }
+    };
+
+    private AtomicInteger loads;
+
+    private CountDownLatch started;
+
+    private CountDownLatch release;
+
+    private Callable<DownloadedElements> loader;
+
+    @Before
+    public void prepare() throws Exception {
+        loads = new AtomicInteger();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        loader = new Callable<DownloadedElements>() {
+            @Override
+            public DownloadedElements call() throws Exception {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return new DownloadedElements(Arrays.asList("cohort-1", "cohort-2"));
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void load_shouldShareTheDownloadButNotTheObjectsWithWaitingCallers() throws Exception {
+        final DownloadSingleFlight singleFlight = new DownloadSingleFlight(0);
+        final List<Searchable>[] results = new List[2];
+        Thread leader = new Thread(new Loading(singleFlight, results, 0));
+        leader.start();
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+        Thread follower = new Thread(new Loading(singleFlight, results, 1));
+        follower.start();
+        waitUntilBlocked(follower);
+        release.countDown();
+        leader.join(5000);
+        follower.join(5000);
+
+        assertThat(loads.get(), is(1));
+        assertThat(results[0].size(), is(2));
+        assertThat(results[1].size(), is(2));
+        assertThat(results[0].get(0) == results[1].get(0), is(false));
+        ((Cohort) results[0].get(0)).setName("changed");
+        assertThat(((Cohort) results[1].get(0)).getName(), is("cohort-1"));
+    }
+
+    @Test
+    public void load_shouldConvertNewObjectsFromAKeptResult() throws Exception {
+        DownloadSingleFlight singleFlight = new DownloadSingleFlight(60000);
+        release.countDown();
+
+        List<Searchable> first = singleFlight.load("key", loader).deserialize(ALGORITHM);
+        ((Cohort) first.get(0)).setDynamic(true);
+        List<Searchable> second = singleFlight.load("key", loader).deserialize(ALGORITHM);
+
+        assertThat(loads.get(), is(1));
+        assertThat(second.get(0) == first.get(0), is(false));
+        assertThat(((Cohort) second.get(0)).isDynamic(), is(false));
+    }
+
+    @Test
+    public void load_shouldCompleteTheFlightWhenTheLoaderThrowsAnError() throws Exception {
+        DownloadSingleFlight singleFlight = new DownloadSingleFlight(60000);
+        try {
+            singleFlight.load("key", new Callable<DownloadedElements>() {
+                @Override
+                public DownloadedElements call() {
+                    throw new OutOfMemoryError("buffering the response");
+                }
+            });
+            fail("Expected the error of the loader to be thrown.");
+        } catch (OutOfMemoryError e) {
+            // the flight of the key is removed with the error.
+        }
+        release.countDown();
+
+        List<Searchable> objects = singleFlight.load("key", loader).deserialize(ALGORITHM);
+
+        assertThat(loads.get(), is(1));
+        assertThat(objects.size(), is(2));
+    }
+
+    private void waitUntilBlocked(final Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private class Loading implements Runnable {
+
+        private final DownloadSingleFlight singleFlight;
+
+        private final List<Searchable>[] results;
+
+        private final int index;
+
+        Loading(final DownloadSingleFlight singleFlight, final List<Searchable>[] results, final int index) {
+            this.singleFlight = singleFlight;
+            this.results = results;
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            try {
+                results[index] = singleFlight.load("key", loader).deserialize(ALGORITHM);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
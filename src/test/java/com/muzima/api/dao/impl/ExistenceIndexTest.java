@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.Patient;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ExistenceIndexTest {
+
+    private String repositoryPath;
+
+    @Before
+    public void prepare() throws Exception {
+        repositoryPath = new File(System.getProperty("java.io.tmpdir"), "existence-" + System.nanoTime()).getPath();
+    }
+
+    @Test
+    public void mightContain_shouldKeepUuidsSavedWhileTheFilterWasBuilt() throws Exception {
+        final ExistenceIndex otherContextIndex = new ExistenceIndex(repositoryPath, "uuid");
+        ExistenceIndex existenceIndex = new ExistenceIndex(repositoryPath, "uuid") {
+            @Override
+            protected Collection<String> readUuidTerms() throws IOException {
+                otherContextIndex.add(Collections.singletonList(createPatient("saved-while-loading")));
+                return Collections.singletonList("existing");
+            }
+        };
+
+        assertThat(existenceIndex.mightContain("existing"), is(true));
+        assertThat(existenceIndex.mightContain("saved-while-loading"), is(true));
+        assertThat(existenceIndex.mightContain("missing"), is(false));
+    }
+
+    @Test
+    public void mightContain_shouldSeeUuidsSavedThroughAnotherContextOnTheSameRepository() throws Exception {
+        ExistenceIndex existenceIndex = createIndex(repositoryPath);
+        ExistenceIndex otherContextIndex = createIndex(repositoryPath);
+        assertThat(existenceIndex.mightContain("saved-by-other-context"), is(false));
+
+        otherContextIndex.add(Collections.singletonList(createPatient("saved-by-other-context")));
+
+        assertThat(existenceIndex.mightContain("saved-by-other-context"), is(true));
+    }
+
+    @Test
+    public void mightContain_shouldNotShareTheFilterWithAnotherRepository() throws Exception {
+        ExistenceIndex existenceIndex = createIndex(repositoryPath);
+        ExistenceIndex otherRepositoryIndex = createIndex(repositoryPath + "-other");
+        existenceIndex.mightContain("saved");
+
+        otherRepositoryIndex.add(Collections.singletonList(createPatient("saved")));
+
+        assertThat(existenceIndex.mightContain("saved"), is(false));
+    }
+
+    private ExistenceIndex createIndex(final String path) {
+        return new ExistenceIndex(path, "uuid") {
+            @Override
+            protected Collection<String> readUuidTerms() {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+    private Patient createPatient(final String uuid) {
+        Patient patient = new Patient();
+        patient.setUuid(uuid);
+        return patient;
+    }
+}
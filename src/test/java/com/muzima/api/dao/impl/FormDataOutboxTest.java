@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.FormData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FormDataOutboxTest {
+
+    private File repository;
+
+    private List<FormData> savedFormData;
+
+    private FormDataDaoImpl formDataDao;
+
+    @Before
+    public void prepare() throws Exception {
+        repository = File.createTempFile("muzima", ".lucene");
+        repository.delete();
+        savedFormData = new ArrayList<FormData>();
+        formDataDao = new FormDataDaoImpl() {
+            @Override
+            public List<FormData> getAllFormData(final String patientUuid, final String userUuid,
+                                                 final String status) {
+                List<FormData> formDataList = new ArrayList<FormData>();
+                for (FormData formData : savedFormData) {
+                    if (status.equals(formData.getStatus())) {
+                        formDataList.add(formData);
+                    }
+                }
+                return formDataList;
+            }
+        };
+    }
+
+    @After
+    public void cleanUp() {
+        File[] files = repository.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        repository.delete();
+    }
+
+    @Test
+    public void shouldRebuildTheQueueFromTheRepositoryWhenTheJournalIsMissing() throws Exception {
+        savedFormData.add(createFormData("second", "complete", 2000));
+        savedFormData.add(createFormData("draft", "incomplete", 500));
+        savedFormData.add(createFormData("first", "complete", 1000));
+
+        FormDataOutbox outbox = new FormDataOutbox(repository.getPath(), formDataDao);
+
+        assertThat(outbox.size(), is(2));
+        assertThat(outbox.peek(10), is(Arrays.asList("first", "second")));
+        assertThat(new File(repository, "formdata.outbox").exists(), is(true));
+    }
+
+    @Test
+    public void shouldReplayTheJournalInsteadOfRebuildingTheQueue() throws Exception {
+        savedFormData.add(createFormData("first", "complete", 1000));
+        FormDataOutbox outbox = new FormDataOutbox(repository.getPath(), formDataDao);
+        outbox.remove("first");
+        savedFormData.get(0).setStatus("synced");
+
+        FormDataOutbox reopened = new FormDataOutbox(repository.getPath(), formDataDao);
+
+        assertThat(reopened.size(), is(0));
+    }
+
+    @Test
+    public void shouldQueuePendingFormDataMissingFromAnExistingJournal() throws Exception {
+        FormDataOutbox outbox = new FormDataOutbox(repository.getPath(), formDataDao);
+        outbox.add(createFormData("queued", "incomplete", 500));
+        // saved to the repository without reaching the journal, as when the application stops in between.
+        savedFormData.add(createFormData("unqueued", "complete", 1000));
+
+        FormDataOutbox reopened = new FormDataOutbox(repository.getPath(), formDataDao);
+
+        assertThat(reopened.peek(10), is(Arrays.asList("queued", "unqueued")));
+    }
+
+    @Test
+    public void update_shouldQueuePendingFormDataAndRemoveOtherFormData() throws Exception {
+        FormDataOutbox outbox = new FormDataOutbox(repository.getPath(), formDataDao);
+        FormData formData = createFormData("form", "complete", 1000);
+
+        outbox.update(formData);
+        assertThat(outbox.peek(10), is(Arrays.asList("form")));
+
+        formData.setStatus("incomplete");
+        outbox.update(formData);
+        assertThat(outbox.size(), is(0));
+    }
+
+    private FormData createFormData(final String uuid, final String status, final long saveTime) {
+        FormData formData = new FormData();
+        formData.setUuid(uuid);
+        formData.setStatus(status);
+        formData.setSaveTime(new Date(saveTime));
+        return formData;
+    }
+}
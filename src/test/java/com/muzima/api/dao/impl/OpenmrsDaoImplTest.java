@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.context.ResourceRegistry;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.model.DownloadCheckpoint;
+import com.muzima.api.model.Patient;
+import com.muzima.api.model.Revalidatable;
+import com.muzima.search.api.model.object.Searchable;
+import com.muzima.search.api.resource.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OpenmrsDaoImplTest {
+
+    private static final String RESOURCE = "Search Patient Resource";
+
+    private static final Map<String, String> PARAMETERS = new HashMap<String, String>();
+
+    private List<String> serverPatients;
+
+    private boolean ignorePaging;
+
+    private List<String> requests;
+
+    private Map<String, DownloadCheckpoint> checkpoints;
+
+    private List<String> handled;
+
+    private PatientDaoImpl patientDao;
+
+    @Before
+    public void prepare() throws Exception {
+        serverPatients = new ArrayList<String>();
+        requests = new ArrayList<String>();
+        checkpoints = new HashMap<String, DownloadCheckpoint>();
+        handled = new ArrayList<String>();
+        patientDao = new PatientDaoImpl() {
+            @Override
+            public List<Patient> download(final Map<String, String> resourceParams, final String resource) {
+                int startIndex = Integer.parseInt(resourceParams.get("startIndex"));
+                int limit = Integer.parseInt(resourceParams.get("limit"));
+                requests.add(startIndex + "+" + limit);
+                List<String> uuids = serverPatients;
+                if (!ignorePaging) {
+                    uuids = serverPatients.subList(Math.min(startIndex, serverPatients.size()),
+                            Math.min(startIndex + limit, serverPatients.size()));
+                }
+                List<Patient> patients = new ArrayList<Patient>();
+                for (String uuid : uuids) {
+                    Patient patient = new Patient();
+                    patient.setUuid(uuid);
+                    patients.add(patient);
+                }
+                return patients;
+            }
+        };
+        DownloadCheckpointDaoImpl downloadCheckpointDao = new DownloadCheckpointDaoImpl() {
+            @Override
+            public DownloadCheckpoint get(final String resource, final String paramSignature) {
+                return checkpoints.get(DownloadCheckpoint.createUuid(resource, paramSignature));
+            }
+
+            @Override
+            public void save(final DownloadCheckpoint checkpoint, final String resource) {
+                DownloadCheckpoint saved = new DownloadCheckpoint(checkpoint.getResource(),
+                        checkpoint.getParamSignature());
+                saved.setStartIndex(checkpoint.getStartIndex());
+                saved.setPageSize(checkpoint.getPageSize());
+                checkpoints.put(saved.getUuid(), saved);
+            }
+
+            @Override
+            public void delete(final DownloadCheckpoint checkpoint, final String resource) {
+                checkpoints.remove(checkpoint.getUuid());
+            }
+        };
+        setField("downloadCheckpointDao", downloadCheckpointDao);
+    }
+
+    @Test
+    public void download_shouldReturnAnEmptyListWhenNotModifiedWithoutACachedCopy() throws Exception {
+        setNotModifiedResourceLoader();
+
+        assertThat(patientDao.download(null, PARAMETERS, RESOURCE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void download_shouldReturnAnEmptyListWhenNotModifiedForACachedCopyWithoutValidators() throws Exception {
+        setNotModifiedResourceLoader();
+        Patient cached = new Patient();
+        cached.setUuid("patient-1");
+
+        assertThat(patientDao.download(cached, PARAMETERS, RESOURCE).isEmpty(), is(true));
+    }
+
+    @Test
+    public void downloadInPages_shouldResumeFromTheCheckpointAfterAHandlerFailure() throws Exception {
+        serverPatients.addAll(Arrays.asList("patient-1", "patient-2", "patient-3", "patient-4", "patient-5"));
+        try {
+            patientDao.downloadInPages(PARAMETERS, RESOURCE, 2, new FailingHandler(2));
+            fail("Expected the failure of the handler to be thrown.");
+        } catch (IOException e) {
+            assertThat(getCheckpoint().getStartIndex(), is(2));
+        }
+
+        requests.clear();
+        int count = patientDao.downloadInPages(PARAMETERS, RESOURCE, 2, new FailingHandler(-1));
+
+        assertThat(count, is(3));
+        assertThat(requests, is(Arrays.asList("2+2", "4+2", "5+2")));
+        assertThat(handled, is(Arrays.asList("patient-1", "patient-2", "patient-3", "patient-4", "patient-5")));
+        assertThat(getCheckpoint(), is(nullValue()));
+    }
+
+    @Test
+    public void downloadInPages_shouldDeleteTheCheckpointOnAnEmptyPage() throws Exception {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(RESOURCE, "");
+        checkpoint.setStartIndex(4);
+        checkpoint.setPageSize(2);
+        checkpoints.put(checkpoint.getUuid(), checkpoint);
+        serverPatients.addAll(Arrays.asList("patient-1", "patient-2", "patient-3", "patient-4"));
+
+        int count = patientDao.downloadInPages(PARAMETERS, RESOURCE, 2, new FailingHandler(-1));
+
+        assertThat(count, is(0));
+        assertThat(requests, is(Arrays.asList("4+2")));
+        assertThat(getCheckpoint(), is(nullValue()));
+    }
+
+    @Test
+    public void downloadInPages_shouldEndOnAPageLongerThanThePageSize() throws Exception {
+        serverPatients.addAll(Arrays.asList("patient-1", "patient-2", "patient-3"));
+        ignorePaging = true;
+
+        int count = patientDao.downloadInPages(PARAMETERS, RESOURCE, 2, new FailingHandler(-1));
+
+        assertThat(count, is(3));
+        assertThat(requests, is(Arrays.asList("0+2")));
+        assertThat(getCheckpoint(), is(nullValue()));
+    }
+
+    @Test
+    public void downloadInPages_shouldRestartWhenThePageSizeChanged() throws Exception {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(RESOURCE, "");
+        checkpoint.setStartIndex(2);
+        checkpoint.setPageSize(2);
+        checkpoints.put(checkpoint.getUuid(), checkpoint);
+        serverPatients.addAll(Arrays.asList("patient-1", "patient-2", "patient-3"));
+
+        int count = patientDao.downloadInPages(PARAMETERS, RESOURCE, 3, new FailingHandler(-1));
+
+        assertThat(count, is(3));
+        assertThat(requests, is(Arrays.asList("0+3", "3+3")));
+    }
+
+    private void setNotModifiedResourceLoader() throws Exception {
+        setField("serviceContext", new ResourceRegistry() {
+            @Override
+            public Resource getResource(final String name) {
+                return null;
+            }
+        });
+        setField("resourceLoader", new RemoteResourceLoader() {
+            @Override
+            public List<Searchable> loadIfModified(final Map<String, String> resourceParams, final Resource resource,
+                                                   final Revalidatable cached) {
+                return null;
+            }
+        });
+    }
+
+    private void setField(final String name, final Object value) throws Exception {
+        Field field = OpenmrsDaoImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(patientDao, value);
+    }
+
+    private DownloadCheckpoint getCheckpoint() {
+        return checkpoints.get(DownloadCheckpoint.createUuid(RESOURCE, ""));
+    }
+
+    private class FailingHandler implements DownloadBatchHandler<Patient> {
+
+        private final int failingPage;
+
+        private int page;
+
+        FailingHandler(final int failingPage) {
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        public void handle(final List<Patient> batch) throws IOException {
+            page++;
+            if (page == failingPage) {
+                throw new IOException("Unable to save page " + page);
+            }
+            for (Patient patient : batch) {
+                handled.add(patient.getUuid());
+            }
+        }
+    }
+}
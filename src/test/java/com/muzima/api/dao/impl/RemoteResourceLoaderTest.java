@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.google.inject.Provider;
+import com.muzima.api.config.Configuration;
+import com.muzima.api.config.RequestLimiter;
+import com.muzima.api.config.TransferStatistics;
+import com.muzima.api.exception.HttpResponseException;
+import com.muzima.api.model.FormTemplate;
+import com.muzima.api.model.resolver.BaseOpenmrsResolver;
+import com.muzima.api.transport.HttpRequest;
+import com.muzima.api.transport.HttpResponse;
+import com.muzima.api.transport.HttpTransport;
+import com.muzima.search.api.resource.ObjectResource;
+import com.muzima.search.api.resource.Resource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RemoteResourceLoaderTest {
+
+    private static final Map<String, String> PARAMETERS = new HashMap<String, String>();
+
+    private int statusCode;
+
+    private RequestLimiter requestLimiter;
+
+    private Resource resource;
+
+    private RemoteResourceLoader resourceLoader;
+
+    @Before
+    public void prepare() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.configure("admin", "secret", "http://localhost/openmrs");
+        HttpTransport transport = new HttpTransport() {
+            @Override
+            public HttpResponse execute(final HttpRequest request) {
+                return new StatusResponse(statusCode);
+            }
+        };
+        Provider<Configuration> configurationProvider = new Provider<Configuration>() {
+            @Override
+            public Configuration get() {
+                return configuration;
+            }
+        };
+        requestLimiter = new RequestLimiter() {
+        };
+        Field field = RequestLimiter.class.getDeclaredField("configurationProvider");
+        field.setAccessible(true);
+        field.set(requestLimiter, configurationProvider);
+        resourceLoader = new RemoteResourceLoader(transport, requestLimiter, new TransferStatistics(),
+                configurationProvider);
+        resource = new ObjectResource("Form Template Resource", "$", FormTemplate.class, null,
+                new BaseOpenmrsResolver() {
+                    @Override
+                    public String resolve(final Map<String, String> resourceParams) {
+                        return "http://localhost/openmrs/ws/rest/v1/form";
+                    }
+                });
+    }
+
+    @Test
+    public void fetch_shouldThrowTheStatusCodeOfAServerError() throws Exception {
+        statusCode = 503;
+        try {
+            resourceLoader.fetch(PARAMETERS, resource);
+            fail("Expected the server error to be thrown.");
+        } catch (HttpResponseException e) {
+            assertThat(e.getStatusCode(), is(503));
+        }
+        assertThat(requestLimiter.getInFlight(), is(0));
+    }
+
+    @Test
+    public void loadIfModified_shouldReturnNullWhenTheCachedCopyIsCurrent() throws Exception {
+        statusCode = 304;
+        FormTemplate cached = new FormTemplate();
+        cached.setEntityTag("\"tag\"");
+
+        assertThat(resourceLoader.loadIfModified(PARAMETERS, resource, cached), is(nullValue()));
+    }
+
+    @Test
+    public void openStream_shouldThrowTheStatusCodeOfAnExpiredSession() throws Exception {
+        statusCode = 401;
+        try {
+            resourceLoader.openStream(PARAMETERS, resource);
+            fail("Expected the authentication failure to be thrown.");
+        } catch (HttpResponseException e) {
+            assertThat(e.getStatusCode(), is(401));
+        }
+        assertThat(requestLimiter.getInFlight(), is(0));
+    }
+
+    private static class StatusResponse implements HttpResponse {
+
+        private final int statusCode;
+
+        StatusResponse(final int statusCode) {
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public String getHeader(final String name) {
+            return null;
+        }
+
+        @Override
+        public long getBytesSent() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesReceived() {
+            return 0;
+        }
+
+        @Override
+        public void abort() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
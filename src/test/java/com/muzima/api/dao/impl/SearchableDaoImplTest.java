@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.Cohort;
+import com.muzima.api.model.CohortMember;
+import com.muzima.api.model.Patient;
+import com.muzima.search.api.filter.Filter;
+import com.muzima.search.api.service.RestAssuredService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SearchableDaoImplTest {
+
+    private List<CohortMember> members;
+
+    private List<String> queries;
+
+    private int filterQueries;
+
+    private MemberDaoImpl memberDao;
+
+    @Before
+    public void prepare() throws Exception {
+        members = new ArrayList<CohortMember>();
+        queries = new ArrayList<String>();
+        filterQueries = 0;
+        memberDao = new MemberDaoImpl();
+        memberDao.service = (RestAssuredService) Proxy.newProxyInstance(RestAssuredService.class.getClassLoader(),
+                new Class[]{RestAssuredService.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (!"getObjects".equals(method.getName()) || args.length != 2) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        if (args[0] instanceof List) {
+                            filterQueries++;
+                            return new ArrayList<CohortMember>(members);
+                        }
+                        String query = (String) args[0];
+                        queries.add(query);
+                        List<CohortMember> matching = new ArrayList<CohortMember>();
+                        for (CohortMember member : members) {
+                            if (query.contains("cohortUuid:\"" + member.getCohortUuid() + "\"")) {
+                                matching.add(member);
+                            }
+                        }
+                        return matching;
+                    }
+                });
+    }
+
+    @Test
+    public void getByAnyOf_shouldQueryTheValuesInChunks() throws Exception {
+        List<String> cohortUuids = new ArrayList<String>();
+        for (int i = 0; i < SearchableDaoImpl.MAX_QUERY_VALUES * 2 + 1; i++) {
+            cohortUuids.add("cohort-" + i);
+            members.add(createMember("cohort-" + i, "patient-" + i));
+        }
+
+        List<CohortMember> matching = memberDao.getByAnyOf("cohortUuid", cohortUuids);
+
+        assertThat(matching.size(), is(cohortUuids.size()));
+        assertThat(queries.size(), is(3));
+    }
+
+    @Test
+    public void getByAnyOf_shouldAppendTheCriteriaToEveryChunk() throws Exception {
+        Map<String, String> criteria = new HashMap<String, String>();
+        criteria.put("patientUuid", "patient");
+
+        memberDao.getByAnyOf("cohortUuid", Arrays.asList("first", "second"), criteria);
+
+        assertThat(queries, is(Arrays.asList(
+                "(cohortUuid:\"first\" OR cohortUuid:\"second\") AND patientUuid:\"patient\"")));
+    }
+
+    @Test
+    public void countGroupedBy_shouldCountTheValuesInOnePassOverTheMatchingObjects() throws Exception {
+        members.add(createMember("first", "patient-1"));
+        members.add(createMember("first", "patient-2"));
+        members.add(createMember("second", "patient-1"));
+
+        Map<String, Integer> counts = memberDao.countGroupedBy("cohortUuid",
+                Arrays.asList("first", "second", "third"), null);
+
+        assertThat(counts.get("first"), is(2));
+        assertThat(counts.get("second"), is(1));
+        assertThat(counts.get("third"), is(0));
+        assertThat(queries.size(), is(1));
+    }
+
+    @Test
+    public void countGroupedBy_shouldCountZeroForAnEmptyValueWithoutQueryingIt() throws Exception {
+        members.add(createMember("first", "patient-1"));
+
+        Map<String, Integer> counts = memberDao.countGroupedBy("cohortUuid", Arrays.asList("", "first"), null);
+
+        assertThat(counts.get(""), is(0));
+        assertThat(counts.get("first"), is(1));
+        assertThat(queries, is(Arrays.asList("cohortUuid:\"first\"")));
+    }
+
+    @Test
+    public void countGroupedBy_shouldNotQueryWithoutValues() throws Exception {
+        Map<String, Integer> counts = memberDao.countGroupedBy("cohortUuid", Collections.<String>emptyList(), null);
+
+        assertThat(counts.isEmpty(), is(true));
+        assertThat(queries.isEmpty(), is(true));
+    }
+
+    @Test
+    public void countGroupedBy_shouldGroupTheObjectsMatchingTheFilters() throws Exception {
+        members.add(createMember("first", "patient-1"));
+        members.add(createMember("second", "patient-1"));
+        members.add(createMember("second", "patient-2"));
+
+        Map<String, Integer> counts = memberDao.countGroupedBy("patientUuid", new ArrayList<Filter>());
+
+        assertThat(counts.get("patient-1"), is(2));
+        assertThat(counts.get("patient-2"), is(1));
+        assertThat(filterQueries, is(1));
+    }
+
+    private CohortMember createMember(final String cohortUuid, final String patientUuid) {
+        Cohort cohort = new Cohort();
+        cohort.setUuid(cohortUuid);
+        Patient patient = new Patient();
+        patient.setUuid(patientUuid);
+        return new CohortMember(cohort, patient);
+    }
+}
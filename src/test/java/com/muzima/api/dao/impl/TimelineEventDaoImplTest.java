@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.dao.impl;
+
+import com.muzima.api.model.Observation;
+import com.muzima.api.model.Person;
+import com.muzima.api.model.TimelineEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimelineEventDaoImplTest {
+
+    private List<String> updated;
+
+    private List<String> deleted;
+
+    private TimelineEventDaoImpl timelineEventDao;
+
+    @Before
+    public void prepare() throws Exception {
+        updated = new ArrayList<String>();
+        deleted = new ArrayList<String>();
+        timelineEventDao = new TimelineEventDaoImpl() {
+            @Override
+            public void update(final List<TimelineEvent> timelineEvents, final String resource) {
+                for (TimelineEvent timelineEvent : timelineEvents) {
+                    updated.add(timelineEvent.getUuid());
+                }
+            }
+
+            @Override
+            public void delete(final List<TimelineEvent> timelineEvents, final String resource) {
+                for (TimelineEvent timelineEvent : timelineEvents) {
+                    deleted.add(timelineEvent.getUuid());
+                }
+            }
+        };
+    }
+
+    @Test
+    public void updateEvents_shouldDeleteTheEntriesOfObjectsLeavingTheTimeline() throws Exception {
+        Observation voided = createObservation("voided", new Date());
+        voided.setVoided(true);
+
+        timelineEventDao.updateEvents(Arrays.asList(createObservation("kept", new Date()), voided,
+                createObservation("undated", null)));
+
+        assertThat(updated, is(Arrays.asList("kept")));
+        assertThat(deleted, is(Arrays.asList("voided", "undated")));
+    }
+
+    @Test
+    public void deleteEvents_shouldDeleteTheEntriesOfVoidedObjects() throws Exception {
+        Observation voided = createObservation("voided", new Date());
+        voided.setVoided(true);
+
+        timelineEventDao.deleteEvents(Arrays.asList(createObservation("deleted", new Date()), voided));
+
+        assertThat(deleted, is(Arrays.asList("deleted", "voided")));
+    }
+
+    @Test
+    public void getByPatient_shouldReturnNoEntriesForAnEmptyPatientUuid() throws Exception {
+        assertThat(timelineEventDao.getByPatient("").isEmpty(), is(true));
+        assertThat(timelineEventDao.getByPatient("", null, null).isEmpty(), is(true));
+        assertThat(timelineEventDao.countByPatient("", null, null), is(0));
+    }
+
+    private Observation createObservation(final String uuid, final Date observationDatetime) {
+        Person person = new Person();
+        person.setUuid("patient");
+        Observation observation = new Observation();
+        observation.setUuid(uuid);
+        observation.setPerson(person);
+        observation.setObservationDatetime(observationDatetime);
+        return observation;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TimelineEventTest {
+
+    @Test
+    public void shouldCreateEventFromEncounter() throws Exception {
+        Date encounterDatetime = new Date();
+        Patient patient = new Patient();
+        patient.setUuid("patient-uuid");
+        Encounter encounter = new Encounter();
+        encounter.setUuid("encounter-uuid");
+        encounter.setPatient(patient);
+        encounter.setEncounterDatetime(encounterDatetime);
+
+        TimelineEvent timelineEvent = TimelineEvent.create(encounter);
+        assertThat(timelineEvent.getUuid(), is("encounter-uuid"));
+        assertThat(timelineEvent.getPatientUuid(), is("patient-uuid"));
+        assertThat(timelineEvent.getType(), is(TimelineEvent.Type.ENCOUNTER));
+        assertThat(timelineEvent.getEventDatetime(), is(encounterDatetime));
+    }
+
+    @Test
+    public void shouldUseSaveTimeWhenFormDataHasNoEncounterDate() throws Exception {
+        Date saveTime = new Date();
+        FormData formData = new FormData();
+        formData.setUuid("form-data-uuid");
+        formData.setPatientUuid("patient-uuid");
+        formData.setSaveTime(saveTime);
+
+        TimelineEvent timelineEvent = TimelineEvent.create(formData);
+        assertThat(timelineEvent.getType(), is(TimelineEvent.Type.FORM_DATA));
+        assertThat(timelineEvent.getEventDatetime(), is(saveTime));
+    }
+
+    @Test
+    public void shouldNotCreateEventForObservationWithoutDatetime() throws Exception {
+        Person person = new Person();
+        person.setUuid("patient-uuid");
+        Observation observation = new Observation();
+        observation.setUuid("observation-uuid");
+        observation.setPerson(person);
+
+        assertThat(TimelineEvent.create(observation), nullValue());
+    }
+
+    @Test
+    public void shouldNotCreateEventForVoidedEncounter() throws Exception {
+        Patient patient = new Patient();
+        patient.setUuid("patient-uuid");
+        Encounter encounter = new Encounter();
+        encounter.setUuid("encounter-uuid");
+        encounter.setPatient(patient);
+        encounter.setEncounterDatetime(new Date());
+        encounter.setVoided(true);
+
+        assertThat(TimelineEvent.create(encounter), nullValue());
+    }
+}
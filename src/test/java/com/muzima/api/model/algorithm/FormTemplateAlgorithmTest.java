@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+
+package com.muzima.api.model.algorithm;
+
+import com.muzima.api.model.FormTemplate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class FormTemplateAlgorithmTest {
+
+    private FormTemplateAlgorithm formTemplateAlgorithm;
+
+    @Before
+    public void setup() {
+        formTemplateAlgorithm = new FormTemplateAlgorithm();
+    }
+
+    @Test
+    public void serialize_shouldKeepValidatorsOfTheDownloadedTemplate() throws IOException {
+        FormTemplate formTemplate = new FormTemplate();
+        formTemplate.setUuid("uuid");
+        formTemplate.setHtml("<html/>");
+        formTemplate.setEntityTag("\"1a2b3c\"");
+        formTemplate.setLastModified("Mon, 19 Oct 2026 08:00:00 GMT");
+
+        String json = formTemplateAlgorithm.serialize(formTemplate);
+        FormTemplate deserialized = (FormTemplate) formTemplateAlgorithm.deserialize(json);
+
+        assertThat(deserialized.getUuid(), is("uuid"));
+        assertThat(deserialized.getEntityTag(), is("\"1a2b3c\""));
+        assertThat(deserialized.getLastModified(), is("Mon, 19 Oct 2026 08:00:00 GMT"));
+        assertThat(deserialized.isModified(), is(true));
+    }
+
+    @Test
+    public void deserialize_shouldReadTemplateWithoutValidators() throws IOException {
+        String json = "{\"uuid\":\"uuid\",\"html\":\"<html/>\"}";
+
+        FormTemplate formTemplate = (FormTemplate) formTemplateAlgorithm.deserialize(json);
+
+        assertThat(formTemplate.getHtml(), is("<html/>"));
+        assertThat(formTemplate.getEntityTag(), nullValue());
+        assertThat(formTemplate.getLastModified(), nullValue());
+    }
+}
@@ -20,8 +20,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 
@@ -429,4 +431,21 @@ public class EncounterServiceTest {
         List<Encounter> downloadedEncounters = encounterService.downloadEncountersByPatient(randomPatient);
         assertThat(downloadedEncounters, empty());
     }
+
+    /**
+     * @verifies return number of encounters for each patient.
+     * @see EncounterService#countEncountersByPatientUuids(java.util.List)
+     */
+    @Test
+    public void countEncountersByPatientUuids_shouldReturnNumberOfEncountersForEachPatient() throws Exception {
+        encounterService.saveEncounters(encounters);
+        String randomPatientUuid = UUID.randomUUID().toString();
+        List<String> patientUuids = new ArrayList<String>();
+        patientUuids.add(encounter.getPatient().getUuid());
+        patientUuids.add(randomPatientUuid);
+        Map<String, Integer> counts = encounterService.countEncountersByPatientUuids(patientUuids);
+        assertThat(counts.get(encounter.getPatient().getUuid()),
+                equalTo(encounterService.countEncountersByPatientUuid(encounter.getPatient().getUuid())));
+        assertThat(counts.get(randomPatientUuid), equalTo(0));
+    }
 }
@@ -26,6 +26,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 
@@ -356,4 +357,94 @@ public class ObservationServiceTest {
             assertThat(observationService.getObservationByUuid(savedObservation.getUuid()), nullValue());
         }
     }
+
+    /**
+     * @verifies return the observation with the most recent observation date time.
+     * @see ObservationService#getLatestObservation(String, String)
+     */
+    @Test
+    public void getLatestObservation_shouldReturnTheObservationWithTheMostRecentObservationDateTime() throws Exception {
+        observationService.saveObservations(observations);
+        Person person = observation.getPerson();
+        Concept concept = observation.getConcept();
+        Observation expectedObservation = null;
+        for (Observation savedObservation : observations) {
+            if (savedObservation.getPerson().equals(person) && savedObservation.getConcept().equals(concept)
+                    && !savedObservation.isVoided()
+                    && (expectedObservation == null || !savedObservation.getObservationDatetime()
+                    .before(expectedObservation.getObservationDatetime()))) {
+                expectedObservation = savedObservation;
+            }
+        }
+        Observation latestObservation = observationService.getLatestObservation(person.getUuid(), concept.getUuid());
+        if (expectedObservation == null) {
+            assertThat(latestObservation, nullValue());
+        } else {
+            assertThat(latestObservation.getObservationDatetime(), equalTo(expectedObservation.getObservationDatetime()));
+        }
+    }
+
+    /**
+     * @verifies return null when no observation found for the patient and concept.
+     * @see ObservationService#getLatestObservation(String, String)
+     */
+    @Test
+    public void getLatestObservation_shouldReturnNullWhenNoObservationFoundForThePatientAndConcept() throws Exception {
+        observationService.saveObservations(observations);
+        Person person = observation.getPerson();
+        Concept concept = observation.getConcept();
+        List<Observation> savedObservations =
+                observationService.getObservationsByPatientAndConcept(person.getUuid(), concept.getUuid());
+        observationService.deleteObservations(savedObservations);
+        assertThat(observationService.getLatestObservation(person.getUuid(), concept.getUuid()), nullValue());
+    }
+
+    /**
+     * @verifies return observations grouped by encounter.
+     * @see ObservationService#getObservationsByEncounters(java.util.List)
+     */
+    @Test
+    public void getObservationsByEncounters_shouldReturnObservationsGroupedByEncounter() throws Exception {
+        observationService.saveObservations(observations);
+        List<String> encounterUuids = new ArrayList<String>();
+        for (Observation savedObservation : observations) {
+            if (savedObservation.getEncounter() != null
+                    && !encounterUuids.contains(savedObservation.getEncounter().getUuid())) {
+                encounterUuids.add(savedObservation.getEncounter().getUuid());
+            }
+        }
+        Map<String, List<Observation>> observationsByEncounter =
+                observationService.getObservationsByEncounters(encounterUuids);
+        assertThat(observationsByEncounter.size(), equalTo(encounterUuids.size()));
+        for (String encounterUuid : encounterUuids) {
+            List<Observation> encounterObservations = observationsByEncounter.get(encounterUuid);
+            assertThat(encounterObservations.size(),
+                    equalTo(observationService.getObservationsByEncounter(encounterUuid).size()));
+            for (Observation encounterObservation : encounterObservations) {
+                assertThat(encounterObservation.getEncounter().getUuid(), equalTo(encounterUuid));
+            }
+        }
+    }
+
+    /**
+     * @verifies return an empty map for an empty patient uuid.
+     * @see ObservationService#getObservationsGroupedByEncounter(String)
+     */
+    @Test
+    public void getObservationsGroupedByEncounter_shouldReturnAnEmptyMapForAnEmptyPatientUuid() throws Exception {
+        observationService.saveObservations(observations);
+        assertThat(observationService.getObservationsGroupedByEncounter("").size(), equalTo(0));
+        assertThat(observationService.getObservationsGroupedByEncounter(null).size(), equalTo(0));
+    }
+
+    /**
+     * @verifies return an empty list for an empty patient uuid.
+     * @see ObservationService#getLatestObservationsByPatient(String)
+     */
+    @Test
+    public void getLatestObservationsByPatient_shouldReturnAnEmptyListForAnEmptyPatientUuid() throws Exception {
+        observationService.saveObservations(observations);
+        assertThat(observationService.getLatestObservationsByPatient("").size(), equalTo(0));
+        assertThat(observationService.getLatestObservationsByPatient(null).size(), equalTo(0));
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OperationTokenTest {
+    @Test
+    public void shouldCloseRegisteredResponsesWhenCancelled() throws Exception {
+        final AtomicInteger closed = new AtomicInteger();
+        Closeable response = new Closeable() {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        OperationToken token = new OperationToken();
+        token.register(response);
+        token.cancel();
+        token.cancel();
+        assertThat(closed.get(), is(1));
+        assertThat(token.isCancelled(), is(true));
+    }
+
+    @Test
+    public void shouldRejectWorkAfterCancellation() throws Exception {
+        OperationToken token = new OperationToken();
+        token.cancel();
+        OperationToken previous = OperationToken.attach(token);
+        try {
+            OperationToken.checkCurrent();
+            fail("Cancelled operation should not continue.");
+        } catch (InterruptedIOException e) {
+            // expected.
+        } finally {
+            OperationToken.attach(previous);
+        }
+    }
+
+    @Test
+    public void shouldNotifyListenerAboutProgress() throws Exception {
+        final AtomicInteger notifications = new AtomicInteger();
+        OperationToken token = new OperationToken(new ProgressListener() {
+            @Override
+            public void progressed(final OperationToken token) {
+                notifications.incrementAndGet();
+            }
+        });
+        token.addBytesRead(1024);
+        token.addObjectsParsed(10);
+        token.addObjectsIndexed(10);
+        token.addObjectsIndexed(0);
+        assertThat(token.getBytesRead(), is(1024L));
+        assertThat(token.getObjectsParsed(), is(10L));
+        assertThat(token.getObjectsIndexed(), is(10L));
+        assertThat(notifications.get(), is(3));
+    }
+}
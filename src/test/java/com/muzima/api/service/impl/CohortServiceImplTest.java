@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.muzima.api.dao.impl.CohortDataDaoImpl;
+import com.muzima.api.dao.impl.LastSyncTimeDaoImpl;
+import com.muzima.api.dao.impl.MemberDaoImpl;
+import com.muzima.api.dao.impl.PatientDaoImpl;
+import com.muzima.api.model.APIName;
+import com.muzima.api.model.Cohort;
+import com.muzima.api.model.CohortData;
+import com.muzima.api.model.CohortMember;
+import com.muzima.api.model.LastSyncTime;
+import com.muzima.api.model.Patient;
+import com.muzima.util.Constants;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CohortServiceImplTest {
+
+    private static final String COHORT_UUID = "cohort";
+
+    private List<String> localMembers;
+
+    private List<String> allMembers;
+
+    private List<String> changedMembers;
+
+    private Set<String> localPatients;
+
+    private Set<String> outdatedPatients;
+
+    private LastSyncTime lastSyncTime;
+
+    private List<String> requests;
+
+    private List<String> addedMembers;
+
+    private List<String> removedMembers;
+
+    private List<String> savedPatients;
+
+    private List<String> updatedPatients;
+
+    private CohortServiceImpl cohortService;
+
+    @Before
+    public void prepare() throws Exception {
+        localMembers = new ArrayList<String>();
+        allMembers = new ArrayList<String>();
+        changedMembers = new ArrayList<String>();
+        localPatients = new HashSet<String>();
+        outdatedPatients = new HashSet<String>();
+        requests = new ArrayList<String>();
+        addedMembers = new ArrayList<String>();
+        removedMembers = new ArrayList<String>();
+        savedPatients = new ArrayList<String>();
+        updatedPatients = new ArrayList<String>();
+        MemberDaoImpl memberDao = new MemberDaoImpl() {
+            @Override
+            public List<CohortMember> getByCohortUuid(final String cohortUuid) {
+                List<CohortMember> cohortMembers = new ArrayList<CohortMember>();
+                for (String patientUuid : localMembers) {
+                    cohortMembers.add(new CohortMember(createCohort(false), createPatient(patientUuid)));
+                }
+                return cohortMembers;
+            }
+
+            @Override
+            public void save(final List<CohortMember> cohortMembers, final String resource) {
+                for (CohortMember cohortMember : cohortMembers) {
+                    addedMembers.add(cohortMember.getPatientUuid());
+                }
+            }
+
+            @Override
+            public void delete(final List<CohortMember> cohortMembers, final String resource) {
+                for (CohortMember cohortMember : cohortMembers) {
+                    removedMembers.add(cohortMember.getPatientUuid());
+                }
+            }
+        };
+        CohortDataDaoImpl cohortDataDao = new CohortDataDaoImpl() {
+            @Override
+            public List<CohortData> download(final Map<String, String> resourceParams, final String resource) {
+                boolean delta = resourceParams.containsKey("syncDate");
+                requests.add(resource + (delta ? " since last sync" : ""));
+                List<String> patientUuids = delta ? changedMembers : allMembers;
+                CohortData cohortData = new CohortData();
+                for (String patientUuid : patientUuids) {
+                    cohortData.addPatient(createPatient(patientUuid));
+                }
+                return Collections.singletonList(cohortData);
+            }
+        };
+        PatientDaoImpl patientDao = new PatientDaoImpl() {
+            @Override
+            public List<Patient> download(final Map<String, String> resourceParams, final String resource) {
+                requests.add(resource + " " + resourceParams.get("uuid"));
+                return Collections.singletonList(createPatient(resourceParams.get("uuid")));
+            }
+
+            @Override
+            public List<Patient> getByUuids(final Collection<String> uuids) {
+                List<Patient> patients = new ArrayList<Patient>();
+                for (String uuid : uuids) {
+                    if (localPatients.contains(uuid)) {
+                        Patient patient = createPatient(uuid);
+                        if (outdatedPatients.contains(uuid)) {
+                            patient.setGender("F");
+                        }
+                        patients.add(patient);
+                    }
+                }
+                return patients;
+            }
+
+            @Override
+            public void save(final List<Patient> patients, final String resource) {
+                for (Patient patient : patients) {
+                    savedPatients.add(patient.getUuid());
+                }
+            }
+
+            @Override
+            public void update(final List<Patient> patients, final String resource) {
+                for (Patient patient : patients) {
+                    updatedPatients.add(patient.getUuid());
+                }
+            }
+        };
+        LastSyncTimeDaoImpl lastSyncTimeDao = new LastSyncTimeDaoImpl() {
+            @Override
+            public LastSyncTime getLastSyncTime(final String apiName, final String paramSignature) {
+                return lastSyncTime;
+            }
+
+            @Override
+            public void save(final LastSyncTime saved, final String resource) {
+                lastSyncTime = saved;
+            }
+        };
+        cohortService = new CohortServiceImpl(memberDao, cohortDataDao, patientDao, lastSyncTimeDao);
+    }
+
+    @Test
+    public void syncCohortMembers_shouldAddAndRemoveTheDifferencesOfADynamicCohort() throws Exception {
+        localMembers.addAll(Arrays.asList("kept", "changed", "removed"));
+        localPatients.addAll(Arrays.asList("kept", "changed", "removed"));
+        outdatedPatients.add("changed");
+        allMembers.addAll(Arrays.asList("kept", "changed", "added"));
+
+        int count = cohortService.syncCohortMembers(createCohort(true));
+
+        assertThat(count, is(2));
+        assertThat(addedMembers, is(Arrays.asList("added")));
+        assertThat(removedMembers, is(Arrays.asList("removed")));
+        assertThat(savedPatients, is(Arrays.asList("added")));
+        assertThat(updatedPatients, is(Arrays.asList("changed")));
+        assertThat(requests, is(Arrays.asList(Constants.DYNAMIC_COHORT_DATA_RESOURCE)));
+        assertThat(lastSyncTime.getApiName(), is(APIName.DOWNLOAD_COHORTS_DATA));
+    }
+
+    @Test
+    public void syncCohortMembers_shouldDownloadMissingMembersOfAStaticCohortInOneRequest() throws Exception {
+        lastSyncTime = new LastSyncTime(APIName.DOWNLOAD_COHORTS_DATA, new Date(), COHORT_UUID);
+        localMembers.addAll(Arrays.asList("kept", "removed"));
+        localPatients.addAll(Arrays.asList("kept", "removed"));
+        changedMembers.add("added");
+        allMembers.addAll(Arrays.asList("kept", "added", "missed-1", "missed-2"));
+
+        int count = cohortService.syncCohortMembers(createCohort(false));
+
+        assertThat(count, is(4));
+        Collections.sort(addedMembers);
+        assertThat(addedMembers, is(Arrays.asList("added", "missed-1", "missed-2")));
+        assertThat(removedMembers, is(Arrays.asList("removed")));
+        assertThat(updatedPatients.isEmpty(), is(true));
+        assertThat(requests, is(Arrays.asList(
+                Constants.STATIC_COHORT_DATA_RESOURCE + " since last sync",
+                Constants.STATIC_COHORT_MEMBERSHIP_RESOURCE,
+                Constants.STATIC_COHORT_DATA_RESOURCE)));
+    }
+
+    @Test
+    public void syncCohortMembers_shouldDownloadOneMissingMemberByUuid() throws Exception {
+        lastSyncTime = new LastSyncTime(APIName.DOWNLOAD_COHORTS_DATA, new Date(), COHORT_UUID);
+        localMembers.add("kept");
+        localPatients.add("kept");
+        allMembers.addAll(Arrays.asList("kept", "missed"));
+
+        int count = cohortService.syncCohortMembers(createCohort(false));
+
+        assertThat(count, is(1));
+        assertThat(addedMembers, is(Arrays.asList("missed")));
+        assertThat(removedMembers.isEmpty(), is(true));
+        assertThat(requests, is(Arrays.asList(
+                Constants.STATIC_COHORT_DATA_RESOURCE + " since last sync",
+                Constants.STATIC_COHORT_MEMBERSHIP_RESOURCE,
+                Constants.UUID_PATIENT_RESOURCE + " missed")));
+    }
+
+    @Test
+    public void syncCohortMembers_shouldKeepTheMembersWhenTheServerListsNoMembers() throws Exception {
+        Date lastSyncDate = new Date(0);
+        lastSyncTime = new LastSyncTime(APIName.DOWNLOAD_COHORTS_DATA, lastSyncDate, COHORT_UUID);
+        localMembers.addAll(Arrays.asList("kept-1", "kept-2"));
+        localPatients.addAll(Arrays.asList("kept-1", "kept-2"));
+
+        int count = cohortService.syncCohortMembers(createCohort(false));
+
+        assertThat(count, is(0));
+        assertThat(removedMembers.isEmpty(), is(true));
+        assertThat(lastSyncTime.getLastSyncDate(), is(lastSyncDate));
+    }
+
+    private Cohort createCohort(final boolean dynamic) {
+        Cohort cohort = new Cohort();
+        cohort.setUuid(COHORT_UUID);
+        cohort.setDynamic(dynamic);
+        return cohort;
+    }
+
+    private Patient createPatient(final String uuid) {
+        Patient patient = new Patient();
+        patient.setUuid(uuid);
+        return patient;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.dao.impl.FormDataDaoImpl;
+import com.muzima.api.dao.impl.FormDataOutbox;
+import com.muzima.api.dao.impl.TimelineEventDaoImpl;
+import com.muzima.api.model.FormData;
+import com.muzima.search.api.model.object.Searchable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FormDataUploaderTest {
+
+    private static final String SYNCED = "uploaded";
+
+    private Set<String> rejected;
+
+    private Set<String> sent;
+
+    private List<String> savedStatuses;
+
+    private List<String> updatedEvents;
+
+    private List<String> updatedOutbox;
+
+    private List<String> failingUpdates;
+
+    private FormDataDaoImpl formDataDao;
+
+    private TimelineEventDaoImpl timelineEventDao;
+
+    private FormDataOutbox formDataOutbox;
+
+    private ServiceExecutor serviceExecutor;
+
+    @Before
+    public void prepare() throws Exception {
+        serviceExecutor = new ServiceExecutor();
+        rejected = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        sent = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        savedStatuses = new ArrayList<String>();
+        updatedEvents = new ArrayList<String>();
+        updatedOutbox = new ArrayList<String>();
+        failingUpdates = new ArrayList<String>();
+        formDataDao = new FormDataDaoImpl() {
+            @Override
+            public boolean syncFormData(final FormData formData) {
+                sent.add(formData.getUuid());
+                return !rejected.contains(formData.getUuid());
+            }
+
+            @Override
+            public void update(final List<FormData> formDataList, final String resource) throws IOException {
+                if (!failingUpdates.isEmpty()) {
+                    throw new IOException(failingUpdates.remove(0));
+                }
+                for (FormData formData : formDataList) {
+                    savedStatuses.add(formData.getUuid() + ":" + formData.getStatus());
+                }
+            }
+        };
+        timelineEventDao = new TimelineEventDaoImpl() {
+            @Override
+            public void updateEvents(final List<? extends Searchable> searchables) {
+                for (Searchable searchable : searchables) {
+                    updatedEvents.add(((FormData) searchable).getUuid());
+                }
+            }
+        };
+        formDataOutbox = new FormDataOutbox() {
+            @Override
+            public void update(final FormData formData) {
+                updatedOutbox.add(formData.getUuid());
+            }
+        };
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void upload_shouldSyncTheListOfFormDataToTheServer() throws Exception {
+        FormDataUploader uploader = new FormDataUploader(formDataDao, timelineEventDao, formDataOutbox, serviceExecutor, 2, 20);
+        rejected.add("rejected");
+
+        Map<String, Boolean> outcomes = uploader.upload(Arrays.asList(createFormData("first", "complete"),
+                createFormData("rejected", "complete"), createFormData("done", SYNCED),
+                createFormData("second", "complete")), SYNCED);
+
+        assertThat(new ArrayList<String>(outcomes.keySet()), is(Arrays.asList("first", "rejected", "done", "second")));
+        assertThat(outcomes.get("first"), is(true));
+        assertThat(outcomes.get("rejected"), is(false));
+        assertThat(outcomes.get("done"), is(true));
+        assertThat(outcomes.get("second"), is(true));
+        assertThat(sent.contains("done"), is(false));
+        Collections.sort(savedStatuses);
+        assertThat(savedStatuses, is(Arrays.asList("first:" + SYNCED, "second:" + SYNCED)));
+        Collections.sort(updatedEvents);
+        assertThat(updatedEvents, is(Arrays.asList("first", "second")));
+        Collections.sort(updatedOutbox);
+        assertThat(updatedOutbox, is(Arrays.asList("first", "second")));
+    }
+
+    @Test
+    public void upload_shouldThrowTheFirstFailureWhenSavingTheStatusFailsAgain() throws Exception {
+        FormDataUploader uploader = new FormDataUploader(formDataDao, timelineEventDao, formDataOutbox, serviceExecutor, 1, 1);
+        failingUpdates.add("first failure");
+        failingUpdates.add("second failure");
+
+        try {
+            uploader.upload(Arrays.asList(createFormData("first", "complete"), createFormData("second", "complete")),
+                    SYNCED);
+            fail("Expected the failed status update to be thrown.");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("first failure"));
+        }
+    }
+
+    private FormData createFormData(final String uuid, final String status) {
+        FormData formData = new FormData();
+        formData.setUuid(uuid);
+        formData.setStatus(status);
+        return formData;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.dao.DownloadBatchHandler;
+import com.muzima.api.dao.impl.ObservationDaoImpl;
+import com.muzima.api.model.Observation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ObservationDownloadPlannerTest {
+
+    private static final List<String> PATIENTS = Arrays.asList("patient-1", "patient-2", "patient-3");
+
+    private static final List<String> CONCEPTS = Arrays.asList("concept-1", "concept-2");
+
+    private List<String> requested;
+
+    private String failingPatient;
+
+    private ObservationDaoImpl observationDao;
+
+    private ServiceExecutor serviceExecutor;
+
+    @Before
+    public void prepare() throws Exception {
+        serviceExecutor = new ServiceExecutor();
+        requested = Collections.synchronizedList(new ArrayList<String>());
+        observationDao = new ObservationDaoImpl() {
+            @Override
+            public List<Observation> download(final Map<String, String> resourceParams, final String resource)
+                    throws IOException {
+                return createObservations(resourceParams);
+            }
+
+            @Override
+            public int downloadInBatches(final Map<String, String> resourceParams, final String resource,
+                                         final DownloadBatchHandler<Observation> handler) throws IOException {
+                List<Observation> observations = createObservations(resourceParams);
+                handler.handle(observations);
+                return observations.size();
+            }
+        };
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void download_shouldRequestEveryPatientAndConceptPairOnce() throws Exception {
+        ObservationDownloadPlanner planner = new ObservationDownloadPlanner(observationDao, serviceExecutor, 3, 10);
+
+        List<Observation> observations = planner.download(PATIENTS, CONCEPTS, "resource", null);
+
+        assertThat(requested.size(), is(6));
+        assertThat(getUuids(observations), is(Arrays.asList(
+                "patient-1/concept-1", "patient-1/concept-2", "patient-2/concept-1",
+                "patient-2/concept-2", "patient-3/concept-1", "patient-3/concept-2")));
+    }
+
+    @Test
+    public void download_shouldJoinUuidsUpToTheMaximumParameterLength() throws Exception {
+        ObservationDownloadPlanner planner = new ObservationDownloadPlanner(observationDao, serviceExecutor, 1, 20);
+
+        planner.download(PATIENTS, CONCEPTS, "resource", null);
+
+        assertThat(requested, is(Arrays.asList(
+                "patient-1,patient-2|concept-1,concept-2", "patient-3|concept-1,concept-2")));
+    }
+
+    @Test
+    public void download_shouldHandEveryRequestToTheHandler() throws Exception {
+        ObservationDownloadPlanner planner = new ObservationDownloadPlanner(observationDao, serviceExecutor, 3, 10);
+        final List<String> handled = new ArrayList<String>();
+
+        int count = planner.download(PATIENTS, CONCEPTS, "resource", null, new DownloadBatchHandler<Observation>() {
+            @Override
+            public void handle(final List<Observation> batch) {
+                handled.addAll(getUuids(batch));
+            }
+        });
+
+        assertThat(count, is(6));
+        Collections.sort(handled);
+        assertThat(handled, is(Arrays.asList(
+                "patient-1/concept-1", "patient-1/concept-2", "patient-2/concept-1",
+                "patient-2/concept-2", "patient-3/concept-1", "patient-3/concept-2")));
+    }
+
+    @Test(expected = IOException.class)
+    public void download_shouldRethrowTheFailureOfARequest() throws Exception {
+        failingPatient = "patient-2";
+        ObservationDownloadPlanner planner = new ObservationDownloadPlanner(observationDao, serviceExecutor, 3, 10);
+
+        planner.download(PATIENTS, CONCEPTS, "resource", null);
+    }
+
+    private List<Observation> createObservations(final Map<String, String> resourceParams) throws IOException {
+        String patients = resourceParams.get("person");
+        String concepts = resourceParams.get("concept");
+        requested.add(patients + "|" + concepts);
+        List<Observation> observations = new ArrayList<Observation>();
+        for (String patient : patients.split(",")) {
+            if (patient.equals(failingPatient)) {
+                throw new IOException("Unable to download observations of " + patient);
+            }
+            for (String concept : concepts.split(",")) {
+                Observation observation = new Observation();
+                observation.setUuid(patient + "/" + concept);
+                observations.add(observation);
+            }
+        }
+        return observations;
+    }
+
+    private static List<String> getUuids(final List<Observation> observations) {
+        List<String> uuids = new ArrayList<String>();
+        for (Observation observation : observations) {
+            uuids.add(observation.getUuid());
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.muzima.api.dao.impl.EncounterDaoImpl;
+import com.muzima.api.dao.impl.FormDataDaoImpl;
+import com.muzima.api.dao.impl.ObservationDaoImpl;
+import com.muzima.api.dao.impl.TimelineEventDaoImpl;
+import com.muzima.api.model.Encounter;
+import com.muzima.api.model.FormData;
+import com.muzima.api.model.Observation;
+import com.muzima.api.model.Patient;
+import com.muzima.api.model.Person;
+import com.muzima.api.model.TimelineEvent;
+import com.muzima.api.model.TimelinePage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PatientTimelineServiceImplTest {
+
+    private static final String PATIENT_UUID = "patient";
+
+    private List<TimelineEvent> timelineEvents;
+
+    private int readEvents;
+
+    private PatientTimelineServiceImpl timelineService;
+
+    @Before
+    public void prepare() throws Exception {
+        timelineEvents = new ArrayList<TimelineEvent>();
+        TimelineEventDaoImpl timelineEventDao = new TimelineEventDaoImpl() {
+            @Override
+            public List<TimelineEvent> getByPatient(final String patientUuid, final Date from, final Date to) {
+                List<TimelineEvent> events = getEvents(from, to);
+                readEvents += events.size();
+                return events;
+            }
+
+            @Override
+            public int countByPatient(final String patientUuid, final Date from, final Date to) {
+                return getEvents(from, to).size();
+            }
+        };
+        EncounterDaoImpl encounterDao = new EncounterDaoImpl() {
+            @Override
+            public List<Encounter> getByUuids(final Collection<String> uuids) {
+                List<Encounter> encounters = new ArrayList<Encounter>();
+                for (String uuid : uuids) {
+                    Patient patient = new Patient();
+                    patient.setUuid(PATIENT_UUID);
+                    Encounter encounter = new Encounter();
+                    encounter.setUuid(uuid);
+                    encounter.setPatient(patient);
+                    encounter.setEncounterDatetime(getEventDatetime(uuid));
+                    encounters.add(encounter);
+                }
+                return encounters;
+            }
+        };
+        ObservationDaoImpl observationDao = new ObservationDaoImpl() {
+            @Override
+            public List<Observation> getByUuids(final Collection<String> uuids) {
+                List<Observation> observations = new ArrayList<Observation>();
+                for (String uuid : uuids) {
+                    Person person = new Person();
+                    person.setUuid(PATIENT_UUID);
+                    Observation observation = new Observation();
+                    observation.setUuid(uuid);
+                    observation.setPerson(person);
+                    observation.setObservationDatetime(getEventDatetime(uuid));
+                    observations.add(observation);
+                }
+                return observations;
+            }
+        };
+        FormDataDaoImpl formDataDao = new FormDataDaoImpl() {
+            @Override
+            public List<FormData> getByUuids(final Collection<String> uuids) {
+                List<FormData> formDatas = new ArrayList<FormData>();
+                for (String uuid : uuids) {
+                    FormData formData = new FormData();
+                    formData.setUuid(uuid);
+                    formData.setPatientUuid(PATIENT_UUID);
+                    formData.setEncounterDate(getEventDatetime(uuid));
+                    formDatas.add(formData);
+                }
+                return formDatas;
+            }
+        };
+        timelineService = new PatientTimelineServiceImpl(timelineEventDao, encounterDao, observationDao, formDataDao);
+    }
+
+    @Test
+    public void getTimeline_shouldReturnTheNewestEntriesFirst() throws Exception {
+        addEvent("encounter-1", TimelineEvent.Type.ENCOUNTER, 10);
+        addEvent("observation-1", TimelineEvent.Type.OBSERVATION, 40);
+        addEvent("form-data-1", TimelineEvent.Type.FORM_DATA, 30);
+        addEvent("encounter-2", TimelineEvent.Type.ENCOUNTER, 50);
+        addEvent("observation-2", TimelineEvent.Type.OBSERVATION, 20);
+
+        TimelinePage timelinePage = timelineService.getTimeline(PATIENT_UUID, null, 10);
+
+        assertThat(getUuids(timelinePage),
+                is(Arrays.asList("encounter-2", "observation-1", "form-data-1", "observation-2", "encounter-1")));
+        assertThat(timelinePage.getNextCursor(), is(nullValue()));
+        for (TimelineEvent timelineEvent : timelinePage.getEvents()) {
+            assertThat(TimelineEvent.create(timelineEvent.getSource()).getUuid(), is(timelineEvent.getUuid()));
+        }
+    }
+
+    @Test
+    public void getTimeline_shouldContinueAfterTheCursorOfThePreviousPage() throws Exception {
+        addEvent("encounter-1", TimelineEvent.Type.ENCOUNTER, 30);
+        addEvent("observation-1", TimelineEvent.Type.OBSERVATION, 30);
+        addEvent("form-data-1", TimelineEvent.Type.FORM_DATA, 30);
+        addEvent("encounter-2", TimelineEvent.Type.ENCOUNTER, 20);
+        addEvent("observation-2", TimelineEvent.Type.OBSERVATION, 10);
+
+        TimelinePage firstPage = timelineService.getTimeline(PATIENT_UUID, null, 2);
+        TimelinePage secondPage = timelineService.getTimeline(PATIENT_UUID, firstPage.getNextCursor(), 2);
+        TimelinePage lastPage = timelineService.getTimeline(PATIENT_UUID, secondPage.getNextCursor(), 2);
+
+        assertThat(getUuids(firstPage), is(Arrays.asList("encounter-1", "form-data-1")));
+        assertThat(getUuids(secondPage), is(Arrays.asList("observation-1", "encounter-2")));
+        assertThat(getUuids(lastPage), is(Arrays.asList("observation-2")));
+        assertThat(firstPage.hasNext(), is(true));
+        assertThat(lastPage.hasNext(), is(false));
+    }
+
+    @Test
+    public void getTimeline_shouldOnlyReadTheEntriesNearTheCursor() throws Exception {
+        long now = System.currentTimeMillis();
+        long day = 24 * 60 * 60 * 1000L;
+        timelineEvents.add(new TimelineEvent("encounter-1", PATIENT_UUID, TimelineEvent.Type.ENCOUNTER,
+                new Date(now - day)));
+        timelineEvents.add(new TimelineEvent("encounter-2", PATIENT_UUID, TimelineEvent.Type.ENCOUNTER,
+                new Date(now - 2 * day)));
+        timelineEvents.add(new TimelineEvent("encounter-3", PATIENT_UUID, TimelineEvent.Type.ENCOUNTER,
+                new Date(now - 3 * day)));
+        for (int i = 0; i < 100; i++) {
+            addEvent("observation-" + i, TimelineEvent.Type.OBSERVATION, i);
+        }
+
+        TimelinePage timelinePage = timelineService.getTimeline(PATIENT_UUID, null, 2);
+
+        assertThat(getUuids(timelinePage), is(Arrays.asList("encounter-1", "encounter-2")));
+        assertThat(timelinePage.hasNext(), is(true));
+        assertThat(readEvents, is(3));
+    }
+
+    @Test
+    public void getTimeline_shouldReturnAnEmptyPageForAnEmptyPatientUuid() throws Exception {
+        addEvent("encounter-1", TimelineEvent.Type.ENCOUNTER, 10);
+
+        TimelinePage timelinePage = timelineService.getTimeline("", null, 10);
+
+        assertThat(timelinePage.getEvents().isEmpty(), is(true));
+        assertThat(readEvents, is(0));
+    }
+
+    private void addEvent(final String uuid, final TimelineEvent.Type type, final int minute) {
+        timelineEvents.add(new TimelineEvent(uuid, PATIENT_UUID, type, new Date(minute * 60000L)));
+    }
+
+    private List<TimelineEvent> getEvents(final Date from, final Date to) {
+        List<TimelineEvent> events = new ArrayList<TimelineEvent>();
+        for (TimelineEvent timelineEvent : timelineEvents) {
+            long time = timelineEvent.getEventDatetime().getTime();
+            if ((from == null || time >= from.getTime()) && (to == null || time <= to.getTime())) {
+                events.add(timelineEvent);
+            }
+        }
+        return events;
+    }
+
+    private Date getEventDatetime(final String uuid) {
+        for (TimelineEvent timelineEvent : timelineEvents) {
+            if (timelineEvent.getUuid().equals(uuid)) {
+                return timelineEvent.getEventDatetime();
+            }
+        }
+        return null;
+    }
+
+    private List<String> getUuids(final TimelinePage timelinePage) {
+        List<String> uuids = new ArrayList<String>();
+        for (TimelineEvent timelineEvent : timelinePage.getEvents()) {
+            uuids.add(timelineEvent.getUuid());
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.service.impl;
+
+import com.muzima.api.context.ServiceExecutor;
+import com.muzima.api.dao.impl.LastSyncTimeDaoImpl;
+import com.muzima.api.model.APIName;
+import com.muzima.api.model.LastSyncTime;
+import com.muzima.api.model.SyncStageResult;
+import com.muzima.api.service.SyncStage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SyncServiceImplTest {
+
+    private Map<APIName, LastSyncTime> lastSyncTimes;
+
+    private SyncServiceImpl syncService;
+
+    @Before
+    public void prepare() throws Exception {
+        lastSyncTimes = new HashMap<APIName, LastSyncTime>();
+        syncService = new SyncServiceImpl(new LastSyncTimeDaoImpl() {
+            @Override
+            public LastSyncTime getLastSyncTime(final String apiName) {
+                return lastSyncTimes.get(APIName.valueOf(apiName));
+            }
+
+            @Override
+            public LastSyncTime getLastSyncTime(final String apiName, final String paramSignature) {
+                return lastSyncTimes.get(APIName.valueOf(apiName));
+            }
+
+            @Override
+            public void save(final LastSyncTime lastSyncTime, final String resource) {
+                lastSyncTimes.put(lastSyncTime.getApiName(), lastSyncTime);
+            }
+
+            @Override
+            public void update(final LastSyncTime lastSyncTime, final String resource) {
+                lastSyncTimes.put(lastSyncTime.getApiName(), lastSyncTime);
+            }
+        }, new ServiceExecutor(), 2);
+    }
+
+    @Test
+    public void sync_shouldSkipStagesDependingOnFailedStage() throws Exception {
+        TestStage cohorts = new TestStage(APIName.DOWNLOAD_COHORTS).failing();
+        TestStage cohortData = new TestStage(APIName.DOWNLOAD_COHORTS_DATA, APIName.DOWNLOAD_COHORTS);
+        TestStage encounters = new TestStage(APIName.DOWNLOAD_ENCOUNTERS, APIName.DOWNLOAD_COHORTS_DATA);
+        TestStage forms = new TestStage(APIName.DOWNLOAD_FORMS);
+
+        Map<APIName, SyncStageResult.Status> statuses =
+                getStatuses(syncService.sync(Arrays.<SyncStage>asList(cohorts, cohortData, encounters, forms), null));
+
+        assertThat(statuses.get(APIName.DOWNLOAD_COHORTS), is(SyncStageResult.Status.FAILED));
+        assertThat(statuses.get(APIName.DOWNLOAD_COHORTS_DATA), is(SyncStageResult.Status.SKIPPED));
+        assertThat(statuses.get(APIName.DOWNLOAD_ENCOUNTERS), is(SyncStageResult.Status.SKIPPED));
+        assertThat(statuses.get(APIName.DOWNLOAD_FORMS), is(SyncStageResult.Status.COMPLETED));
+        assertThat(cohortData.synced, is(false));
+        assertThat(encounters.synced, is(false));
+    }
+
+    @Test(expected = IOException.class)
+    public void sync_shouldRejectCyclicDependencies() throws Exception {
+        TestStage cohorts = new TestStage(APIName.DOWNLOAD_COHORTS, APIName.DOWNLOAD_COHORTS_DATA);
+        TestStage cohortData = new TestStage(APIName.DOWNLOAD_COHORTS_DATA, APIName.DOWNLOAD_COHORTS);
+        syncService.sync(Arrays.<SyncStage>asList(cohorts, cohortData), null);
+    }
+
+    @Test
+    public void sync_shouldStartIndependentStagesInParallel() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        TestStage forms = new TestStage(APIName.DOWNLOAD_FORMS).waitingFor(barrier);
+        TestStage cohorts = new TestStage(APIName.DOWNLOAD_COHORTS).waitingFor(barrier);
+
+        Map<APIName, SyncStageResult.Status> statuses =
+                getStatuses(syncService.sync(Arrays.<SyncStage>asList(forms, cohorts), null));
+
+        assertThat(statuses.get(APIName.DOWNLOAD_FORMS), is(SyncStageResult.Status.COMPLETED));
+        assertThat(statuses.get(APIName.DOWNLOAD_COHORTS), is(SyncStageResult.Status.COMPLETED));
+    }
+
+    @Test
+    public void sync_shouldRecordLastSyncTimeOnlyForCompletedStages() throws Exception {
+        TestStage forms = new TestStage(APIName.DOWNLOAD_FORMS);
+        TestStage cohorts = new TestStage(APIName.DOWNLOAD_COHORTS).failing();
+
+        syncService.sync(Arrays.<SyncStage>asList(forms, cohorts), null);
+
+        assertThat(forms.lastSyncTime, is(nullValue()));
+        assertThat(lastSyncTimes.get(APIName.DOWNLOAD_FORMS), is(notNullValue()));
+        assertThat(lastSyncTimes.get(APIName.DOWNLOAD_COHORTS), is(nullValue()));
+
+        LastSyncTime recorded = lastSyncTimes.get(APIName.DOWNLOAD_FORMS);
+        syncService.sync(Arrays.<SyncStage>asList(forms), null);
+        assertThat(forms.lastSyncTime == recorded, is(true));
+    }
+
+    private Map<APIName, SyncStageResult.Status> getStatuses(final List<SyncStageResult> results) {
+        Map<APIName, SyncStageResult.Status> statuses = new HashMap<APIName, SyncStageResult.Status>();
+        for (SyncStageResult result : results) {
+            statuses.put(result.getApiName(), result.getStatus());
+        }
+        return statuses;
+    }
+
+    private static class TestStage implements SyncStage {
+
+        private final APIName apiName;
+
+        private final Set<APIName> dependencies;
+
+        private boolean failing;
+
+        private CyclicBarrier barrier;
+
+        private volatile boolean synced;
+
+        private volatile LastSyncTime lastSyncTime;
+
+        TestStage(final APIName apiName, final APIName... dependencies) {
+            this.apiName = apiName;
+            this.dependencies = EnumSet.noneOf(APIName.class);
+            this.dependencies.addAll(Arrays.asList(dependencies));
+        }
+
+        TestStage failing() {
+            failing = true;
+            return this;
+        }
+
+        TestStage waitingFor(final CyclicBarrier barrier) {
+            this.barrier = barrier;
+            return this;
+        }
+
+        @Override
+        public APIName getApiName() {
+            return apiName;
+        }
+
+        @Override
+        public Set<APIName> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public int sync(final LastSyncTime lastSyncTime) throws IOException {
+            this.lastSyncTime = lastSyncTime;
+            if (barrier != null) {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IOException("Stage " + apiName + " was not started in parallel.");
+                }
+            }
+            if (failing) {
+                throw new IOException("Unable to sync " + apiName);
+            }
+            synced = true;
+            return 1;
+        }
+    }
+}
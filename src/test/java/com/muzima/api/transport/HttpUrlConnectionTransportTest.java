@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.api.transport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class HttpUrlConnectionTransportTest {
+
+    private HttpServer server;
+
+    private String url;
+
+    private volatile HttpExchange exchange;
+
+    private volatile byte[] requestBody;
+
+    private volatile byte[] responseBody;
+
+    private volatile int responseCode;
+
+    private volatile boolean compressResponse;
+
+    private HttpUrlConnectionTransport transport;
+
+    @Before
+    public void prepare() throws Exception {
+        responseCode = 200;
+        responseBody = "{\"results\":[]}".getBytes("UTF-8");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange httpExchange) throws IOException {
+                exchange = httpExchange;
+                requestBody = read(httpExchange.getRequestBody());
+                byte[] body = responseBody;
+                if (compressResponse) {
+                    body = gzip(body);
+                    httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                httpExchange.sendResponseHeaders(responseCode, body.length == 0 ? -1 : body.length);
+                OutputStream outputStream = httpExchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/ws/rest/v1/patient";
+        transport = new HttpUrlConnectionTransport();
+    }
+
+    @After
+    public void cleanUp() {
+        server.stop(0);
+    }
+
+    @Test
+    public void execute_shouldSendTheHeadersOfTheRequest() throws Exception {
+        HttpRequest request = new HttpRequest("GET", url);
+        request.setHeader("Authorization", "Basic YWRtaW46dGVzdA==");
+        request.setHeader("If-None-Match", "\"v1\"");
+
+        HttpResponse response = transport.execute(request);
+        read(response.getBody());
+        response.close();
+
+        assertThat(exchange.getRequestMethod(), is("GET"));
+        assertThat(exchange.getRequestHeaders().getFirst("Authorization"), is("Basic YWRtaW46dGVzdA=="));
+        assertThat(exchange.getRequestHeaders().getFirst("If-None-Match"), is("\"v1\""));
+        assertThat(exchange.getRequestHeaders().getFirst("Accept-Encoding"), is(nullValue()));
+    }
+
+    @Test
+    public void execute_shouldCompressTheBodyAndCountTheBytesSent() throws Exception {
+        final byte[] payload = "{\"payload\":\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\"}".getBytes("UTF-8");
+        HttpRequest request = new HttpRequest("POST", url);
+        request.setCompressBody(true);
+        request.setBody("application/json", new RequestBody() {
+            @Override
+            public void writeTo(final OutputStream outputStream) throws IOException {
+                outputStream.write(payload);
+            }
+        });
+
+        HttpResponse response = transport.execute(request);
+        read(response.getBody());
+        response.close();
+
+        assertThat(exchange.getRequestHeaders().getFirst("Content-Type"), is("application/json"));
+        assertThat(exchange.getRequestHeaders().getFirst("Content-Encoding"), is("gzip"));
+        assertThat(new String(read(new GZIPInputStream(new ByteArrayInputStream(requestBody))), "UTF-8"),
+                is(new String(payload, "UTF-8")));
+        assertThat(response.getBytesSent(), is((long) requestBody.length));
+    }
+
+    @Test
+    public void execute_shouldDecompressTheResponseAndCountTheBytesReceived() throws Exception {
+        compressResponse = true;
+        HttpRequest request = new HttpRequest("GET", url);
+        request.setAcceptCompressed(true);
+
+        HttpResponse response = transport.execute(request);
+        byte[] body = read(response.getBody());
+        response.close();
+
+        assertThat(exchange.getRequestHeaders().getFirst("Accept-Encoding"), is("gzip"));
+        assertThat(new String(body, "UTF-8"), is(new String(responseBody, "UTF-8")));
+        assertThat(response.getBytesReceived(), is((long) gzip(responseBody).length));
+    }
+
+    @Test
+    public void execute_shouldReturnTheBodyOfErrorResponses() throws Exception {
+        responseCode = 500;
+        responseBody = "{\"error\":\"failed\"}".getBytes("UTF-8");
+
+        HttpResponse response = transport.execute(new HttpRequest("GET", url));
+        byte[] body = read(response.getBody());
+        response.close();
+
+        assertThat(response.getStatusCode(), is(500));
+        assertThat(new String(body, "UTF-8"), is("{\"error\":\"failed\"}"));
+    }
+
+    @Test
+    public void getBody_shouldReturnAnEmptyBodyForAnErrorResponseWithoutBody() throws Exception {
+        responseCode = 404;
+        responseBody = new byte[0];
+
+        HttpResponse response = transport.execute(new HttpRequest("GET", url));
+        byte[] body = read(response.getBody());
+        response.close();
+
+        assertThat(response.getStatusCode(), is(404));
+        assertThat(body.length, is(0));
+    }
+
+    private static byte[] read(final InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] gzip(final byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream);
+        gzipStream.write(bytes);
+        gzipStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+    @Test
+    public void shouldContainEveryAddedValue() throws Exception {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        List<String> uuids = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            String uuid = UUID.randomUUID().toString();
+            uuids.add(uuid);
+            filter.put(uuid);
+        }
+        for (String uuid : uuids) {
+            assertThat(filter.mightContain(uuid), is(true));
+        }
+    }
+
+    @Test
+    public void shouldRejectMostValuesThatWereNotAdded() throws Exception {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    @Test
+    public void shouldBeSaturatedWhenMoreValuesThanCapacityWereAdded() throws Exception {
+        BloomFilter filter = new BloomFilter(2, 0.01);
+        filter.put("first");
+        filter.put("second");
+        assertThat(filter.isSaturated(), is(false));
+        filter.put("third");
+        assertThat(filter.isSaturated(), is(true));
+    }
+}
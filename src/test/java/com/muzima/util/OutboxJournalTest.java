@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014. The Trustees of Indiana University.
+ *
+ * This version of the code is licensed under the MPL 2.0 Open Source license with additional
+ * healthcare disclaimer. If the user is an entity intending to commercialize any application
+ * that uses this code in a for-profit venture, please contact the copyright holder.
+ */
+package com.muzima.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OutboxJournalTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("outbox", ".journal");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+        new File(file.getPath() + ".lock").delete();
+    }
+
+    @Test
+    public void shouldReturnDueIdsInTimeOrder() throws Exception {
+        OutboxJournal journal = new OutboxJournal(file);
+        journal.add("third", 300);
+        journal.add("first", 100);
+        journal.add("second", 200);
+        journal.attempted("first", 1000);
+
+        List<OutboxJournal.Entry> due = journal.peek(500, 10);
+        assertThat(due.size(), is(2));
+        assertThat(due.get(0).getId(), is("second"));
+        assertThat(due.get(1).getId(), is("third"));
+        assertThat(journal.peek(1000, 10).get(0).getId(), is("first"));
+        journal.close();
+    }
+
+    @Test
+    public void shouldReplayJournalAfterReopening() throws Exception {
+        OutboxJournal journal = new OutboxJournal(file);
+        journal.add("first", 100);
+        journal.add("second", 200);
+        journal.add("third", 300);
+        journal.remove("second");
+        journal.attempted("third", 400);
+        journal.close();
+
+        OutboxJournal replayed = new OutboxJournal(file);
+        assertThat(replayed.size(), is(2));
+        assertThat(replayed.get("second") == null, is(true));
+        assertThat(replayed.get("third").getAttempts(), is(1));
+        assertThat(replayed.get("third").getNextAttemptTime(), is(400L));
+        replayed.close();
+    }
+
+    @Test
+    public void shouldKeepQueuedIdsWhenJournalIsCompacted() throws Exception {
+        OutboxJournal journal = new OutboxJournal(file);
+        for (int i = 0; i < 5000; i++) {
+            journal.add("id-" + i, i);
+            if (i % 10 != 0) {
+                journal.remove("id-" + i);
+            }
+        }
+        journal.close();
+
+        OutboxJournal replayed = new OutboxJournal(file);
+        assertThat(replayed.size(), is(500));
+        assertThat(replayed.peek(Long.MAX_VALUE, 1).get(0).getId(), is("id-0"));
+        replayed.close();
+    }
+
+    @Test
+    public void shouldNotOpenAJournalWhichIsAlreadyOpen() throws Exception {
+        OutboxJournal journal = new OutboxJournal(file);
+        journal.add("first", 100);
+        try {
+            new OutboxJournal(file);
+            fail("Expected the locked journal not to open.");
+        } catch (IOException e) {
+            // the journal is locked by the open journal.
+        }
+        journal.close();
+
+        OutboxJournal reopened = new OutboxJournal(file);
+        assertThat(reopened.size(), is(1));
+        reopened.close();
+    }
+}